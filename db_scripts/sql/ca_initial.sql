@@ -107,6 +107,12 @@ CREATE TABLE IF NOT EXISTS `ca_tasks` (
   `task_id` bigint(20) NOT NULL AUTO_INCREMENT,
   `task_type` int(11) NOT NULL,
   `user_id` bigint(20) DEFAULT NULL,
+  `backends_unknown` int(11) NOT NULL DEFAULT '0',
+  `backends_not_started` int(11) NOT NULL DEFAULT '0',
+  `backends_pending` int(11) NOT NULL DEFAULT '0',
+  `backends_executing` int(11) NOT NULL DEFAULT '0',
+  `backends_completed` int(11) NOT NULL DEFAULT '0',
+  `backends_error` int(11) NOT NULL DEFAULT '0',
   `row_updated` timestamp NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
   `row_created` timestamp NOT NULL DEFAULT '0000-00-00 00:00:00',
   PRIMARY KEY (`task_id`),
@@ -231,6 +237,18 @@ CREATE TABLE IF NOT EXISTS `ca_media_object_associations` (
 -- Data exporting was unselected.
 
 
+-- Dumping structure for table ca_frontend.ca_metadata_removals
+CREATE TABLE IF NOT EXISTS `ca_metadata_removals` (
+  `user_id` bigint(20) NOT NULL,
+  `service_id` int(11) NOT NULL,
+  `row_updated` timestamp NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+  `row_created` timestamp NOT NULL DEFAULT '0000-00-00 00:00:00',
+  PRIMARY KEY (`user_id`,`service_id`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8;
+
+-- Data exporting was unselected.
+
+
 -- Dumping structure for table ca_frontend.users_ip
 CREATE TABLE IF NOT EXISTS `users_ip` (
   `ip_address` varchar(40) NOT NULL,
@@ -256,16 +274,31 @@ CREATE TABLE IF NOT EXISTS `fbj_weight_modifiers` (
 -- Data exporting was unselected.
 
 
+-- Dumping structure for table ca_frontend.fs_file_removals
+CREATE TABLE IF NOT EXISTS `fs_file_removals` (
+  `removal_id` bigint(20) NOT NULL AUTO_INCREMENT,
+  `saved_name` varchar(128) NOT NULL,
+  `attempts` int(11) NOT NULL DEFAULT '0',
+  `row_updated` timestamp NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+  `row_created` timestamp NOT NULL DEFAULT '0000-00-00 00:00:00',
+  PRIMARY KEY (`removal_id`),
+  KEY `saved_name_INDEX` (`saved_name`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8;
+
+-- Data exporting was unselected.
+
+
 -- Dumping structure for table ca_frontend.fs_files
 CREATE TABLE IF NOT EXISTS `fs_files` (
   `file_id` bigint(20) NOT NULL AUTO_INCREMENT,
   `original_name` varchar(255) DEFAULT NULL,
-  `saved_name` varchar(55) NOT NULL,
+  `saved_name` varchar(128) NOT NULL,
+  `sha256` char(64) DEFAULT NULL,
   `user_id` bigint(20) NOT NULL,
   `row_updated` timestamp NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
   `row_created` timestamp NOT NULL DEFAULT '0000-00-00 00:00:00',
   PRIMARY KEY (`file_id`),
-  UNIQUE KEY `saved_name_UNIQUE` (`saved_name`),
+  KEY `saved_name_INDEX` (`saved_name`),
   KEY `user_id_INDEX` (`user_id`)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8;
 
@@ -15,9 +15,17 @@
  */
 package core.tut.pori.context;
 
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.SQLException;
 import java.util.Date;
+import java.util.Map.Entry;
+
+import javax.sql.DataSource;
 
 import org.apache.log4j.Logger;
+import org.apache.solr.client.solrj.SolrClient;
+import org.apache.solr.client.solrj.SolrServerException;
 import org.springframework.beans.BeansException;
 import org.springframework.context.support.ClassPathXmlApplicationContext;
 
@@ -65,6 +73,31 @@ public class DAOHandler {
 		}
 	}
 	
+	/**
+	 * Resolve the DAO beans, and open the database and Solr connections.
+	 * 
+	 * Failures are logged, but otherwise ignored, the warm-up is done only to reduce the latency of the first requests.
+	 */
+	public void warmUp(){
+		LOGGER.debug("Found "+_context.getBeansOfType(DAO.class).size()+" DAOs.");
+		for(Entry<String, DataSource> e : _context.getBeansOfType(DataSource.class).entrySet()){
+			try(Connection connection = e.getValue().getConnection()){
+				if(!connection.isValid(0)){
+					LOGGER.warn("Invalid connection for data source: "+e.getKey());
+				}
+			} catch (SQLException ex) {
+				LOGGER.warn("Failed to open connection for data source: "+e.getKey(), ex);
+			}
+		}
+		for(Entry<String, SolrClient> e : _context.getBeansOfType(SolrClient.class).entrySet()){
+			try {
+				e.getValue().ping();
+			} catch (SolrServerException | IOException ex) {
+				LOGGER.warn("Failed to ping Solr server: "+e.getKey(), ex);
+			}
+		}
+	}
+	
 	/**
 	 * Note: the comparison is done using exactly the given class, no super or sub class of the type will be returned.
 	 * 
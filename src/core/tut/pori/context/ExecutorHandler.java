@@ -17,6 +17,7 @@ package core.tut.pori.context;
 
 import java.util.Date;
 import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
@@ -27,6 +28,7 @@ import org.quartz.SchedulerException;
 import org.quartz.impl.StdSchedulerFactory;
 
 import core.tut.pori.properties.ExecutorProperties;
+import core.tut.pori.trace.TraceContext;
 import core.tut.pori.utils.StringUtils;
 
 /**
@@ -36,6 +38,8 @@ import core.tut.pori.utils.StringUtils;
  * 
  * This class requires PropertyHandler to be initialized.
  * 
+ * Request traces (see {@link core.tut.pori.context.TraceHandler}) are automatically carried over to tasks submitted to the system executor.
+ * 
  * One should not initialize this handler directly, as an instantiated version is available from ServiceInitializer.
  */
 public class ExecutorHandler {
@@ -43,7 +47,7 @@ public class ExecutorHandler {
 	private static final String QUARTZ_CONFIGURATION_FILE = "quartz.properties";
 	private static final String QUARTZ_SYSTEM_PROPERTY = "org.quartz.properties";
 	private Scheduler _scheduler = null;
-	private ExecutorService _executor = null;
+	private ThreadPoolExecutor _executor = null;
 
 	/**
 	 * 
@@ -83,7 +87,12 @@ public class ExecutorHandler {
 		}
 		
 		ExecutorProperties properties = ServiceInitializer.getPropertyHandler().getSystemProperties(ExecutorProperties.class);
-		_executor = new ThreadPoolExecutor(properties.getCoreCount(), properties.getPoolSize(), properties.getKeepAlive(), TimeUnit.SECONDS, new ArrayBlockingQueue<Runnable>(properties.getQueueSize()));
+		_executor = new ThreadPoolExecutor(properties.getCoreCount(), properties.getPoolSize(), properties.getKeepAlive(), TimeUnit.SECONDS, new ArrayBlockingQueue<Runnable>(properties.getQueueSize())){
+			@Override
+			public void execute(Runnable command) {
+				super.execute(TraceContext.wrap(command));	// carry the request trace (if any) to the executing thread
+			}
+		};
 		
 		LOGGER.debug("Property Handler initialized in "+StringUtils.getDurationString(started, new Date()));
 	}
@@ -113,4 +122,24 @@ public class ExecutorHandler {
 	public ExecutorService getExecutor() {
 		return _executor;
 	}
+	
+	/**
+	 * Background jobs generating large amounts of work should check the queue before starting, and re-schedule themselves if the queue is congested.
+	 * When the queue is full, the executor will reject new tasks.
+	 * 
+	 * @return the number of tasks waiting in the executor queue
+	 * @see #getQueueCapacity()
+	 */
+	public int getQueuedTaskCount() {
+		return _executor.getQueue().size();
+	}
+	
+	/**
+	 * 
+	 * @return the maximum number of tasks the executor queue can hold
+	 */
+	public int getQueueCapacity() {
+		BlockingQueue<Runnable> queue = _executor.getQueue();
+		return queue.size() + queue.remainingCapacity();
+	}
 }
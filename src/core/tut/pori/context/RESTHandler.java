@@ -27,9 +27,11 @@ import org.apache.log4j.Logger;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 
+import core.tut.pori.http.Definitions;
 import core.tut.pori.http.Response;
 import core.tut.pori.http.Response.Status;
 import core.tut.pori.http.ServiceRequest;
+import core.tut.pori.trace.Trace;
 import core.tut.pori.users.UserIdentity;
 
 /**
@@ -71,30 +73,45 @@ public class RESTHandler extends HttpServlet{
 		String pathInfo = req.getPathInfo();
 		LOGGER.debug("Received request "+req.getMethod()+" "+pathInfo+" from "+req.getRemoteAddr());	
 
-		Response r = null;
-		ServiceRequest serviceRequest = null;
+		TraceHandler traceHandler = ServiceInitializer.getTraceHandler();
+		Trace trace = traceHandler.beginTrace(req.getMethod(), pathInfo);
 		try{
-			serviceRequest = ServiceRequest.createRequest(getAuthenticatedUser(), req);
-			r = ServiceInitializer.getServiceHandler().invoke(serviceRequest);	// chop the trailing separator from method name if present
-		}catch(Throwable ex){	// do not allow exceptions to get through
-			LOGGER.error(ExceptionUtils.getStackTrace(ex));	// make sure the stacktrace gets printed if something else than IllegalArgumentException is thrown
-			r = new Response();
-			r.setStatus(Status.INTERNAL_SERVER_ERROR);
-		}
-		
-		if(serviceRequest != null){	// check if no service or method name is set, and set the default if needed
-			String service = r.getService();
-			if(service == null){
-				r.setService(serviceRequest.getServiceName());
+			Response r = null;
+			ServiceRequest serviceRequest = null;
+			try{
+				serviceRequest = ServiceRequest.createRequest(getAuthenticatedUser(), req);
+				if(trace != null){
+					trace.setServiceName(serviceRequest.getServiceName());
+					trace.setMethodName(serviceRequest.getMethodName());
+				}
+				r = ServiceInitializer.getServiceHandler().invoke(serviceRequest);	// chop the trailing separator from method name if present
+			}catch(Throwable ex){	// do not allow exceptions to get through
+				LOGGER.error(ExceptionUtils.getStackTrace(ex));	// make sure the stacktrace gets printed if something else than IllegalArgumentException is thrown
+				r = new Response();
+				r.setStatus(Status.INTERNAL_SERVER_ERROR);
+			}
+			
+			if(serviceRequest != null){	// check if no service or method name is set, and set the default if needed
+				String service = r.getService();
+				if(service == null){
+					r.setService(serviceRequest.getServiceName());
+				}
+				String method = r.getMethod();
+				if(method == null){
+					r.setMethod(serviceRequest.getMethodName());
+				}
+			}else{
+				LOGGER.warn("Failed to create "+ServiceRequest.class.toString());
 			}
-			String method = r.getMethod();
-			if(method == null){
-				r.setMethod(serviceRequest.getMethodName());
+			String acceptEncoding = req.getHeader(Definitions.HEADER_ACCEPT_ENCODING);
+			r.setCompressionAccepted(acceptEncoding != null && acceptEncoding.contains(Definitions.ENCODING_GZIP));
+			r.writeTo(resp);
+			if(trace != null){
+				trace.setStatus(r.getStatus().name());
 			}
-		}else{
-			LOGGER.warn("Failed to create "+ServiceRequest.class.toString());
+		}finally{
+			traceHandler.endTrace(trace);
 		}
-		r.writeTo(resp);
 	}
 	
 	/**
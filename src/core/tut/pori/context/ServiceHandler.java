@@ -25,6 +25,8 @@ import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
 
 import org.apache.commons.lang3.exception.ExceptionUtils;
 import org.apache.commons.lang3.tuple.Pair;
@@ -44,8 +46,11 @@ import core.tut.pori.http.annotations.HTTPServiceMethod;
 import core.tut.pori.http.headers.HTTPHeader;
 import core.tut.pori.http.parameters.AuthenticationParameter;
 import core.tut.pori.http.parameters.HTTPParameter;
+import core.tut.pori.http.parameters.Limits;
+import core.tut.pori.properties.LimitsProperties;
 import core.tut.pori.users.UserIdentity;
 import core.tut.pori.utils.StringUtils;
+import core.tut.pori.utils.XMLFormatter;
 
 /**
  * This class initializes and handles the Service registry. 
@@ -185,6 +190,49 @@ public class ServiceHandler {
 		return invoke(method.getMethod(), args, method.getReturnType(), service.getServiceObject());
 	}
 
+	/**
+	 * Invoke all service methods accepting only HTTP GET with an anonymous request without parameters, and marshal the default XML responses.
+	 * 
+	 * Methods accepting only HTTP GET are expected to be safe (read-only). Methods that also accept other HTTP methods (the default for {@link core.tut.pori.http.annotations.HTTPServiceMethod}) are never invoked,
+	 * as they may change state. Methods requiring authentication or parameters will be rejected on parameter validation,
+	 * but the parameter and response classes will still be loaded and initialized. Exceptions are logged, but otherwise ignored.
+	 * 
+	 * @param iterations the number of times each method is invoked
+	 * @return the number of invocations
+	 */
+	public int warmUp(int iterations){
+		XMLFormatter formatter = new XMLFormatter();
+		int count = 0;
+		for(int i=0;i<iterations;++i){
+			for(Entry<String, Service> e : _services.entrySet()){
+				Service service = e.getValue();
+				for(Pair<String, String> method : service.getMethods()){
+					if(!Definitions.METHOD_GET.equals(method.getRight()) || !service.getMethod(Definitions.METHOD_GET, method.getLeft()).isGetOnly()){
+						continue;
+					}
+					if(Thread.currentThread().isInterrupted()){
+						LOGGER.debug("Warm-up was interrupted.");
+						return count;
+					}
+					ServiceRequest request = new ServiceRequest();
+					request.setServiceName(e.getKey());
+					request.setMethodName(method.getLeft());
+					request.setHttpMethod(Definitions.METHOD_GET);
+					try{
+						Response response = invoke(request);
+						if(response.getClass() == Response.class){ // sub-classes may use other output formats
+							formatter.toString(response);
+						}
+					} catch (Throwable ex){
+						LOGGER.debug(ex, ex);
+					}
+					++count;
+				}
+			}
+		}
+		return count;
+	}
+
 	/**
 	 * 
 	 * @param method
@@ -263,6 +311,9 @@ public class ServiceHandler {
 						p.initializeRaw(values);
 					}
 				}
+				if(p instanceof Limits){
+					restrictLimits((Limits) p, serviceRequest);
+				}
 				methodArgs[param.getParameterIndex()] = p;
 			}
 		} catch (InstantiationException | IllegalAccessException ex) {	// this should not happen
@@ -271,6 +322,20 @@ public class ServiceHandler {
 		}
 	}
 
+	/**
+	 * Apply the page size restrictions configured for the requested service method.
+	 * 
+	 * @param limits
+	 * @param serviceRequest
+	 * @see core.tut.pori.properties.LimitsProperties
+	 */
+	private void restrictLimits(Limits limits, ServiceRequest serviceRequest){
+		LimitsProperties properties = ServiceInitializer.getPropertyHandler().getSystemProperties(LimitsProperties.class);
+		String serviceName = serviceRequest.getServiceName();
+		String methodName = serviceRequest.getMethodName();
+		limits.restrictMaxItems(properties.getDefaultMaxItems(serviceName, methodName), properties.getMaxItems(serviceName, methodName));
+	}
+
 	/**
 	 * 
 	 * @param methodArgs argument list for the method to be called, the parameter will be set to this array to its correct index if needed
@@ -323,7 +388,9 @@ public class ServiceHandler {
 				try {
 					AuthenticationParameter p = authParam.getParameter().newInstance();
 					p.setUserIdentity(authenticatedUser);
-					p.setSession(serviceRequest.getSession());
+					if(serviceRequest.getRequest() != null){ // synthetic (warm-up) requests have no session
+						p.setSession(serviceRequest.getSession());
+					}
 					methodArgs[authParam.getParameterIndex()] = p;
 				} catch (InstantiationException | IllegalAccessException ex) {	// this should not happen...
 					LOGGER.error(ex, ex);
@@ -420,6 +487,14 @@ public class ServiceHandler {
 			return _methods.get(Pair.of(methodName, httpMethod));
 		}
 
+		/**
+		 * 
+		 * @return method name/httpMethod pairs of the methods of this service
+		 */
+		public Set<Pair<String, String>> getMethods(){
+			return _methods.keySet();
+		}
+
 		/**
 		 * 
 		 * @return the service object
@@ -566,6 +641,15 @@ public class ServiceHandler {
 			_parameterCount = annotations.length;	// get the argument count
 		}
 
+		/**
+		 * 
+		 * @return true if the method accepts only HTTP GET
+		 */
+		public boolean isGetOnly() {
+			String[] am = _method.getAnnotation(HTTPServiceMethod.class).acceptedMethods();
+			return (am.length == 1 && Definitions.METHOD_GET.equals(am[0]));
+		}
+
 		/**
 		 * @return the method
 		 */
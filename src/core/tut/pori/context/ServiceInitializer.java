@@ -16,6 +16,10 @@
 package core.tut.pori.context;
 
 import java.util.Date;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 import javax.servlet.ServletContext;
 import javax.servlet.ServletContextEvent;
@@ -24,6 +28,7 @@ import javax.servlet.ServletContextListener;
 import org.apache.log4j.Logger;
 
 import core.tut.pori.properties.PropertyHandler;
+import core.tut.pori.properties.WarmUpProperties;
 import core.tut.pori.utils.StringUtils;
 
 /**
@@ -33,6 +38,9 @@ import core.tut.pori.utils.StringUtils;
  * 
  * One should never close the handlers or the instances returned by the handlers manually, as they are managed automatically.
  * The handlers themselves are generally immutable and no modifications to the initialized contexts are possible.
+ * 
+ * If enabled by {@link core.tut.pori.properties.WarmUpProperties}, the context initialization will not complete before the DAOs and the service methods have been warmed up,
+ * and thus, the servlet container will not accept requests before the warm-up has finished or timed out.
  *
  */
 public class ServiceInitializer implements ServletContextListener{
@@ -43,6 +51,7 @@ public class ServiceInitializer implements ServletContextListener{
 	private static Logger LOGGER = null;
 	private static PropertyHandler PROPERTY_HANDLER = null;
 	private static ServiceHandler SERVICE_HANDLER = null;
+	private static TraceHandler TRACE_HANDLER = null;
 	private static WebSocketHandler WEBSOCKET_HANDLER = null;
 	
 	@Override
@@ -64,6 +73,10 @@ public class ServiceInitializer implements ServletContextListener{
 			DAO_HANDLER.close();
 			DAO_HANDLER = null;
 		}
+		if(TRACE_HANDLER != null){	// on failed initialization this may be null
+			TRACE_HANDLER.close();
+			TRACE_HANDLER = null;
+		}
 		if(PROPERTY_HANDLER != null){	// on failed initialization this may be null
 			PROPERTY_HANDLER.close();
 			PROPERTY_HANDLER = null;
@@ -83,14 +96,50 @@ public class ServiceInitializer implements ServletContextListener{
 		CONFIG_HANDLER = new ConfigHandler(context);	//config handler must be first
 		LOGGER = Logger.getLogger(ServiceInitializer.class);
 		PROPERTY_HANDLER = new PropertyHandler(context);
+		TRACE_HANDLER = new TraceHandler();
 		DAO_HANDLER = new DAOHandler();
 		SERVICE_HANDLER = new ServiceHandler();
 		EXECUTOR_HANDLER = new ExecutorHandler();
 		EVENT_HANDLER = new EventHandler();
 		WEBSOCKET_HANDLER = new WebSocketHandler();
+		WarmUpProperties warmUpProperties = PROPERTY_HANDLER.getSystemProperties(WarmUpProperties.class);
+		if(warmUpProperties.isEnabled()){
+			warmUp(warmUpProperties);
+		}
 		LOGGER.info("Context initialized in "+StringUtils.getDurationString(started, new Date()));
 	}
 	
+	/**
+	 * Run the warm-up phase, blocks until the warm-up has completed or the timeout has elapsed.
+	 * 
+	 * @param properties
+	 */
+	private static void warmUp(final WarmUpProperties properties){
+		LOGGER.debug("Warming up...");
+		Date started = new Date();
+		Future<?> future = EXECUTOR_HANDLER.getExecutor().submit(new Runnable() {
+			@Override
+			public void run() {
+				DAO_HANDLER.warmUp();
+				int count = SERVICE_HANDLER.warmUp(properties.getIterations());
+				LOGGER.debug("Completed "+count+" service method invocations.");
+			}
+		});
+		try {
+			future.get(properties.getTimeout(), TimeUnit.MILLISECONDS);
+			LOGGER.info("Warm-up completed in "+StringUtils.getDurationString(started, new Date()));
+		} catch (TimeoutException ex) {
+			LOGGER.warn("Warm-up did not complete in "+properties.getTimeout()+" ms, continuing without warm-up.");
+			future.cancel(true);
+		} catch (ExecutionException ex) {
+			LOGGER.warn("Warm-up failed.", ex);
+		} catch (InterruptedException ex) {
+			LOGGER.warn("Warm-up was interrupted.", ex);
+			future.cancel(true);
+			Thread.currentThread().interrupt();
+		}
+	}
+	
 	/**
 	 * 
 	 * @return Config handler instance.
@@ -147,6 +196,14 @@ public class ServiceInitializer implements ServletContextListener{
 		return SessionHandler.getSessionHandler();
 	}
 	
+	/**
+	 * 
+	 * @return trace handler instance. Note: you should not close the instance, it will be closed automatically.
+	 */
+	public static TraceHandler getTraceHandler(){
+		return TRACE_HANDLER;
+	}
+	
 	/**
 	 * 
 	 * @return web socket handler instance. Note: you should not close the instance, it will be closed automatically.
@@ -0,0 +1,151 @@
+/**
+ * Copyright 2014 Tampere University of Technology, Pori Department
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package core.tut.pori.context;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import org.apache.log4j.Logger;
+
+import core.tut.pori.properties.TraceProperties;
+import core.tut.pori.trace.Trace;
+import core.tut.pori.trace.TraceContext;
+
+/**
+ * Handles request tracing.
+ * 
+ * The completed request traces are stored in a fixed-size ring buffer, the oldest traces being overwritten by the newer ones. 
+ * 
+ * This class requires PropertyHandler to be initialized.
+ * 
+ * One should not initialize this handler directly, as an instantiated version is available from ServiceInitializer.
+ */
+public class TraceHandler {
+	private static final Logger LOGGER = Logger.getLogger(TraceHandler.class);
+	private static final Comparator<Trace> DURATION_COMPARATOR = new Comparator<Trace>() {
+		@Override
+		public int compare(Trace o1, Trace o2) {
+			return Long.compare(o2.getDuration(), o1.getDuration()); // descending
+		}
+	};
+	private boolean _enabled = false;
+	private int _maxSpans = 0;
+	private AtomicLong _traceCounter = null;
+	private AtomicReferenceArray<Trace> _traces = null;
+	private AtomicLong _writeCounter = null;
+	
+	/**
+	 * 
+	 */
+	public TraceHandler(){
+		TraceProperties properties = ServiceInitializer.getPropertyHandler().getSystemProperties(TraceProperties.class);
+		if(properties == null || !properties.isEnabled()){
+			LOGGER.debug("Request tracing is disabled.");
+			return;
+		}
+		_enabled = true;
+		_maxSpans = properties.getMaxSpans();
+		_traces = new AtomicReferenceArray<>(properties.getBufferSize());
+		_traceCounter = new AtomicLong();
+		_writeCounter = new AtomicLong();
+		LOGGER.debug("Request tracing enabled, buffer size: "+properties.getBufferSize());
+	}
+	
+	/**
+	 * 
+	 * @return true if tracing is enabled
+	 */
+	public boolean isEnabled(){
+		return _enabled;
+	}
+	
+	/**
+	 * Start a new trace and associate it with the calling thread.
+	 * 
+	 * @param httpMethod
+	 * @param path
+	 * @return the new trace or null if tracing is disabled
+	 */
+	public Trace beginTrace(String httpMethod, String path){
+		if(!_enabled){
+			return null;
+		}
+		Trace trace = new Trace(_traceCounter.incrementAndGet(), httpMethod, path, _maxSpans);
+		TraceContext.setCurrentTrace(trace);
+		return trace;
+	}
+	
+	/**
+	 * Complete the given trace, remove it from the calling thread and add it to the trace buffer.
+	 * 
+	 * @param trace if null, this method does nothing
+	 */
+	public void endTrace(Trace trace){
+		if(trace == null){
+			return;
+		}
+		trace.complete();
+		TraceContext.setCurrentTrace(null);
+		AtomicReferenceArray<Trace> traces = _traces;
+		if(traces != null){
+			traces.set((int) (_writeCounter.getAndIncrement() % traces.length()), trace);
+		}
+	}
+	
+	/**
+	 * 
+	 * @param serviceName optional service name filter
+	 * @param methodName optional method name filter
+	 * @param maxTraces maximum number of traces to return
+	 * @return the slowest traces currently in the buffer, in descending order by duration or null if none
+	 */
+	public List<Trace> getSlowestTraces(String serviceName, String methodName, int maxTraces){
+		AtomicReferenceArray<Trace> buffer = _traces;
+		if(buffer == null || maxTraces < 1){
+			return null;
+		}
+		int length = buffer.length();
+		List<Trace> traces = new ArrayList<>();
+		for(int i=0;i<length;++i){
+			Trace trace = buffer.get(i);
+			if(trace == null){
+				continue;
+			}else if(serviceName != null && !serviceName.equals(trace.getServiceName())){
+				continue;
+			}else if(methodName != null && !methodName.equals(trace.getMethodName())){
+				continue;
+			}
+			traces.add(trace);
+		}
+		if(traces.isEmpty()){
+			return null;
+		}
+		Collections.sort(traces, DURATION_COMPARATOR);
+		return (traces.size() > maxTraces ? new ArrayList<>(traces.subList(0, maxTraces)) : traces);
+	}
+	
+	/**
+	 * close this handler and release all resources
+	 */
+	public void close(){
+		_enabled = false;
+		_traces = null;
+	}
+}
@@ -27,11 +27,16 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.ApplicationListener;
 import org.springframework.context.event.ContextClosedEvent;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCreatorFactory;
 import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
 import org.springframework.transaction.support.TransactionTemplate;
 
 import com.mysql.jdbc.AbandonedConnectionCleanupThread;
 
+import core.tut.pori.trace.TracingJdbcTemplate;
+
 /**
  * Base class for SQL DAOs.
  * 
@@ -69,7 +74,7 @@ public abstract class SQLDAO implements DAO {
 	 */
 	@Autowired
 	public void setDataSource(DataSource dataSource){
-		_jdbcTemplate = new JdbcTemplate(dataSource);
+		_jdbcTemplate = new TracingJdbcTemplate(dataSource);
 	}
 	
 	/**
@@ -99,6 +104,35 @@ public abstract class SQLDAO implements DAO {
 		return _transactionTemplate;
 	}
 
+	/**
+	 * Helper method for creating statement factories for insert statements returning a generated key.
+	 * 
+	 * The factory is thread-safe, and should be created once and shared for all inserts of the same statement.
+	 * 
+	 * @param sql
+	 * @param types
+	 * @return factory for the given insert statement
+	 * @see #insertAndReturnKey(PreparedStatementCreatorFactory, Object...)
+	 */
+	protected static PreparedStatementCreatorFactory createInsertFactory(String sql, int[] types){
+		PreparedStatementCreatorFactory factory = new PreparedStatementCreatorFactory(sql, types);
+		factory.setReturnGeneratedKeys(true);
+		return factory;
+	}
+	
+	/**
+	 * 
+	 * @param factory factory created with {@link #createInsertFactory(String, int[])}
+	 * @param values
+	 * @return the generated key or null if no key was generated
+	 */
+	protected Long insertAndReturnKey(PreparedStatementCreatorFactory factory, Object ...values){
+		KeyHolder keyHolder = new GeneratedKeyHolder();
+		getJdbcTemplate().update(factory.newPreparedStatementCreator(values), keyHolder);
+		Number key = keyHolder.getKey();
+		return (key == null ? null : key.longValue());
+	}
+
 	/**
 	 * Helper method for checking if the given column is a COUNT(*) column
 	 * 
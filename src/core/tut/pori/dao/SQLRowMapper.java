@@ -0,0 +1,159 @@
+/**
+ * Copyright 2014 Tampere University of Technology, Pori Department
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package core.tut.pori.dao;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+
+import org.apache.commons.lang3.ArrayUtils;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+
+/**
+ * Base class for row mappers, which read the typed column values directly from the result set by column index.
+ * 
+ * Unlike {@link org.springframework.jdbc.core.JdbcTemplate#queryForList(String, Object[], int[])}, the mapper does not create a column name - value map for each row, and the column labels need not be compared for each value.
+ * The mapper declares the columns it reads, and the queries executed with the mapper must select exactly the declared columns in the declared order.
+ * The easiest way to achieve this is to use {@link #getSelectList()} or {@link #getColumns()} when creating the SQL string.
+ * 
+ * The mappers are stateless and thread-safe, and should generally be stored as static final members of the DAO class.
+ * 
+ * Example:
+ * 
+ * <pre>
+ * private static final class UserMapper extends SQLRowMapper&lt;UserIdentity&gt;{
+ * 	private final int _userIdIndex;
+ * 	private UserMapper(){
+ * 		super(COLUMN_USER_ID, COLUMN_USERNAME);
+ * 		_userIdIndex = indexOf(COLUMN_USER_ID);
+ * 		...
+ * 	}
+ * 	...
+ * }
+ * private static final UserMapper USER_MAPPER = new UserMapper();
+ * private static final String SQL_GET_USERS = "SELECT "+USER_MAPPER.getSelectList()+" FROM "+TABLE_USERS;
+ * ...
+ * List&lt;UserIdentity&gt; users = USER_MAPPER.query(getJdbcTemplate(), SQL_GET_USERS, null, null);
+ * </pre>
+ *
+ * @param <T> the type of the mapped objects
+ */
+public abstract class SQLRowMapper<T> implements RowMapper<T> {
+	private final String[] _columns;
+	private final String _selectList;
+	
+	/**
+	 * 
+	 * @param columns the columns in the order they appear in the select list of the queries
+	 * @throws IllegalArgumentException on null or empty column list
+	 */
+	protected SQLRowMapper(String... columns) throws IllegalArgumentException{
+		if(ArrayUtils.isEmpty(columns)){
+			throw new IllegalArgumentException("No columns.");
+		}
+		_columns = columns.clone();
+		_selectList = getSelectList(null);
+	}
+	
+	/**
+	 * 
+	 * @return the columns of this mapper in the select order
+	 */
+	public String[] getColumns(){
+		return _columns.clone();
+	}
+	
+	/**
+	 * 
+	 * @return comma separated list of the columns of this mapper, usable as the select list of a SQL query
+	 */
+	public String getSelectList(){
+		return _selectList;
+	}
+	
+	/**
+	 * 
+	 * @param table optional table name, which will be prepended to each column, use for joined queries
+	 * @return comma separated list of the columns of this mapper, usable as the select list of a SQL query
+	 */
+	public String getSelectList(String table){
+		StringBuilder sb = new StringBuilder();
+		for(int i=0;i<_columns.length;++i){
+			if(i > 0){
+				sb.append(',');
+			}
+			if(table != null){
+				sb.append(table);
+				sb.append('.');
+			}
+			sb.append(_columns[i]);
+		}
+		return sb.toString();
+	}
+	
+	/**
+	 * 
+	 * @param column
+	 * @return the result set index (1-based) of the given column
+	 * @throws IllegalArgumentException if the column is not declared for this mapper
+	 */
+	protected final int indexOf(String column) throws IllegalArgumentException{
+		int index = ArrayUtils.indexOf(_columns, column);
+		if(index < 0){
+			throw new IllegalArgumentException("Undeclared column: "+column);
+		}
+		return index+1;
+	}
+	
+	/**
+	 * Execute the given query using this mapper.
+	 * 
+	 * @param t
+	 * @param sql the query, the select list must match the columns of this mapper
+	 * @param values optional query values
+	 * @param valueTypes optional query value types
+	 * @return list of mapped objects or null if the query returned no rows
+	 */
+	public List<T> query(JdbcTemplate t, String sql, Object[] values, int[] valueTypes){
+		List<T> results = (values == null ? t.query(sql, this) : t.query(sql, values, valueTypes, this));
+		return (results.isEmpty() ? null : results);
+	}
+	
+	/**
+	 * 
+	 * @param set
+	 * @param columnIndex
+	 * @return the value of the given column or null if the column value was SQL NULL
+	 * @throws SQLException
+	 */
+	public static Integer getInteger(ResultSet set, int columnIndex) throws SQLException{
+		int value = set.getInt(columnIndex);
+		return (set.wasNull() ? null : value);
+	}
+	
+	/**
+	 * 
+	 * @param set
+	 * @param columnIndex
+	 * @return the value of the given column or null if the column value was SQL NULL
+	 * @throws SQLException
+	 */
+	public static Long getLong(ResultSet set, int columnIndex) throws SQLException{
+		long value = set.getLong(columnIndex);
+		return (set.wasNull() ? null : value);
+	}
+}
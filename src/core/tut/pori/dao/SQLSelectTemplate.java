@@ -0,0 +1,327 @@
+/**
+ * Copyright 2014 Tampere University of Technology, Pori Department
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package core.tut.pori.dao;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.commons.lang3.ArrayUtils;
+
+import core.tut.pori.dao.clause.SQLClause.SQLType;
+
+/**
+ * An immutable, pre-compiled SQL SELECT query shape, which can be used in place of {@link core.tut.pori.dao.SQLSelectBuilder} for frequently executed queries.
+ * 
+ * The SQL string is generated once when the template is created, and the parameter values are bound using {@link #bind(Object...)}. 
+ * For IN-list parameters the number of placeholders is rounded up to the nearest bucket size (powers of two up to {@value #MAX_EXPONENTIAL_BUCKET_SIZE}, multiples of it after that), 
+ * and the list is padded by repeating its last value. This keeps the number of distinct SQL strings small, which allows the driver and the database to reuse prepared statements.
+ * 
+ * The templates are thread-safe and should generally be stored as static final members of the DAO class.
+ * 
+ * Example:
+ * 
+ * <pre>
+ * private static final SQLSelectTemplate SQL_GET_USERS = new SQLSelectTemplate(TABLE_USERS, COLUMNS, new Parameter[]{new Parameter(COLUMN_USER_ID, SQLType.LONG, Operator.IN)}, null);
+ * ...
+ * BoundQuery query = SQL_GET_USERS.bind(userIds);
+ * getJdbcTemplate().queryForList(query.toSQLString(), query.getValues(), query.getValueTypes());
+ * </pre>
+ */
+public final class SQLSelectTemplate {
+	/** the largest bucket size that is rounded up to the next power of two */
+	public static final int MAX_EXPONENTIAL_BUCKET_SIZE = 1024;
+	private final String[] _fragments; // the sql fragments surrounding the IN-lists
+	private final int _listParameterCount;
+	private final Parameter[] _parameters;
+	private final String _sql; // the complete sql for templates without IN-lists
+	private final ConcurrentHashMap<List<Integer>, String> _sqlStrings; // bucket sizes - sql string map for templates with IN-lists
+	private final int[] _valueTypes; // value types for templates without IN-lists
+
+	/**
+	 * The comparison operator of a template parameter.
+	 */
+	public enum Operator{
+		/** column = ? */
+		EQUALS,
+		/** column IN (?,?,...) */
+		IN
+	} // enum Operator
+	
+	/**
+	 * A single parameter of the template's WHERE clause. All parameters are combined using AND.
+	 */
+	public static final class Parameter{
+		private final String _column;
+		private final Operator _operator;
+		private final SQLType _type;
+		
+		/**
+		 * 
+		 * @param column
+		 * @param type
+		 * @param operator
+		 * @throws IllegalArgumentException on null values
+		 */
+		public Parameter(String column, SQLType type, Operator operator) throws IllegalArgumentException{
+			if(column == null || type == null || operator == null){
+				throw new IllegalArgumentException("Column, type and operator are required.");
+			}
+			_column = column;
+			_type = type;
+			_operator = operator;
+		}
+	} // class Parameter
+	
+	/**
+	 * A query bound with parameter values. The SQL string, values and types can be passed directly to JdbcTemplate.
+	 */
+	public static final class BoundQuery{
+		private final String _sql;
+		private final int[] _valueTypes;
+		private final Object[] _values;
+		
+		/**
+		 * 
+		 * @param sql
+		 * @param values
+		 * @param valueTypes
+		 */
+		private BoundQuery(String sql, Object[] values, int[] valueTypes){
+			_sql = sql;
+			_values = values;
+			_valueTypes = valueTypes;
+		}
+
+		/**
+		 * @return the query as a SQL string
+		 */
+		public String toSQLString() {
+			return _sql;
+		}
+
+		/**
+		 * @return the values
+		 */
+		public Object[] getValues() {
+			return _values;
+		}
+
+		/**
+		 * @return the value types
+		 */
+		public int[] getValueTypes() {
+			return _valueTypes;
+		}
+	} // class BoundQuery
+	
+	/**
+	 * 
+	 * @param table the table, may also contain join declarations
+	 * @param selectColumns the columns to select, if null or empty, all columns (*) will be selected
+	 * @param parameters optional parameters for the WHERE clause
+	 * @param suffix optional suffix appended after the WHERE clause without modifications, e.g. ORDER BY declaration. The suffix must not contain parameter placeholders.
+	 * @throws IllegalArgumentException on bad values
+	 */
+	public SQLSelectTemplate(String table, String[] selectColumns, Parameter[] parameters, String suffix) throws IllegalArgumentException{
+		if(table == null){
+			throw new IllegalArgumentException("Table is required.");
+		}
+		_parameters = (parameters == null ? new Parameter[0] : parameters.clone());
+		
+		StringBuilder sql = new StringBuilder("SELECT ");
+		if(ArrayUtils.isEmpty(selectColumns)){
+			sql.append('*');
+		}else{
+			sql.append(selectColumns[0]);
+			for(int i=1;i<selectColumns.length;++i){
+				sql.append(',');
+				sql.append(selectColumns[i]);
+			}
+		}
+		sql.append(" FROM ");
+		sql.append(table);
+		
+		int listParameterCount = 0;
+		for(Parameter p : _parameters){
+			if(p._operator == Operator.IN){
+				++listParameterCount;
+			}
+		}
+		_listParameterCount = listParameterCount;
+		_fragments = new String[listParameterCount+1];
+		int fragment = 0;
+		for(int i=0;i<_parameters.length;++i){
+			sql.append((i == 0 ? " WHERE " : " AND "));
+			Parameter p = _parameters[i];
+			sql.append(p._column);
+			if(p._operator == Operator.IN){
+				sql.append(" IN (");
+				_fragments[fragment++] = sql.toString();
+				sql.setLength(0);
+				sql.append(')');
+			}else{
+				sql.append("=?");
+			}
+		}
+		if(suffix != null){
+			sql.append(' ');
+			sql.append(suffix);
+		}
+		_fragments[fragment] = sql.toString();
+		
+		if(listParameterCount == 0){
+			_sql = _fragments[0];
+			_sqlStrings = null;
+			_valueTypes = new int[_parameters.length];
+			for(int i=0;i<_parameters.length;++i){
+				_valueTypes[i] = _parameters[i]._type.toInt();
+			}
+		}else{
+			_sql = null;
+			_sqlStrings = new ConcurrentHashMap<>();
+			_valueTypes = null;
+		}
+	}
+	
+	/**
+	 * Bind the given values to the parameters of this template.
+	 * 
+	 * @param values the values in the order of template parameters. For IN parameters, the value must be a non-empty Collection, an object array, or an int/long array. Null values are not allowed.
+	 * @return the bound query
+	 * @throws IllegalArgumentException on bad values
+	 */
+	public BoundQuery bind(Object... values) throws IllegalArgumentException{
+		if(values == null || values.length != _parameters.length){
+			throw new IllegalArgumentException("Expected "+_parameters.length+" values.");
+		}
+		
+		if(_listParameterCount == 0){
+			for(int i=0;i<values.length;++i){
+				if(values[i] == null){
+					throw new IllegalArgumentException("Null value for parameter: "+_parameters[i]._column);
+				}
+			}
+			return new BoundQuery(_sql, values.clone(), _valueTypes);
+		}
+		
+		Object[][] lists = new Object[_listParameterCount][];
+		Integer[] bucketSizes = new Integer[_listParameterCount];
+		int valueCount = 0;
+		for(int i=0, list=0;i<values.length;++i){
+			if(values[i] == null){
+				throw new IllegalArgumentException("Null value for parameter: "+_parameters[i]._column);
+			}
+			if(_parameters[i]._operator == Operator.IN){
+				Object[] listValues = toArray(values[i]);
+				if(listValues.length < 1){
+					throw new IllegalArgumentException("Empty value list for parameter: "+_parameters[i]._column);
+				}
+				lists[list] = listValues;
+				int bucketSize = getBucketSize(listValues.length);
+				bucketSizes[list++] = bucketSize;
+				valueCount += bucketSize;
+			}else{
+				++valueCount;
+			}
+		}
+		
+		Object[] boundValues = new Object[valueCount];
+		int[] boundTypes = new int[valueCount];
+		for(int i=0, list=0, index=0;i<values.length;++i){
+			int type = _parameters[i]._type.toInt();
+			if(_parameters[i]._operator == Operator.IN){
+				Object[] listValues = lists[list];
+				int bucketSize = bucketSizes[list++];
+				System.arraycopy(listValues, 0, boundValues, index, listValues.length);
+				Arrays.fill(boundValues, index+listValues.length, index+bucketSize, listValues[listValues.length-1]); // pad with the last value, duplicates do not change the result of IN
+				Arrays.fill(boundTypes, index, index+bucketSize, type);
+				index += bucketSize;
+			}else{
+				boundValues[index] = values[i];
+				boundTypes[index++] = type;
+			}
+		}
+		
+		return new BoundQuery(getSQLString(bucketSizes), boundValues, boundTypes);
+	}
+	
+	/**
+	 * 
+	 * @param bucketSizes
+	 * @return the sql string for the given IN-list sizes
+	 */
+	private String getSQLString(Integer[] bucketSizes){
+		List<Integer> key = Arrays.asList(bucketSizes);
+		String sql = _sqlStrings.get(key);
+		if(sql == null){
+			int length = _fragments[0].length();
+			for(int i=0;i<bucketSizes.length;++i){
+				length += _fragments[i+1].length()+bucketSizes[i]*2;
+			}
+			StringBuilder sb = new StringBuilder(length);
+			sb.append(_fragments[0]);
+			for(int i=0;i<bucketSizes.length;++i){
+				sb.append('?');
+				for(int j=1;j<bucketSizes[i];++j){
+					sb.append(",?");
+				}
+				sb.append(_fragments[i+1]);
+			}
+			sql = sb.toString();
+			String previous = _sqlStrings.putIfAbsent(key, sql);
+			if(previous != null){
+				sql = previous;
+			}
+		}
+		return sql;
+	}
+	
+	/**
+	 * 
+	 * @param size
+	 * @return the bucket size for the given list size
+	 */
+	private static int getBucketSize(int size){
+		if(size <= MAX_EXPONENTIAL_BUCKET_SIZE){
+			int bucketSize = Integer.highestOneBit(size);
+			return (bucketSize == size ? size : bucketSize << 1);
+		}else{
+			return ((size+MAX_EXPONENTIAL_BUCKET_SIZE-1)/MAX_EXPONENTIAL_BUCKET_SIZE)*MAX_EXPONENTIAL_BUCKET_SIZE;
+		}
+	}
+	
+	/**
+	 * 
+	 * @param value
+	 * @return the value as an object array
+	 * @throws IllegalArgumentException on unsupported value type
+	 */
+	private static Object[] toArray(Object value) throws IllegalArgumentException{
+		if(value instanceof Collection){
+			return ((Collection<?>) value).toArray();
+		}else if(value instanceof Object[]){
+			return (Object[]) value;
+		}else if(value instanceof long[]){
+			return ArrayUtils.toObject((long[]) value);
+		}else if(value instanceof int[]){
+			return ArrayUtils.toObject((int[]) value);
+		}else{
+			throw new IllegalArgumentException("Unsupported value type for IN parameter: "+value.getClass().toString());
+		}
+	}
+}
@@ -25,21 +25,30 @@ import org.apache.log4j.Logger;
 import org.apache.solr.client.solrj.SolrClient;
 import org.apache.solr.client.solrj.SolrRequest.METHOD;
 import org.apache.solr.client.solrj.SolrServerException;
+import org.apache.solr.client.solrj.impl.HttpSolrClient;
 import org.apache.solr.client.solrj.response.QueryResponse;
 import org.apache.solr.client.solrj.response.UpdateResponse;
 import org.apache.solr.common.SolrDocument;
 import org.apache.solr.common.SolrDocumentList;
 import org.apache.solr.common.SolrException;
 import org.apache.solr.common.SolrException.ErrorCode;
+import org.apache.solr.common.params.CommonParams;
 import org.apache.solr.common.params.SolrParams;
 
+import core.tut.pori.trace.Span;
+import core.tut.pori.trace.Span.SpanType;
+import core.tut.pori.trace.TraceContext;
+
 /**
  * Simplified Solr Template. 
+ * 
+ * All requests are recorded as spans of the current request trace, if tracing is enabled.
  *
  */
 public class SimpleSolrTemplate{
 	private static final Logger LOGGER = Logger.getLogger(SimpleSolrTemplate.class);
 	private SolrClient _server = null;
+	private String _serverName = null;
 
 	/**
 	 * 
@@ -47,6 +56,20 @@ public class SimpleSolrTemplate{
 	 */
 	public SimpleSolrTemplate(SolrClient solrServer) {
 		_server = solrServer;
+		_serverName = (solrServer instanceof HttpSolrClient ? ((HttpSolrClient) solrServer).getBaseURL() : solrServer.getClass().getSimpleName());
+	}
+	
+	/**
+	 * 
+	 * @param operation
+	 * @param details
+	 * @return new span for the given operation or null if there is no active trace
+	 */
+	private Span startSpan(String operation, Object details){
+		if(TraceContext.getCurrentTrace() == null){ // check before building the span name
+			return null;
+		}
+		return TraceContext.startSpan(SpanType.SOLR, _serverName+" "+operation+(details == null ? "" : " "+details.toString()));
 	}
 
 	/**
@@ -54,8 +77,9 @@ public class SimpleSolrTemplate{
 	 * @return response
 	 * @throws SolrException
 	 */
+	@SuppressWarnings("try")
 	public UpdateResponse addBean(Object obj) throws SolrException {
-		try {
+		try (Span span = startSpan("add", null)) {
 			return _server.addBean(obj, SolrDAO.SOLR_COMMIT_WITHIN);
 		} catch (IOException | SolrServerException ex) {
 			LOGGER.error(ex, ex);
@@ -68,8 +92,9 @@ public class SimpleSolrTemplate{
 	 * @return response
 	 * @throws SolrException
 	 */
+	@SuppressWarnings("try")
 	public UpdateResponse addBeans(Collection<?> beans) throws SolrException {
-		try {
+		try (Span span = startSpan("add", beans.size())) {
 			return _server.addBeans(beans, SolrDAO.SOLR_COMMIT_WITHIN);
 		} catch (SolrServerException | IOException ex) {
 			LOGGER.error(ex, ex);
@@ -83,8 +108,9 @@ public class SimpleSolrTemplate{
 	 * @throws SolrException
 	 * @see org.apache.solr.client.solrj.SolrClient#deleteById(java.util.List)
 	 */
+	@SuppressWarnings("try")
 	public UpdateResponse deleteById(List<String> ids) throws SolrException {
-		try {
+		try (Span span = startSpan("delete", ids.size())) {
 			return _server.deleteById(ids, SolrDAO.SOLR_COMMIT_WITHIN);
 		} catch (SolrServerException | IOException ex) {
 			LOGGER.error(ex, ex);
@@ -110,8 +136,9 @@ public class SimpleSolrTemplate{
 	 * @return response
 	 * @throws SolrException
 	 */
+	@SuppressWarnings("try")
 	public UpdateResponse commit() throws SolrException {
-		try {
+		try (Span span = startSpan("commit", null)) {
 			return _server.commit();
 		} catch (SolrServerException | IOException ex) {
 			LOGGER.error(ex, ex);
@@ -125,8 +152,9 @@ public class SimpleSolrTemplate{
 	 * @throws SolrException
 	 * @see org.apache.solr.client.solrj.SolrClient#query(org.apache.solr.common.params.SolrParams)
 	 */
+	@SuppressWarnings("try")
 	public QueryResponse query(SolrParams params) throws SolrException {
-		try {
+		try (Span span = startSpan("query", params.get(CommonParams.Q))) {
 			return _server.query(params, METHOD.POST);
 		} catch (SolrServerException | IOException ex) {
 			LOGGER.error(ex, ex);
@@ -142,8 +170,9 @@ public class SimpleSolrTemplate{
 	 * @return All values for the given field or null if none
 	 * @throws SolrException
 	 */
+	@SuppressWarnings("try")
 	public <T> List<T> queryForObjects(SolrParams params, String fieldName, Class<T> cls) throws SolrException{
-		try {
+		try (Span span = startSpan("query", params.get(CommonParams.Q))) {
 			return getObjects(_server.query(params, METHOD.POST), fieldName, cls);
 		} catch (SolrServerException | IllegalArgumentException | IOException ex) {
 			LOGGER.error(ex, ex);
@@ -193,8 +222,9 @@ public class SimpleSolrTemplate{
 	 * @return the list of beans of the requested type or null if none was found
 	 * @throws SolrException
 	 */
+	@SuppressWarnings("try")
 	public <T> List<T> queryForList(SolrParams params, Class<T> cls) throws SolrException {
-		try {
+		try (Span span = startSpan("query", params.get(CommonParams.Q))) {
 			return getList(_server.query(params, METHOD.POST), cls);
 		} catch (SolrServerException | IOException ex) {
 			LOGGER.error(ex, ex);
@@ -31,6 +31,7 @@ import org.apache.solr.common.params.CommonParams;
 
 import core.tut.pori.dao.SQLSelectBuilder.OrderDirection;
 import core.tut.pori.dao.filter.AbstractQueryFilter;
+import core.tut.pori.dao.filter.AbstractQueryFilter.QueryType;
 import core.tut.pori.http.parameters.Limits;
 import core.tut.pori.http.parameters.QueryParameter;
 import core.tut.pori.http.parameters.SortOptions;
@@ -52,7 +53,12 @@ public class SolrQueryBuilder {
 	private static final String SOLR_SELECT = "/select";
 	private static final String SOLR_QUERY = "/query";
 	private static final String SOLR_SUGGEST = "/suggest";
-	private List<AbstractQueryFilter> _customFilters = null;
+	private static final String SOLR_LOCAL_PARAM_CACHE_FALSE = "cache=false";
+	private static final String SOLR_LOCAL_PARAM_TAG = "tag=";
+	private static final String SOLR_LOCAL_PARAMS_START = "{!";
+	private static final char SOLR_LOCAL_PARAMS_END = '}';
+	private static final char SEPARATOR_SOLR_TAGS = ',';
+	private List<CustomFilter> _customFilters = null;
 	private Map<String, String> _elementFieldMap = null;
 	private Limits _limits = null;
 	private QueryParameter _queryParameter = null;
@@ -178,11 +184,38 @@ public class SolrQueryBuilder {
 	}
 
 	/**
-	 * Add new filter query.
+	 * Add new filter query. The filter will be cached by Solr's filter cache, and it will not be tagged.
 	 * 
 	 * @param filter
+	 * @see #addCustomFilter(AbstractQueryFilter, boolean, String)
 	 */
 	public void addCustomFilter(AbstractQueryFilter filter){
+		addCustomFilter(filter, true, null);
+	}
+	
+	/**
+	 * Add new filter query.
+	 * 
+	 * @param filter
+	 * @param cache if false, the filter will not be cached by Solr's filter cache. This should be used for one-off filters such as id lists, which would only pollute the cache.
+	 * @see #addCustomFilter(AbstractQueryFilter, boolean, String)
+	 */
+	public void addCustomFilter(AbstractQueryFilter filter, boolean cache){
+		addCustomFilter(filter, cache, null);
+	}
+	
+	/**
+	 * Add new filter query.
+	 * 
+	 * If all filters (excluding the first one) are of type {@link core.tut.pori.dao.filter.AbstractQueryFilter.QueryType#AND}, each filter will be added to the query as a separate filter query,
+	 * which allows Solr to cache and re-use the commonly used filters (such as visibility or service type filters) independently. 
+	 * Otherwise all filters will be combined into a single filter query, the combined filter query will not be cached if any of the filters is non-cached, and it will contain the tags of all filters.
+	 * 
+	 * @param filter
+	 * @param cache if false, the filter will not be cached by Solr's filter cache. This should be used for one-off filters such as id lists, which would only pollute the cache.
+	 * @param tag optional tag for the filter, can be used to exclude the filter when faceting
+	 */
+	public void addCustomFilter(AbstractQueryFilter filter, boolean cache, String tag){
 		if(filter == null){
 			LOGGER.warn("Ignored null filter.");
 			return;
@@ -190,7 +223,7 @@ public class SolrQueryBuilder {
 		if(_customFilters == null){
 			_customFilters = new ArrayList<>();
 		}
-		_customFilters.add(filter);
+		_customFilters.add(new CustomFilter(filter, cache, StringUtils.isBlank(tag) ? null : tag));
 	}
 	
 	/**
@@ -211,15 +244,48 @@ public class SolrQueryBuilder {
 		SolrQuery query = new SolrQuery();
 
 		if(_customFilters != null){
-			Iterator<AbstractQueryFilter> pIter = _customFilters.iterator();
-			StringBuilder filter = new StringBuilder();
-			pIter.next().toFilterString(filter);
-			while(pIter.hasNext()){
-				AbstractQueryFilter fq = pIter.next();
-				filter.append(fq.getQueryType().toTypeString());
-				fq.toFilterString(filter);
+			boolean decompose = true;
+			for(Iterator<CustomFilter> pIter = _customFilters.listIterator(1); pIter.hasNext();){ // the type of the first filter is ignored
+				if(pIter.next()._filter.getQueryType() != QueryType.AND){
+					decompose = false;
+					break;
+				}
+			}
+			
+			if(decompose){
+				for(CustomFilter filter : _customFilters){
+					StringBuilder fq = new StringBuilder();
+					appendLocalParams(fq, filter._cache, filter._tag);
+					filter._filter.toFilterString(fq);
+					query.addFilterQuery(fq.toString());
+				}
+			}else{
+				LOGGER.debug("Filters with non-"+QueryType.AND.name()+" relation, combining all filters into a single filter query.");
+				boolean cache = true;
+				StringBuilder tags = null;
+				for(CustomFilter filter : _customFilters){
+					cache &= filter._cache;
+					if(filter._tag != null){
+						if(tags == null){
+							tags = new StringBuilder(filter._tag);
+						}else{
+							tags.append(SEPARATOR_SOLR_TAGS);
+							tags.append(filter._tag);
+						}
+					}
+				}
+				
+				StringBuilder fq = new StringBuilder();
+				appendLocalParams(fq, cache, (tags == null ? null : tags.toString()));
+				Iterator<CustomFilter> pIter = _customFilters.iterator();
+				pIter.next()._filter.toFilterString(fq);
+				while(pIter.hasNext()){
+					AbstractQueryFilter filter = pIter.next()._filter;
+					fq.append(filter.getQueryType().toTypeString());
+					filter.toFilterString(fq);
+				}
+				query.addFilterQuery(fq.toString());
 			}
-			query.addFilterQuery(filter.toString());
 		}
 
 		boolean querySet = false;
@@ -392,4 +458,50 @@ public class SolrQueryBuilder {
 		}
 		return query;
 	}
+
+	/**
+	 * 
+	 * @param fq the filter query to append the local parameters to
+	 * @param cache if false, cache=false local parameter is appended
+	 * @param tags optional comma separated list of tags
+	 */
+	private static void appendLocalParams(StringBuilder fq, boolean cache, String tags){
+		if(cache && tags == null){
+			return;
+		}
+		fq.append(SOLR_LOCAL_PARAMS_START);
+		if(!cache){
+			fq.append(SOLR_LOCAL_PARAM_CACHE_FALSE);
+			if(tags != null){
+				fq.append(' ');
+			}
+		}
+		if(tags != null){
+			fq.append(SOLR_LOCAL_PARAM_TAG);
+			fq.append(tags);
+		}
+		fq.append(SOLR_LOCAL_PARAMS_END);
+	}
+	
+	/**
+	 * A custom filter with its filter query options.
+	 *
+	 */
+	private static class CustomFilter {
+		private boolean _cache = true;
+		private AbstractQueryFilter _filter = null;
+		private String _tag = null;
+		
+		/**
+		 * 
+		 * @param filter
+		 * @param cache
+		 * @param tag
+		 */
+		public CustomFilter(AbstractQueryFilter filter, boolean cache, String tag){
+			_filter = filter;
+			_cache = cache;
+			_tag = tag;
+		}
+	} // class CustomFilter
 }
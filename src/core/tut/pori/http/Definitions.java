@@ -72,6 +72,14 @@ public final class Definitions {
 	 * @see core.tut.pori.http.Definitions#HEADER_AUTHENTICATE
 	 * */
 	public static final String HEADER_AUTHENTICATE_VALUE = "Basic realm=\"CAFrontend\"";
+	/** HTTP Accept-Encoding header */
+	public static final String HEADER_ACCEPT_ENCODING = "Accept-Encoding";
+	/** HTTP Content-Encoding header */
+	public static final String HEADER_CONTENT_ENCODING = "Content-Encoding";
+	/** HTTP Vary header */
+	public static final String HEADER_VARY = "Vary";
+	/** gzip content encoding */
+	public static final String ENCODING_GZIP = "gzip";
 	
 	/* uri separators */
 	/** separator used in the service uri path to separate methods from parameters i.e. www.domain.fi/somethingSEPARATOR_URI_METHOD_PARAMSparam=value */
@@ -15,12 +15,19 @@
  */
 package core.tut.pori.http;
 
+import java.io.BufferedWriter;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.util.zip.GZIPOutputStream;
 
 import javax.servlet.http.HttpServletResponse;
 
 import org.apache.log4j.Logger;
 
+import com.google.gson.JsonIOException;
+import com.google.gson.stream.JsonWriter;
+
 import core.tut.pori.utils.JSONFormatter;
 
 /**
@@ -31,6 +38,7 @@ import core.tut.pori.utils.JSONFormatter;
  *
  */
 public class JSONResponse extends Response {
+	private static final int BUFFER_SIZE = 8192;
 	private static final Logger LOGGER = Logger.getLogger(JSONResponse.class);
 	private JSONResponseData _responseData = null;
 
@@ -39,6 +47,8 @@ public class JSONResponse extends Response {
 	 * and sets content type to {@value core.tut.pori.http.Definitions#CONTENT_TYPE_JSON}.
 	 * These to parameters should be changed for the response if format is changed in the overriding method.
 	 * 
+	 * The content is serialized directly to the response output, and compressed using {@value core.tut.pori.http.Definitions#ENCODING_GZIP} encoding if the client accepts it.
+	 * 
 	 * Additionally this method sets the HTTP basic authentication header if the status is set {@link core.tut.pori.http.Response.Status#UNAUTHORIZED}.
 	 * 
 	 * @param response
@@ -55,22 +65,33 @@ public class JSONResponse extends Response {
 			data._stat = getStatus();
 		}
 		
-		try {
-			response.setContentType(Definitions.CONTENT_TYPE_JSON);
-			response.setCharacterEncoding(Definitions.ENCODING_UTF8);
-			response.getWriter().write(JSONFormatter.createGsonSerializer().toJson(data));
-		} catch (IOException ex) {
-			LOGGER.error(ex, ex);
-			setStatus(Status.INTERNAL_SERVER_ERROR);
-		}
-		
 		Status stat = getStatus();
-		if(stat != Status.OK){	// don't change defaults if there is OK status
+		if(stat != Status.OK){	// don't change defaults if there is OK status, the status must be set before the content is written
 			response.setStatus(stat.toStatusCode());
 			if(stat == Status.UNAUTHORIZED){
 				setDefaultAuthenticationHeader(response);
 			}
 		}
+		
+		response.setContentType(Definitions.CONTENT_TYPE_JSON);
+		response.setCharacterEncoding(Definitions.ENCODING_UTF8);
+		response.setHeader(Definitions.HEADER_VARY, Definitions.HEADER_ACCEPT_ENCODING);
+		try {
+			OutputStream out = response.getOutputStream();
+			if(isCompressionAccepted()){
+				response.setHeader(Definitions.HEADER_CONTENT_ENCODING, Definitions.ENCODING_GZIP);
+				out = new GZIPOutputStream(out, BUFFER_SIZE);
+			}
+			try(JsonWriter writer = new JsonWriter(new BufferedWriter(new OutputStreamWriter(out, Definitions.CHARSET_UTF8), BUFFER_SIZE))){ // write directly to the output without creating an intermediate string
+				JSONFormatter.getGsonSerializer().toJson(data, data.getClass(), writer);
+			}
+		} catch (IOException | JsonIOException ex) {
+			LOGGER.error(ex, ex);
+			setStatus(Status.INTERNAL_SERVER_ERROR);
+			if(!response.isCommitted()){
+				response.setStatus(Status.INTERNAL_SERVER_ERROR.toStatusCode());
+			}
+		}
 	}
 	
 	/**
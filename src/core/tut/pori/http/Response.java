@@ -40,6 +40,7 @@ import core.tut.pori.utils.XMLFormatter;
 @XmlAccessorType(XmlAccessType.NONE)
 public class Response {
 	private static final Logger LOGGER = Logger.getLogger(Response.class);
+	private boolean _compressionAccepted = false;
 	@XmlElementRef
 	private ResponseData _responseData = null;
 	@XmlAttribute(name=Definitions.ATTRIBUTE_METHOD)
@@ -260,4 +261,23 @@ public class Response {
 	public void setMessage(String message) {
 		_message = message;
 	}
+
+	/**
+	 * 
+	 * @return true if the client accepts compressed response content
+	 * @see #setCompressionAccepted(boolean)
+	 */
+	public boolean isCompressionAccepted() {
+		return _compressionAccepted;
+	}
+
+	/**
+	 * Note that it depends on the response implementation whether the content will actually be compressed.
+	 * 
+	 * @param compressionAccepted if true, the response content may be compressed using {@value core.tut.pori.http.Definitions#ENCODING_GZIP} encoding
+	 * @see #isCompressionAccepted()
+	 */
+	public void setCompressionAccepted(boolean compressionAccepted) {
+		_compressionAccepted = compressionAccepted;
+	}
 }
@@ -43,7 +43,7 @@ import core.tut.pori.http.Definitions;
 public final class Limits extends HTTPParameter{
 	/** the default HTTP parameter name */
 	public static final String PARAMETER_DEFAULT_NAME = "limits";
-	/** The default maximum amount of items if no last item is specified */
+	/** The default maximum amount of items if no last item is specified, the services may restrict the amount further, see {@link core.tut.pori.properties.LimitsProperties} */
 	public static final int DEFAULT_MAX_ITEMS = Integer.MAX_VALUE;
 	private static final Logger LOGGER = Logger.getLogger(Limits.class);
 	private static final char SEPARATOR_LIMITS = '-';
@@ -198,6 +198,69 @@ public final class Limits extends HTTPParameter{
 		}
 	}
 
+	/**
+	 * Restrict the number of items for all defined limits.
+	 * 
+	 * Limits without an explicitly given last item will be set to contain defaultMaxItems items, and limits with more than maxItems items will be truncated to contain maxItems items.
+	 * 
+	 * @param defaultMaxItems if &lt; 1, open ended limits will not be changed
+	 * @param maxItems if &lt; 1, the item count will not be restricted
+	 */
+	public void restrictMaxItems(int defaultMaxItems, int maxItems){
+		for(TypeLimits limits : _typeLimits.values()){
+			if(limits._endItem < 0){ // no items requested
+				continue;
+			}
+			if(defaultMaxItems > 0 && limits._endItem >= DEFAULT_MAX_ITEMS-1){
+				LOGGER.debug("Using default max items: "+defaultMaxItems+" for type: "+limits._typeName);
+				limits._endItem = getEndItem(limits._startItem, defaultMaxItems);
+			}
+			if(maxItems > 0 && limits.getMaxItems() > maxItems){
+				LOGGER.debug("Max items exceeded, using max items: "+maxItems+" for type: "+limits._typeName);
+				limits._endItem = getEndItem(limits._startItem, maxItems);
+			}
+		}
+	}
+
+	/**
+	 * 
+	 * @param startItem
+	 * @param maxItems
+	 * @return the end item for the given start item and item count
+	 */
+	private static int getEndItem(int startItem, int maxItems){
+		return (int) Math.min((long) startItem+maxItems-1, DEFAULT_MAX_ITEMS-1);
+	}
+
+	/**
+	 * The returned limit string can be used by the client as a continuation token to retrieve the next set of results, as it contains the same number of items as the current limits.
+	 * 
+	 * @param typeName the type of the list, or null for the default limits
+	 * @param resultCount the total number of results available
+	 * @return the limits for the items following the current limits of the given type as a limits string, or null if there are no more results
+	 */
+	public String toNextLimitString(String typeName, long resultCount){
+		TypeLimits limits = getTypeLimits(typeName);
+		int maxItems = limits.getMaxItems();
+		if(maxItems < 1){
+			return null;
+		}
+		long startItem = (long) limits.getEndItem()+1;
+		if(startItem >= resultCount || startItem >= DEFAULT_MAX_ITEMS-1){
+			return null;
+		}
+		StringBuilder value = new StringBuilder();
+		String type = limits.getTypeName();
+		if(type != null){
+			value.append(type);
+			value.append(Definitions.SEPARATOR_URI_QUERY_TYPE_VALUE);
+		}
+		value.append(startItem);
+		value.append(SEPARATOR_LIMITS);
+		value.append(getEndItem((int) startItem, maxItems));
+		return value.toString();
+	}
+
 	@Override
 	public void initialize(List<String> parameterValues) throws IllegalArgumentException {
 		for(Iterator<String> iter = parameterValues.iterator();iter.hasNext();){
@@ -0,0 +1,124 @@
+/**
+ * Copyright 2014 Tampere University of Technology, Pori Department
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package core.tut.pori.properties;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.log4j.Logger;
+
+/**
+ * Settings for the default and maximum page sizes of {@link core.tut.pori.http.parameters.Limits} parameters.
+ * 
+ * The values can be given for all services, for a single service or for a single service method, e.g.
+ * core.tut.pori.limits.max_items, core.tut.pori.limits.ca.max_items or core.tut.pori.limits.ca.getPhotos.max_items.
+ * The most specific value will be used. Value 0 (the default) means that no limit is enforced.
+ */
+public class LimitsProperties extends SystemProperty {
+	/* properties */
+	private static final String PROPERTY_SUFFIX_DEFAULT_MAX_ITEMS = ".default_max_items";
+	private static final String PROPERTY_SUFFIX_MAX_ITEMS = ".max_items";
+	private static final char SEPARATOR_SERVICE_METHOD = '.';
+	private Map<String, Integer> _defaultMaxItems = new HashMap<>();	// service.method, service or empty string - value
+	private Map<String, Integer> _maxItems = new HashMap<>();	// service.method, service or empty string - value
+
+	@Override
+	public void initialize(Properties properties) throws IllegalArgumentException {
+		for(String name : properties.stringPropertyNames()){
+			if(!name.startsWith(PROPERTY_CORE_PORI_LIMITS)){
+				continue;
+			}
+			if(name.endsWith(PROPERTY_SUFFIX_DEFAULT_MAX_ITEMS)){
+				_defaultMaxItems.put(getKey(name, PROPERTY_SUFFIX_DEFAULT_MAX_ITEMS), parseValue(name, properties.getProperty(name)));
+			}else if(name.endsWith(PROPERTY_SUFFIX_MAX_ITEMS)){
+				_maxItems.put(getKey(name, PROPERTY_SUFFIX_MAX_ITEMS), parseValue(name, properties.getProperty(name)));
+			}
+		}
+	}
+
+	/**
+	 * 
+	 * @param name
+	 * @param suffix
+	 * @return the service.method or service part of the property name, or empty string for the global value
+	 */
+	private static String getKey(String name, String suffix){
+		return StringUtils.removeStart(name.substring(PROPERTY_CORE_PORI_LIMITS.length(), name.length()-suffix.length()), String.valueOf(SEPARATOR_SERVICE_METHOD));
+	}
+
+	/**
+	 * 
+	 * @param name
+	 * @param value
+	 * @return the value as integer
+	 * @throws IllegalArgumentException on bad value
+	 */
+	private static int parseValue(String name, String value) throws IllegalArgumentException {
+		if(StringUtils.isBlank(value)){
+			return 0;
+		}
+		try{
+			int retval = Integer.parseInt(value.trim());
+			if(retval < 0){
+				throw new IllegalArgumentException("Bad "+name);
+			}
+			return retval;
+		}catch(NumberFormatException ex){
+			Logger.getLogger(LimitsProperties.class).error(ex, ex);
+			throw new IllegalArgumentException("Bad "+name);
+		}
+	}
+
+	/**
+	 * 
+	 * @param values
+	 * @param serviceName
+	 * @param methodName
+	 * @return the most specific value for the given service method or 0 if none is defined
+	 */
+	private static int getValue(Map<String, Integer> values, String serviceName, String methodName){
+		Integer value = values.get(serviceName+SEPARATOR_SERVICE_METHOD+methodName);
+		if(value == null){
+			value = values.get(serviceName);
+			if(value == null){
+				value = values.get("");
+			}
+		}
+		return (value == null ? 0 : value);
+	}
+
+	/**
+	 * 
+	 * @param serviceName
+	 * @param methodName
+	 * @return the number of items returned when the request does not define the last item, 0 if not limited
+	 */
+	public int getDefaultMaxItems(String serviceName, String methodName) {
+		return getValue(_defaultMaxItems, serviceName, methodName);
+	}
+
+	/**
+	 * 
+	 * @param serviceName
+	 * @param methodName
+	 * @return the maximum number of items returned on a single request, 0 if not limited
+	 */
+	public int getMaxItems(String serviceName, String methodName) {
+		return getValue(_maxItems, serviceName, methodName);
+	}
+}
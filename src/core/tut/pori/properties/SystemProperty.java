@@ -30,6 +30,12 @@ public abstract class SystemProperty {
 	protected static final String PROPERTY_CORE_PORI_UTILS = PROPERTY_CORE_PORI+".utils";
 	/** property prefix for core/executor */
 	protected static final String PROPERTY_CORE_PORI_EXECUTOR = PROPERTY_CORE_PORI+".executor";
+	/** property prefix for core/trace */
+	protected static final String PROPERTY_CORE_PORI_TRACE = PROPERTY_CORE_PORI+".trace";
+	/** property prefix for http/parameters/limits */
+	protected static final String PROPERTY_CORE_PORI_LIMITS = PROPERTY_CORE_PORI+".limits";
+	/** property prefix for context/warm-up */
+	protected static final String PROPERTY_CORE_PORI_WARM_UP = PROPERTY_CORE_PORI+".warm_up";
 	/* services */
 	/** property prefix for service */
 	protected static final String PROPERTY_SERVICE_PORI = "service.tut.pori";
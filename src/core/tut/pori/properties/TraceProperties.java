@@ -0,0 +1,82 @@
+/**
+ * Copyright 2014 Tampere University of Technology, Pori Department
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package core.tut.pori.properties;
+
+import java.util.Properties;
+
+import org.apache.commons.lang3.BooleanUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.log4j.Logger;
+
+/**
+ * Settings for the request tracing.
+ * 
+ * Tracing is disabled by default, and can be enabled by setting the property core.tut.pori.trace.enabled to true.
+ */
+public class TraceProperties extends SystemProperty {
+	/* properties */
+	private static final String PROPERTY_CORE_PORI_TRACE_BUFFER_SIZE = PROPERTY_CORE_PORI_TRACE+".buffer_size";
+	private static final String PROPERTY_CORE_PORI_TRACE_ENABLED = PROPERTY_CORE_PORI_TRACE+".enabled";
+	private static final String PROPERTY_CORE_PORI_TRACE_MAX_SPANS = PROPERTY_CORE_PORI_TRACE+".max_spans";
+	private int _bufferSize = 1000;
+	private boolean _enabled = false;
+	private int _maxSpans = 500;
+	
+	@Override
+	public void initialize(Properties properties) throws IllegalArgumentException {
+		_enabled = BooleanUtils.toBoolean(properties.getProperty(PROPERTY_CORE_PORI_TRACE_ENABLED));
+		if(!_enabled){
+			return;
+		}
+		try{
+			String value = properties.getProperty(PROPERTY_CORE_PORI_TRACE_BUFFER_SIZE);
+			if(!StringUtils.isBlank(value)){
+				_bufferSize = Integer.parseInt(value);
+			}
+			value = properties.getProperty(PROPERTY_CORE_PORI_TRACE_MAX_SPANS);
+			if(!StringUtils.isBlank(value)){
+				_maxSpans = Integer.parseInt(value);
+			}
+		}catch (NumberFormatException ex){
+			Logger.getLogger(getClass()).error(ex, ex);
+			throw new IllegalArgumentException("Bad "+PROPERTY_CORE_PORI_TRACE_BUFFER_SIZE+" OR "+PROPERTY_CORE_PORI_TRACE_MAX_SPANS);
+		}
+		if(_bufferSize < 1 || _maxSpans < 0){
+			throw new IllegalArgumentException("Bad "+PROPERTY_CORE_PORI_TRACE_BUFFER_SIZE+" OR "+PROPERTY_CORE_PORI_TRACE_MAX_SPANS);
+		}
+	}
+
+	/**
+	 * @return true if request tracing is enabled
+	 */
+	public boolean isEnabled() {
+		return _enabled;
+	}
+
+	/**
+	 * @return the maximum number of completed traces kept in memory
+	 */
+	public int getBufferSize() {
+		return _bufferSize;
+	}
+
+	/**
+	 * @return the maximum number of spans recorded for a single trace, the rest will be counted, but not stored
+	 */
+	public int getMaxSpans() {
+		return _maxSpans;
+	}
+}
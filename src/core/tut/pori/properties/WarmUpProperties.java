@@ -0,0 +1,82 @@
+/**
+ * Copyright 2014 Tampere University of Technology, Pori Department
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package core.tut.pori.properties;
+
+import java.util.Properties;
+
+import org.apache.commons.lang3.BooleanUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.log4j.Logger;
+
+/**
+ * Settings for the warm-up phase executed after the service context has been initialized.
+ * 
+ * Warm-up is disabled by default, and can be enabled by setting the property core.tut.pori.warm_up.enabled to true.
+ */
+public class WarmUpProperties extends SystemProperty {
+	/* properties */
+	private static final String PROPERTY_CORE_PORI_WARM_UP_ENABLED = PROPERTY_CORE_PORI_WARM_UP+".enabled";
+	private static final String PROPERTY_CORE_PORI_WARM_UP_ITERATIONS = PROPERTY_CORE_PORI_WARM_UP+".iterations";
+	private static final String PROPERTY_CORE_PORI_WARM_UP_TIMEOUT = PROPERTY_CORE_PORI_WARM_UP+".timeout";
+	private boolean _enabled = false;
+	private int _iterations = 10;
+	private long _timeout = 60000;
+	
+	@Override
+	public void initialize(Properties properties) throws IllegalArgumentException {
+		_enabled = BooleanUtils.toBoolean(properties.getProperty(PROPERTY_CORE_PORI_WARM_UP_ENABLED));
+		if(!_enabled){
+			return;
+		}
+		try{
+			String value = properties.getProperty(PROPERTY_CORE_PORI_WARM_UP_ITERATIONS);
+			if(!StringUtils.isBlank(value)){
+				_iterations = Integer.parseInt(value);
+			}
+			value = properties.getProperty(PROPERTY_CORE_PORI_WARM_UP_TIMEOUT);
+			if(!StringUtils.isBlank(value)){
+				_timeout = Long.parseLong(value);
+			}
+		}catch (NumberFormatException ex){
+			Logger.getLogger(getClass()).error(ex, ex);
+			throw new IllegalArgumentException("Bad "+PROPERTY_CORE_PORI_WARM_UP_ITERATIONS+" OR "+PROPERTY_CORE_PORI_WARM_UP_TIMEOUT);
+		}
+		if(_iterations < 1 || _timeout < 1){
+			throw new IllegalArgumentException("Bad "+PROPERTY_CORE_PORI_WARM_UP_ITERATIONS+" OR "+PROPERTY_CORE_PORI_WARM_UP_TIMEOUT);
+		}
+	}
+
+	/**
+	 * @return true if the warm-up phase is enabled
+	 */
+	public boolean isEnabled() {
+		return _enabled;
+	}
+
+	/**
+	 * @return the number of times each service method is called during the warm-up
+	 */
+	public int getIterations() {
+		return _iterations;
+	}
+
+	/**
+	 * @return the maximum duration of the warm-up phase in milliseconds
+	 */
+	public long getTimeout() {
+		return _timeout;
+	}
+}
@@ -0,0 +1,63 @@
+/**
+ * Copyright 2014 Tampere University of Technology, Pori Department
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package core.tut.pori.trace;
+
+/**
+ * Definitions for request tracing.
+ *
+ */
+public final class Definitions {
+	/* elements */
+	/** xml element declaration */
+	public static final String ELEMENT_DROPPED_SPAN_COUNT = "droppedSpanCount";
+	/** xml element declaration */
+	public static final String ELEMENT_DURATION = "duration";
+	/** xml element declaration */
+	public static final String ELEMENT_HTTP_METHOD = "httpMethod";
+	/** xml element declaration */
+	public static final String ELEMENT_METHOD_NAME = "methodName";
+	/** xml element declaration */
+	public static final String ELEMENT_NAME = "name";
+	/** xml element declaration */
+	public static final String ELEMENT_OFFSET = "offset";
+	/** xml element declaration */
+	public static final String ELEMENT_PATH = "path";
+	/** xml element declaration */
+	public static final String ELEMENT_SERVICE_NAME = "serviceName";
+	/** xml element declaration */
+	public static final String ELEMENT_SPAN = "span";
+	/** xml element declaration */
+	public static final String ELEMENT_SPAN_LIST = "spanList";
+	/** xml element declaration */
+	public static final String ELEMENT_SPAN_TYPE = "spanType";
+	/** xml element declaration */
+	public static final String ELEMENT_STARTED = "started";
+	/** xml element declaration */
+	public static final String ELEMENT_STATUS = "status";
+	/** xml element declaration */
+	public static final String ELEMENT_THREAD_NAME = "threadName";
+	/** xml element declaration */
+	public static final String ELEMENT_TRACE = "trace";
+	/** xml element declaration */
+	public static final String ELEMENT_TRACE_ID = "traceId";
+	
+	/**
+	 * 
+	 */
+	private Definitions(){
+		// nothing needed
+	}
+}
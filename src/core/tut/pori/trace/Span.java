@@ -0,0 +1,134 @@
+/**
+ * Copyright 2014 Tampere University of Technology, Pori Department
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package core.tut.pori.trace;
+
+import java.util.concurrent.TimeUnit;
+
+import javax.xml.bind.annotation.XmlAccessType;
+import javax.xml.bind.annotation.XmlAccessorType;
+import javax.xml.bind.annotation.XmlElement;
+import javax.xml.bind.annotation.XmlEnum;
+import javax.xml.bind.annotation.XmlRootElement;
+
+/**
+ * A single timed child operation (an SQL statement, a Solr request or an outbound HTTP call) of a request trace.
+ * 
+ * Spans are created by {@link core.tut.pori.trace.TraceContext#startSpan(SpanType, String)}, and are added to the owner trace when closed.
+ * 
+ * All durations and offsets are in microseconds.
+ */
+@XmlRootElement(name=Definitions.ELEMENT_SPAN)
+@XmlAccessorType(XmlAccessType.NONE)
+public class Span implements AutoCloseable {
+	/** the maximum length of the span name, longer names will be truncated */
+	public static final int MAX_NAME_LENGTH = 256;
+	@XmlElement(name=Definitions.ELEMENT_DURATION)
+	private long _duration = -1;
+	private long _ended = -1;
+	@XmlElement(name=Definitions.ELEMENT_NAME)
+	private String _name = null;
+	@XmlElement(name=Definitions.ELEMENT_OFFSET)
+	private long _offset = -1;
+	private long _started = -1;
+	@XmlElement(name=Definitions.ELEMENT_THREAD_NAME)
+	private String _threadName = null;
+	private Trace _trace = null;
+	@XmlElement(name=Definitions.ELEMENT_SPAN_TYPE)
+	private SpanType _type = null;
+	
+	/**
+	 * Type of a span.
+	 */
+	@XmlEnum
+	public enum SpanType{
+		/** JDBC call */
+		SQL,
+		/** Solr request */
+		SOLR,
+		/** outbound HTTP request */
+		HTTP
+	} // enum SpanType
+	
+	/**
+	 * for serialization
+	 */
+	public Span(){
+		// nothing needed
+	}
+	
+	/**
+	 * 
+	 * @param trace
+	 * @param type
+	 * @param name
+	 */
+	protected Span(Trace trace, SpanType type, String name){
+		_trace = trace;
+		_type = type;
+		_name = (name != null && name.length() > MAX_NAME_LENGTH ? name.substring(0, MAX_NAME_LENGTH) : name);
+		_threadName = Thread.currentThread().getName();
+		_started = System.nanoTime();
+		_offset = TimeUnit.NANOSECONDS.toMicros(_started - trace.getStartedNanos());
+	}
+
+	/**
+	 * Stop the timer of this span and add the span to the trace. Calling this method more than once has no effect.
+	 */
+	@Override
+	public void close() {
+		if(_ended >= 0){
+			return;
+		}
+		_ended = System.nanoTime();
+		_duration = TimeUnit.NANOSECONDS.toMicros(_ended - _started);
+		_trace.addSpan(this);
+	}
+
+	/**
+	 * @return the duration in microseconds or &lt; 0 if the span has not been closed
+	 */
+	public long getDuration() {
+		return _duration;
+	}
+
+	/**
+	 * @return the name, such as the SQL statement or the request URL
+	 */
+	public String getName() {
+		return _name;
+	}
+
+	/**
+	 * @return the offset from the start of the trace, in microseconds
+	 */
+	public long getOffset() {
+		return _offset;
+	}
+
+	/**
+	 * @return the name of the thread, which executed this span
+	 */
+	public String getThreadName() {
+		return _threadName;
+	}
+
+	/**
+	 * @return the type
+	 */
+	public SpanType getType() {
+		return _type;
+	}
+}
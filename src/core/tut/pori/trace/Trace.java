@@ -0,0 +1,225 @@
+/**
+ * Copyright 2014 Tampere University of Technology, Pori Department
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package core.tut.pori.trace;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import javax.xml.bind.annotation.XmlAccessType;
+import javax.xml.bind.annotation.XmlAccessorType;
+import javax.xml.bind.annotation.XmlElement;
+import javax.xml.bind.annotation.XmlElementWrapper;
+import javax.xml.bind.annotation.XmlRootElement;
+import javax.xml.bind.annotation.adapters.XmlJavaTypeAdapter;
+
+import core.tut.pori.utils.ISODateAdapter;
+
+/**
+ * A request-scoped trace, which contains the timed child spans (SQL, Solr and HTTP calls) executed on behalf of a single REST request.
+ * 
+ * The trace is created by {@link core.tut.pori.context.TraceHandler} when the request is received, and is completed after the response has been written.
+ * Spans closed after the trace has been completed (e.g. by background tasks which outlive the request) are ignored.
+ * 
+ * All durations and offsets are in microseconds.
+ */
+@XmlRootElement(name=Definitions.ELEMENT_TRACE)
+@XmlAccessorType(XmlAccessType.NONE)
+public class Trace {
+	private boolean _completed = false;
+	@XmlElement(name=Definitions.ELEMENT_DROPPED_SPAN_COUNT)
+	private int _droppedSpanCount = 0;
+	@XmlElement(name=Definitions.ELEMENT_DURATION)
+	private long _duration = -1;
+	@XmlElement(name=Definitions.ELEMENT_HTTP_METHOD)
+	private String _httpMethod = null;
+	private int _maxSpans = 0;
+	@XmlElement(name=Definitions.ELEMENT_METHOD_NAME)
+	private String _methodName = null;
+	@XmlElement(name=Definitions.ELEMENT_PATH)
+	private String _path = null;
+	@XmlElement(name=Definitions.ELEMENT_SERVICE_NAME)
+	private String _serviceName = null;
+	@XmlElementWrapper(name=Definitions.ELEMENT_SPAN_LIST)
+	@XmlElement(name=Definitions.ELEMENT_SPAN)
+	private List<Span> _spans = null;
+	@XmlElement(name=Definitions.ELEMENT_STARTED)
+	@XmlJavaTypeAdapter(ISODateAdapter.class)
+	private Date _started = null;
+	private long _startedNanos = -1;
+	@XmlElement(name=Definitions.ELEMENT_STATUS)
+	private String _status = null;
+	@XmlElement(name=Definitions.ELEMENT_TRACE_ID)
+	private long _traceId = -1;
+	
+	/**
+	 * for serialization
+	 */
+	public Trace(){
+		// nothing needed
+	}
+	
+	/**
+	 * 
+	 * @param traceId
+	 * @param httpMethod
+	 * @param path
+	 * @param maxSpans maximum number of spans to store, spans exceeding the maximum are only counted
+	 */
+	public Trace(long traceId, String httpMethod, String path, int maxSpans){
+		_traceId = traceId;
+		_httpMethod = httpMethod;
+		_path = path;
+		_maxSpans = maxSpans;
+		_started = new Date();
+		_startedNanos = System.nanoTime();
+	}
+	
+	/**
+	 * 
+	 * @param span
+	 */
+	protected synchronized void addSpan(Span span){
+		if(_completed){
+			return;
+		}
+		if(_spans == null){
+			_spans = new ArrayList<>();
+		}
+		if(_spans.size() < _maxSpans){
+			_spans.add(span);
+		}else{
+			++_droppedSpanCount;
+		}
+	}
+	
+	/**
+	 * Mark this trace completed. No spans can be added after the trace has been completed.
+	 */
+	public synchronized void complete(){
+		if(_completed){
+			return;
+		}
+		_completed = true;
+		_duration = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - _startedNanos);
+	}
+	
+	/**
+	 * @return the value of System.nanoTime() at the time this trace was started
+	 */
+	protected long getStartedNanos(){
+		return _startedNanos;
+	}
+
+	/**
+	 * @return true if the trace has been completed
+	 */
+	public synchronized boolean isCompleted() {
+		return _completed;
+	}
+
+	/**
+	 * @return the duration of the request in microseconds or &lt; 0 if the trace has not been completed
+	 */
+	public synchronized long getDuration() {
+		return _duration;
+	}
+
+	/**
+	 * @return the number of spans, which were not stored because the maximum span count was exceeded
+	 */
+	public synchronized int getDroppedSpanCount() {
+		return _droppedSpanCount;
+	}
+
+	/**
+	 * @return the spans or null if none
+	 */
+	public synchronized List<Span> getSpans() {
+		return (_spans == null ? null : new ArrayList<>(_spans));
+	}
+
+	/**
+	 * @return the HTTP method of the request
+	 */
+	public String getHttpMethod() {
+		return _httpMethod;
+	}
+
+	/**
+	 * @return the requested path
+	 */
+	public String getPath() {
+		return _path;
+	}
+
+	/**
+	 * @return the serviceName
+	 */
+	public String getServiceName() {
+		return _serviceName;
+	}
+
+	/**
+	 * @param serviceName the serviceName to set
+	 */
+	public void setServiceName(String serviceName) {
+		_serviceName = serviceName;
+	}
+
+	/**
+	 * @return the methodName
+	 */
+	public String getMethodName() {
+		return _methodName;
+	}
+
+	/**
+	 * @param methodName the methodName to set
+	 */
+	public void setMethodName(String methodName) {
+		_methodName = methodName;
+	}
+
+	/**
+	 * @return the status of the response
+	 */
+	public String getStatus() {
+		return _status;
+	}
+
+	/**
+	 * @param status the status of the response
+	 */
+	public void setStatus(String status) {
+		_status = status;
+	}
+
+	/**
+	 * @return the started
+	 */
+	public Date getStarted() {
+		return _started;
+	}
+
+	/**
+	 * @return the traceId
+	 */
+	public long getTraceId() {
+		return _traceId;
+	}
+}
@@ -0,0 +1,127 @@
+/**
+ * Copyright 2014 Tampere University of Technology, Pori Department
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package core.tut.pori.trace;
+
+import java.util.concurrent.Callable;
+
+import core.tut.pori.trace.Span.SpanType;
+
+/**
+ * Holds the trace of the request currently being processed by the calling thread.
+ * 
+ * The trace is automatically carried over to tasks submitted to the system executor (see {@link core.tut.pori.context.ExecutorHandler#getExecutor()}).
+ * If a task is executed using some other executor, the task can be wrapped using {@link #wrap(Runnable)} or {@link #wrap(Callable)}.
+ * 
+ * Usage:
+ * <pre>
+ * try(Span span = TraceContext.startSpan(SpanType.HTTP, url)){
+ * 	// execute the call
+ * }
+ * </pre>
+ */
+public final class TraceContext {
+	private static final ThreadLocal<Trace> CURRENT_TRACE = new ThreadLocal<>();
+	
+	/**
+	 * 
+	 */
+	private TraceContext(){
+		// nothing needed
+	}
+	
+	/**
+	 * 
+	 * @return the trace associated with the calling thread or null if none
+	 */
+	public static Trace getCurrentTrace(){
+		return CURRENT_TRACE.get();
+	}
+	
+	/**
+	 * 
+	 * @param trace the trace to associate with the calling thread, if null, the current trace (if any) is cleared
+	 */
+	public static void setCurrentTrace(Trace trace){
+		if(trace == null){
+			CURRENT_TRACE.remove();
+		}else{
+			CURRENT_TRACE.set(trace);
+		}
+	}
+	
+	/**
+	 * Start a new span for the current trace. The span must be closed to be recorded.
+	 * 
+	 * @param type
+	 * @param name
+	 * @return new span or null if there is no active trace for the calling thread. Note that it is safe to use null resources with try-with-resources statement.
+	 */
+	public static Span startSpan(SpanType type, String name){
+		Trace trace = CURRENT_TRACE.get();
+		if(trace == null || trace.isCompleted()){
+			return null;
+		}
+		return new Span(trace, type, name);
+	}
+	
+	/**
+	 * 
+	 * @param runnable
+	 * @return the runnable wrapped so that the current trace of the calling thread is used when executing the runnable, or the runnable itself if there is no active trace
+	 */
+	public static Runnable wrap(final Runnable runnable){
+		final Trace trace = CURRENT_TRACE.get();
+		if(trace == null){
+			return runnable;
+		}
+		return new Runnable() {
+			@Override
+			public void run() {
+				Trace previous = CURRENT_TRACE.get();
+				CURRENT_TRACE.set(trace);
+				try{
+					runnable.run();
+				}finally{
+					setCurrentTrace(previous);
+				}
+			}
+		};
+	}
+	
+	/**
+	 * 
+	 * @param callable
+	 * @return the callable wrapped so that the current trace of the calling thread is used when executing the callable, or the callable itself if there is no active trace
+	 */
+	public static <T> Callable<T> wrap(final Callable<T> callable){
+		final Trace trace = CURRENT_TRACE.get();
+		if(trace == null){
+			return callable;
+		}
+		return new Callable<T>() {
+			@Override
+			public T call() throws Exception {
+				Trace previous = CURRENT_TRACE.get();
+				CURRENT_TRACE.set(trace);
+				try{
+					return callable.call();
+				}finally{
+					setCurrentTrace(previous);
+				}
+			}
+		};
+	}
+}
@@ -0,0 +1,79 @@
+/**
+ * Copyright 2014 Tampere University of Technology, Pori Department
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package core.tut.pori.trace;
+
+import javax.sql.DataSource;
+
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.CallableStatementCallback;
+import org.springframework.jdbc.core.CallableStatementCreator;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCallback;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.SqlProvider;
+import org.springframework.jdbc.core.StatementCallback;
+
+import core.tut.pori.trace.Span.SpanType;
+
+/**
+ * JdbcTemplate, which records a span for each executed statement, if there is an active trace for the calling thread.
+ * 
+ * All query, update and batch update methods of JdbcTemplate delegate to the execute methods overridden by this class, 
+ * so any DAO using this template (directly or e.g. through SimpleJdbcInsert) is traced automatically.
+ */
+public class TracingJdbcTemplate extends JdbcTemplate {
+	
+	/**
+	 * 
+	 * @param dataSource
+	 */
+	public TracingJdbcTemplate(DataSource dataSource) {
+		super(dataSource);
+	}
+
+	@Override
+	@SuppressWarnings("try")
+	public <T> T execute(StatementCallback<T> action) throws DataAccessException {
+		try(Span span = TraceContext.startSpan(SpanType.SQL, getSql(action))){
+			return super.execute(action);
+		}
+	}
+
+	@Override
+	@SuppressWarnings("try")
+	public <T> T execute(PreparedStatementCreator psc, PreparedStatementCallback<T> action) throws DataAccessException {
+		try(Span span = TraceContext.startSpan(SpanType.SQL, getSql(psc))){
+			return super.execute(psc, action);
+		}
+	}
+
+	@Override
+	@SuppressWarnings("try")
+	public <T> T execute(CallableStatementCreator csc, CallableStatementCallback<T> action) throws DataAccessException {
+		try(Span span = TraceContext.startSpan(SpanType.SQL, getSql(csc))){
+			return super.execute(csc, action);
+		}
+	}
+	
+	/**
+	 * 
+	 * @param sqlProvider
+	 * @return the SQL string of the given object or null if the object does not provide one
+	 */
+	private static String getSql(Object sqlProvider) {
+		return (sqlProvider instanceof SqlProvider ? ((SqlProvider) sqlProvider).getSql() : null);
+	}
+}
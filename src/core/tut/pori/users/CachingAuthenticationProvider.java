@@ -0,0 +1,104 @@
+/**
+ * Copyright 2014 Tampere University of Technology, Pori Department
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package core.tut.pori.users;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.concurrent.TimeUnit;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.apache.log4j.Logger;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
+import org.springframework.security.core.AuthenticationException;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+/**
+ * Authentication provider, which caches successful password verifications for a short period of time.
+ * 
+ * The cache maps the username to a keyed digest (HMAC-SHA256) of the stored password hash and the presented password. The key is randomly generated on initialization,
+ * and is never stored, thus, the cached values are only usable by this instance. Plaintext passwords are never cached, and failed verifications are never cached,
+ * i.e. invalid passwords are always checked by the configured password encoder.
+ * 
+ * As the stored password hash is a part of the digest, changing the password of the user invalidates the cached verification. Removed users are not resolved
+ * by the user details service, and thus, the password check is never reached for them.
+ *
+ */
+public class CachingAuthenticationProvider extends DaoAuthenticationProvider {
+	private static final Logger LOGGER = Logger.getLogger(CachingAuthenticationProvider.class);
+	private static final String ALGORITHM = "HmacSHA256";
+	private static final int KEY_LENGTH = 32; // in bytes
+	private static final long VERIFICATION_CACHE_EXPIRE_TIME = 60; // in seconds
+	private static final long VERIFICATION_CACHE_MAX_SIZE = 1000;
+	private final Cache<String, byte[]> _verifications = CacheBuilder.newBuilder().expireAfterWrite(VERIFICATION_CACHE_EXPIRE_TIME, TimeUnit.SECONDS).maximumSize(VERIFICATION_CACHE_MAX_SIZE).build();
+	private final SecretKeySpec _key;
+	
+	/**
+	 * 
+	 */
+	public CachingAuthenticationProvider(){
+		byte[] key = new byte[KEY_LENGTH];
+		new SecureRandom().nextBytes(key);
+		_key = new SecretKeySpec(key, ALGORITHM);
+	}
+
+	@Override
+	protected void additionalAuthenticationChecks(UserDetails userDetails, UsernamePasswordAuthenticationToken authentication) throws AuthenticationException {
+		Object credentials = authentication.getCredentials();
+		String username = userDetails.getUsername();
+		String passwordHash = userDetails.getPassword();
+		if(credentials == null || username == null || passwordHash == null){
+			super.additionalAuthenticationChecks(userDetails, authentication); // let the default implementation handle the invalid details
+			return;
+		}
+		
+		byte[] digest = digest(passwordHash, credentials.toString());
+		byte[] cached = _verifications.getIfPresent(username);
+		if(cached != null && MessageDigest.isEqual(cached, digest)){ // constant time comparison
+			return;
+		}
+		
+		super.additionalAuthenticationChecks(userDetails, authentication); // throws on failed verification
+		_verifications.put(username, digest);
+	}
+	
+	/**
+	 * 
+	 * @param passwordHash
+	 * @param password
+	 * @return keyed digest of the given values
+	 * @throws IllegalStateException if the digest could not be calculated
+	 */
+	private byte[] digest(String passwordHash, String password) throws IllegalStateException {
+		try {
+			Mac mac = Mac.getInstance(ALGORITHM); // Mac instances are not thread-safe, create a new one for each call
+			mac.init(_key);
+			mac.update(passwordHash.getBytes(StandardCharsets.UTF_8));
+			mac.update((byte) 0); // separator, the hash cannot contain a null character
+			return mac.doFinal(password.getBytes(StandardCharsets.UTF_8));
+		} catch (GeneralSecurityException ex) {
+			LOGGER.error(ex, ex);
+			throw new IllegalStateException("Failed to initialize "+ALGORITHM+".");
+		}
+	}
+}
@@ -36,6 +36,8 @@ import com.google.gson.JsonSerializer;
  * Uses the default GSON parser with extended support for ISODATE (ISO 8601) using java date objects.
  */
 public final class JSONFormatter {
+	private static final Gson GSON = createGsonSerializer();
+	
 	/**
 	 * 
 	 */
@@ -44,6 +46,15 @@ public final class JSONFormatter {
 	}
 	
 	
+	/**
+	 * Gson instances are thread-safe, and the returned instance can be shared. Use {@link #createGsonSerializer()} if the configuration needs to be modified.
+	 * 
+	 * @return shared serializer instance with ISO Date parsers
+	 */
+	public static Gson getGsonSerializer(){
+		return GSON;
+	}
+	
 	/**
 	 * Initialize Gson serializer with ISO Date parsers
 	 * @return new serializer instance
@@ -17,14 +17,26 @@ package core.tut.pori.utils;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.net.HttpURLConnection;
 import java.net.URL;
+import java.net.URLConnection;
+import java.util.Collection;
 import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import javax.xml.bind.annotation.XmlEnum;
 import javax.xml.bind.annotation.XmlEnumValue;
 
 import org.apache.commons.codec.DecoderException;
 import org.apache.commons.codec.binary.Hex;
+import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.log4j.Logger;
 
@@ -51,6 +63,10 @@ import org.apache.log4j.Logger;
  * 
  * Note that the magic number validation is a simplified operation and no end bytes for file types will ever be checked, whether they denote the file type or not.
  * 
+ * Only the first bytes of the content are requested from HTTP servers using a range request. If the server does not support ranges, the connection is closed after the first bytes have been read.
+ * 
+ * The validator does not hold any state, and the same instance can be used from multiple threads.
+ * 
  */
 public class MediaUrlValidator {
 	/* media types */
@@ -94,6 +110,11 @@ public class MediaUrlValidator {
 		}
 	}
 	private static final int BUFFER_SIZE = 20; // take first 20 bytes in to the buffer
+	private static final int CONNECT_TIMEOUT = 10000; // in ms
+	private static final String HEADER_RANGE = "Range";
+	private static final int MAX_CONCURRENT_VALIDATIONS = 10;
+	private static final String RANGE_BUFFER = "bytes=0-"+(BUFFER_SIZE-1);
+	private static final int READ_TIMEOUT = 10000; // in ms
 
 	/**
 	 * Media type declaration.
@@ -179,6 +200,44 @@ public class MediaUrlValidator {
 		return true;
 	}
 	
+	/**
+	 * 
+	 * @param bytes the first {@value #BUFFER_SIZE} bytes of the content
+	 * @return the media type detected from the magic bytes
+	 */
+	private static MediaType getMediaType(byte[] bytes){
+		if(startsWith(bytes, MAGIC_BYTE_BMP)){
+			LOGGER.debug("Detected a bmp file.");
+			return MediaType.PHOTO;
+		}else if(startsWith(bytes, MAGIC_BYTE_PNG)){
+			LOGGER.debug("Detected a png file.");
+			return MediaType.PHOTO;
+		}else if(startsWith(bytes, MAGIC_BYTE_JPEG)){
+			LOGGER.debug("Detected a jpeg file.");
+			return MediaType.PHOTO;
+		}else if(startsWith(bytes, MAGIC_BYTE_GIF_1) || startsWith(bytes, MAGIC_BYTE_GIF_2)){
+			LOGGER.debug("Detected a gif file.");
+			return MediaType.PHOTO;
+		}else if(startsWith(bytes, MAGIC_BYTE_AVI)){
+			LOGGER.debug("Detected an avi file.");
+			return MediaType.VIDEO;
+		}else if(startsWith(bytes, MAGIC_BYTE_FLASH_VIDEO)){
+			LOGGER.debug("Detected a flash file.");
+			return MediaType.VIDEO;
+		}else if(startsWith(bytes, MAGIC_BYTE_MKV)){
+			LOGGER.debug("Detected a mkv file.");
+			return MediaType.VIDEO;
+		}else if(startsWith(bytes, MAGIC_BYTE_MOV)){
+			LOGGER.debug("Detected a mov file.");
+			return MediaType.VIDEO;
+		}else if(startsWith(bytes, MAGIC_BYTE_MPEG_VIDEO)){
+			LOGGER.debug("Detected a mpg file.");
+			return MediaType.VIDEO;
+		}else{
+			return MediaType.UNKNOWN;
+		}
+	}
+	
 	/**
 	 * 
 	 * @param url
@@ -190,49 +249,82 @@ public class MediaUrlValidator {
 			return MediaType.UNKNOWN;
 		}
 		
-		LOGGER.debug("Validating URL: "+url);	
+		LOGGER.debug("Validating URL: "+url);
+		HttpURLConnection http = null;
+		boolean partial = false;
 		try {	
-			URL u = new URL(url);
-			try (InputStream input = u.openStream()){
+			URLConnection connection = new URL(url).openConnection();
+			connection.setConnectTimeout(CONNECT_TIMEOUT);
+			connection.setReadTimeout(READ_TIMEOUT);
+			if(connection instanceof HttpURLConnection){
+				http = (HttpURLConnection) connection;
+				http.setRequestProperty(HEADER_RANGE, RANGE_BUFFER);
+			}
+			try (InputStream input = connection.getInputStream()){
+				partial = (http != null && http.getResponseCode() == HttpURLConnection.HTTP_PARTIAL);
 				byte[] bytes = new byte[BUFFER_SIZE];
-				if(input.read(bytes) < BUFFER_SIZE){
+				if(IOUtils.read(input, bytes) < BUFFER_SIZE){
 					LOGGER.warn("Failed to read first "+BUFFER_SIZE+" bytes.");
 					return MediaType.UNKNOWN;
 				}
-				
-				if(startsWith(bytes, MAGIC_BYTE_BMP)){
-					LOGGER.debug("Detected a bmp file.");
-					return MediaType.PHOTO;
-				}else if(startsWith(bytes, MAGIC_BYTE_PNG)){
-					LOGGER.debug("Detected a png file.");
-					return MediaType.PHOTO;
-				}else if(startsWith(bytes, MAGIC_BYTE_JPEG)){
-					LOGGER.debug("Detected a jpeg file.");
-					return MediaType.PHOTO;
-				}else if(startsWith(bytes, MAGIC_BYTE_GIF_1) || startsWith(bytes, MAGIC_BYTE_GIF_2)){
-					LOGGER.debug("Detected a gif file.");
-					return MediaType.PHOTO;
-				}else if(startsWith(bytes, MAGIC_BYTE_AVI)){
-					LOGGER.debug("Detected an avi file.");
-					return MediaType.VIDEO;
-				}else if(startsWith(bytes, MAGIC_BYTE_FLASH_VIDEO)){
-					LOGGER.debug("Detected a flash file.");
-					return MediaType.VIDEO;
-				}else if(startsWith(bytes, MAGIC_BYTE_MKV)){
-					LOGGER.debug("Detected a mkv file.");
-					return MediaType.VIDEO;
-				}else if(startsWith(bytes, MAGIC_BYTE_MOV)){
-					LOGGER.debug("Detected a mov file.");
-					return MediaType.VIDEO;
-				}else if(startsWith(bytes, MAGIC_BYTE_MPEG_VIDEO)){
-					LOGGER.debug("Detected a mpg file.");
-					return MediaType.VIDEO;
-				}
+				return getMediaType(bytes);
 			}
 		} catch (IOException | IllegalArgumentException ex) { // java's URL connection randomly throws illegal argument exception on certain valid urls, so catch and ignore it		
 			LOGGER.warn("Failed to read URL: "+url);
 			LOGGER.debug(ex, ex);
+		} finally {
+			if(http != null && !partial){ // the server did not honor the range, close the connection instead of reading the rest of the content
+				http.disconnect();
+			}
 		}
 		return MediaType.UNKNOWN;
 	}
-}
\ No newline at end of file
+	
+	/**
+	 * Validate the given URLs concurrently. At most {@value #MAX_CONCURRENT_VALIDATIONS} URLs are validated at the same time.
+	 * 
+	 * @param urls
+	 * @return URL - media type map in the iteration order of the given URLs, or null if no URLs were given or the validation was interrupted
+	 * @see #validateUrl(String)
+	 */
+	public Map<String, MediaType> validateUrls(Collection<String> urls){
+		if(urls == null || urls.isEmpty()){
+			LOGGER.warn("No URLs.");
+			return null;
+		}
+		
+		LinkedHashMap<String, Future<MediaType>> results = new LinkedHashMap<>(urls.size());
+		ExecutorService executor = Executors.newFixedThreadPool(Math.min(urls.size(), MAX_CONCURRENT_VALIDATIONS));
+		try{
+			for(final String url : urls){
+				if(!results.containsKey(url)){
+					results.put(url, executor.submit(new Callable<MediaType>() {
+						@Override
+						public MediaType call() {
+							return validateUrl(url);
+						}
+					}));
+				}
+			} // for
+			
+			LinkedHashMap<String, MediaType> mediaTypes = new LinkedHashMap<>(results.size());
+			for(Entry<String, Future<MediaType>> e : results.entrySet()){
+				MediaType mediaType = null;
+				try {
+					mediaType = e.getValue().get();
+				} catch (ExecutionException ex) {
+					LOGGER.warn(ex, ex);
+					mediaType = MediaType.UNKNOWN;
+				}
+				mediaTypes.put(e.getKey(), mediaType);
+			}
+			return mediaTypes;
+		} catch (InterruptedException ex) {
+			LOGGER.warn("Interrupted while validating URLs.", ex);
+			Thread.currentThread().interrupt();
+			return null;
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+}
@@ -0,0 +1,271 @@
+/**
+ * Copyright 2014 Tampere University of Technology, Pori Department
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package core.tut.pori.utils;
+
+import java.io.Closeable;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Unmarshaller;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.log4j.Logger;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+
+/**
+ * Streaming XML reader for documents of form root-element - list-element - item-elements, where the list can contain an arbitrary number of items.
+ * 
+ * The elements of the root, other than the list element, are considered to be the header of the document, and are unmarshalled to the given header class. 
+ * The items of the list are unmarshalled one at a time, and returned in chunks of the given size, which means that the complete list will never be in the memory at once,
+ * unless the caller chooses to collect it. 
+ * 
+ * Note that {@link #getHeader()} only contains the elements that have been read so far, i.e. elements positioned after the list are only available after all chunks have been read.
+ * The other child elements of the list (if any) are ignored.
+ * 
+ * This class is not thread-safe.
+ *
+ * @param <H> the header (root element) class
+ * @param <I> the item class
+ */
+public class XMLChunkReader<H, I> implements Closeable {
+	private static final XMLInputFactory INPUT_FACTORY;
+	static{
+		INPUT_FACTORY = XMLInputFactory.newInstance();
+		INPUT_FACTORY.setProperty(XMLInputFactory.SUPPORT_DTD, Boolean.FALSE);
+		INPUT_FACTORY.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, Boolean.FALSE);
+	}
+	private static final Logger LOGGER = Logger.getLogger(XMLChunkReader.class);
+	private int _chunkSize = 0;
+	private Document _document = null;
+	private H _header = null;
+	private Class<H> _headerClass = null;
+	private boolean _headerChanged = true;
+	private boolean _inList = false;
+	private Class<I> _itemClass = null;
+	private String _itemElement = null;
+	private String _listElement = null;
+	private XMLStreamReader _reader = null;
+	private Unmarshaller _unmarshaller = null;
+
+	/**
+	 * Reads the input up to the start of the list element (or to the end of the document, if no list element is present).
+	 * 
+	 * @param in
+	 * @param headerClass JAXB-annotated class of the root element, the item class must be known by the JAXB context of this class
+	 * @param listElement local name of the list element
+	 * @param itemElement local name of the item element
+	 * @param itemClass JAXB-annotated class of the item element
+	 * @param chunkSize maximum number of items returned by a single call to {@link #nextChunk()}
+	 * @throws IllegalArgumentException on bad values or bad xml
+	 */
+	public XMLChunkReader(InputStream in, Class<H> headerClass, String listElement, String itemElement, Class<I> itemClass, int chunkSize) throws IllegalArgumentException {
+		if(in == null || headerClass == null || itemClass == null || StringUtils.isBlank(listElement) || StringUtils.isBlank(itemElement) || chunkSize < 1){
+			throw new IllegalArgumentException("Bad input values.");
+		}
+		_chunkSize = chunkSize;
+		_headerClass = headerClass;
+		_itemClass = itemClass;
+		_itemElement = itemElement;
+		_listElement = listElement;
+		try {
+			_unmarshaller = (new XMLFormatter()).createUnMarshaller(XMLFormatter.getContext(headerClass));
+			_document = DocumentBuilderFactory.newInstance().newDocumentBuilder().newDocument();
+			_reader = INPUT_FACTORY.createXMLStreamReader(in);
+			_reader.nextTag(); // move to the root element
+			_document.appendChild(createElement());
+			readHeader();
+		} catch (JAXBException | ParserConfigurationException | XMLStreamException ex) {
+			LOGGER.error(ex, ex);
+			close();
+			throw new IllegalArgumentException("Failed to parse xml.");
+		}
+	}
+
+	/**
+	 * 
+	 * @return the header of the document, containing the elements read so far. The list element will not be present in the returned object.
+	 * @throws IllegalArgumentException on bad xml
+	 */
+	public H getHeader() throws IllegalArgumentException {
+		if(_headerChanged){
+			try {
+				_header = _unmarshaller.unmarshal(_document, _headerClass).getValue();
+			} catch (JAXBException ex) {
+				LOGGER.error(ex, ex);
+				throw new IllegalArgumentException("Failed to parse xml.");
+			}
+			_headerChanged = false;
+		}
+		return _header;
+	}
+
+	/**
+	 * 
+	 * @return the next chunk of items or null if there are no more items
+	 * @throws IllegalArgumentException on bad xml
+	 */
+	public List<I> nextChunk() throws IllegalArgumentException {
+		if(!_inList){
+			return null;
+		}
+		List<I> items = new ArrayList<>(_chunkSize);
+		try {
+			while(items.size() < _chunkSize){
+				int event = _reader.getEventType();
+				if(event == XMLStreamConstants.START_ELEMENT){
+					if(_itemElement.equals(_reader.getLocalName())){
+						items.add(_unmarshaller.unmarshal(_reader, _itemClass).getValue()); // this will leave the reader positioned at the event following the item
+						continue;
+					}
+					LOGGER.debug("Ignored element: "+_reader.getLocalName());
+					skipElement();
+				}else if(event == XMLStreamConstants.END_ELEMENT){ // end of the list
+					_inList = false;
+					readHeader();
+					break;
+				}
+				_reader.next();
+			}
+		} catch (JAXBException | XMLStreamException ex) {
+			LOGGER.error(ex, ex);
+			throw new IllegalArgumentException("Failed to parse xml.");
+		}
+		return (items.isEmpty() ? null : items);
+	}
+
+	/**
+	 * Reads all remaining items. Note that this will place the entire list in memory, and should be used only when the items cannot be processed in chunks.
+	 * 
+	 * @return all remaining items or null if there are none
+	 * @throws IllegalArgumentException on bad xml
+	 */
+	public List<I> readAll() throws IllegalArgumentException {
+		List<I> items = null;
+		for(List<I> chunk = nextChunk(); chunk != null; chunk = nextChunk()){
+			if(items == null){
+				items = chunk;
+			}else{
+				items.addAll(chunk);
+			}
+		}
+		return items;
+	}
+
+	/**
+	 * Reads the child elements of the root element to the header document until the start of the list element or the end of the root element is encountered.
+	 * 
+	 * @throws XMLStreamException
+	 */
+	private void readHeader() throws XMLStreamException {
+		Element root = _document.getDocumentElement();
+		while(_reader.hasNext()){
+			int event = _reader.next();
+			if(event == XMLStreamConstants.START_ELEMENT){
+				if(_listElement.equals(_reader.getLocalName())){
+					_reader.next(); // move to the content of the list
+					_inList = true;
+					return;
+				}
+				root.appendChild(createElement());
+				_headerChanged = true;
+			}else if(event == XMLStreamConstants.END_ELEMENT){ // end of the root element
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Copies the element (with all child elements) at the current position of the reader.
+	 * The root element is only created, the reader is left at the first event after the start of the root element.
+	 * 
+	 * @return the created element
+	 * @throws XMLStreamException
+	 */
+	private Element createElement() throws XMLStreamException {
+		boolean root = (_document.getDocumentElement() == null);
+		Element element = _document.createElementNS(_reader.getNamespaceURI(), getQualifiedName(_reader.getPrefix(), _reader.getLocalName()));
+		for(int i=0, count=_reader.getAttributeCount(); i<count; ++i){
+			element.setAttributeNS(_reader.getAttributeNamespace(i), getQualifiedName(_reader.getAttributePrefix(i), _reader.getAttributeLocalName(i)), _reader.getAttributeValue(i));
+		}
+		if(root){
+			return element;
+		}
+		while(_reader.hasNext()){
+			switch(_reader.next()){
+				case XMLStreamConstants.START_ELEMENT:
+					element.appendChild(createElement());
+					break;
+				case XMLStreamConstants.CHARACTERS:
+				case XMLStreamConstants.CDATA:
+				case XMLStreamConstants.SPACE:
+					element.appendChild(_document.createTextNode(_reader.getText()));
+					break;
+				case XMLStreamConstants.END_ELEMENT:
+					return element;
+				default:
+					break;
+			}
+		}
+		throw new XMLStreamException("Unexpected end of document.");
+	}
+
+	/**
+	 * 
+	 * @param prefix
+	 * @param localName
+	 * @return the qualified name
+	 */
+	private static String getQualifiedName(String prefix, String localName){
+		return (StringUtils.isEmpty(prefix) ? localName : prefix+":"+localName);
+	}
+
+	/**
+	 * Skips the element at the current position of the reader, leaving the reader at the end of the element.
+	 * 
+	 * @throws XMLStreamException
+	 */
+	private void skipElement() throws XMLStreamException {
+		for(int depth = 1; depth > 0;){
+			int event = _reader.next();
+			if(event == XMLStreamConstants.START_ELEMENT){
+				++depth;
+			}else if(event == XMLStreamConstants.END_ELEMENT){
+				--depth;
+			}
+		}
+	}
+
+	@Override
+	public void close() {
+		if(_reader != null){
+			try {
+				_reader.close();
+			} catch (XMLStreamException ex) {
+				LOGGER.warn(ex, ex);
+			}
+			_reader = null;
+		}
+	}
+}
@@ -18,6 +18,10 @@ package core.tut.pori.utils;
 import java.io.InputStream;
 import java.io.StringReader;
 import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import javax.xml.bind.JAXBContext;
 import javax.xml.bind.JAXBException;
@@ -47,8 +51,11 @@ import core.tut.pori.http.ResponseData;
  * XML formatter.
  * 
  * This class can be used to marshal objects to xml output, and unmarshal objects from xml input.
+ * 
+ * The JAXB contexts are expensive to create, and are thus shared by all formatter instances. The contexts are created on first use for each distinct set of bound classes.
  */
 public class XMLFormatter {
+	private static final ConcurrentHashMap<Set<Class<?>>, JAXBContext> CONTEXTS = new ConcurrentHashMap<>();
 	private static final Logger LOGGER = Logger.getLogger(XMLFormatter.class);
 	private boolean _omitXMLDeclaration = false;
 	private boolean _throwOnError = true;
@@ -67,7 +74,7 @@ public class XMLFormatter {
 		}
 		T retval = null;
 		try (StringReader reader = new StringReader(string)) {
-			JAXBContext context = JAXBContext.newInstance(cls);
+			JAXBContext context = getContext(cls);
 			Unmarshaller um = createUnMarshaller(context);
 			Object o = um.unmarshal(reader);
 			if(o.getClass() != cls){
@@ -96,7 +103,7 @@ public class XMLFormatter {
 		}
 		T retval = null;
 		try{
-			JAXBContext context = JAXBContext.newInstance(cls);
+			JAXBContext context = getContext(cls);
 			Unmarshaller um = createUnMarshaller(context);
 			Object o = um.unmarshal(in);
 			if(o.getClass() != cls){
@@ -125,7 +132,7 @@ public class XMLFormatter {
 			return null;
 		}
 		try{
-			JAXBContext context = JAXBContext.newInstance(ArrayUtils.add(requiredClasses, objectClass));
+			JAXBContext context = getContext(ArrayUtils.add(requiredClasses, objectClass));
 			Unmarshaller um = createUnMarshaller(context);
 			Object o = um.unmarshal(in);
 			if(o.getClass() != objectClass){
@@ -153,7 +160,7 @@ public class XMLFormatter {
 		}
 		T retval = null;
 		try{
-			JAXBContext context = JAXBContext.newInstance(cls);
+			JAXBContext context = getContext(cls);
 			Unmarshaller um = createUnMarshaller(context);
 			Object o = um.unmarshal(node);
 			if(o.getClass() != cls){
@@ -179,9 +186,9 @@ public class XMLFormatter {
 			JAXBContext context = null;
 			ResponseData t = r.getResponseData();
 			if(t == null){
-				context = JAXBContext.newInstance(Response.class);
+				context = getContext(Response.class);
 			}else{
-				context = JAXBContext.newInstance(ArrayUtils.add(t.getDataClasses(), Response.class));
+				context = getContext(ArrayUtils.add(t.getDataClasses(), Response.class));
 			}	
 			Marshaller marshaller = createMarshaller(context);
 			StringWriter w = new StringWriter();
@@ -202,7 +209,7 @@ public class XMLFormatter {
 	public <T> String toString(T o){
 		String retval = null;
 		try {
-			Marshaller marshaller = createMarshaller(JAXBContext.newInstance(o.getClass()));
+			Marshaller marshaller = createMarshaller(getContext(o.getClass()));
 			StringWriter w = new StringWriter();
 			marshaller.marshal(o, w);
 			retval = w.toString();
@@ -236,6 +243,25 @@ public class XMLFormatter {
 		return result;
 	}
 	
+	/**
+	 * 
+	 * @param classes
+	 * @return shared JAXB context for the given set of classes
+	 * @throws JAXBException
+	 */
+	public static JAXBContext getContext(Class<?> ...classes) throws JAXBException{
+		Set<Class<?>> key = new HashSet<>(Arrays.asList(classes));
+		JAXBContext context = CONTEXTS.get(key);
+		if(context == null){
+			context = JAXBContext.newInstance(classes); // two threads may create the same context simultaneously, but the result is the same
+			JAXBContext previous = CONTEXTS.putIfAbsent(key, context);
+			if(previous != null){
+				context = previous;
+			}
+		}
+		return context;
+	}
+	
 	/**
 	 * create and return new marshaller, and set the default values
 	 * @param context
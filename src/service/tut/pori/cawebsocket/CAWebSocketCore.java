@@ -117,7 +117,8 @@ public final class CAWebSocketCore {
 			
 			Long taskId = event.getTaskId();
 			Integer backendId = event.getBackendId();
-			AbstractTaskDetails details = ServiceInitializer.getDAOHandler().getDAO(PhotoTaskDAO.class).getTask(backendId, new DataGroups(DataGroups.DATA_GROUP_BASIC, Definitions.DATA_GROUP_BACKEND_STATUS), null, taskId);
+			PhotoTaskDAO taskDAO = ServiceInitializer.getDAOHandler().getDAO(PhotoTaskDAO.class);
+			AbstractTaskDetails details = taskDAO.getTask(backendId, new DataGroups(DataGroups.DATA_GROUP_BASIC, Definitions.DATA_GROUP_BACKEND_STATUS), null, taskId);
 			if(details == null){
 				LOGGER.warn("Received task finished for non-existing task, id: "+taskId+", for back-end, id: "+backendId);
 				return;
@@ -132,6 +133,7 @@ public final class CAWebSocketCore {
 			taskStatus.setTaskId(taskId);
 			taskStatus.setTaskType(taskType);
 			taskStatus.setBackendStatusList(details.getBackends());
+			taskStatus.setStatus(taskDAO.getTaskStatus(taskId));
 			for(Entry<Long, Registration> e : REGISTERED_USERS.entrySet()){
 				Registration registration = e.getValue();
 				if(((taskUserId == null && registration.isListenAnonymousTasks()) || registration.hasUserId(taskUserId)) && registration.hasBackendId(backendId) && registration.hasTaskId(taskId) && registration.hasTaskType(taskType)){
@@ -34,6 +34,8 @@ import service.tut.pori.contentanalysis.BackendStatusList;
 public class TaskStatus {
 	@XmlElement(name=service.tut.pori.contentanalysis.Definitions.ELEMENT_BACKEND_STATUS_LIST)
 	private BackendStatusList _backendStatusList = null;
+	@XmlElement(name=service.tut.pori.contentanalysis.Definitions.ELEMENT_STATUS)
+	private service.tut.pori.contentanalysis.AsyncTask.TaskStatus _status = null;
 	@XmlElement(name=service.tut.pori.contentanalysis.Definitions.ELEMENT_TASK_ID)
 	private Long _taskId = null;
 	@XmlElement(name=service.tut.pori.contentanalysis.Definitions.ELEMENT_TASK_TYPE)
@@ -53,6 +55,20 @@ public class TaskStatus {
 		_backendStatusList = backendStatusList;
 	}
 	
+	/**
+	 * @return the combined status of all back-ends of the task
+	 */
+	public service.tut.pori.contentanalysis.AsyncTask.TaskStatus getStatus() {
+		return _status;
+	}
+	
+	/**
+	 * @param status the combined status of all back-ends of the task
+	 */
+	public void setStatus(service.tut.pori.contentanalysis.AsyncTask.TaskStatus status) {
+		_status = status;
+	}
+	
 	/**
 	 * @return the taskId
 	 */
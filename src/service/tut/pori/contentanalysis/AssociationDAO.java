@@ -18,28 +18,46 @@ package service.tut.pori.contentanalysis;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
+import org.apache.commons.lang3.ArrayUtils;
 import org.apache.log4j.Logger;
 import org.springframework.jdbc.core.RowCallbackHandler;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.Weigher;
+
 import core.tut.pori.dao.SQLDAO;
-import core.tut.pori.dao.SQLSelectBuilder;
-import core.tut.pori.dao.clause.AndClause;
+import core.tut.pori.dao.SQLSelectTemplate;
+import core.tut.pori.dao.SQLSelectTemplate.BoundQuery;
+import core.tut.pori.dao.SQLSelectTemplate.Operator;
+import core.tut.pori.dao.SQLSelectTemplate.Parameter;
 import core.tut.pori.dao.clause.SQLClause.SQLType;
 
 /**
  * Used to associate media objects to photos.
  * 
  * Note that even though it is possible to retrieve an instance of this class through DAOHandler, it is not recommended to use this DAO to directly modify media object relations. An attempt to do so may cause undefined behavior.
+ * 
+ * The media object id - GUID relations are kept in a bounded in-memory reverse index, which is updated by the associate and deassociate methods of this class.
+ * The entries expire after a while to catch up with any modifications made directly to the database, the expiration time restarts when an entry is updated.
+ * The index holds at most 1 000 000 GUIDs in total (counting one extra per media object id), and thus, a media object associated with more GUIDs than that is never indexed, and is always loaded from the database.
  */
 public class AssociationDAO extends SQLDAO {
+	private static final long GUID_INDEX_EXPIRE_TIME = 600; // in seconds
+	private static final long GUID_INDEX_MAX_WEIGHT = 1000000; // total number of indexed GUIDs, this is also the limit for a single entry as the index is not segmented
 	private static final Logger LOGGER = Logger.getLogger(AssociationDAO.class);
 	private static final String TABLE_ASSOCIATIONS = DATABASE+".ca_media_object_associations";
 	/* sql scripts */
@@ -50,6 +68,17 @@ public class AssociationDAO extends SQLDAO {
 	private static final String SQL_DEASSOCIATE_BY_GUID = "DELETE FROM "+TABLE_ASSOCIATIONS+" WHERE "+COLUMN_GUID+"=?";
 	private static final String SQL_DEASSOCIASTE_BY_MEDIA_OBJECT_ID = "DELETE FROM "+TABLE_ASSOCIATIONS+" WHERE "+Definitions.COLUMN_MEDIA_OBJECT_ID+"=?";
 	private static final int[] SQL_DEASSOCIATE_BY_SQL_TYPES = new int[]{SQLType.STRING.toInt()};
+	private static final SQLSelectTemplate SQL_GET_ASSOCIATIONS_FOR_GUIDS = new SQLSelectTemplate(TABLE_ASSOCIATIONS, SQL_ASSOCIATION_COLUMNS, new Parameter[]{new Parameter(COLUMN_GUID, SQLType.STRING, Operator.IN)}, null);
+	private static final SQLSelectTemplate SQL_GET_ASSOCIATIONS_FOR_MEDIA_OBJECT_IDS = new SQLSelectTemplate(TABLE_ASSOCIATIONS, SQL_ASSOCIATION_COLUMNS, new Parameter[]{new Parameter(Definitions.COLUMN_MEDIA_OBJECT_ID, SQLType.STRING, Operator.IN)}, null);
+	/* member variables */
+	private final AtomicLong _indexGeneration = new AtomicLong(); // incremented on each invalidation, loads started before the invalidation are not indexed
+	/** media object id - sorted GUIDs without duplicates */
+	private final Cache<String, String[]> _guidIndex = CacheBuilder.newBuilder().concurrencyLevel(1).expireAfterWrite(GUID_INDEX_EXPIRE_TIME, TimeUnit.SECONDS).maximumWeight(GUID_INDEX_MAX_WEIGHT).weigher(new Weigher<String, String[]>() {
+		@Override
+		public int weigh(String mediaObjectId, String[] guids) {
+			return guids.length + 1; // count the media object id for empty arrays
+		}
+	}).build();
 
 	/**
 	 * 
@@ -82,6 +111,30 @@ public class AssociationDAO extends SQLDAO {
 
 		sql.setLength(sql.length()-1);	// chop the extra ,
 		getJdbcTemplate().update(sql.toString(), objects.toArray()); // this will duplicate previously existing associations, but that's ok for now
+		
+		Map<String, List<String>> added = new HashMap<>();
+		for(Media media : mediaList){
+			MediaObjectList mediaObjects = media.getMediaObjects();
+			if(!MediaObjectList.isEmpty(mediaObjects)){
+				String guid = media.getGUID();
+				for(MediaObject o : mediaObjects.getMediaObjects()){
+					String mediaObjectId = o.getMediaObjectId();
+					List<String> guids = added.get(mediaObjectId);
+					if(guids == null){
+						guids = new ArrayList<>();
+						added.put(mediaObjectId, guids);
+					}
+					guids.add(guid);
+				}
+			}
+		}
+		
+		_indexGeneration.incrementAndGet();
+		for(Entry<String, List<String>> e : added.entrySet()){
+			String[] guids = e.getValue().toArray(new String[e.getValue().size()]);
+			Arrays.sort(guids);
+			addToIndex(e.getKey(), union(guids, ArrayUtils.EMPTY_STRING_ARRAY));
+		}
 	}
 
 	/**
@@ -94,10 +147,65 @@ public class AssociationDAO extends SQLDAO {
 		// select delete sql by the given parameters, note that it does not matter if both parameters are null, the database does not allow null values so the update will just do nothing on bad (null) values.
 		if(guid == null){
 			getJdbcTemplate().update(SQL_DEASSOCIASTE_BY_MEDIA_OBJECT_ID, new Object[]{mediaObjectId}, SQL_DEASSOCIATE_BY_SQL_TYPES);
+			_indexGeneration.incrementAndGet();
+			_guidIndex.invalidate(mediaObjectId);
 		}else if(mediaObjectId == null){
+			Map<String, Set<String>> associations = getAssociationsForGUIDs(Arrays.asList(guid)); // resolve the affected media objects before the associations are removed
 			getJdbcTemplate().update(SQL_DEASSOCIATE_BY_GUID, new Object[]{guid}, SQL_DEASSOCIATE_BY_SQL_TYPES);
+			_indexGeneration.incrementAndGet();
+			if(associations == null){
+				LOGGER.debug("No associations for GUID: "+guid);
+			}else{
+				for(Set<String> mediaObjectIds : associations.values()){
+					for(String id : mediaObjectIds){
+						removeFromIndex(id, guid);
+					}
+				}
+			}
 		}else{ // mediaObjectId != null && guid != null
 			getJdbcTemplate().update(SQL_DEASSOCIATE, new Object[]{guid, mediaObjectId}, SQL_DEASSOCIATE_SQL_TYPES);
+			_indexGeneration.incrementAndGet();
+			removeFromIndex(mediaObjectId, guid);
+		}
+	}
+	
+	/**
+	 * Add the given GUIDs to the indexed GUIDs of the given media object. If the media object is not in the index, nothing is done, the GUIDs will be loaded from the database when needed.
+	 * 
+	 * @param mediaObjectId
+	 * @param guids sorted GUIDs without duplicates
+	 */
+	private void addToIndex(String mediaObjectId, String[] guids){
+		ConcurrentMap<String, String[]> index = _guidIndex.asMap();
+		while(true){ // retry if the entry was changed concurrently
+			String[] current = index.get(mediaObjectId);
+			if(current == null){
+				return;
+			}
+			String[] updated = union(current, guids);
+			if(updated.length == current.length || index.replace(mediaObjectId, current, updated)){ // nothing new or replaced
+				return;
+			}
+		}
+	}
+	
+	/**
+	 * Remove the given GUID from the indexed GUIDs of the given media object. If the media object is not in the index, nothing is done.
+	 * 
+	 * @param mediaObjectId
+	 * @param guid
+	 */
+	private void removeFromIndex(String mediaObjectId, String guid){
+		ConcurrentMap<String, String[]> index = _guidIndex.asMap();
+		while(true){ // retry if the entry was changed concurrently
+			String[] current = index.get(mediaObjectId);
+			if(current == null){
+				return;
+			}
+			int position = Arrays.binarySearch(current, guid);
+			if(position < 0 || index.replace(mediaObjectId, current, ArrayUtils.remove(current, position))){ // not indexed or replaced
+				return;
+			}
 		}
 	}
 
@@ -111,21 +219,18 @@ public class AssociationDAO extends SQLDAO {
 			LOGGER.debug("No GUIDs.");
 			return null;
 		}
-		SQLSelectBuilder sql = new SQLSelectBuilder(TABLE_ASSOCIATIONS);
-		sql.addSelectColumns(SQL_ASSOCIATION_COLUMNS);
-		sql.addWhereClause(new AndClause(COLUMN_GUID, guids, SQLType.STRING));
-		return extractMap(sql);
+		return extractMap(SQL_GET_ASSOCIATIONS_FOR_GUIDS.bind(guids));
 	}
 
 	/**
-	 * helper for extracting guid-void map from the given builder
+	 * helper for extracting guid-void map from the given query
 	 * 
-	 * @param builder
+	 * @param query
 	 * @return guid-void map
 	 */
-	private Map<String, Set<String>> extractMap(SQLSelectBuilder builder){
+	private Map<String, Set<String>> extractMap(BoundQuery query){
 		final Map<String, Set<String>> map = new HashMap<>();
-		getJdbcTemplate().query(builder.toSQLString(), builder.getValues(), builder.getValueTypes(), new RowCallbackHandler() {		
+		getJdbcTemplate().query(query.toSQLString(), query.getValues(), query.getValueTypes(), new RowCallbackHandler() {		
 			@Override
 			public void processRow(ResultSet set) throws SQLException {
 				String guid = set.getString(COLUMN_GUID);
@@ -142,28 +247,114 @@ public class AssociationDAO extends SQLDAO {
 	}
 
 	/**
+	 * The GUIDs are resolved using the reverse index, and only the media object ids missing from the index are retrieved from the database.
 	 * 
 	 * @param mediaObjectIds
-	 * @return guid-media object map or null if no associations found
+	 * @return sorted list of GUIDs associated with any of the given media objects or null if no associations found
 	 */
-	public Map<String, Set<String>> getAssociationsForMediaObjectIds(Collection<String> mediaObjectIds){
+	public List<String> getGUIDsForMediaObjectIds(Collection<String> mediaObjectIds){
 		if(mediaObjectIds == null || mediaObjectIds.isEmpty()){
 			LOGGER.debug("No media object ids.");
 			return null;
 		}
 
-		SQLSelectBuilder sql = new SQLSelectBuilder(TABLE_ASSOCIATIONS);
-		final List<String> guids = new ArrayList<>();
-		sql.addSelectColumn(COLUMN_GUID);
-		sql.addWhereClause(new AndClause(Definitions.COLUMN_MEDIA_OBJECT_ID, mediaObjectIds, SQLType.STRING));
-		sql.addGroupBy(COLUMN_GUID);
-		getJdbcTemplate().query(sql.toSQLString(), sql.getValues(), sql.getValueTypes(), new RowCallbackHandler() {
+		List<String[]> guids = new ArrayList<>(mediaObjectIds.size());
+		List<String> missing = new ArrayList<>();
+		for(String mediaObjectId : mediaObjectIds){
+			String[] cached = _guidIndex.getIfPresent(mediaObjectId);
+			if(cached == null){
+				missing.add(mediaObjectId);
+			}else if(cached.length > 0){
+				guids.add(cached);
+			}
+		}
+		
+		if(!missing.isEmpty()){
+			LOGGER.debug("Retrieving associations for "+missing.size()+" media object(s) missing from the index.");
+			long generation = _indexGeneration.get();
+			Map<String, String[]> retrieved = getGUIDs(missing);
+			for(Entry<String, String[]> e : retrieved.entrySet()){
+				String[] value = e.getValue();
+				if(value.length > 0){
+					guids.add(value);
+				}
+				_guidIndex.put(e.getKey(), value);
+			}
+			if(_indexGeneration.get() != generation){ // the index was modified while the associations were being retrieved
+				_guidIndex.invalidateAll(retrieved.keySet());
+			}
+		}
+
+		return (guids.isEmpty() ? null : Arrays.asList(union(guids, 0, guids.size())));
+	}
+	
+	/**
+	 * 
+	 * @param mediaObjectIds
+	 * @return media object id - sorted GUID array map for all the given media object ids, the array is empty if the media object has no associations
+	 */
+	private Map<String, String[]> getGUIDs(Collection<String> mediaObjectIds){
+		final Map<String, List<String>> map = new HashMap<>(mediaObjectIds.size());
+		for(String mediaObjectId : mediaObjectIds){
+			map.put(mediaObjectId, new ArrayList<String>());
+		}
+		BoundQuery query = SQL_GET_ASSOCIATIONS_FOR_MEDIA_OBJECT_IDS.bind(mediaObjectIds);
+		getJdbcTemplate().query(query.toSQLString(), query.getValues(), query.getValueTypes(), new RowCallbackHandler() {
 			@Override
 			public void processRow(ResultSet set) throws SQLException {
-				guids.add(set.getString(COLUMN_GUID));
+				List<String> guids = map.get(set.getString(Definitions.COLUMN_MEDIA_OBJECT_ID));
+				if(guids != null){ // the database may return the ids in a different case
+					guids.add(set.getString(COLUMN_GUID));
+				}
 			}
 		});
-
-		return getAssociationsForGUIDs(guids);
+		
+		Map<String, String[]> sorted = new HashMap<>(map.size());
+		for(Entry<String, List<String>> e : map.entrySet()){
+			String[] guids = e.getValue().toArray(new String[e.getValue().size()]);
+			Arrays.sort(guids);
+			sorted.put(e.getKey(), union(guids, ArrayUtils.EMPTY_STRING_ARRAY)); // removes the duplicate associations
+		}
+		return sorted;
+	}
+	
+	/**
+	 * 
+	 * @param arrays list of sorted arrays
+	 * @param from index of the first array, inclusive
+	 * @param to index of the last array, exclusive
+	 * @return sorted union of the given arrays without duplicates
+	 */
+	private static String[] union(List<String[]> arrays, int from, int to){
+		int count = to - from;
+		if(count == 1){
+			String[] array = arrays.get(from);
+			return (array.length > 1 ? union(array, ArrayUtils.EMPTY_STRING_ARRAY) : array);
+		}
+		int middle = from + count / 2;
+		return union(union(arrays, from, middle), union(arrays, middle, to));
+	}
+	
+	/**
+	 * 
+	 * @param a sorted array
+	 * @param b sorted array
+	 * @return sorted union of the given arrays without duplicates
+	 */
+	private static String[] union(String[] a, String[] b){
+		String[] result = new String[a.length + b.length];
+		int i = 0, j = 0, count = 0;
+		while(i < a.length || j < b.length){
+			String next = null;
+			if(j == b.length || (i < a.length && a[i].compareTo(b[j]) <= 0)){
+				next = a[i++];
+			}else{
+				next = b[j++];
+			}
+			if(count == 0 || !next.equals(result[count-1])){
+				result[count++] = next;
+			}
+		}
+		return (count == result.length ? result : Arrays.copyOf(result, count));
 	}
 }
@@ -17,7 +17,8 @@ package service.tut.pori.contentanalysis;
 
 import java.io.IOException;
 import java.util.Collection;
-import java.util.Iterator;
+import java.util.EnumMap;
+import java.util.Map;
 import java.util.Set;
 
 import javax.xml.bind.annotation.XmlEnum;
@@ -119,6 +120,7 @@ public abstract class AsyncTask implements Job{
 		}
 
 		/**
+		 * The combined status does not depend on the order of the given statuses, and it is the same as the one resolved by {@link #getCombinedTaskStatus(Map)} for the counts of the statuses.
 		 * 
 		 * @param statusList
 		 * @return the combined status for the list of status codes or null if null or empty list was passed
@@ -127,37 +129,65 @@ public abstract class AsyncTask implements Job{
 			if(statusList == null || statusList.size() < 1){
 				return null;
 			}
-			TaskStatus status = UNKNOWN;
-			for(Iterator<TaskStatus> iter = statusList.iterator();iter.hasNext();){
-				switch(iter.next()){
-					case COMPLETED:
-						if(status == NOT_STARTED){
-							status = PENDING;
-						}else if(status!=PENDING && status!=EXECUTING && status!=COMPLETED){
-							status = COMPLETED;
-						}
-						break;
-					case ERROR:
-						return ERROR;
-					case EXECUTING:
-						status = EXECUTING;
-						break;
-					case NOT_STARTED:
-						if(status != PENDING && status != EXECUTING)
-							status = NOT_STARTED;
-						break;
-					case PENDING:
-						status = PENDING;
-						break;
-					case UNKNOWN:
-						LOGGER.debug("Unknown Task Status detected.");
-						break;
-					default:
-						LOGGER.error("Unhandled "+TaskStatus.class.toString());
-						break;
+			EnumMap<TaskStatus, Integer> counts = new EnumMap<>(TaskStatus.class);
+			for(TaskStatus status : statusList){
+				Integer count = counts.get(status);
+				counts.put(status, (count == null ? 1 : count+1));
+			}
+			return getCombinedTaskStatus(counts);
+		}
+		
+		/**
+		 * The combined status is resolved in the following order:
+		 * <ol>
+		 * <li>{@link #ERROR} if any status is error</li>
+		 * <li>{@link #EXECUTING} if any status is executing</li>
+		 * <li>{@link #PENDING} if any status is pending, or if some statuses are completed and some not started</li>
+		 * <li>{@link #NOT_STARTED} if any status is not started</li>
+		 * <li>{@link #COMPLETED} if any status is completed</li>
+		 * <li>{@link #UNKNOWN} otherwise</li>
+		 * </ol>
+		 * 
+		 * @param statusCounts status - number of occurrences of the status, missing statuses are counted as zero
+		 * @return the combined status for the given status counts or null if null or empty map was passed or all counts were zero
+		 */
+		public static TaskStatus getCombinedTaskStatus(Map<TaskStatus, Integer> statusCounts) {
+			if(statusCounts == null || statusCounts.isEmpty()){
+				return null;
+			}
+			int total = 0;
+			for(Integer count : statusCounts.values()){
+				if(count != null){
+					total += count;
 				}
 			}
-			return status;
+			if(total < 1){
+				return null;
+			}else if(hasStatus(statusCounts, ERROR)){
+				return ERROR;
+			}else if(hasStatus(statusCounts, EXECUTING)){
+				return EXECUTING;
+			}else if(hasStatus(statusCounts, PENDING) || (hasStatus(statusCounts, NOT_STARTED) && hasStatus(statusCounts, COMPLETED))){
+				return PENDING;
+			}else if(hasStatus(statusCounts, NOT_STARTED)){
+				return NOT_STARTED;
+			}else if(hasStatus(statusCounts, COMPLETED)){
+				return COMPLETED;
+			}else{
+				LOGGER.debug("Unknown Task Status detected.");
+				return UNKNOWN;
+			}
+		}
+		
+		/**
+		 * 
+		 * @param statusCounts
+		 * @param status
+		 * @return true if the count of the given status is greater than zero
+		 */
+		private static boolean hasStatus(Map<TaskStatus, Integer> statusCounts, TaskStatus status) {
+			Integer count = statusCounts.get(status);
+			return (count != null && count > 0);
 		}
 	}  // enum TaskStatus
 
@@ -15,18 +15,19 @@
  */
 package service.tut.pori.contentanalysis;
 
+import java.sql.ResultSet;
+import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.EnumSet;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
-import java.util.Map;
-import java.util.Map.Entry;
 import java.util.Set;
 
 import org.apache.commons.lang3.BooleanUtils;
-import org.apache.commons.lang3.StringUtils;
 import org.apache.log4j.Logger;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.transaction.TransactionStatus;
 import org.springframework.transaction.support.TransactionCallback;
 
@@ -34,6 +35,7 @@ import service.tut.pori.contentanalysis.AnalysisBackend.Capability;
 import core.tut.pori.dao.clause.AndClause;
 import core.tut.pori.dao.clause.SQLClause.SQLType;
 import core.tut.pori.dao.SQLDAO;
+import core.tut.pori.dao.SQLRowMapper;
 import core.tut.pori.dao.SQLSelectBuilder;
 import core.tut.pori.http.parameters.DataGroups;
 
@@ -64,21 +66,56 @@ public class BackendDAO extends SQLDAO{
 	private static final String SQL_INSERT_CAPABILITIES = "INSERT INTO "+TABLE_BACKEND_CAPABILITIES+" ("+Definitions.COLUMN_BACKEND_ID+","+COLUMN_CAPABILITY+","+COLUMN_ROW_CREATED+") VALUES (?,?,NOW()) ON DUPLICATE KEY UPDATE "+COLUMN_ROW_UPDATED+"=NOW()";
 	private static final int[] SQL_INSERT_CAPABILITIES_SQL_TYPES = new int[]{SQLType.STRING.toInt(),SQLType.STRING.toInt()};
 	
-	private static final String SQL_SELECT_BACKENDS = "SELECT "+TABLE_BACKENDS+"."+Definitions.COLUMN_BACKEND_ID+","+TABLE_BACKENDS+"."+COLUMN_ANALYSIS_URI+","+TABLE_BACKENDS+"."+COLUMN_ENABLED+","+TABLE_BACKENDS+"."+Definitions.COLUMN_DESCRIPTION+","+TABLE_BACKENDS+"."+COLUMN_DEFAULT_TASK_DATAGROUPS+
+	private static final String[] TABLE_BACKEND_CAPABILITIES_ALL_COLUMNS = new String[]{Definitions.COLUMN_BACKEND_ID,COLUMN_CAPABILITY};
+	private static final BackendMapper BACKEND_MAPPER = new BackendMapper();
+	
+	private static final String SQL_SELECT_BACKENDS = "SELECT "+BACKEND_MAPPER.getSelectList(TABLE_BACKENDS)+
 			" FROM "+TABLE_BACKENDS+" INNER JOIN "+TABLE_BACKEND_CAPABILITIES+" ON "+TABLE_BACKEND_CAPABILITIES+"."+Definitions.COLUMN_BACKEND_ID+"="+TABLE_BACKENDS+"."+Definitions.COLUMN_BACKEND_ID+" WHERE "+TABLE_BACKEND_CAPABILITIES+"."+COLUMN_CAPABILITY+"=? AND "+TABLE_BACKENDS+"."+COLUMN_ENABLED+"="+BooleanUtils.toInteger(true);
 	private static final int[] SQL_SELECT_BACKENDS_SQL_TYPES = new int[]{SQLType.STRING.toInt()};
 	
 	private static final String SQL_UPDATE_BACKENDS = "UPDATE "+TABLE_BACKENDS+" SET "+COLUMN_ANALYSIS_URI+"=?,"+COLUMN_ENABLED+"=?,"+Definitions.COLUMN_DESCRIPTION+"=?,"+COLUMN_DEFAULT_TASK_DATAGROUPS+"=? WHERE "+Definitions.COLUMN_BACKEND_ID+"=?";
 	private static final int[] SQL_UPDATE_BACKENDS_SQL_TYPES = new int[]{SQLType.STRING.toInt(),SQLType.STRING.toInt(),SQLType.STRING.toInt(),SQLType.STRING.toInt(),SQLType.STRING.toInt()};
 	
-	private static final String[] TABLE_BACKEND_CAPABILITIES_ALL_COLUMNS = new String[]{Definitions.COLUMN_BACKEND_ID,COLUMN_CAPABILITY};
-	private static final String[] TABLE_BACKENDS_ALL_COLUMNS = new String[]{Definitions.COLUMN_BACKEND_ID,COLUMN_ANALYSIS_URI,COLUMN_ENABLED,Definitions.COLUMN_DESCRIPTION,COLUMN_DEFAULT_TASK_DATAGROUPS};
-	
-	private static final String SQL_GET_ENABLED_BACKENDS = "SELECT "+StringUtils.join(TABLE_BACKENDS_ALL_COLUMNS, ',')+" FROM "+TABLE_BACKENDS+" WHERE "+COLUMN_ENABLED+"="+BooleanUtils.toInteger(true);
+	private static final String SQL_GET_ENABLED_BACKENDS = "SELECT "+BACKEND_MAPPER.getSelectList()+" FROM "+TABLE_BACKENDS+" WHERE "+COLUMN_ENABLED+"="+BooleanUtils.toInteger(true);
 	
-	private static final String SQL_SELECT_BACKEND_BY_BACKEND_ID = "SELECT "+StringUtils.join(TABLE_BACKENDS_ALL_COLUMNS, ',')+" FROM "+TABLE_BACKENDS+" WHERE "+Definitions.COLUMN_BACKEND_ID+"=? LIMIT 1";
+	private static final String SQL_SELECT_BACKEND_BY_BACKEND_ID = "SELECT "+BACKEND_MAPPER.getSelectList()+" FROM "+TABLE_BACKENDS+" WHERE "+Definitions.COLUMN_BACKEND_ID+"=? LIMIT 1";
 	private static final int[] SQL_SELECT_BACKEND_BY_BACKEND_ID_TYPES = new int[]{SQLType.INTEGER.toInt()};
 	
+	/**
+	 * Maps the rows of the back-ends table into back-ends. The capabilities are not set by the mapper.
+	 */
+	private static final class BackendMapper extends SQLRowMapper<AnalysisBackend> {
+		private final int _analysisUriIndex;
+		private final int _backendIdIndex;
+		private final int _defaultTaskDataGroupsIndex;
+		private final int _descriptionIndex;
+		private final int _enabledIndex;
+		
+		/**
+		 * 
+		 */
+		private BackendMapper(){
+			super(Definitions.COLUMN_BACKEND_ID,COLUMN_ANALYSIS_URI,COLUMN_ENABLED,Definitions.COLUMN_DESCRIPTION,COLUMN_DEFAULT_TASK_DATAGROUPS);
+			_analysisUriIndex = indexOf(COLUMN_ANALYSIS_URI);
+			_backendIdIndex = indexOf(Definitions.COLUMN_BACKEND_ID);
+			_defaultTaskDataGroupsIndex = indexOf(COLUMN_DEFAULT_TASK_DATAGROUPS);
+			_descriptionIndex = indexOf(Definitions.COLUMN_DESCRIPTION);
+			_enabledIndex = indexOf(COLUMN_ENABLED);
+		}
+
+		@Override
+		public AnalysisBackend mapRow(ResultSet set, int rowNum) throws SQLException {
+			AnalysisBackend end = new AnalysisBackend();
+			end.setBackendId(getInteger(set, _backendIdIndex));
+			end.setAnalysisUri(set.getString(_analysisUriIndex));
+			end.setEnabled(BooleanUtils.toBoolean(set.getInt(_enabledIndex)));
+			end.setDescription(set.getString(_descriptionIndex));
+			DataGroups dg = new DataGroups();
+			dg.initialize(set.getString(_defaultTaskDataGroupsIndex));
+			end.setDefaultTaskDataGroups(dg);
+			return end;
+		}
+	} // class BackendMapper
 
 	/**
 	 * 
@@ -167,7 +204,7 @@ public class BackendDAO extends SQLDAO{
 	 * @return the list of backends with the given capability or null if none available
 	 */
 	public List<AnalysisBackend> getBackends(Capability capability){
-		List<AnalysisBackend> ends = extractBackends(getJdbcTemplate().queryForList(SQL_SELECT_BACKENDS, new Object[]{capability.toInt()}, SQL_SELECT_BACKENDS_SQL_TYPES));
+		List<AnalysisBackend> ends = BACKEND_MAPPER.query(getJdbcTemplate(), SQL_SELECT_BACKENDS, new Object[]{capability.toInt()}, SQL_SELECT_BACKENDS_SQL_TYPES);
 		setCapabilities(ends);
 		return ends;
 	}
@@ -194,49 +231,6 @@ public class BackendDAO extends SQLDAO{
 		return (ends.isEmpty() ? null : ends);
 	}
 
-	/**
-	 * 
-	 * @param rows
-	 * @return list of backends from the row map or null if none
-	 */
-	private List<AnalysisBackend> extractBackends(List<Map<String,Object>> rows){
-		if(rows.isEmpty()){
-			LOGGER.debug("No backends.");
-			return null;
-		}
-		List<AnalysisBackend> ends = new ArrayList<>(rows.size());
-		for(Iterator<Map<String,Object>> rowIter = rows.iterator();rowIter.hasNext();){
-			AnalysisBackend end = new AnalysisBackend();
-			for(Entry<String,Object> rowEntry : rowIter.next().entrySet()){
-				switch(rowEntry.getKey()){
-					case Definitions.COLUMN_BACKEND_ID:
-						Integer id = (Integer) rowEntry.getValue();
-						end.setBackendId(id);
-						break;
-					case COLUMN_ANALYSIS_URI:
-						end.setAnalysisUri((String) rowEntry.getValue());
-						break;
-					case COLUMN_ENABLED:
-						end.setEnabled(BooleanUtils.toBoolean((Integer) rowEntry.getValue()));
-						break;
-					case Definitions.COLUMN_DESCRIPTION:
-						end.setDescription((String) rowEntry.getValue());
-						break;
-					case COLUMN_DEFAULT_TASK_DATAGROUPS:
-						DataGroups dg = new DataGroups();
-						dg.initialize((String)rowEntry.getValue());
-						end.setDefaultTaskDataGroups(dg);
-						break;
-					default:
-						LOGGER.warn("Ignored unknown column: "+rowEntry.getKey());
-						break;
-				}
-			}
-			ends.add(end);
-		}
-		return ends;
-	}
-	
 	/**
 	 * helper method for retrieving (and setting) the capabilities for the given list of backend
 	 * 
@@ -248,42 +242,26 @@ public class BackendDAO extends SQLDAO{
 			return;
 		}
 		
-		Integer[] ids = new Integer[ends.size()];
-		int index = 0;
-		for(Iterator<AnalysisBackend> iter = ends.iterator();iter.hasNext();){	// get ids
-			ids[index++] = iter.next().getBackendId();
+		final HashMap<Integer, AnalysisBackend> idBackendMap = new HashMap<>(ends.size());
+		for(AnalysisBackend end : ends){
+			idBackendMap.put(end.getBackendId(), end);
 		}
 	
 		SQLSelectBuilder sql = new SQLSelectBuilder(TABLE_BACKEND_CAPABILITIES);
 		sql.addSelectColumns(TABLE_BACKEND_CAPABILITIES_ALL_COLUMNS);
-		sql.addWhereClause(new AndClause(Definitions.COLUMN_BACKEND_ID, ids, SQLType.INTEGER));
+		sql.addWhereClause(new AndClause(Definitions.COLUMN_BACKEND_ID, idBackendMap.keySet().toArray(), SQLType.INTEGER));
 		
-		List<Map<String,Object>> rows = getJdbcTemplate().queryForList(sql.toSQLString(), sql.getValues(), sql.getValueTypes());
-		for(Iterator<Map<String,Object>> rowIter = rows.iterator();rowIter.hasNext();){
-			Integer backendId = null;
-			Capability capability = null;
-			for(Entry<String,Object> rowEntry : rowIter.next().entrySet()){	// go through the returned rows
-				switch(rowEntry.getKey()){
-					case Definitions.COLUMN_BACKEND_ID:
-						backendId = (Integer) rowEntry.getValue();
-						break;
-					case COLUMN_CAPABILITY:
-						capability = Capability.fromInt((Integer) rowEntry.getValue());
-						break;
-					default:
-						LOGGER.warn("Ignored unknown column: "+rowEntry.getKey());
-						break;
-				}
-			}	// for row
-			
-			for(Iterator<AnalysisBackend> bIter = ends.iterator();bIter.hasNext();){	// find the owner of this capability
-				AnalysisBackend end = bIter.next();
-				if(end.getBackendId().equals(backendId)){
-					end.addCapability(capability);
-					break;
+		getJdbcTemplate().query(sql.toSQLString(), sql.getValues(), sql.getValueTypes(), new RowCallbackHandler() {
+			@Override
+			public void processRow(ResultSet set) throws SQLException {
+				AnalysisBackend end = idBackendMap.get(set.getInt(1)); // the columns are in the order of TABLE_BACKEND_CAPABILITIES_ALL_COLUMNS
+				if(end == null){
+					LOGGER.warn("Ignored capability for unknown back-end.");
+				}else{
+					end.addCapability(Capability.fromInt(set.getInt(2)));
 				}
-			}	// for backends
-		}	// for rows
+			}
+		});
 	}
 
 	/**
@@ -293,13 +271,13 @@ public class BackendDAO extends SQLDAO{
 	 */
 	public List<AnalysisBackend> getBackends(List<Integer> backendIds){
 		SQLSelectBuilder sqlBuilder = new SQLSelectBuilder(TABLE_BACKENDS);
-		sqlBuilder.addSelectColumns(TABLE_BACKENDS_ALL_COLUMNS);
+		sqlBuilder.addSelectColumns(BACKEND_MAPPER.getColumns());
 
 		if(backendIds != null){
 			sqlBuilder.addWhereClause(new AndClause(Definitions.COLUMN_BACKEND_ID, backendIds.toArray(), SQLType.INTEGER));
 		}
 		
-		List<AnalysisBackend> ends = extractBackends(getJdbcTemplate().queryForList(sqlBuilder.toSQLString(), sqlBuilder.getValues(), sqlBuilder.getValueTypes()));
+		List<AnalysisBackend> ends = BACKEND_MAPPER.query(getJdbcTemplate(), sqlBuilder.toSQLString(), sqlBuilder.getValues(), sqlBuilder.getValueTypes());
 		setCapabilities(ends);
 		return ends;
 	}
@@ -309,7 +287,7 @@ public class BackendDAO extends SQLDAO{
 	 * @return list of back-ends or null if none was found
 	 */
 	public List<AnalysisBackend> getEnabledBackends(){
-		return extractBackends(getJdbcTemplate().queryForList(SQL_GET_ENABLED_BACKENDS));
+		return BACKEND_MAPPER.query(getJdbcTemplate(), SQL_GET_ENABLED_BACKENDS, null, null);
 	}
 	
 	/**
@@ -318,11 +296,10 @@ public class BackendDAO extends SQLDAO{
 	 * @return the back-end with the given is or null if not found
 	 */
 	public AnalysisBackend getBackend(Integer backendId){
-		List<Map<String,Object>> rows = getJdbcTemplate().queryForList(SQL_SELECT_BACKEND_BY_BACKEND_ID, new Object[]{backendId}, SQL_SELECT_BACKEND_BY_BACKEND_ID_TYPES);
-		if(rows.isEmpty()){
+		List<AnalysisBackend> backends = BACKEND_MAPPER.query(getJdbcTemplate(), SQL_SELECT_BACKEND_BY_BACKEND_ID, new Object[]{backendId}, SQL_SELECT_BACKEND_BY_BACKEND_ID_TYPES);
+		if(backends == null){
 			return null;
 		}else{
-			List<AnalysisBackend> backends = extractBackends(rows);
 			setCapabilities(backends);
 			return backends.get(0);
 		}
@@ -15,7 +15,9 @@
  */
 package service.tut.pori.contentanalysis;
 
+import java.io.InputStream;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Date;
 import java.util.EnumSet;
 import java.util.HashMap;
@@ -46,6 +48,7 @@ import core.tut.pori.http.parameters.DataGroups;
 import core.tut.pori.http.parameters.Limits;
 import core.tut.pori.users.UserIdentity;
 import core.tut.pori.utils.MediaUrlValidator.MediaType;
+import core.tut.pori.utils.XMLChunkReader;
 
 /**
  * 
@@ -59,6 +62,8 @@ public final class CAContentCore {
 	/** default capabilities for photo tasks */
 	public static final EnumSet<Capability> DEFAULT_CAPABILITIES = EnumSet.of(Capability.USER_FEEDBACK, Capability.PHOTO_ANALYSIS, Capability.BACKEND_FEEDBACK);
 	private static final Logger LOGGER = Logger.getLogger(CAContentCore.class);
+	/** maximum number of photos processed at once when streaming task results */
+	public static final int TASK_RESULT_CHUNK_SIZE = 500;
 
 	/**
 	 * Service type declarations.
@@ -289,6 +294,34 @@ public final class CAContentCore {
 		}
 	}
 
+	/**
+	 * Reads the task response from the given stream. Results for analysis tasks are processed in chunks of {@value #TASK_RESULT_CHUNK_SIZE} photos without reading the entire response into memory,
+	 * given that the response header ({@value service.tut.pori.contentanalysis.Definitions#ELEMENT_BACKEND_ID}, {@value service.tut.pori.contentanalysis.Definitions#ELEMENT_STATUS}, {@value service.tut.pori.contentanalysis.Definitions#ELEMENT_TASK_ID} and {@value service.tut.pori.contentanalysis.Definitions#ELEMENT_TASK_TYPE})
+	 * precedes the photo list. Other responses are read completely and passed to {@link #taskFinished(PhotoTaskResponse)}.
+	 * 
+	 * @param xml
+	 * @throws IllegalArgumentException
+	 */
+	public static void taskFinished(InputStream xml) throws IllegalArgumentException{
+		if(xml == null){
+			throw new IllegalArgumentException("Failed to process response.");
+		}
+		try(XMLChunkReader<PhotoTaskResponse, Photo> reader = new XMLChunkReader<>(xml, PhotoTaskResponse.class, Definitions.ELEMENT_PHOTOLIST, Definitions.ELEMENT_PHOTO, Photo.class, TASK_RESULT_CHUNK_SIZE)){
+			PhotoTaskResponse response = reader.getHeader();
+			if(response.getTaskType() == TaskType.ANALYSIS && response.getStatus() != null && response.getTaskId() != null && response.getBackendId() != null){
+				LOGGER.debug("TaskId: "+response.getTaskId()+", backendId: "+response.getBackendId()+", streaming results...");
+				PhotoAnalysisTask.taskFinished(reader);
+			}else{
+				List<Photo> photos = reader.readAll();
+				response = reader.getHeader();
+				if(photos != null){
+					response.setPhotoList(PhotoList.getPhotoList(photos, null));
+				}
+				taskFinished(response);
+			}
+		}
+	}
+
 	/**
 	 * 
 	 * @param response
@@ -367,18 +400,9 @@ public final class CAContentCore {
 		if(taskId != null){
 			LOGGER.debug("Task id already present for task, id: "+taskId);
 		}else{
-			BackendStatusList backends = details.getBackends();
-			if(BackendStatusList.isEmpty(backends)){
-				LOGGER.debug("No back-ends given, using defaults...");
-				List<AnalysisBackend> ends = ServiceInitializer.getDAOHandler().getDAO(BackendDAO.class).getBackends(DEFAULT_CAPABILITIES);
-				if(ends == null){
-					LOGGER.warn("Aborting task, no capable back-ends.");
-					return null;
-				}
-				
-				backends = new BackendStatusList();
-				backends.setBackendStatus(ends, TaskStatus.NOT_STARTED);
-				details.setBackends(backends);
+			if(!setDefaultBackends(details)){
+				LOGGER.warn("Aborting task, no capable back-ends.");
+				return null;
 			}
 			
 			taskId = ServiceInitializer.getDAOHandler().getDAO(PhotoTaskDAO.class).insertTask(details);
@@ -396,6 +420,58 @@ public final class CAContentCore {
 		}
 	}
 	
+	/**
+	 * Creates all the given new tasks in a single transaction, and schedules the created tasks.
+	 * 
+	 * If the details contains no back-ends, default back-ends will be added. See {@link #DEFAULT_CAPABILITIES}
+	 * 
+	 * @param tasks new tasks, the details should not contain task ids
+	 * @return task ids of the generated tasks in the iteration order of the given collection, null if the tasks could not be created
+	 * @see #scheduleTask(PhotoTaskDetails)
+	 */
+	public static List<Long> scheduleTasks(Collection<PhotoTaskDetails> tasks) {
+		for(PhotoTaskDetails details : tasks){
+			if(!setDefaultBackends(details)){
+				LOGGER.warn("Aborting tasks, no capable back-ends.");
+				return null;
+			}
+		}
+		
+		List<Long> taskIds = ServiceInitializer.getDAOHandler().getDAO(PhotoTaskDAO.class).insertTasks(tasks);
+		if(taskIds == null){
+			LOGGER.error("Task schedule failed: failed to insert new photo tasks.");
+			return null;
+		}
+		
+		for(PhotoTaskDetails details : tasks){
+			if(!scheduleTask(getBuilder(details.getTaskType()), details.getTaskId())){
+				LOGGER.error("Failed to schedule new task, id: "+details.getTaskId());
+			}
+		}
+		return taskIds;
+	}
+	
+	/**
+	 * 
+	 * @param details if the details contain no back-ends, the default back-ends will be set
+	 * @return false if the details had no back-ends, and no default back-ends were available
+	 * @see #DEFAULT_CAPABILITIES
+	 */
+	private static boolean setDefaultBackends(PhotoTaskDetails details){
+		if(!BackendStatusList.isEmpty(details.getBackends())){
+			return true;
+		}
+		LOGGER.debug("No back-ends given, using defaults...");
+		List<AnalysisBackend> ends = ServiceInitializer.getDAOHandler().getDAO(BackendDAO.class).getBackends(DEFAULT_CAPABILITIES);
+		if(ends == null){
+			return false;
+		}
+		BackendStatusList backends = new BackendStatusList();
+		backends.setBackendStatus(ends, TaskStatus.NOT_STARTED);
+		details.setBackends(backends);
+		return true;
+	}
+	
 	/**
 	 * 
 	 * @param builder
@@ -46,9 +46,20 @@ public class CAProperties extends SystemProperty {
 	private static final String PROPERTY_SERVICE_TUT_PORI_CA_MAX_TASK_SIZE = PROPERTY_SERVICE_TUT_PORI_CA+".max_task_size";
 	private static final String PROPERTY_SERVICE_TUT_PORI_CA_RESOLVE_FRIENDLY_KEYWORDS = PROPERTY_SERVICE_TUT_PORI_CA+".resolve_friendly_keywords";
 	private static final String PROPERTY_SERVICE_TUT_PORI_CA_SCHEDULE_TASK_DELAY = PROPERTY_SERVICE_TUT_PORI_CA+".schedule_task_delay";
+	private static final String PROPERTY_SERVICE_TUT_PORI_CA_SYNC = PROPERTY_SERVICE_TUT_PORI_CA+".sync";
+	private static final String PROPERTY_SERVICE_TUT_PORI_CA_SYNC_MAX_CONCURRENT = PROPERTY_SERVICE_TUT_PORI_CA_SYNC+".max_concurrent";
+	private static final String PROPERTY_SERVICE_TUT_PORI_CA_SYNC_MAX_DEFERRALS = PROPERTY_SERVICE_TUT_PORI_CA_SYNC+".max_deferrals";
+	private static final String PROPERTY_SERVICE_TUT_PORI_CA_SYNC_MAX_PENDING_TASKS = PROPERTY_SERVICE_TUT_PORI_CA_SYNC+".max_pending_tasks";
+	private static final String PROPERTY_SERVICE_TUT_PORI_CA_SYNC_MAX_QUEUED_TASKS = PROPERTY_SERVICE_TUT_PORI_CA_SYNC+".max_queued_tasks";
+	private static final String PROPERTY_SERVICE_TUT_PORI_CA_SYNC_RETRY_DELAY = PROPERTY_SERVICE_TUT_PORI_CA_SYNC+".retry_delay";
 	private int _maxTaskSize = -1;
 	private boolean _resolveFriendlyKeywords = false;
 	private long _scheduleTaskDelay = -1;
+	private int _syncMaxConcurrent = 1;
+	private int _syncMaxDeferrals = 60;
+	private int _syncMaxPendingTasks = 100;
+	private int _syncMaxQueuedTasks = 50;
+	private long _syncRetryDelay = 60000;
 	
 	@Override
 	public void initialize(Properties properties) throws IllegalArgumentException {
@@ -79,6 +90,38 @@ public class CAProperties extends SystemProperty {
 			Logger.getLogger(getClass()).debug("Task schedule delay was < 1, reseting to default disabled value: "+TASK_DELAY_DISABLED);
 			_scheduleTaskDelay = TASK_DELAY_DISABLED;
 		}
+		
+		try{ // the synchronization limits are optional
+			String value = properties.getProperty(PROPERTY_SERVICE_TUT_PORI_CA_SYNC_MAX_CONCURRENT);
+			if(!StringUtils.isBlank(value)){
+				_syncMaxConcurrent = Integer.parseInt(value);
+			}
+			value = properties.getProperty(PROPERTY_SERVICE_TUT_PORI_CA_SYNC_MAX_DEFERRALS);
+			if(!StringUtils.isBlank(value)){
+				_syncMaxDeferrals = Integer.parseInt(value);
+			}
+			value = properties.getProperty(PROPERTY_SERVICE_TUT_PORI_CA_SYNC_MAX_PENDING_TASKS);
+			if(!StringUtils.isBlank(value)){
+				_syncMaxPendingTasks = Integer.parseInt(value);
+			}
+			value = properties.getProperty(PROPERTY_SERVICE_TUT_PORI_CA_SYNC_MAX_QUEUED_TASKS);
+			if(!StringUtils.isBlank(value)){
+				_syncMaxQueuedTasks = Integer.parseInt(value);
+			}
+			value = properties.getProperty(PROPERTY_SERVICE_TUT_PORI_CA_SYNC_RETRY_DELAY);
+			if(!StringUtils.isBlank(value)){
+				_syncRetryDelay = Long.parseLong(value);
+			}
+		} catch (NumberFormatException ex){
+			Logger.getLogger(getClass()).warn(ex, ex);
+			throw new IllegalArgumentException("Bad "+PROPERTY_SERVICE_TUT_PORI_CA_SYNC+" properties.");
+		}
+		if(_syncMaxDeferrals < 0 || _syncRetryDelay < 1){
+			throw new IllegalArgumentException("Bad "+PROPERTY_SERVICE_TUT_PORI_CA_SYNC_MAX_DEFERRALS+" OR "+PROPERTY_SERVICE_TUT_PORI_CA_SYNC_RETRY_DELAY);
+		}
+		if(_syncMaxConcurrent < 1){
+			throw new IllegalArgumentException("Bad "+PROPERTY_SERVICE_TUT_PORI_CA_SYNC_MAX_CONCURRENT);
+		}
 	}
 
 	/**
@@ -106,6 +149,51 @@ public class CAProperties extends SystemProperty {
 		return _scheduleTaskDelay;
 	}
 	
+	/**
+	 * The maximum number of synchronizations executed at the same time. A synchronization reserves its slot before checking the capacity, and releases it after the analysis tasks have been created.
+	 * 
+	 * @return the syncMaxConcurrent
+	 */
+	public int getSyncMaxConcurrent() {
+		return _syncMaxConcurrent;
+	}
+	
+	/**
+	 * The maximum number of times a synchronization may be deferred because of missing capacity. After this the synchronization fails.
+	 * 
+	 * @return the syncMaxDeferrals
+	 */
+	public int getSyncMaxDeferrals() {
+		return _syncMaxDeferrals;
+	}
+
+	/**
+	 * The maximum number of unfinished tasks for a single back-end, after which new synchronizations are deferred. Less than 1 if the limit is disabled.
+	 * 
+	 * @return the syncMaxPendingTasks
+	 */
+	public int getSyncMaxPendingTasks() {
+		return _syncMaxPendingTasks;
+	}
+
+	/**
+	 * The maximum number of tasks in the system executor queue, after which new synchronizations are deferred. Less than 1 if the limit is disabled.
+	 * 
+	 * @return the syncMaxQueuedTasks
+	 */
+	public int getSyncMaxQueuedTasks() {
+		return _syncMaxQueuedTasks;
+	}
+
+	/**
+	 * The delay in milliseconds before a deferred synchronization is re-attempted for the first time. The delay is doubled on each following deferral.
+	 * 
+	 * @return the syncRetryDelay
+	 */
+	public long getSyncRetryDelay() {
+		return _syncRetryDelay;
+	}
+	
 	@Override
 	public String getPropertyFilePath() {
 		return ServiceInitializer.getConfigHandler().getPropertyFilePath()+Definitions.PROPERTY_FILE;
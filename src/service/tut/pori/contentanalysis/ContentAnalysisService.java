@@ -212,7 +212,7 @@ public class ContentAnalysisService{
 	 */
 	@HTTPServiceMethod(name = Definitions.METHOD_TASK_FINISHED, acceptedMethods={core.tut.pori.http.Definitions.METHOD_POST})
 	public void taskFinished(@HTTPMethodParameter(name = InputStreamParameter.PARAMETER_DEFAULT_NAME, bodyParameter = true) InputStreamParameter xml) {
-		CAContentCore.taskFinished(_formatter.toObject(xml.getValue(), PhotoTaskResponse.class));
+		CAContentCore.taskFinished(xml.getValue());
 	}
 
 	/**
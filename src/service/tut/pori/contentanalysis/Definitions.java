@@ -108,6 +108,8 @@ public final class Definitions {
 	/** xml element declaration */
 	public static final String ELEMENT_NAME = "name";
 	/** xml element declaration */
+	public static final String ELEMENT_NEXT_LIMITS = "nextLimits";
+	/** xml element declaration */
 	public static final String ELEMENT_OBJECT_ID = "objectId";
 	/** xml element declaration */
 	public static final String ELEMENT_PHOTO = "media";
@@ -264,6 +266,7 @@ public final class Definitions {
 	private static final String SOLR_INTEGER = "_i";
 	private static final String SOLR_LONG = "_l";
 	private static final String SOLR_SEARCH_FIELD = "_search";	//field created in mediaObjects solr schema for case insensitive searches (actually value_search)
+	private static final String SOLR_STORED_STRING = "_sn";	//_sn dynamic field for stored, non-indexed strings
 	private static final String SOLR_STRING = "_s";
 	private static final String SOLR_TEXT = "_s";
 	private static final String SOLR_TEXT_LIST = "_ss";	//_ss dynamic field for multi valued strings
@@ -294,6 +297,8 @@ public final class Definitions {
 	/** SOLR field declaration */
 	protected static final String SOLR_FIELD_TIMECODES = service.tut.pori.contentanalysis.video.Definitions.ELEMENT_TIMECODE+SOLR_TEXT_LIST;
 	/** SOLR field declaration */
+	protected static final String SOLR_FIELD_TIMECODES_ENCODED = service.tut.pori.contentanalysis.video.Definitions.ELEMENT_TIMECODE+SOLR_STORED_STRING;
+	/** SOLR field declaration */
 	protected static final String SOLR_FIELD_UPDATED = "updated"+SOLR_DATE;
 	/** SOLR field declaration */
 	protected static final String SOLR_FIELD_USER_ID = core.tut.pori.users.Definitions.ELEMENT_USER_ID+SOLR_LONG;
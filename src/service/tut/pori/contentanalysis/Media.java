@@ -169,6 +169,7 @@ public abstract class Media {
 				info.setEndItem(oInfo.getEndItem());
 				info.setStartItem(oInfo.getStartItem());
 				info.setResultCount(oInfo.getResultCount());
+				info.setNextLimits(oInfo.getNextLimits());
 			}
 			_mediaObjects = MediaObjectList.getMediaObjectList(mediaObjects.getMediaObjects(), info);
 		}else{
@@ -844,20 +844,46 @@ public class MediaObject implements VisualShape.VisualShapeSolrCapable {
 	}
 
 	/**
-	 * Solr serializing helper method
+	 * Solr serializing helper method for the timecodes stored in the older list format. If the object also has encoded timecodes, the encoded timecodes are used.
 	 * @param timecodes the timecodes to set in SolrJ format.
+	 * @see #setSolrEncodedTimecodes(String)
 	 */
 	@Field(Definitions.SOLR_FIELD_TIMECODES)
 	public void setSolrTimecodes(List<String> timecodes) {
-		_timecodes = TimecodeList.populateTimecodes(timecodes);
+		if(_timecodes == null){
+			_timecodes = TimecodeList.populateTimecodes(timecodes);
+		}
 	}
 	
 	/**
-	 * Solr serializing helper method
-	 * @return the SolrJ formatted list of timecodes
+	 * Solr serializing helper method, the timecodes are always stored in the encoded format.
+	 * @return null
+	 * @see #getSolrEncodedTimecodes()
 	 */
 	public List<String> getSolrTimecodes() {
-		return TimecodeList.getSolrTimecodes(_timecodes);
+		return null;
+	}
+	
+	/**
+	 * Solr serializing helper method
+	 * @param timecodes the timecodes to set in encoded format
+	 * @see service.tut.pori.contentanalysis.video.TimecodeCodec
+	 */
+	@Field(Definitions.SOLR_FIELD_TIMECODES_ENCODED)
+	public void setSolrEncodedTimecodes(String timecodes) {
+		TimecodeList list = TimecodeList.populateTimecodes(timecodes);
+		if(list != null){
+			_timecodes = list;
+		}
+	}
+	
+	/**
+	 * Solr serializing helper method
+	 * @return the timecodes in encoded format
+	 * @see service.tut.pori.contentanalysis.video.TimecodeCodec
+	 */
+	public String getSolrEncodedTimecodes() {
+		return TimecodeList.getEncodedTimecodes(_timecodes);
 	}
 	
 	/**
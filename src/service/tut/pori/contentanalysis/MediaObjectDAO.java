@@ -27,15 +27,24 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.commons.lang3.ArrayUtils;
 import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.tuple.Pair;
 import org.apache.log4j.Logger;
 import org.apache.solr.client.solrj.response.QueryResponse;
 import org.apache.solr.client.solrj.response.UpdateResponse;
 import org.apache.solr.common.SolrException;
 import org.springframework.beans.factory.annotation.Autowired;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.Weigher;
+
 import service.tut.pori.contentanalysis.CAContentCore.ServiceType;
 import service.tut.pori.contentanalysis.CAContentCore.Visibility;
 import service.tut.pori.contentanalysis.MediaObject.ConfirmationStatus;
@@ -84,10 +93,25 @@ public class MediaObjectDAO extends SolrDAO{
 		Definitions.SOLR_FIELD_VISUAL_SHAPE_TYPE,  // for visual shape
 		Definitions.SOLR_FIELD_STATUS // confirmation status
 		};
-	private static final String[] FIELDS_DATA_GROUP_TIMECODES = new String[]{Definitions.SOLR_FIELD_TIMECODES};
+	private static final String[] FIELDS_DATA_GROUP_TIMECODES = new String[]{Definitions.SOLR_FIELD_TIMECODES_ENCODED, Definitions.SOLR_FIELD_TIMECODES};
 	private static final String[] FIELDS_RESOLVE_OBJECT_IDS = new String[]{SOLR_FIELD_ID, Definitions.SOLR_FIELD_BACKEND_ID, Definitions.SOLR_FIELD_USER_ID, Definitions.SOLR_FIELD_CREATOR_OBJECT_ID};
-	private static final String[] FIELDS_UPDATE = new String[]{Definitions.SOLR_FIELD_USER_ID, SOLR_FIELD_ID, Definitions.SOLR_FIELD_BACKEND_ID, Definitions.SOLR_FIELD_CREATOR_OBJECT_ID};
+	private static final String[] FIELDS_UPDATE = new String[]{Definitions.SOLR_FIELD_USER_ID, SOLR_FIELD_ID, Definitions.SOLR_FIELD_BACKEND_ID, Definitions.SOLR_FIELD_CREATOR_OBJECT_ID, Definitions.SOLR_FIELD_VISIBILITY};
 	private static final Logger LOGGER = Logger.getLogger(MediaObjectDAO.class);
+	private static final long USER_SEARCH_CACHE_EXPIRE_TIME = 5; // in minutes
+	private static final long USER_SEARCH_CACHE_MAX_WEIGHT = 100000; // in media objects
+	private static final char SEPARATOR_SEARCH_KEY = '|';
+	private final AtomicLong _userSearchesInvalidated = new AtomicLong(0);
+	private final AtomicLong _userSearchGeneration = new AtomicLong(); // incremented when all cached searches are invalidated
+	/** userId - generation of the user's cached searches, incremented when the user's searches are invalidated */
+	private final ConcurrentMap<Long, AtomicLong> _userSearchGenerations = new ConcurrentHashMap<>();
+	/** (userId, search key) - (generation, search results), empty list is used for searches without results. The results are weighed by the number of media objects. */
+	private final Cache<Pair<Long, String>, Pair<Long, MediaObjectList>> _userSearchCache = CacheBuilder.newBuilder().expireAfterWrite(USER_SEARCH_CACHE_EXPIRE_TIME, TimeUnit.MINUTES).maximumWeight(USER_SEARCH_CACHE_MAX_WEIGHT).weigher(new Weigher<Pair<Long, String>, Pair<Long, MediaObjectList>>() {
+		@Override
+		public int weigh(Pair<Long, String> key, Pair<Long, MediaObjectList> value) {
+			MediaObjectList objects = value.getRight();
+			return (MediaObjectList.isEmpty(objects) ? 1 : objects.getMediaObjects().size());
+		}
+	}).build();
 	@Autowired
 	private KeywordsDAO _keywordsDAO = null;
 	@Autowired
@@ -132,6 +156,7 @@ public class MediaObjectDAO extends SolrDAO{
 		}
 		SimpleSolrTemplate template = getSolrTemplate(BEAN_ID_SOLR_SERVER); 
 		UpdateResponse response = template.addBeans(v);	
+		invalidateUserSearches(v);
 		if(response.getStatus() == SolrException.ErrorCode.UNKNOWN.code){
 			return true;
 		}else{
@@ -159,7 +184,7 @@ public class MediaObjectDAO extends SolrDAO{
 		SolrQueryBuilder query = new SolrQueryBuilder();
 		query.addFields(FIELDS_RESOLVE_OBJECT_IDS);
 		if(!noMediaObjectIds){
-			query.addCustomFilter(new OrQueryFilter(SOLR_FIELD_ID, mediaObjectIds));
+			query.addCustomFilter(new OrQueryFilter(SOLR_FIELD_ID, mediaObjectIds), false);
 		}
 		
 		if(!noObjectIds){
@@ -302,7 +327,7 @@ public class MediaObjectDAO extends SolrDAO{
 		List<MediaObject> refList = new ArrayList<>();
 
 		solr.clearCustomFilters();
-		solr.addCustomFilter(new AndQueryFilter(SOLR_FIELD_ID, voids));
+		solr.addCustomFilter(new AndQueryFilter(SOLR_FIELD_ID, voids), false);
 		refList = t.queryForList(solr.toSolrQuery(Definitions.ELEMENT_MEDIA_OBJECTLIST), MediaObject.class);
 		if(refList.isEmpty()){
 			LOGGER.warn("Tried to update non-existent objects.");
@@ -358,7 +383,10 @@ public class MediaObjectDAO extends SolrDAO{
 			update.add(object);
 		}
 		
-		if(t.addBeans(update).getStatus() == SolrException.ErrorCode.UNKNOWN.code){
+		UpdateResponse response = t.addBeans(update);
+		invalidateUserSearches(refList); // the visibility may have been changed from public to private
+		invalidateUserSearches(update);
+		if(response.getStatus() == SolrException.ErrorCode.UNKNOWN.code){
 			return true;
 		}else{
 			LOGGER.warn("Failed to update media objects.");
@@ -384,7 +412,9 @@ public class MediaObjectDAO extends SolrDAO{
 			_photoDAO.deassociate(null, mediaObjectId);
 		}
 		SimpleSolrTemplate template = getSolrTemplate(BEAN_ID_SOLR_SERVER);
-		if(template.deleteById(mediaobjectIds).getStatus() == SolrException.ErrorCode.UNKNOWN.code){
+		UpdateResponse response = template.deleteById(mediaobjectIds);
+		invalidateUserSearches(null); // the owners of the removed objects are not known
+		if(response.getStatus() == SolrException.ErrorCode.UNKNOWN.code){
 			return true;
 		}else{
 			LOGGER.warn("Failed to remove media objects.");
@@ -411,20 +441,18 @@ public class MediaObjectDAO extends SolrDAO{
 	}
 
 	/**
-	 * helper method for retrieving the media object list
+	 * helper method for creating the media object query, sort options and limits are not set
 	 * 
 	 * @param dataGroups
-	 * @param limits
 	 * @param mediaTypes target media types, not null, nor empty
 	 * @param serviceTypes
 	 * @param mediaObjectIds
 	 * @param userIdFilter
-	 * @return list of media objects or null if none was found
+	 * @return the query or null if the given data groups did not result viable combination for search
 	 */
-	private MediaObjectList getMediaObjectList(DataGroups dataGroups, Limits limits, EnumSet<MediaType> mediaTypes, EnumSet<ServiceType> serviceTypes, Collection<String> mediaObjectIds, long[] userIdFilter) {
+	private SolrQueryBuilder createMediaObjectQuery(DataGroups dataGroups, EnumSet<MediaType> mediaTypes, EnumSet<ServiceType> serviceTypes, Collection<String> mediaObjectIds, long[] userIdFilter) {
 		SolrQueryBuilder solr = new SolrQueryBuilder();
 		if(!processDataGroups(dataGroups, solr)){
-			LOGGER.debug("Process data groups did not result viable combination for search, returning null...");
 			return null;
 		}
 		
@@ -435,12 +463,116 @@ public class MediaObjectDAO extends SolrDAO{
 		}
 		
 		if(mediaObjectIds != null && !mediaObjectIds.isEmpty()){
-			solr.addCustomFilter(new AndQueryFilter(SOLR_FIELD_ID, mediaObjectIds));
+			solr.addCustomFilter(new AndQueryFilter(SOLR_FIELD_ID, mediaObjectIds), false);
 		}
 		
 		if(userIdFilter != null){
 			solr.addCustomFilter(new AndQueryFilter(Definitions.SOLR_FIELD_USER_ID, userIdFilter));
 		}
+		return solr;
+	}
+	
+	/**
+	 * Retrieves the media objects of multiple media items with a single query. The limits and the result info are applied separately for each media item.
+	 * 
+	 * Note that a media object associated with multiple media items will be shared between the returned lists.
+	 * 
+	 * @param dataGroups
+	 * @param limits
+	 * @param mediaTypes target media types, not null, nor empty
+	 * @param guidVoidMap GUID-media object id map
+	 * @return GUID-media object list map or null if none was found
+	 * @throws IllegalArgumentException on bad values
+	 */
+	public Map<String, MediaObjectList> getMediaObjects(DataGroups dataGroups, Limits limits, EnumSet<MediaType> mediaTypes, Map<String, Set<String>> guidVoidMap) throws IllegalArgumentException {
+		if(mediaTypes == null || mediaTypes.isEmpty()){
+			throw new IllegalArgumentException("Invalid MediaType "+MediaType.class.toString()+" given.");
+		}
+		if(guidVoidMap == null || guidVoidMap.isEmpty()){
+			LOGGER.debug("No media object ids.");
+			return null;
+		}
+		
+		HashMap<String, List<String>> voidGUIDMap = new HashMap<>();
+		for(Entry<String, Set<String>> e : guidVoidMap.entrySet()){
+			String guid = e.getKey();
+			for(String mediaObjectId : e.getValue()){
+				List<String> guids = voidGUIDMap.get(mediaObjectId);
+				if(guids == null){
+					voidGUIDMap.put(mediaObjectId, (guids = new ArrayList<>(1)));
+				}
+				guids.add(guid);
+			}
+		}
+		
+		SolrQueryBuilder solr = createMediaObjectQuery(dataGroups, mediaTypes, null, voidGUIDMap.keySet(), null);
+		if(solr == null){
+			LOGGER.debug("Process data groups did not result viable combination for search, returning null...");
+			return null;
+		}
+		solr.setSortOptions(DEFAULT_SORT_OPTIONS); // no limits, the limits are applied per media item
+		
+		MediaObjectList objects = MediaObjectList.getMediaObjectList(getSolrTemplate(BEAN_ID_SOLR_SERVER).queryForList(solr.toSolrQuery(Definitions.ELEMENT_MEDIA_OBJECTLIST), MediaObject.class), null);
+		if(MediaObjectList.isEmpty(objects)){
+			LOGGER.debug("No results.");
+			return null;
+		}
+		_keywordsDAO.assignFriendlyKeywords(objects);
+		
+		HashMap<String, List<MediaObject>> guidObjectMap = new HashMap<>(guidVoidMap.size());
+		for(MediaObject object : objects.getMediaObjects()){ // the objects are in sort order, so the per item lists will also be
+			for(String guid : voidGUIDMap.get(object.getMediaObjectId())){
+				List<MediaObject> list = guidObjectMap.get(guid);
+				if(list == null){
+					guidObjectMap.put(guid, (list = new ArrayList<>()));
+				}
+				list.add(object);
+			}
+		}
+		
+		int startItem = 0;
+		int maxItems = -1;
+		ResultInfo info = null;
+		if(limits != null){
+			startItem = limits.getStartItem(Definitions.ELEMENT_MEDIA_OBJECTLIST);
+			maxItems = limits.getMaxItems(Definitions.ELEMENT_MEDIA_OBJECTLIST);
+		}
+		boolean resultInfo = (limits != null && DataGroups.hasDataGroup(Definitions.DATA_GROUP_RESULT_INFO, dataGroups));
+		HashMap<String, MediaObjectList> retval = new HashMap<>(guidObjectMap.size());
+		for(Entry<String, List<MediaObject>> e : guidObjectMap.entrySet()){
+			List<MediaObject> list = e.getValue();
+			int size = list.size();
+			if(startItem >= size){
+				continue;
+			}
+			if(startItem > 0 || (maxItems >= 0 && maxItems < size - startItem)){
+				list = list.subList(startItem, (maxItems < 0 ? size : Math.min(size, startItem + maxItems)));
+			}
+			if(resultInfo){
+				info = new ResultInfo(limits, Definitions.ELEMENT_MEDIA_OBJECTLIST, size);
+			}
+			retval.put(e.getKey(), MediaObjectList.getMediaObjectList(new ArrayList<>(list), info));
+		}
+		return (retval.isEmpty() ? null : retval);
+	}
+	
+	/**
+	 * helper method for retrieving the media object list
+	 * 
+	 * @param dataGroups
+	 * @param limits
+	 * @param mediaTypes target media types, not null, nor empty
+	 * @param serviceTypes
+	 * @param mediaObjectIds
+	 * @param userIdFilter
+	 * @return list of media objects or null if none was found
+	 */
+	private MediaObjectList getMediaObjectList(DataGroups dataGroups, Limits limits, EnumSet<MediaType> mediaTypes, EnumSet<ServiceType> serviceTypes, Collection<String> mediaObjectIds, long[] userIdFilter) {
+		SolrQueryBuilder solr = createMediaObjectQuery(dataGroups, mediaTypes, serviceTypes, mediaObjectIds, userIdFilter);
+		if(solr == null){
+			LOGGER.debug("Process data groups did not result viable combination for search, returning null...");
+			return null;
+		}
 		
 		solr.setSortOptions(DEFAULT_SORT_OPTIONS);
 		solr.setLimits(limits);
@@ -455,7 +587,7 @@ public class MediaObjectDAO extends SolrDAO{
 		ResultInfo info = null;
 		if(DataGroups.hasDataGroup(Definitions.DATA_GROUP_RESULT_INFO, dataGroups)){
 			LOGGER.debug("Resolving result info for the requested objects.");
-			info = new ResultInfo(limits.getStartItem(Definitions.ELEMENT_MEDIA_OBJECTLIST), limits.getEndItem(Definitions.ELEMENT_MEDIA_OBJECTLIST), response.getResults().getNumFound());
+			info = new ResultInfo(limits, Definitions.ELEMENT_MEDIA_OBJECTLIST, response.getResults().getNumFound());
 		}
 		
 		MediaObjectList voList = MediaObjectList.getMediaObjectList(mediaObjects, info);
@@ -583,7 +715,7 @@ public class MediaObjectDAO extends SolrDAO{
 		}
 
 		if(!mediaObjectIds.isEmpty()){
-			solr.addCustomFilter(new AndQueryFilter(SOLR_FIELD_ID, mediaObjectIds));
+			solr.addCustomFilter(new AndQueryFilter(SOLR_FIELD_ID, mediaObjectIds), false);
 		}
 	}
 	
@@ -676,7 +808,7 @@ public class MediaObjectDAO extends SolrDAO{
 		ResultInfo info = null;
 		if(DataGroups.hasDataGroup(Definitions.DATA_GROUP_RESULT_INFO, dataGroups)){
 			LOGGER.debug("Resolving result info for the requested objects.");
-			info = new ResultInfo(limits.getStartItem(Definitions.ELEMENT_MEDIA_OBJECTLIST), limits.getEndItem(Definitions.ELEMENT_MEDIA_OBJECTLIST), response.getResults().getNumFound());
+			info = new ResultInfo(limits, Definitions.ELEMENT_MEDIA_OBJECTLIST, response.getResults().getNumFound());
 		}
 		
 		MediaObjectList voList = MediaObjectList.getMediaObjectList(mediaObjects, info);
@@ -684,6 +816,145 @@ public class MediaObjectDAO extends SolrDAO{
 		return voList;
 	}
 	
+	/**
+	 * Same as calling {@link #search(UserIdentity, DataGroups, Limits, EnumSet, EnumSet, SortOptions, long[], MediaObjectList)} without user id filter and media object terms,
+	 * but the results are cached per user. The cached results are invalidated when media objects owned by the user or any public media objects are inserted, updated or removed through this DAO.
+	 * 
+	 * This can be used for frequently repeated retrievals, such as retrieving the user's tag list.
+	 * 
+	 * @param authenticatedUser
+	 * @param dataGroups
+	 * @param limits
+	 * @param mediaTypes list of target media types for the search
+	 * @param serviceTypes
+	 * @param sortOptions
+	 * @return list of media objects or null if none was found
+	 * @throws IllegalArgumentException on bad values
+	 */
+	public MediaObjectList getUserMediaObjects(UserIdentity authenticatedUser, DataGroups dataGroups, Limits limits, EnumSet<MediaType> mediaTypes, EnumSet<ServiceType> serviceTypes, SortOptions sortOptions) throws IllegalArgumentException {
+		if(!UserIdentity.isValid(authenticatedUser)){
+			LOGGER.debug("Invalid authenticated user, not using cache.");
+			return search(authenticatedUser, dataGroups, limits, mediaTypes, serviceTypes, sortOptions, null, null);
+		}
+		
+		Long userId = authenticatedUser.getUserId();
+		Pair<Long, String> key = Pair.of(userId, toSearchKey(dataGroups, limits, mediaTypes, serviceTypes, sortOptions));
+		long generation = getUserSearchGeneration(userId);
+		Pair<Long, MediaObjectList> cached = _userSearchCache.getIfPresent(key);
+		MediaObjectList objects = null;
+		if(cached == null || cached.getLeft() != generation){ // not cached or cached before the user's searches were invalidated
+			long started = System.currentTimeMillis();
+			objects = search(authenticatedUser, dataGroups, limits, mediaTypes, serviceTypes, sortOptions, null, null);
+			if(getUserSearchGeneration(userId) != generation){
+				LOGGER.debug("Searches of user, id: "+userId+" were invalidated during the search, not caching the results.");
+			}else if(_userSearchesInvalidated.get() + SOLR_COMMIT_WITHIN < started){ // do not cache if the changes may not be committed yet
+				_userSearchCache.put(key, Pair.of(generation, (objects == null ? new MediaObjectList() : objects))); // if invalidated after the check, the entry will not match the new generation
+			}
+		}else{
+			LOGGER.debug("Using cached search results for user, id: "+userId);
+			objects = cached.getRight();
+		}
+		
+		if(MediaObjectList.isEmpty(objects)){
+			return null;
+		}else{ // return a new list, the objects themselves are shared
+			return MediaObjectList.getMediaObjectList(new ArrayList<>(objects.getMediaObjects()), objects.getResultInfo());
+		}
+	}
+	
+	/**
+	 * 
+	 * @param dataGroups
+	 * @param limits
+	 * @param mediaTypes
+	 * @param serviceTypes
+	 * @param sortOptions
+	 * @return key for the user search cache
+	 */
+	private static String toSearchKey(DataGroups dataGroups, Limits limits, EnumSet<MediaType> mediaTypes, EnumSet<ServiceType> serviceTypes, SortOptions sortOptions) {
+		StringBuilder key = new StringBuilder();
+		if(!DataGroups.isEmpty(dataGroups)){
+			key.append(dataGroups.toDataGroupString());
+		}
+		key.append(SEPARATOR_SEARCH_KEY);
+		if(limits != null){
+			key.append(limits.toLimitString());
+		}
+		key.append(SEPARATOR_SEARCH_KEY);
+		key.append(mediaTypes);
+		key.append(SEPARATOR_SEARCH_KEY);
+		key.append(serviceTypes);
+		key.append(SEPARATOR_SEARCH_KEY);
+		if(sortOptions != null && sortOptions.hasValues()){
+			Set<Option> so = sortOptions.getSortOptions(Definitions.ELEMENT_MEDIA_OBJECTLIST);
+			if(so != null){
+				for(Option o : so){
+					key.append(o.getElementName());
+					key.append(o.getOrderDirection().name());
+				}
+			}
+		}
+		return key.toString();
+	}
+	
+	/**
+	 * 
+	 * @param userId
+	 * @return the generation of the cached searches of the given user, the generation changes whenever the user's searches are invalidated
+	 */
+	private long getUserSearchGeneration(Long userId) {
+		AtomicLong generation = _userSearchGenerations.get(userId);
+		return _userSearchGeneration.get() + (generation == null ? 0 : generation.get()); // both counters only increase, so any invalidation changes the sum
+	}
+	
+	/**
+	 * Invalidate the cached user searches affected by changes in the given objects.
+	 * 
+	 * The searches of a single user are invalidated by changing the user's generation, the outdated entries are no longer returned and will be evicted from the cache over time.
+	 * 
+	 * @param objects if null, all cached searches will be invalidated
+	 * @see #getUserMediaObjects(UserIdentity, DataGroups, Limits, EnumSet, EnumSet, SortOptions)
+	 */
+	private void invalidateUserSearches(Collection<MediaObject> objects) {
+		_userSearchesInvalidated.set(System.currentTimeMillis());
+		if(objects == null){
+			invalidateUserSearches();
+			return;
+		}
+		
+		HashSet<Long> userIds = new HashSet<>();
+		for(MediaObject object : objects){
+			if(object.getVisibility() != Visibility.PRIVATE){ // the object may be visible to other users
+				LOGGER.debug("Non-private media object changed, invalidating all cached user searches.");
+				invalidateUserSearches();
+				return;
+			}
+			Long userId = object.getOwnerUserIdValue();
+			if(userId != null){
+				userIds.add(userId);
+			}
+		}
+		for(Long userId : userIds){
+			AtomicLong generation = _userSearchGenerations.get(userId);
+			if(generation == null){
+				generation = new AtomicLong();
+				AtomicLong previous = _userSearchGenerations.putIfAbsent(userId, generation);
+				if(previous != null){
+					generation = previous;
+				}
+			}
+			generation.incrementAndGet();
+		}
+	}
+	
+	/**
+	 * Invalidate all cached user searches.
+	 */
+	private void invalidateUserSearches() {
+		_userSearchGeneration.incrementAndGet();
+		_userSearchCache.invalidateAll();
+	}
+	
 	/**
 	 * helper method for processing the data groups and setting filters for the query builder.
 	 * 
@@ -15,22 +15,30 @@
  */
 package service.tut.pori.contentanalysis;
 
+import java.sql.ResultSet;
+import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.EnumMap;
 import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
 
+import org.apache.commons.lang3.ArrayUtils;
 import org.apache.log4j.Logger;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
 
 import service.tut.pori.contentanalysis.AsyncTask.TaskStatus;
 import core.tut.pori.dao.SQLSelectBuilder;
 import core.tut.pori.dao.SQLSelectBuilder.OrderDirection;
+import core.tut.pori.dao.SQLSelectTemplate;
+import core.tut.pori.dao.SQLSelectTemplate.BoundQuery;
+import core.tut.pori.dao.SQLSelectTemplate.Operator;
+import core.tut.pori.dao.SQLSelectTemplate.Parameter;
 import core.tut.pori.dao.clause.AndClause;
 import core.tut.pori.dao.clause.SQLClause.SQLType;
 import core.tut.pori.http.parameters.DataGroups;
@@ -50,7 +58,10 @@ public abstract class MediaTaskDAO extends TaskDAO {
 	/* columns */
 	private static final String COLUMN_GUID_TYPE = "type";
 	/* sql scripts */
-	private static final String[] SQL_GET_MEDIA_STATUS_SELECT_COLUMNS = {Definitions.COLUMN_BACKEND_ID, COLUMN_GUID, Definitions.COLUMN_STATUS, COLUMN_MESSAGE};
+	private static final String SQL_SELECT_TASK_GUIDS = "SELECT "+COLUMN_GUID+", "+COLUMN_GUID_TYPE+" FROM "+TABLE_TASK_GUIDS+" WHERE "+COLUMN_TASK_ID+"=?";
+	private static final int[] SQL_SELECT_TASK_GUIDS_SQL_TYPES = {SQLType.LONG.toInt()};
+
+	private static final SQLSelectTemplate SQL_GET_MEDIA_STATUS = new SQLSelectTemplate(TABLE_TASK_GUIDS_STATUS, new String[]{Definitions.COLUMN_BACKEND_ID, COLUMN_GUID, Definitions.COLUMN_STATUS, COLUMN_MESSAGE}, new Parameter[]{new Parameter(COLUMN_GUID, SQLType.STRING, Operator.IN)}, null);
 
 	private static final int[] SQL_DELETE_GUID_SQL_TYPES = {SQLType.STRING.toInt()};
 	private static final String SQL_DELETE_TASK_GUIDS = "DELETE FROM "+TABLE_TASK_GUIDS+" WHERE "+COLUMN_GUID+"=?";
@@ -121,26 +132,58 @@ public abstract class MediaTaskDAO extends TaskDAO {
 	} // enum GUIDType
 
 	/**
+	 * Retrieves the GUIDs of all types for the given task with a single query. The limits are applied separately for each type.
 	 * 
-	 * @param limits 
+	 * @param limits optional limits
 	 * @param taskId
-	 * @param type
-	 * @return list of GUIDs for the given task, which are of the given type or null if none was found
+	 * @return type-GUID list map for the given task or null if none was found
 	 */
-	protected List<String> getTaskGUIDs(Limits limits, Long taskId, GUIDType type) {
-		SQLSelectBuilder sql = new SQLSelectBuilder(TABLE_TASK_GUIDS);
-		sql.addSelectColumn(COLUMN_GUID);
-		sql.setLimits(limits);
-		sql.addWhereClause(new AndClause(COLUMN_TASK_ID, taskId, SQLType.LONG));
-		sql.addWhereClause(new AndClause(COLUMN_GUID_TYPE, type.toInt(), SQLType.INTEGER));
+	protected EnumMap<GUIDType, List<String>> getTaskGUIDs(Limits limits, Long taskId) {
+		final EnumMap<GUIDType, List<String>> guids = new EnumMap<>(GUIDType.class);
+		RowCallbackHandler handler = new RowCallbackHandler() {
+			@Override
+			public void processRow(ResultSet set) throws SQLException {
+				GUIDType type = GUIDType.fromInt(set.getInt(2)); // the columns are in the order of SQL_SELECT_TASK_GUIDS
+				List<String> list = guids.get(type);
+				if(list == null){
+					guids.put(type, (list = new ArrayList<>()));
+				}
+				list.add(set.getString(1));
+			}
+		};
+		
+		if(limits == null){
+			getJdbcTemplate().query(SQL_SELECT_TASK_GUIDS, new Object[]{taskId}, SQL_SELECT_TASK_GUIDS_SQL_TYPES, handler);
+		}else{ // combine the limited queries of each type, the limits cannot be applied per type to a single select
+			StringBuilder sql = new StringBuilder();
+			Object[] values = null;
+			int[] types = null;
+			for(GUIDType type : GUIDType.values()){
+				SQLSelectBuilder typeSql = new SQLSelectBuilder(TABLE_TASK_GUIDS);
+				typeSql.addSelectColumn(COLUMN_GUID);
+				typeSql.addSelectColumn(COLUMN_GUID_TYPE);
+				typeSql.setLimits(limits);
+				typeSql.addWhereClause(new AndClause(COLUMN_TASK_ID, taskId, SQLType.LONG));
+				typeSql.addWhereClause(new AndClause(COLUMN_GUID_TYPE, type.toInt(), SQLType.INTEGER));
+				
+				if(sql.length() > 0){
+					sql.append(" UNION ALL ");
+				}
+				sql.append('(');
+				sql.append(typeSql.toSQLString());
+				sql.append(')');
+				values = ArrayUtils.addAll(values, typeSql.getValues());
+				types = ArrayUtils.addAll(types, typeSql.getValueTypes());
+			}	// for
+			getJdbcTemplate().query(sql.toString(), values, types, handler);
+		}
 		
-		List<String> guids = getJdbcTemplate().queryForList(sql.toSQLString(), sql.getValues(), sql.getValueTypes(), String.class);
 		if(guids.isEmpty()){
-			LOGGER.warn("No types found for task, id: "+taskId);
+			LOGGER.warn("No GUIDs found for task, id: "+taskId);
 			return null;
 		}
 		return guids;
-	}	
+	}
 	
 	/**
 	 * This will also set photo statuses, if any are present. Note that even through status elements can appear in any photo list,
@@ -213,6 +256,10 @@ public abstract class MediaTaskDAO extends TaskDAO {
 				}	// for
 			}
 		}	// for
+		
+		if(taskId != null){
+			invalidateCachedTask(taskId);
+		}
 	}
 
 	/**
@@ -273,20 +320,22 @@ public abstract class MediaTaskDAO extends TaskDAO {
 		sql.setLimits(limits);
 		sql.addWhereClause(new AndClause(COLUMN_TASK_ID, taskId, SQLType.LONG));
 		
-		List<Map<String,Object>> rows = getJdbcTemplate().queryForList(sql.toSQLString(Definitions.ELEMENT_MEDIA_OBJECTLIST), sql.getValues(), sql.getValueTypes());
-		if(rows.isEmpty()){
+		final HashMap<String, List<String>> map = new HashMap<>();
+		getJdbcTemplate().query(sql.toSQLString(Definitions.ELEMENT_MEDIA_OBJECTLIST), sql.getValues(), sql.getValueTypes(), new RowCallbackHandler() {
+			@Override
+			public void processRow(ResultSet set) throws SQLException {
+				String guid = set.getString(1); // the columns are in the order of the select columns
+				List<String> voids = map.get(guid);
+				if(voids == null){
+					map.put(guid, (voids = new ArrayList<>()));
+				}
+				voids.add(set.getString(2));
+			}
+		});
+		if(map.isEmpty()){
 			LOGGER.debug("No media objects for task, id: "+taskId);
 			return null;
 		}
-		HashMap<String, List<String>> map = new HashMap<>(rows.size());
-		for(Map<String, Object> row : rows){
-			String guid = (String) row.get(COLUMN_GUID);
-			List<String> voids = map.get(guid);
-			if(voids == null){
-				map.put(guid, (voids = new ArrayList<>()));
-			}
-			voids.add((String) row.get(Definitions.COLUMN_MEDIA_OBJECT_ID));
-		}
 		return map;
 	}
 
@@ -299,74 +348,43 @@ public abstract class MediaTaskDAO extends TaskDAO {
 	public <T extends Media> Collection<T> getMediaStatus(Collection<T> mediaList){
 		if(mediaList == null || mediaList.isEmpty()){
 			LOGGER.debug("Empty media list.");
-		}else{
-			SQLSelectBuilder sql = new SQLSelectBuilder(TABLE_TASK_GUIDS_STATUS);
-			
-			List<String> guids = new ArrayList<>(mediaList.size());
-			for (Media media : mediaList) {
-				guids.add(media.getGUID());
-			}			
-			sql.addSelectColumns(SQL_GET_MEDIA_STATUS_SELECT_COLUMNS);
-			sql.addWhereClause(new AndClause(COLUMN_GUID, guids.toArray(), SQLType.STRING));
-			List<Map<String,Object>> rows = getJdbcTemplate().queryForList(sql.toSQLString(Definitions.ELEMENT_BACKEND_STATUS_LIST), sql.getValues(), sql.getValueTypes());
-			if(rows.isEmpty()){
-				LOGGER.debug("No status for the given media items.");
-				return mediaList;
+			return mediaList;
+		}
+		
+		final HashMap<String, List<Media>> guidMediaMap = new HashMap<>(mediaList.size());
+		for (Media media : mediaList) {
+			String guid = media.getGUID();
+			List<Media> list = guidMediaMap.get(guid);
+			if(list == null){
+				guidMediaMap.put(guid, (list = new ArrayList<>(1)));
 			}
-
-			for(Iterator<Map<String, Object>> rIter = rows.iterator(); rIter.hasNext();){
-				Map<String,Object> row = rIter.next();
-				BackendStatus status = extractBackendStatus(row);
-				if(status == null){
+			list.add(media);
+		}
+		
+		final HashMap<Integer, AnalysisBackend> backends = new HashMap<>();
+		BoundQuery query = SQL_GET_MEDIA_STATUS.bind(guidMediaMap.keySet());
+		getJdbcTemplate().query(query.toSQLString(), query.getValues(), query.getValueTypes(), new RowCallbackHandler() {
+			@Override
+			public void processRow(ResultSet set) throws SQLException {
+				AnalysisBackend end = getBackend(backends, set.getInt(Definitions.COLUMN_BACKEND_ID));
+				if(end == null){
 					LOGGER.debug("Ignored status for non-existent backend.");
-					continue;
+					return;
+				}
+				List<Media> media = guidMediaMap.get(set.getString(COLUMN_GUID));
+				if(media == null){
+					return;
 				}
-				String guid = (String) row.get(COLUMN_GUID);
-				for(Iterator<? extends Media> pIter = mediaList.iterator(); pIter.hasNext();){
-					Media p = pIter.next();
-					if(guid.equals(p.getGUID())){
-						p.addackendStatus(status);
-					}
-				}	// for mediaList
-			}	// for rows
-		}	// else
+				BackendStatus status = new BackendStatus(end, TaskStatus.fromInt(set.getInt(Definitions.COLUMN_STATUS)));
+				status.setMessage(set.getString(COLUMN_MESSAGE));
+				for(Media m : media){
+					m.addackendStatus(status);
+				}
+			}
+		});
 		return mediaList;
 	}
 	
-	/**
-	 * extract new BackendStatus from the given row
-	 * 
-	 * @param row
-	 * @return status extracted from the given row map
-	 */
-	private BackendStatus extractBackendStatus(Map<String, Object> row){
-		BackendStatus s = new BackendStatus();
-		for(Entry<String, Object> e : row.entrySet()){
-			switch (e.getKey()) {
-				case Definitions.COLUMN_BACKEND_ID:
-					AnalysisBackend end = _backendDAO.getBackend((Integer)e.getValue());
-					if(end == null){
-						LOGGER.warn("Detected non-existent backend.");
-						return null;
-					}
-					s.setBackend(end);
-					break;
-				case Definitions.COLUMN_STATUS:
-					s.setStatus(TaskStatus.fromInt((Integer)e.getValue()));
-					break;
-				case COLUMN_MESSAGE:
-					s.setMessage((String) e.getValue());
-					break;
-				case COLUMN_GUID:		// valid column, but not handled by extractor
-				case COLUMN_TASK_ID:	// valid column, but not handled by extractor
-					break;
-				default:
-					throw new IllegalArgumentException("Unhandeled column: "+e.getKey());
-			}
-		}	// for
-		return s;
-	}
-
 	/**
 	 * @return the backendDAO
 	 */
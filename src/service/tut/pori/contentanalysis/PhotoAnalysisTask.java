@@ -27,6 +27,7 @@ import org.quartz.JobExecutionException;
 import service.tut.pori.contentanalysis.AnalysisBackend.Capability;
 import core.tut.pori.context.ServiceInitializer;
 import core.tut.pori.users.UserIdentity;
+import core.tut.pori.utils.XMLChunkReader;
 
 
 /**
@@ -51,30 +52,88 @@ public class PhotoAnalysisTask extends AsyncTask{
 	 * @throws IllegalArgumentException
 	 */
 	public static void taskFinished(PhotoTaskResponse response) throws IllegalArgumentException {
-		Integer backendId = response.getBackendId();
-		Long taskId = response.getTaskId();
-
-		PhotoTaskDAO taskDAO = ServiceInitializer.getDAOHandler().getDAO(PhotoTaskDAO.class);
-		BackendStatus backendStatus = taskDAO.getBackendStatus(backendId, taskId);
-		if(backendStatus == null){
-			LOGGER.warn("Backend, id: "+backendId+" returned results for task, not given to the backend. TaskId: "+taskId);
-			throw new IllegalArgumentException("This task is not given for backend, id: "+backendId);
-		}
-
-		TaskStatus status = response.getStatus();
-		if(status == null){
-			LOGGER.warn("Task status not available.");
-			status = TaskStatus.UNKNOWN;
-		}
-		backendStatus.setStatus(status);
-
+		ResultProcessor processor = new ResultProcessor(response);
 		try{
 			PhotoList results = response.getPhotoList();
 			if(PhotoList.isEmpty(results)){
-				LOGGER.warn("No results returned by the backendId: "+backendId);
+				LOGGER.warn("No results returned by the backendId: "+response.getBackendId());
 				return;
 			}
+			processor.process(results);
+		} finally {
+			processor.finished();
+		}
+	}
 
+	/**
+	 * Streaming version of {@link #taskFinished(PhotoTaskResponse)}. The photos are read from the given reader, and processed one chunk at a time.
+	 * 
+	 * Note that the chunks processed before a possible error will remain stored, and in case of an error the task status of the back-end is set to {@link service.tut.pori.contentanalysis.AsyncTask.TaskStatus#ERROR}.
+	 * 
+	 * @param reader reader with a valid header (back-end id, task id and status)
+	 * @throws IllegalArgumentException
+	 */
+	public static void taskFinished(XMLChunkReader<PhotoTaskResponse, Photo> reader) throws IllegalArgumentException {
+		ResultProcessor processor = new ResultProcessor(reader.getHeader());
+		try{
+			int count = 0;
+			for(List<Photo> photos = reader.nextChunk(); photos != null; photos = reader.nextChunk()){
+				count += photos.size();
+				processor.process(PhotoList.getPhotoList(photos, null));
+			}
+			if(count < 1){
+				LOGGER.warn("No results returned by the backendId: "+processor._backendId);
+			}else{
+				LOGGER.debug("Processed "+count+" photos for task, id: "+processor._taskId);
+			}
+		} catch (IllegalArgumentException ex){
+			processor._backendStatus.setStatus(TaskStatus.ERROR);
+			throw ex;
+		} finally {
+			processor.finished();
+		}
+	}
+
+	/**
+	 * Processes the results of a single task response, possibly in multiple parts.
+	 */
+	private static class ResultProcessor {
+		private Integer _backendId = null;
+		private BackendStatus _backendStatus = null;
+		private PhotoTaskDAO _taskDAO = null;
+		private Long _taskId = null;
+
+		/**
+		 * 
+		 * @param response
+		 * @throws IllegalArgumentException if the task was not given to the back-end
+		 */
+		public ResultProcessor(PhotoTaskResponse response) throws IllegalArgumentException {
+			_backendId = response.getBackendId();
+			_taskId = response.getTaskId();
+			_taskDAO = ServiceInitializer.getDAOHandler().getDAO(PhotoTaskDAO.class);
+			_backendStatus = _taskDAO.getBackendStatus(_backendId, _taskId);
+			if(_backendStatus == null){
+				LOGGER.warn("Backend, id: "+_backendId+" returned results for task, not given to the backend. TaskId: "+_taskId);
+				throw new IllegalArgumentException("This task is not given for backend, id: "+_backendId);
+			}
+
+			TaskStatus status = response.getStatus();
+			if(status == null){
+				LOGGER.warn("Task status not available.");
+				status = TaskStatus.UNKNOWN;
+			}
+			_backendStatus.setStatus(status);
+		}
+
+		/**
+		 * 
+		 * @param results non-empty list of results
+		 * @throws IllegalArgumentException
+		 */
+		public void process(PhotoList results) throws IllegalArgumentException {
+			Integer backendId = _backendId;
+			BackendStatus backendStatus = _backendStatus;
 			if(!PhotoList.isValid(results)){
 				LOGGER.warn("Invalid "+Definitions.ELEMENT_PHOTOLIST+".");
 			}
@@ -165,11 +224,16 @@ public class PhotoAnalysisTask extends AsyncTask{
 				LOGGER.warn("Failed to update objects.");
 			}
 
-			taskDAO.updateMediaStatus(results.getPhotos(), taskId);	
-			CAContentCore.scheduleBackendFeedback(backendId, results, taskId);
-		} finally {
-			taskDAO.updateTaskStatus(backendStatus, taskId);
-			ServiceInitializer.getEventHandler().publishEvent(new AsyncTaskEvent(backendId, PhotoAnalysisTask.class, status, taskId, TaskType.ANALYSIS));
+			_taskDAO.updateMediaStatus(results.getPhotos(), _taskId);	
+			CAContentCore.scheduleBackendFeedback(backendId, results, _taskId);
 		}
-	}
+
+		/**
+		 * Updates the task status of the back-end and publishes the task event
+		 */
+		public void finished() {
+			_taskDAO.updateTaskStatus(_backendStatus, _taskId);
+			ServiceInitializer.getEventHandler().publishEvent(new AsyncTaskEvent(_backendId, PhotoAnalysisTask.class, _backendStatus.getStatus(), _taskId, TaskType.ANALYSIS));
+		}
+	} // class ResultProcessor
 }
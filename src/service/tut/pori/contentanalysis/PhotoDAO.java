@@ -20,6 +20,7 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.Date;
 import java.util.EnumSet;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
@@ -46,6 +47,7 @@ import core.tut.pori.dao.filter.AbstractQueryFilter;
 import core.tut.pori.dao.filter.AndQueryFilter;
 import core.tut.pori.dao.filter.AndSubQueryFilter;
 import core.tut.pori.dao.filter.OrQueryFilter;
+import core.tut.pori.dao.filter.RangeQueryFilter;
 import core.tut.pori.http.parameters.DataGroups;
 import core.tut.pori.http.parameters.Limits;
 import core.tut.pori.http.parameters.SortOptions;
@@ -232,6 +234,52 @@ public class PhotoDAO extends SolrDAO{
 		return getPhotoList(dataGroups, guids, limits, serviceTypes, userIdFilter);
 	}
 
+	/**
+	 * Retrieve the GUIDs of the photos in the order of GUIDs. This can be used to iterate through large sets of photos without retrieving the photo details.
+	 * 
+	 * @param guids optional filter
+	 * @param afterGUID optional, if given only GUIDs following this GUID will be returned
+	 * @param maxItems maximum number of GUIDs to return
+	 * @param serviceTypes optional filter
+	 * @param userIdFilter optional filter
+	 * @return list of GUIDs or null if none
+	 */
+	public List<String> getGUIDs(Collection<String> guids, String afterGUID, int maxItems, EnumSet<ServiceType> serviceTypes, long[] userIdFilter){
+		SolrQueryBuilder solr = new SolrQueryBuilder(null);
+		if(guids != null && !guids.isEmpty()){
+			LOGGER.debug("Adding GUID filter...");
+			solr.addCustomFilter(new AndQueryFilter(SOLR_FIELD_ID, guids), false);
+		}
+		if(afterGUID != null){
+			solr.addCustomFilter(new RangeQueryFilter(SOLR_FIELD_ID, afterGUID, null), false);
+		}
+		if(!ServiceType.isEmpty(serviceTypes)){
+			LOGGER.debug("Adding service type filter...");
+			solr.addCustomFilter(new AndQueryFilter(Definitions.SOLR_FIELD_SERVICE_ID, ServiceType.toIdArray(serviceTypes)));
+		}
+		if(!ArrayUtils.isEmpty(userIdFilter)){
+			LOGGER.debug("Adding user id filter...");
+			solr.addCustomFilter(new AndQueryFilter(Definitions.SOLR_FIELD_USER_ID, userIdFilter));
+		}
+		solr.setLimits(new Limits(0, maxItems)); // request one extra item, the range filter includes the given GUID
+		solr.setSortOptions(DEFAULT_SORT_OPTIONS);
+		solr.addField(SOLR_FIELD_ID);
+
+		List<Photo> photos = SimpleSolrTemplate.getList(getSolrTemplate(BEAN_ID_SOLR_SERVER).query(solr.toSolrQuery(Definitions.ELEMENT_PHOTOLIST)), Photo.class);
+		if(photos == null){
+			LOGGER.debug("No photos");
+			return null;
+		}
+		List<String> retval = new ArrayList<>(maxItems);
+		for(Photo photo : photos){
+			String guid = photo.getGUID();
+			if(!guid.equals(afterGUID) && retval.size() < maxItems){
+				retval.add(guid);
+			}
+		}
+		return (retval.isEmpty() ? null : retval);
+	}
+
 	/**
 	 * 
 	 * @param dataGroups
@@ -245,7 +293,7 @@ public class PhotoDAO extends SolrDAO{
 		SolrQueryBuilder solr = new SolrQueryBuilder(null);
 		if(guids != null && !guids.isEmpty()){
 			LOGGER.debug("Adding guid filter...");
-			solr.addCustomFilter(new AndQueryFilter(SOLR_FIELD_ID, guids));
+			solr.addCustomFilter(new AndQueryFilter(SOLR_FIELD_ID, guids), false);
 		}
 		if(!ServiceType.isEmpty(serviceTypes)){
 			LOGGER.debug("Adding service type filter...");
@@ -271,7 +319,7 @@ public class PhotoDAO extends SolrDAO{
 		ResultInfo info = null;
 		if(DataGroups.hasDataGroup(Definitions.DATA_GROUP_RESULT_INFO, dataGroups)){
 			LOGGER.debug("Resolving result info for the requested photos.");
-			info = new ResultInfo(limits.getStartItem(Definitions.ELEMENT_PHOTOLIST), limits.getEndItem(Definitions.ELEMENT_PHOTOLIST), response.getResults().getNumFound());
+			info = new ResultInfo(limits, Definitions.ELEMENT_PHOTOLIST, response.getResults().getNumFound());
 		}
 
 		PhotoList photoList = PhotoList.getPhotoList(photos, info);
@@ -279,14 +327,7 @@ public class PhotoDAO extends SolrDAO{
 		if(guidVoidMap == null){
 			LOGGER.debug("No objects for the photos.");
 		}else{
-			for(Entry<String, Set<String>> e : guidVoidMap.entrySet()){
-				MediaObjectList objects = _mediaObjectDAO.getMediaObjects(dataGroups, limits, MEDIA_TYPES, null, e.getValue(), null); // do NOT give serviceTypes as filter, we are searching photos with specific serviceTypes, not mediaObjects
-				if(MediaObjectList.isEmpty(objects)){
-					LOGGER.warn("Could not retrieve objects for GUID: "+e.getKey());
-				}else{
-					photoList.getPhoto(e.getKey()).addMediaObjects(objects);
-				}
-			}
+			setMediaObjects(dataGroups, limits, photoList, guidVoidMap);
 		}
 
 		if(DataGroups.hasDataGroup(Definitions.DATA_GROUP_STATUS, dataGroups)){
@@ -339,10 +380,9 @@ public class PhotoDAO extends SolrDAO{
 		solr.setLimits(limits);
 
 		if(guids != null && !guids.isEmpty()){
-			solr.addCustomFilter(new AndQueryFilter(SOLR_FIELD_ID, guids));
+			solr.addCustomFilter(new AndQueryFilter(SOLR_FIELD_ID, guids), false);
 		}
 
-		Map<String, Set<String>> guidVoidMap = null;
 		if(!MediaObjectList.isEmpty(objects)){ // if media objects have been given as a search term, do a media object look-up first
 			List<String> mediaObjectIds = _mediaObjectDAO.getMediaObjectIds(authenticatedUser, dataGroups, null, null, userIdFilter, objects); // do NOT give serviceTypes as filter, we are searching photos with specific serviceTypes, not mediaObjects
 			if(mediaObjectIds == null){
@@ -350,12 +390,12 @@ public class PhotoDAO extends SolrDAO{
 				return null;
 			}
 			
-			guidVoidMap = _associationDAO.getAssociationsForMediaObjectIds(mediaObjectIds);
-			if(guidVoidMap == null){
+			List<String> objectGUIDs = _associationDAO.getGUIDsForMediaObjectIds(mediaObjectIds);
+			if(objectGUIDs == null){
 				LOGGER.debug("No photos associated with the media object results.");
 				return null;
 			}
-			solr.addCustomFilter(new AndQueryFilter(SOLR_FIELD_ID, guidVoidMap.keySet()));
+			solr.addCustomFilter(new AndQueryFilter(SOLR_FIELD_ID, objectGUIDs), false);
 		}
 
 		if(!ServiceType.isEmpty(serviceTypes)){
@@ -384,31 +424,17 @@ public class PhotoDAO extends SolrDAO{
 		ResultInfo info = null;
 		if(DataGroups.hasDataGroup(Definitions.DATA_GROUP_RESULT_INFO, dataGroups)){
 			LOGGER.debug("Resolving result info for the requested photos.");
-			info = new ResultInfo(limits.getStartItem(Definitions.ELEMENT_PHOTOLIST), limits.getEndItem(Definitions.ELEMENT_PHOTOLIST), response.getResults().getNumFound());
+			info = new ResultInfo(limits, Definitions.ELEMENT_PHOTOLIST, response.getResults().getNumFound());
 		}
 
 		PhotoList photoList = PhotoList.getPhotoList(photos, info);
-		if(guidVoidMap == null){	// resolve media object relations if not resolved already, depending on the data groups given we may not even need the media objects, but let's ignore it for now
-			guidVoidMap = _associationDAO.getAssociationsForGUIDs(photoList.getGUIDs());
-		}
+		Map<String, Set<String>> guidVoidMap = _associationDAO.getAssociationsForGUIDs(photoList.getGUIDs()); // resolve the media object relations only for the returned page, depending on the data groups given we may not even need the media objects, but let's ignore it for now
 		
 		if(guidVoidMap == null){
 			LOGGER.debug("No photo-media object associations...");
 		}else{
 			LOGGER.debug("Retrieving media objects for the list of photos, if needed...");
-			for(Entry<String, Set<String>> e : guidVoidMap.entrySet()){
-				MediaObjectList photoObject = _mediaObjectDAO.getMediaObjects(dataGroups, limits, MEDIA_TYPES, null, e.getValue(), null); // do NOT give serviceTypes as filter, we are searching photos with specific serviceTypes, not mediaObjects
-				if(MediaObjectList.isEmpty(photoObject)){
-					LOGGER.debug("Could not retrieve objects for GUID: "+e.getKey());
-				}else{
-					Photo photo = photoList.getPhoto(e.getKey());
-					if(photo == null){
-						LOGGER.warn("Could not find photo, GUID: "+e.getKey());
-					}else{
-						photo.addMediaObjects(photoObject);
-					}
-				}
-			}
+			setMediaObjects(dataGroups, limits, photoList, guidVoidMap);
 		}
 
 		if(DataGroups.hasDataGroup(Definitions.DATA_GROUP_STATUS, dataGroups)){
@@ -418,6 +444,39 @@ public class PhotoDAO extends SolrDAO{
 		return photoList;
 	}
 
+	/**
+	 * Retrieves and sets the media objects for the given photos with a single query.
+	 * 
+	 * @param dataGroups
+	 * @param limits media object limits, applied separately for each photo
+	 * @param photoList
+	 * @param guidVoidMap GUID-media object id map, GUIDs not present in the photo list are ignored
+	 */
+	private void setMediaObjects(DataGroups dataGroups, Limits limits, PhotoList photoList, Map<String, Set<String>> guidVoidMap){
+		List<Photo> photos = photoList.getPhotos();
+		HashMap<String, Set<String>> photoVoidMap = new HashMap<>(photos.size());
+		for(Photo photo : photos){
+			String guid = photo.getGUID();
+			Set<String> voids = guidVoidMap.get(guid);
+			if(voids != null){
+				photoVoidMap.put(guid, voids);
+			}
+		}
+		
+		Map<String, MediaObjectList> objects = _mediaObjectDAO.getMediaObjects(dataGroups, limits, MEDIA_TYPES, photoVoidMap); // do NOT give serviceTypes as filter, we are searching photos with specific serviceTypes, not mediaObjects
+		if(objects == null){
+			LOGGER.debug("Could not retrieve objects for the photos.");
+			return;
+		}
+		
+		for(Photo photo : photos){
+			MediaObjectList photoObjects = objects.get(photo.getGUID());
+			if(photoObjects != null){
+				photo.addMediaObjects(photoObjects);
+			}
+		}
+	}
+
 	/**
 	 * Sets the owner details (userId) to the given photos, requires that GUID has been set to the photo object
 	 * 
@@ -438,7 +497,7 @@ public class PhotoDAO extends SolrDAO{
 
 		SolrQueryBuilder solr = new SolrQueryBuilder();
 		solr.addFields(FIELDS_SET_OWNERS);
-		solr.addCustomFilter(new AndQueryFilter(SOLR_FIELD_ID, guids));
+		solr.addCustomFilter(new AndQueryFilter(SOLR_FIELD_ID, guids), false);
 		PhotoList found = PhotoList.getPhotoList(getSolrTemplate(BEAN_ID_SOLR_SERVER).queryForList(solr.toSolrQuery(Definitions.ELEMENT_PHOTOLIST), Photo.class),null);
 		if(PhotoList.isEmpty(found)){
 			LOGGER.debug("No photos found.");
@@ -497,7 +556,7 @@ public class PhotoDAO extends SolrDAO{
 		SimpleSolrTemplate t = getSolrTemplate(BEAN_ID_SOLR_SERVER);
 		
 		solr.clearCustomFilters();
-		solr.addCustomFilter(new AndQueryFilter(SOLR_FIELD_ID, guids));
+		solr.addCustomFilter(new AndQueryFilter(SOLR_FIELD_ID, guids), false);
 		PhotoList references = PhotoList.getPhotoList(t.queryForList(solr.toSolrQuery(Definitions.ELEMENT_PHOTOLIST), Photo.class), null);
 		if(PhotoList.isEmpty(references)){
 			LOGGER.warn("Could not find the photos requested for update.");
@@ -672,7 +731,7 @@ public class PhotoDAO extends SolrDAO{
 	public List<AccessDetails> getAccessDetails(UserIdentity authenticatedUser, Collection<String> guids){
 		SolrQueryBuilder solr = new SolrQueryBuilder();
 		solr.addFields(FIELDS_GET_ACCESS_DETAILS);
-		solr.addCustomFilter(new AndQueryFilter(SOLR_FIELD_ID, guids));
+		solr.addCustomFilter(new AndQueryFilter(SOLR_FIELD_ID, guids), false);
 
 		List<Photo> photos = getSolrTemplate(BEAN_ID_SOLR_SERVER).queryForList(solr.toSolrQuery(Definitions.ELEMENT_PHOTOLIST), Photo.class);
 		if(photos == null){
@@ -695,7 +754,7 @@ public class PhotoDAO extends SolrDAO{
 	public AccessDetails getAccessDetails(UserIdentity authenticatedUser, String guid) {
 		SolrQueryBuilder solr = new SolrQueryBuilder();
 		solr.addFields(FIELDS_GET_ACCESS_DETAILS);
-		solr.addCustomFilter(new AndQueryFilter(SOLR_FIELD_ID, guid));
+		solr.addCustomFilter(new AndQueryFilter(SOLR_FIELD_ID, guid), false);
 
 		List<Photo> photos = getSolrTemplate(BEAN_ID_SOLR_SERVER).queryForList(solr.toSolrQuery(Definitions.ELEMENT_PHOTOLIST), Photo.class);
 		if(photos == null){
@@ -49,6 +49,9 @@ import core.tut.pori.context.ServiceInitializer;
 import core.tut.pori.http.Response;
 import core.tut.pori.http.parameters.DataGroups;
 import core.tut.pori.http.parameters.Limits;
+import core.tut.pori.trace.Span;
+import core.tut.pori.trace.Span.SpanType;
+import core.tut.pori.trace.TraceContext;
 import core.tut.pori.users.UserIdentity;
 import core.tut.pori.utils.XMLFormatter;
 
@@ -332,6 +335,7 @@ public class PhotoSearchTask{
 		}
 
 		@Override
+		@SuppressWarnings("try")
 		public PhotoList call() throws Exception {
 			StringBuilder uri = new StringBuilder(_backend.getAnalysisUri());
 			if(_url != null){
@@ -347,7 +351,7 @@ public class PhotoSearchTask{
 			}	
 			String url = uri.toString();
 			LOGGER.debug("Calling URL: "+url+" for back-end, id: "+_backend.getBackendId());
-			try (CloseableHttpClient client = HttpClients.createDefault(); CloseableHttpResponse response = client.execute(new HttpPost(url))) {
+			try (Span span = TraceContext.startSpan(SpanType.HTTP, url); CloseableHttpClient client = HttpClients.createDefault(); CloseableHttpResponse response = client.execute(new HttpPost(url))) {
 				HttpEntity entity = response.getEntity();
 				try (InputStream content = entity.getContent()) {
 					Response r = FORMATTER.toResponse(content, PhotoList.class);
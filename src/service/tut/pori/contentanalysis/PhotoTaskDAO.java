@@ -15,17 +15,19 @@
  */
 package service.tut.pori.contentanalysis;
 
+import java.util.ArrayList;
+import java.util.EnumMap;
 import java.util.EnumSet;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
-import org.apache.commons.lang3.tuple.Pair;
 import org.apache.log4j.Logger;
 import org.springframework.beans.factory.annotation.Autowired;
 
 import service.tut.pori.contentanalysis.AsyncTask.TaskType;
 import core.tut.pori.http.parameters.DataGroups;
 import core.tut.pori.http.parameters.Limits;
-import core.tut.pori.users.UserIdentity;
 import core.tut.pori.utils.MediaUrlValidator.MediaType;
 
 /**
@@ -67,6 +69,23 @@ public class PhotoTaskDAO extends MediaTaskDAO{
 	 * @throws IllegalArgumentException on bad task content
 	 */
 	public Long insertTask(PhotoTaskDetails details) throws UnsupportedOperationException, IllegalArgumentException{
+		Long taskId = insertTask((AbstractTaskDetails) details);
+		if(taskId == null){
+			throw new IllegalArgumentException("Failed to add new task.");
+		}
+		return taskId;
+	}
+	
+	/**
+	 * Inserts the photo GUIDs and media objects of the task.
+	 * 
+	 * @throws UnsupportedOperationException on unsupported task type or if the details are not {@link PhotoTaskDetails}
+	 */
+	@Override
+	protected void insertTaskContent(AbstractTaskDetails details) throws UnsupportedOperationException {
+		if(!(details instanceof PhotoTaskDetails)){
+			throw new UnsupportedOperationException("Unsupported task details: "+details.getClass().toString());
+		}
 		TaskType type = details.getTaskType();
 		switch(type){
 			case ANALYSIS:
@@ -76,16 +95,10 @@ public class PhotoTaskDAO extends MediaTaskDAO{
 			default:
 				throw new UnsupportedOperationException("TaskType not supported: "+type.name());
 		}
-
-		Long taskId = insertTask((AbstractTaskDetails) details);
-		if(taskId == null){
-			throw new IllegalArgumentException("Failed to add new task.");
-		}
-
-		insertTaskGUIDs(details);
-		insertTaskMediaObjects(details);
-
-		return taskId;
+		
+		PhotoTaskDetails photoDetails = (PhotoTaskDetails) details;
+		insertTaskGUIDs(photoDetails);
+		insertTaskMediaObjects(photoDetails);
 	}
 	
 	/**
@@ -133,6 +146,9 @@ public class PhotoTaskDAO extends MediaTaskDAO{
 	}
 	
 	/**
+	 * The task header (type, owner, metadata) is retrieved with a single query, and the GUIDs of the task with another. 
+	 * When limits are not given, the assembled details are cached for a short period of time, and the subsequent requests for the same task and data groups will only check
+	 * that the back-end is associated with the task.
 	 * 
 	 * @param backendId
 	 * @param dataGroups optional dataGroups filter, if not given, default backend-specific datagroups will be used
@@ -143,11 +159,27 @@ public class PhotoTaskDAO extends MediaTaskDAO{
 	 */
 	@Override
 	public PhotoTaskDetails getTask(Integer backendId, DataGroups dataGroups, Limits limits, Long taskId) throws IllegalArgumentException{
-		Pair<TaskType, UserIdentity> type = getTaskType(backendId, taskId);
-		if(type == null){
+		if(limits == null && (backendId == null || !DataGroups.isEmpty(dataGroups))){
+			PhotoTaskDetails cached = getCachedTask(PhotoTaskDetails.class, dataGroups, taskId);
+			if(cached != null){
+				if(backendId != null && !hasBackend(backendId, taskId)){
+					LOGGER.warn("Task, id: "+taskId+" was not found for backend, id: "+backendId);
+					return null;
+				}
+				LOGGER.debug("Using cached details for task, id: "+taskId);
+				PhotoTaskDetails details = copyOf(cached);
+				details.setBackendId(backendId);
+				return details;
+			}
+		}
+		
+		PhotoTaskDetails details = new PhotoTaskDetails();
+		details.setTaskId(taskId);
+		if(!getTaskHeader(backendId, details)){
 			LOGGER.warn("Failed to resolve task type.");
 			return null;
 		}
+		details.setBackendId(backendId);
 
 		if(backendId == null){
 			LOGGER.debug("No backend id given, will not check data groups.");
@@ -160,14 +192,8 @@ public class PhotoTaskDAO extends MediaTaskDAO{
 			dataGroups = backend.getDefaultTaskDataGroups();
 		}
 
-		PhotoTaskDetails details = new PhotoTaskDetails(type.getLeft());
-		details.setBackendId(backendId);
-		details.setTaskId(taskId);
-		details.setUserId(type.getRight());
 		getPhotos(dataGroups, details, limits);
 
-		getTaskMetadata(details);
-
 		if(DataGroups.hasDataGroup(Definitions.DATA_GROUP_BACKEND_STATUS, dataGroups)){
 			getBackendStatusList(details);
 		}
@@ -176,10 +202,36 @@ public class PhotoTaskDAO extends MediaTaskDAO{
 			LOGGER.warn("Task, id: "+taskId+" has no content.");
 			return null;
 		}else{
+			if(limits == null){
+				setCachedTask(dataGroups, copyOf(details));
+			}
 			return details;
 		}
 	}
 	
+	/**
+	 * Note: the photo lists, back-end status list and task parameters are shared with the original details, the metadata map is copied.
+	 * 
+	 * @param details
+	 * @return shallow copy of the given details
+	 */
+	private static PhotoTaskDetails copyOf(PhotoTaskDetails details){
+		PhotoTaskDetails copy = new PhotoTaskDetails(details.getTaskType());
+		copy.setBackendId(details.getBackendId());
+		copy.setTaskId(details.getTaskId());
+		copy.setUserId(details.getUserId());
+		copy.setBackends(details.getBackends());
+		Map<String, String> metadata = details.getMetadata();
+		copy.setMetadata((metadata == null ? null : new HashMap<>(metadata)));
+		copy.setTaskParameters(details.getTaskParameters());
+		copy.setPhotoList(details.getPhotoList());
+		copy.setDeletedPhotoList(details.getDeletedPhotoList());
+		copy.setReferencePhotoList(details.getReferencePhotoList());
+		copy.setSimilarPhotoList(details.getSimilarPhotoList());
+		copy.setDissimilarPhotoList(details.getDissimilarPhotoList());
+		return copy;
+	}
+	
 	/**
 	 * retrieve and set the photos for the task
 	 * 
@@ -189,8 +241,13 @@ public class PhotoTaskDAO extends MediaTaskDAO{
 	 */
 	private void getPhotos(DataGroups dataGroups, PhotoTaskDetails details, Limits limits){
 		Long taskId = details.getTaskId();
+		EnumMap<GUIDType, List<String>> guids = getTaskGUIDs(limits, taskId);
+		if(guids == null){
+			LOGGER.debug("No content for task, id: "+taskId);
+			return;
+		}
 	
-		List<String> photoGUIDs = getTaskGUIDs(limits, taskId, GUIDType.MEDIA);
+		List<String> photoGUIDs = guids.get(GUIDType.MEDIA);
 		if(photoGUIDs != null){
 			LOGGER.debug("Retrieving photo list...");
 			TaskType taskType = details.getTaskType();
@@ -211,14 +268,14 @@ public class PhotoTaskDAO extends MediaTaskDAO{
 				default:	// should not happen
 					throw new UnsupportedOperationException("Unsupported "+TaskType.class.toString());
 			}
-		}else if((photoGUIDs = getTaskGUIDs(limits, taskId, GUIDType.DELETED_MEDIA)) != null){
+		}else if((photoGUIDs = guids.get(GUIDType.DELETED_MEDIA)) != null){
 			LOGGER.debug("Retrieving deleted photo list...");
 			for(String guid : photoGUIDs){
 				details.addDeletedPhoto(new Photo(guid));
 			}
 		}else{
 			LOGGER.debug("Retrieving similarity feedback data...");
-			photoGUIDs = getTaskGUIDs(limits, taskId, GUIDType.REFERENCE_MEDIA);
+			photoGUIDs = guids.get(GUIDType.REFERENCE_MEDIA);
 			if(photoGUIDs == null){
 				LOGGER.debug("No content: reference item missing.");
 				return;
@@ -227,14 +284,14 @@ public class PhotoTaskDAO extends MediaTaskDAO{
 				details.addReferencePhoto(new Photo(guid));
 			}
 			
-			photoGUIDs = getTaskGUIDs(limits, taskId, GUIDType.SIMILAR_MEDIA);
+			photoGUIDs = guids.get(GUIDType.SIMILAR_MEDIA);
 			if(photoGUIDs != null){
 				for(String guid : photoGUIDs){
 					details.addSimilarPhoto(new Photo(guid));
 				}
 			}
 			
-			photoGUIDs = getTaskGUIDs(limits, taskId, GUIDType.DISSIMILAR_MEDIA);
+			photoGUIDs = guids.get(GUIDType.DISSIMILAR_MEDIA);
 			if(photoGUIDs != null){
 				for(String guid : photoGUIDs){
 					details.addDissimilarPhoto(new Photo(guid));
@@ -244,11 +301,24 @@ public class PhotoTaskDAO extends MediaTaskDAO{
 
 		if(DataGroups.hasDataGroup(Definitions.DATA_GROUP_STATUS, dataGroups)){
 			LOGGER.debug("Retrieving photo status information for task, id: "+taskId);
-			getMediaStatus(details.getPhotoList().getPhotos());
-			getMediaStatus(details.getDeletedPhotoList().getPhotos());
-			getMediaStatus(details.getReferencePhotoList().getPhotos());
-			getMediaStatus(details.getSimilarPhotoList().getPhotos());
-			getMediaStatus(details.getDissimilarPhotoList().getPhotos());
+			List<Photo> photos = new ArrayList<>();
+			addPhotos(photos, details.getPhotoList());
+			addPhotos(photos, details.getDeletedPhotoList());
+			addPhotos(photos, details.getReferencePhotoList());
+			addPhotos(photos, details.getSimilarPhotoList());
+			addPhotos(photos, details.getDissimilarPhotoList());
+			getMediaStatus(photos);	// retrieve the statuses of all lists with a single query
+		}
+	}
+	
+	/**
+	 * 
+	 * @param target
+	 * @param photos if null or empty, this method is a no-op
+	 */
+	private static void addPhotos(List<Photo> target, PhotoList photos){
+		if(!PhotoList.isEmpty(photos)){
+			target.addAll(photos.getPhotos());
 		}
 	}
 }
@@ -20,6 +20,8 @@ import javax.xml.bind.annotation.XmlAccessorType;
 import javax.xml.bind.annotation.XmlElement;
 import javax.xml.bind.annotation.XmlRootElement;
 
+import core.tut.pori.http.parameters.Limits;
+
 
 /**
  * A simple class that shows details about a search query. 
@@ -31,6 +33,7 @@ import javax.xml.bind.annotation.XmlRootElement;
  * <ul>
  *  <li>{@value service.tut.pori.contentanalysis.Definitions#ELEMENT_START_ITEM}. The requested start item, if available.</li>
  *  <li>{@value service.tut.pori.contentanalysis.Definitions#ELEMENT_END_ITEM}. The requested end item, if available.</li>
+ *  <li>{@value service.tut.pori.contentanalysis.Definitions#ELEMENT_NEXT_LIMITS}. The limits for retrieving the next set of results, if more results are available. The value can be used as the limits parameter of the next request.</li>
  * </ul>
  * 
  * <h3>XML Example</h3>
@@ -43,6 +46,8 @@ import javax.xml.bind.annotation.XmlRootElement;
 public class ResultInfo {
 	@XmlElement(name = Definitions.ELEMENT_END_ITEM)
 	private Long _endItem = null;
+	@XmlElement(name = Definitions.ELEMENT_NEXT_LIMITS)
+	private String _nextLimits = null;
 	@XmlElement(name = Definitions.ELEMENT_RESULT_COUNT)
 	private Long _resultCount = null;
 	@XmlElement(name = Definitions.ELEMENT_START_ITEM)
@@ -67,6 +72,19 @@ public class ResultInfo {
 		_resultCount = resultCount;
 	}
 	
+	/**
+	 * 
+	 * @param limits
+	 * @param typeName the type of the list
+	 * @param resultCount
+	 */
+	public ResultInfo(Limits limits, String typeName, long resultCount){
+		_startItem = (long) limits.getStartItem(typeName);
+		_endItem = (long) limits.getEndItem(typeName);
+		_resultCount = resultCount;
+		_nextLimits = limits.toNextLimitString(typeName, resultCount);
+	}
+	
 	/**
 	 * The total number of results for the request. Note that in some cases this may only be an estimate.
 	 * 
@@ -100,6 +118,22 @@ public class ResultInfo {
 		_endItem = endItem;
 	}
 
+	/**
+	 * @return the limits for retrieving the next set of results or null if no more results are available
+	 * @see #setNextLimits(String)
+	 */
+	public String getNextLimits() {
+		return _nextLimits;
+	}
+
+	/**
+	 * @param nextLimits
+	 * @see #getNextLimits()
+	 */
+	public void setNextLimits(String nextLimits) {
+		_nextLimits = nextLimits;
+	}
+
 	/**
 	 * @return the startItem
 	 */
@@ -15,25 +15,41 @@
  */
 package service.tut.pori.contentanalysis;
 
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.EnumMap;
 import java.util.HashMap;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.tuple.Pair;
 import org.apache.log4j.Logger;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.jdbc.core.JdbcTemplate;
-import org.springframework.jdbc.core.simple.SimpleJdbcInsert;
+import org.springframework.jdbc.core.PreparedStatementCreatorFactory;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.transaction.TransactionStatus;
 import org.springframework.transaction.support.TransactionCallback;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
 import service.tut.pori.contentanalysis.AbstractTaskDetails.TaskParameters;
 import service.tut.pori.contentanalysis.AsyncTask.TaskStatus;
 import service.tut.pori.contentanalysis.AsyncTask.TaskType;
 import core.tut.pori.dao.SQLDAO;
+import core.tut.pori.dao.SQLRowMapper;
 import core.tut.pori.dao.clause.SQLClause.SQLType;
 import core.tut.pori.http.parameters.DataGroups;
 import core.tut.pori.http.parameters.Limits;
@@ -49,6 +65,10 @@ import core.tut.pori.users.UserIdentity;
 public class TaskDAO extends SQLDAO {
 	private static final Logger LOGGER = Logger.getLogger(TaskDAO.class);
 	private static final String METADATA_TASK_PARAMETER_CLASS = "METADATA_TP_CLS";
+	private static final long TASK_CACHE_EXPIRE_TIME = 10; // in seconds
+	private static final long TASK_CACHE_MAX_SIZE = 1000;
+	/** taskId - data group string - details, shared by all task DAOs as the task ids are unique in the tasks table */
+	private static final Cache<Long, ConcurrentMap<String, AbstractTaskDetails>> TASK_CACHE = CacheBuilder.newBuilder().expireAfterWrite(TASK_CACHE_EXPIRE_TIME, TimeUnit.SECONDS).maximumSize(TASK_CACHE_MAX_SIZE).build();
 	/* tables */
 	private static final String TABLE_TASKS = DATABASE +".ca_tasks";
 	private static final String TABLE_TASK_BACKENDS = DATABASE +".ca_tasks_backends";
@@ -60,36 +80,58 @@ public class TaskDAO extends SQLDAO {
 	protected static final String COLUMN_TASK_ID = "task_id";
 	/** default column name for task type */
 	protected static final String COLUMN_TASK_TYPE = "task_type";
-	private static final String[] SQL_COLUMNS_INSERT_TASK = new String[]{COLUMN_TASK_TYPE, COLUMN_ROW_CREATED, COLUMN_USER_ID};
+	/** prefix of the columns containing the number of task back-ends with the status, the column name is the prefix followed by the lower case status name */
+	private static final String COLUMN_PREFIX_BACKENDS = "backends_";
+	/* variables */
+	private static final String VARIABLE_PREVIOUS_STATUS = "@ca_previous_backend_status";
+	private static final BackendStatusMapper BACKEND_STATUS_MAPPER = new BackendStatusMapper();
 
 	/* sql strings */
 	private static final String SQL_CHECK_TASK_BACKEND = "SELECT "+COLUMN_COUNT+" FROM "+TABLE_TASK_BACKENDS+" WHERE "+Definitions.COLUMN_BACKEND_ID+"=? AND "+COLUMN_TASK_ID+"=? LIMIT 1";
 	private static final int[] SQL_CHECK_TASK_BACKEND_TYPES = new int[]{SQLType.INTEGER.toInt(), SQLType.LONG.toInt()};
 	
-	private static final String SQL_GET_BACKEND_STATUSES = "SELECT "+Definitions.COLUMN_BACKEND_ID+", "+Definitions.COLUMN_STATUS+", "+COLUMN_MESSAGE+" FROM "+TABLE_TASK_BACKENDS+" WHERE "+COLUMN_TASK_ID+"=?";
+	private static final String SQL_GET_BACKEND_STATUSES = "SELECT "+BACKEND_STATUS_MAPPER.getSelectList()+" FROM "+TABLE_TASK_BACKENDS+" WHERE "+COLUMN_TASK_ID+"=?";
 	private static final int[] SQL_GET_BACKEND_STATUSES_SQL_TYPES = new int[]{SQLType.LONG.toInt()};
 
+	private static final PreparedStatementCreatorFactory SQL_INSERT_TASK = createInsertFactory("INSERT INTO "+TABLE_TASKS+" ("+COLUMN_TASK_TYPE+", "+COLUMN_USER_ID+", "+toStatusCountList("%s")+", "+COLUMN_ROW_CREATED+") VALUES (?,?,"+toStatusCountList("?")+",NOW())", toStatusCountTypes(new int[]{SQLType.INTEGER.toInt(), SQLType.LONG.toInt()}, new int[0]));
+
 	private static final String SQL_INSERT_TASK_BACKEND = "INSERT INTO "+TABLE_TASK_BACKENDS+" ("+COLUMN_TASK_ID+", "+Definitions.COLUMN_BACKEND_ID+", "+Definitions.COLUMN_STATUS+", "+COLUMN_MESSAGE+", "+COLUMN_ROW_CREATED+") VALUES (?,?,?,?,NOW())";
 	private static final int[] SQL_INSERT_TASK_BACKEND_TYPES = new int[]{SQLType.LONG.toInt(), SQLType.INTEGER.toInt(), SQLType.INTEGER.toInt(), SQLType.STRING.toInt()};
+	
+	/** the upsert stores the previous status of the back-end in {@value #VARIABLE_PREVIOUS_STATUS}, or null if the status row was inserted */
+	private static final String SQL_UPSERT_TASK_BACKEND = "INSERT INTO "+TABLE_TASK_BACKENDS+" ("+COLUMN_TASK_ID+", "+Definitions.COLUMN_BACKEND_ID+", "+Definitions.COLUMN_STATUS+", "+COLUMN_MESSAGE+", "+COLUMN_ROW_CREATED+") VALUES (?,?,COALESCE("+VARIABLE_PREVIOUS_STATUS+":=NULL,?),?,NOW()) ON DUPLICATE KEY UPDATE "+Definitions.COLUMN_STATUS+"=IF(("+VARIABLE_PREVIOUS_STATUS+":="+Definitions.COLUMN_STATUS+")=VALUES("+Definitions.COLUMN_STATUS+"), "+Definitions.COLUMN_STATUS+", VALUES("+Definitions.COLUMN_STATUS+")), "+COLUMN_MESSAGE+"=VALUES("+COLUMN_MESSAGE+")";
+	private static final String SQL_SELECT_PREVIOUS_STATUS = "SELECT "+VARIABLE_PREVIOUS_STATUS;
 
 	private static final String SQL_INSERT_TASK_METADATA = "INSERT INTO "+TABLE_TASK_METADATA+" ("+COLUMN_TASK_ID+", "+Definitions.COLUMN_NAME+", "+Definitions.COLUMN_VALUE+", "+COLUMN_ROW_CREATED+") VALUES (?,?,?,NOW())";
 	private static final int[] SQL_INSERT_TASK_METADATA_TYPES = new int[]{SQLType.LONG.toInt(), SQLType.STRING.toInt(), SQLType.STRING.toInt()};
 
-	private static final String SQL_SELECT_BACKEND_STATUS_BY_BACKEND_ID = "SELECT "+Definitions.COLUMN_STATUS+", "+COLUMN_MESSAGE+", "+Definitions.COLUMN_BACKEND_ID+" FROM "+TABLE_TASK_BACKENDS+" WHERE "+Definitions.COLUMN_BACKEND_ID+"=? AND "+COLUMN_TASK_ID+"=? LIMIT 1";
+	private static final String SQL_SELECT_BACKEND_STATUS_BY_BACKEND_ID = "SELECT "+BACKEND_STATUS_MAPPER.getSelectList()+" FROM "+TABLE_TASK_BACKENDS+" WHERE "+Definitions.COLUMN_BACKEND_ID+"=? AND "+COLUMN_TASK_ID+"=? LIMIT 1";
 	private static final int[] SQL_SELECT_BACKEND_STATUS_BY_BACKEND_ID_TYPES = new int[]{SQLType.INTEGER.toInt(), SQLType.LONG.toInt()};
 
-	private static final String SQL_SELECT_BACKEND_STATUS_BY_TASK_ID = "SELECT "+Definitions.COLUMN_STATUS+", "+COLUMN_MESSAGE+", "+Definitions.COLUMN_BACKEND_ID+" FROM "+TABLE_TASK_BACKENDS+" WHERE "+COLUMN_TASK_ID+"=?";
+	private static final String SQL_SELECT_BACKEND_STATUS_BY_TASK_ID = "SELECT "+BACKEND_STATUS_MAPPER.getSelectList()+" FROM "+TABLE_TASK_BACKENDS+" WHERE "+COLUMN_TASK_ID+"=?";
 	private static final int[] SQL_SELECT_BACKEND_STATUS_BY_TASK_ID_TYPES = new int[]{SQLType.LONG.toInt()};
 
-	private static final String SQL_SELECT_BACKEND_STATUS_BY_TASK_STATUS = "SELECT "+Definitions.COLUMN_STATUS+", "+COLUMN_MESSAGE+", "+Definitions.COLUMN_BACKEND_ID+" FROM "+TABLE_TASK_BACKENDS+" WHERE "+Definitions.COLUMN_STATUS+"=? AND "+COLUMN_TASK_ID+"=?";
+	private static final String SQL_SELECT_BACKEND_STATUS_BY_TASK_STATUS = "SELECT "+BACKEND_STATUS_MAPPER.getSelectList()+" FROM "+TABLE_TASK_BACKENDS+" WHERE "+Definitions.COLUMN_STATUS+"=? AND "+COLUMN_TASK_ID+"=?";
 	private static final int[] SQL_SELECT_BACKEND_STATUS_BY_TASK_STATUS_TYPES = new int[]{SQLType.INTEGER.toInt(), SQLType.LONG.toInt()};
 
 	private static final String SQL_SELECT_TASK_METADATA = "SELECT "+Definitions.COLUMN_NAME+", "+Definitions.COLUMN_VALUE+" FROM "+TABLE_TASK_METADATA+" WHERE "+COLUMN_TASK_ID+"=?";
 	private static final int[] SQL_SELECT_TASK_METADATA_TYPES = new int[]{SQLType.LONG.toInt()};
-
-	private static final String SQL_UPDATE_TASK_STATUS = "UPDATE "+TABLE_TASK_BACKENDS+" SET "+Definitions.COLUMN_STATUS+"=?, "+COLUMN_MESSAGE+"=? WHERE "+COLUMN_TASK_ID+"=? AND "+Definitions.COLUMN_BACKEND_ID+"=? LIMIT 1";
-	private static final int[] SQL_UPDATE_TASK_STATUS_TYPES = new int[]{SQLType.INTEGER.toInt(), SQLType.STRING.toInt(), SQLType.LONG.toInt(), SQLType.INTEGER.toInt()};
 	
+	private static final String SQL_SELECT_TASK_STATUS_COUNTS = "SELECT "+toStatusCountList("%s")+" FROM "+TABLE_TASKS+" WHERE "+COLUMN_TASK_ID+"=?";
+	private static final int[] SQL_SELECT_TASK_STATUS_COUNTS_TYPES = new int[]{SQLType.LONG.toInt()};
+	
+	private static final String SQL_UPDATE_TASK_STATUS_COUNTS = "UPDATE "+TABLE_TASKS+" SET "+toStatusCountList("%1$s=%1$s+?")+" WHERE "+COLUMN_TASK_ID+"=?";
+	private static final int[] SQL_UPDATE_TASK_STATUS_COUNTS_TYPES = toStatusCountTypes(new int[0], new int[]{SQLType.LONG.toInt()});
+	
+	private static final String SQL_SELECT_PENDING_TASK_COUNTS = "SELECT "+TABLE_TASK_BACKENDS+"."+Definitions.COLUMN_BACKEND_ID+", "+COLUMN_COUNT+" FROM "+TABLE_TASK_BACKENDS+" INNER JOIN "+TABLE_TASKS+" ON "+TABLE_TASKS+"."+COLUMN_TASK_ID+"="+TABLE_TASK_BACKENDS+"."+COLUMN_TASK_ID+" WHERE "+TABLE_TASK_BACKENDS+"."+Definitions.COLUMN_STATUS+" IN (?,?,?) AND "+TABLE_TASK_BACKENDS+"."+COLUMN_ROW_UPDATED+">? AND "+TABLE_TASKS+"."+COLUMN_TASK_TYPE+"<>? GROUP BY "+TABLE_TASK_BACKENDS+"."+Definitions.COLUMN_BACKEND_ID;
+	private static final int[] SQL_SELECT_PENDING_TASK_COUNTS_SQL_TYPES = new int[]{SQLType.INTEGER.toInt(), SQLType.INTEGER.toInt(), SQLType.INTEGER.toInt(), SQLType.TIMESTAMP.toInt(), SQLType.INTEGER.toInt()};
+	
+	private static final String SQL_SELECT_TASK_HEADER = "SELECT "+TABLE_TASKS+"."+COLUMN_TASK_TYPE+", "+TABLE_TASKS+"."+COLUMN_USER_ID+", "+TABLE_TASK_METADATA+"."+Definitions.COLUMN_NAME+", "+TABLE_TASK_METADATA+"."+Definitions.COLUMN_VALUE+" FROM "+TABLE_TASKS+" LEFT JOIN "+TABLE_TASK_METADATA+" ON "+TABLE_TASKS+"."+COLUMN_TASK_ID+"="+TABLE_TASK_METADATA+"."+COLUMN_TASK_ID+" WHERE "+TABLE_TASKS+"."+COLUMN_TASK_ID+"=?";
+	private static final int[] SQL_SELECT_TASK_HEADER_TYPES = new int[]{SQLType.LONG.toInt()};
+
+	private static final String SQL_SELECT_TASK_HEADER_BY_BACKEND_ID = "SELECT "+TABLE_TASKS+"."+COLUMN_TASK_TYPE+", "+TABLE_TASKS+"."+COLUMN_USER_ID+", "+TABLE_TASK_METADATA+"."+Definitions.COLUMN_NAME+", "+TABLE_TASK_METADATA+"."+Definitions.COLUMN_VALUE+" FROM "+TABLE_TASKS+" INNER JOIN "+TABLE_TASK_BACKENDS+" ON "+TABLE_TASKS+"."+COLUMN_TASK_ID+"="+TABLE_TASK_BACKENDS+"."+COLUMN_TASK_ID+" AND "+TABLE_TASK_BACKENDS+"."+Definitions.COLUMN_BACKEND_ID+"=? LEFT JOIN "+TABLE_TASK_METADATA+" ON "+TABLE_TASKS+"."+COLUMN_TASK_ID+"="+TABLE_TASK_METADATA+"."+COLUMN_TASK_ID+" WHERE "+TABLE_TASKS+"."+COLUMN_TASK_ID+"=?";
+	private static final int[] SQL_SELECT_TASK_HEADER_BY_BACKEND_ID_TYPES = new int[]{SQLType.INTEGER.toInt(), SQLType.LONG.toInt()};
+
 	private static final String SQL_SELECT_TASK_TYPE = "SELECT "+COLUMN_TASK_TYPE+", "+COLUMN_USER_ID+" FROM "+TABLE_TASKS+" WHERE "+COLUMN_TASK_ID+"=?";
 	private static final int[] SQL_SELECT_TASK_TYPE_TYPES = new int[]{SQLType.LONG.toInt()};
 
@@ -98,6 +140,66 @@ public class TaskDAO extends SQLDAO {
 
 	@Autowired
 	private BackendDAO _backendDAO = null;
+	
+	/**
+	 * Maps the rows of the task back-ends table into back-end statuses. The back-end of the status will only have the back-end id set, 
+	 * use {@link TaskDAO#resolveBackends(List)} to set the back-end details.
+	 */
+	private static final class BackendStatusMapper extends SQLRowMapper<BackendStatus> {
+		private final int _backendIdIndex;
+		private final int _messageIndex;
+		private final int _statusIndex;
+		
+		/**
+		 * 
+		 */
+		private BackendStatusMapper(){
+			super(Definitions.COLUMN_BACKEND_ID, Definitions.COLUMN_STATUS, COLUMN_MESSAGE);
+			_backendIdIndex = indexOf(Definitions.COLUMN_BACKEND_ID);
+			_messageIndex = indexOf(COLUMN_MESSAGE);
+			_statusIndex = indexOf(Definitions.COLUMN_STATUS);
+		}
+
+		@Override
+		public BackendStatus mapRow(ResultSet set, int rowNum) throws SQLException {
+			BackendStatus s = new BackendStatus();
+			s.setBackend(new AnalysisBackend(getInteger(set, _backendIdIndex)));
+			s.setStatus(TaskStatus.fromInt(set.getInt(_statusIndex)));
+			s.setMessage(set.getString(_messageIndex));
+			return s;
+		}
+	} // class BackendStatusMapper
+	
+	/**
+	 * 
+	 * @param format the format of a single column, the column name is given as the first format argument
+	 * @return comma separated list of the formatted status count columns in the order of {@link service.tut.pori.contentanalysis.AsyncTask.TaskStatus#values()}
+	 */
+	private static String toStatusCountList(String format){
+		StringBuilder list = new StringBuilder();
+		for(TaskStatus status : TaskStatus.values()){
+			if(list.length() > 0){
+				list.append(", ");
+			}
+			list.append(String.format(format, COLUMN_PREFIX_BACKENDS+status.name().toLowerCase()));
+		}
+		return list.toString();
+	}
+	
+	/**
+	 * 
+	 * @param leadingTypes the types of the parameters before the status counts
+	 * @param trailingTypes the types of the parameters after the status counts
+	 * @return the given types with an integer type for each status count in between
+	 */
+	private static int[] toStatusCountTypes(int[] leadingTypes, int[] trailingTypes){
+		int statusCount = TaskStatus.values().length;
+		int[] types = new int[leadingTypes.length+statusCount+trailingTypes.length];
+		System.arraycopy(leadingTypes, 0, types, 0, leadingTypes.length);
+		Arrays.fill(types, leadingTypes.length, leadingTypes.length+statusCount, SQLType.INTEGER.toInt());
+		System.arraycopy(trailingTypes, 0, types, leadingTypes.length+statusCount, trailingTypes.length);
+		return types;
+	}
 
 	/**
 	 * 
@@ -106,66 +208,80 @@ public class TaskDAO extends SQLDAO {
 	 * @return list of back-ends associated with the given taskId
 	 */
 	public BackendStatusList getBackendStatus(Long taskId, TaskStatus taskStatus){
-		List<Map<String, Object>> rows = null;
+		List<BackendStatus> statuses = null;
 		if(taskStatus == null){
-			rows = getJdbcTemplate().queryForList(SQL_SELECT_BACKEND_STATUS_BY_TASK_ID, new Object[]{taskId}, SQL_SELECT_BACKEND_STATUS_BY_TASK_ID_TYPES);
+			statuses = BACKEND_STATUS_MAPPER.query(getJdbcTemplate(), SQL_SELECT_BACKEND_STATUS_BY_TASK_ID, new Object[]{taskId}, SQL_SELECT_BACKEND_STATUS_BY_TASK_ID_TYPES);
 		}else{
-			rows = getJdbcTemplate().queryForList(SQL_SELECT_BACKEND_STATUS_BY_TASK_STATUS, new Object[]{taskStatus.toInt(), taskId}, SQL_SELECT_BACKEND_STATUS_BY_TASK_STATUS_TYPES);
+			statuses = BACKEND_STATUS_MAPPER.query(getJdbcTemplate(), SQL_SELECT_BACKEND_STATUS_BY_TASK_STATUS, new Object[]{taskStatus.toInt(), taskId}, SQL_SELECT_BACKEND_STATUS_BY_TASK_STATUS_TYPES);
 		}
 
-		if(rows.isEmpty()){
+		if(statuses == null){
+			return null;
+		}
+		
+		BackendStatusList list = BackendStatusList.getBackendStatusList(resolveBackends(statuses));
+		if(BackendStatusList.isEmpty(list)){
+			LOGGER.warn("No valid backends for task, id: "+taskId);
 			return null;
 		}else{
-			BackendStatusList list = new BackendStatusList();
-			for(Iterator<Map<String,Object>> iter = rows.iterator(); iter.hasNext();){
-				BackendStatus backendStatus = extractBackendStatus(iter.next());
-				if(backendStatus == null){
-					LOGGER.warn("Ignored non-existing back-end.");
-				}else{
-					list.setBackendStatus(backendStatus);
-				}
+			return list;
+		}
+	}
+
+	/**
+	 * Note: tasks of type {@link service.tut.pori.contentanalysis.AsyncTask.TaskType#UNDEFINED} are not back-end tasks, and are not counted.
+	 * 
+	 * @param since only tasks updated after the given date are counted, older unfinished tasks are assumed to be abandoned
+	 * @return back-end id - unfinished (not started, pending or executing) task count map, back-ends without unfinished tasks are not included in the map
+	 */
+	public Map<Integer, Long> getPendingTaskCounts(Date since){
+		final Map<Integer, Long> counts = new HashMap<>();
+		getJdbcTemplate().query(SQL_SELECT_PENDING_TASK_COUNTS, new Object[]{TaskStatus.NOT_STARTED.toInt(), TaskStatus.PENDING.toInt(), TaskStatus.EXECUTING.toInt(), since, TaskType.UNDEFINED.toInt()}, SQL_SELECT_PENDING_TASK_COUNTS_SQL_TYPES, new RowCallbackHandler() {
+			@Override
+			public void processRow(ResultSet set) throws SQLException {
+				counts.put(set.getInt(1), set.getLong(2)); // the columns are in the order of SQL_SELECT_PENDING_TASK_COUNTS
 			}
-			if(BackendStatusList.isEmpty(list)){
-				LOGGER.warn("No valid backends for task, id: "+taskId);
-				return null;
-			}else{
-				return list;
-			} // else	
-		} // else
+		});
+		return counts;
 	}
 
 	/**
-	 * extract new BackendStatus from the given row
+	 * Resolve the back-end details for the given statuses. Each distinct back-end is retrieved only once.
 	 * 
-	 * @param row
-	 * @return status extracted from the given row map
+	 * @param statuses list of statuses with back-end ids set
+	 * @return list of statuses with the back-end details set, statuses with non-existent back-ends are not included in the list
 	 */
-	private BackendStatus extractBackendStatus(Map<String, Object> row){
-		BackendStatus s = new BackendStatus();
-		for(Entry<String, Object> e : row.entrySet()){
-			switch (e.getKey()) {
-				case Definitions.COLUMN_BACKEND_ID:
-					AnalysisBackend end = _backendDAO.getBackend((Integer)e.getValue());
-					if(end == null){
-						LOGGER.warn("Detected non-existent backend.");
-						return null;
-					}
-					s.setBackend(end);
-					break;
-				case Definitions.COLUMN_STATUS:
-					s.setStatus(TaskStatus.fromInt((Integer)e.getValue()));
-					break;
-				case COLUMN_MESSAGE:
-					s.setMessage((String) e.getValue());
-					break;
-				case COLUMN_GUID:		// valid column, but not handled by extractor
-				case COLUMN_TASK_ID:	// valid column, but not handled by extractor
-					break;
-				default:
-					throw new IllegalArgumentException("Unhandeled column: "+e.getKey());
+	private List<BackendStatus> resolveBackends(List<BackendStatus> statuses){
+		HashMap<Integer, AnalysisBackend> backends = new HashMap<>();
+		List<BackendStatus> resolved = new ArrayList<>(statuses.size());
+		for(BackendStatus s : statuses){
+			AnalysisBackend end = getBackend(backends, s.getBackendId());
+			if(end == null){
+				LOGGER.warn("Ignored non-existing back-end.");
+			}else{
+				s.setBackend(end);
+				resolved.add(s);
 			}
-		}	// for
-		return s;
+		}
+		return resolved;
+	}
+	
+	/**
+	 * 
+	 * @param backends map of already resolved back-ends, new back-ends will be added to the map when resolved. Unknown back-ends are stored as null values.
+	 * @param backendId
+	 * @return the back-end or null if the back-end does not exist
+	 */
+	protected AnalysisBackend getBackend(Map<Integer, AnalysisBackend> backends, Integer backendId){
+		if(backends.containsKey(backendId)){
+			return backends.get(backendId);
+		}
+		AnalysisBackend end = _backendDAO.getBackend(backendId);
+		if(end == null){
+			LOGGER.warn("Detected non-existent backend, id: "+backendId);
+		}
+		backends.put(backendId, end);
+		return end;
 	}
 	
 	/**
@@ -197,12 +313,128 @@ public class TaskDAO extends SQLDAO {
 		}
 	}
 
+	/**
+	 * Retrieves the task type, the task's owner/creator and the task metadata (including task parameters) with a single query, and sets them to the given details.
+	 * 
+	 * @param backendId if null, match is made simply by the task id. The parameter can be used to check whether the given back-end is associated with the task id.
+	 * @param details details with the task id set
+	 * @return true if the task was found, false if the given task does not exist or if the backend is not set for the task
+	 * @throws IllegalArgumentException on bad task parameters
+	 * @see #getTaskType(Integer, Long)
+	 * @see #getTaskMetadata(AbstractTaskDetails)
+	 */
+	protected boolean getTaskHeader(Integer backendId, AbstractTaskDetails details) throws IllegalArgumentException {
+		Long taskId = details.getTaskId();
+		List<Map<String, Object>> rows = null;
+		if(backendId == null){
+			LOGGER.debug("Retrieving task header without backend id filter.");
+			rows = getJdbcTemplate().queryForList(SQL_SELECT_TASK_HEADER, new Object[]{taskId}, SQL_SELECT_TASK_HEADER_TYPES);
+		}else{
+			rows = getJdbcTemplate().queryForList(SQL_SELECT_TASK_HEADER_BY_BACKEND_ID, new Object[]{backendId, taskId}, SQL_SELECT_TASK_HEADER_BY_BACKEND_ID_TYPES);
+		}
+		if(rows.isEmpty()){
+			LOGGER.warn("Task, id: "+taskId+" was not found for backend, id: "+backendId);
+			return false;
+		}
+		
+		Map<String, Object> row = rows.get(0);
+		Integer taskType = (Integer) row.get(COLUMN_TASK_TYPE);
+		if(taskType == null){
+			LOGGER.warn("Task, id: "+taskId+" was not found for backend, id: "+backendId);
+			return false;
+		}
+		details.setTaskType(TaskType.fromInt(taskType));
+		Long userId = (Long) row.get(COLUMN_USER_ID);
+		details.setUserId((userId == null ? null : new UserIdentity(userId)));
+		
+		HashMap<String, String> metadata = new HashMap<>(rows.size());
+		for(Map<String, Object> r : rows){
+			String name = (String) r.get(Definitions.COLUMN_NAME);
+			if(name != null){ // null on the left join if the task has no metadata
+				metadata.put(name, (String) r.get(Definitions.COLUMN_VALUE));
+			}
+		}	// for
+		if(metadata.isEmpty()){
+			LOGGER.debug("No metadata for task, id: "+taskId);
+		}else{
+			details.setMetadata(metadata);
+			getTaskParameters(details, metadata);
+		}
+		return true;
+	}
+	
+	/**
+	 * 
+	 * @param backendId
+	 * @param taskId
+	 * @return true if the given back-end is associated with the given task
+	 */
+	protected boolean hasBackend(Integer backendId, Long taskId) {
+		return (getJdbcTemplate().queryForObject(SQL_CHECK_TASK_BACKEND, new Object[]{backendId, taskId}, SQL_CHECK_TASK_BACKEND_TYPES, Long.class) > 0);
+	}
+	
+	/**
+	 * 
+	 * @param dataGroups
+	 * @return the cache key for the given data groups
+	 */
+	private static String toCacheKey(DataGroups dataGroups) {
+		return (DataGroups.isEmpty(dataGroups) ? "" : dataGroups.toDataGroupString());
+	}
+	
+	/**
+	 * Note: the returned object is shared, and should not be modified or returned to the caller as-is.
+	 * 
+	 * @param cls the expected class of the details
+	 * @param dataGroups the data groups used to retrieve the details
+	 * @param taskId
+	 * @return the cached task details or null if not cached, if the cache entry has expired or if the cached details are not of the given class
+	 */
+	protected static <T extends AbstractTaskDetails> T getCachedTask(Class<T> cls, DataGroups dataGroups, Long taskId) {
+		ConcurrentMap<String, AbstractTaskDetails> tasks = TASK_CACHE.getIfPresent(taskId);
+		if(tasks == null){
+			return null;
+		}
+		AbstractTaskDetails details = tasks.get(toCacheKey(dataGroups));
+		return (cls.isInstance(details) ? cls.cast(details) : null);
+	}
+	
+	/**
+	 * Cache the given details for a short period of time. The details must not be modified after this call.
+	 * 
+	 * @param dataGroups the data groups used to retrieve the details
+	 * @param details
+	 */
+	protected static void setCachedTask(DataGroups dataGroups, AbstractTaskDetails details) {
+		Long taskId = details.getTaskId();
+		ConcurrentMap<String, AbstractTaskDetails> tasks = TASK_CACHE.getIfPresent(taskId);
+		if(tasks == null){
+			tasks = new ConcurrentHashMap<>();
+			ConcurrentMap<String, AbstractTaskDetails> previous = TASK_CACHE.asMap().putIfAbsent(taskId, tasks);
+			if(previous != null){
+				tasks = previous;
+			}
+		}
+		tasks.put(toCacheKey(dataGroups), details);
+	}
+	
+	/**
+	 * Remove all cached details of the given task.
+	 * 
+	 * @param taskId
+	 */
+	protected static void invalidateCachedTask(Long taskId) {
+		TASK_CACHE.invalidate(taskId);
+	}
+
 	
 	/**
+	 * Note: if the task has a back-end id, the back-end will be added to the status list of the task with status {@link service.tut.pori.contentanalysis.AsyncTask.TaskStatus#NOT_STARTED}, if it is not already present.
 	 * 
 	 * @param details
+	 * @return the target back-ends of the task or null if none
 	 */
-	protected void insertTaskBackends(AbstractTaskDetails details){
+	private BackendStatusList getTaskBackends(AbstractTaskDetails details){
 		BackendStatusList statuses = details.getBackends();
 		if(statuses == null){
 			LOGGER.debug("No backendStatusList, creating a new one...");
@@ -218,21 +450,8 @@ public class TaskDAO extends SQLDAO {
 				statuses.setBackendStatus(s);
 			}
 		}
-
-		Object[] values = new Object[]{details.getTaskId(), null, null, null};
-
-		if(BackendStatusList.isEmpty(statuses)){
-			LOGGER.warn("No backends given, the task may not start properly. Task, id: "+values[0]);
-			return;
-		}
-
-		JdbcTemplate t = getJdbcTemplate();
-		for(BackendStatus s : statuses.getBackendStatuses()){
-			values[1] = s.getBackendId();
-			values[2] = s.getStatus().toInt();
-			values[3] = s.getMessage();
-			t.update(SQL_INSERT_TASK_BACKEND, values, SQL_INSERT_TASK_BACKEND_TYPES);
-		}
+		
+		return (BackendStatusList.isEmpty(statuses) ? null : statuses);
 	}
 	
 	/**
@@ -241,32 +460,52 @@ public class TaskDAO extends SQLDAO {
 	 */
 	protected void getBackendStatusList(AbstractTaskDetails details) {
 		Long taskId = details.getTaskId();
-		List<Map<String, Object>> rows = getJdbcTemplate().queryForList(SQL_GET_BACKEND_STATUSES, new Object[]{taskId}, SQL_GET_BACKEND_STATUSES_SQL_TYPES);
-		if(rows.isEmpty()){
+		List<BackendStatus> statuses = BACKEND_STATUS_MAPPER.query(getJdbcTemplate(), SQL_GET_BACKEND_STATUSES, new Object[]{taskId}, SQL_GET_BACKEND_STATUSES_SQL_TYPES);
+		if(statuses == null){
 			LOGGER.warn("No back-end for task, id: "+taskId);
 		}else{
-			BackendStatusList statuses = new BackendStatusList();
-			for(Map<String, Object> row : rows){
-				statuses.setBackendStatus(extractBackendStatus(row));
-			}
-			details.setBackends(statuses);
+			details.setBackends(BackendStatusList.getBackendStatusList(resolveBackends(statuses)));
 		}
 	}
 	
 	/**
-	 * Update the given status list for the given task.
+	 * Update the given status list for the given task. All statuses and the status counts of the task are updated within a single transaction.
 	 * 
 	 * @param status
 	 * @param taskId
+	 * @see #updateTaskStatus(BackendStatus, Long)
 	 */
 	public void updateTaskStatus(BackendStatusList status, Long taskId){
 		if(BackendStatusList.isEmpty(status)){
 			LOGGER.debug("Status list was empty for task, id: "+taskId);
 			return;
 		}
-		for(BackendStatus s : status.getBackendStatuses()){
-			updateTaskStatus(s, taskId);
+		updateTaskStatus(status.getBackendStatuses(), taskId);
+	}
+	
+	/**
+	 * The number of back-ends in each status is maintained in the tasks table on each back-end status update, and thus, the combined status is resolved by reading a single row.
+	 * 
+	 * @param taskId
+	 * @return the combined status of all back-ends of the given task or null if the task does not exist or it has no back-ends
+	 * @see service.tut.pori.contentanalysis.AsyncTask.TaskStatus#getCombinedTaskStatus(Map)
+	 */
+	public TaskStatus getTaskStatus(Long taskId){
+		final EnumMap<TaskStatus, Integer> counts = new EnumMap<>(TaskStatus.class);
+		getJdbcTemplate().query(SQL_SELECT_TASK_STATUS_COUNTS, new Object[]{taskId}, SQL_SELECT_TASK_STATUS_COUNTS_TYPES, new RowCallbackHandler() {
+			@Override
+			public void processRow(ResultSet set) throws SQLException {
+				int column = 0;
+				for(TaskStatus status : TaskStatus.values()){ // the columns are in the order of the statuses
+					counts.put(status, set.getInt(++column));
+				}
+			}
+		});
+		if(counts.isEmpty()){
+			LOGGER.debug("No task, id: "+taskId);
+			return null;
 		}
+		return TaskStatus.getCombinedTaskStatus(counts);
 	}
 	
 	/**
@@ -276,12 +515,18 @@ public class TaskDAO extends SQLDAO {
 	 * @return the task status for the given backend for the given task, or null if no such task is given for the backend
 	 */
 	public BackendStatus getBackendStatus(Integer backendId, Long taskId){
-		List<Map<String, Object>> rows = getJdbcTemplate().queryForList(SQL_SELECT_BACKEND_STATUS_BY_BACKEND_ID, new Object[]{backendId, taskId}, SQL_SELECT_BACKEND_STATUS_BY_BACKEND_ID_TYPES);
-		if(rows.isEmpty()){
+		List<BackendStatus> statuses = BACKEND_STATUS_MAPPER.query(getJdbcTemplate(), SQL_SELECT_BACKEND_STATUS_BY_BACKEND_ID, new Object[]{backendId, taskId}, SQL_SELECT_BACKEND_STATUS_BY_BACKEND_ID_TYPES);
+		if(statuses == null){
 			return null;
-		}else{
-			return extractBackendStatus(rows.get(0));
 		}
+		AnalysisBackend end = _backendDAO.getBackend(backendId);
+		if(end == null){
+			LOGGER.warn("Detected non-existent backend, id: "+backendId);
+			return null;
+		}
+		BackendStatus status = statuses.get(0);
+		status.setBackend(end);
+		return status;
 	}
 	
 	/**
@@ -293,11 +538,13 @@ public class TaskDAO extends SQLDAO {
 	 * @throws IllegalArgumentException on bad values
 	 */
 	public AbstractTaskDetails getTask(Integer backendId, DataGroups dataGroups, Limits limits, Long taskId) throws IllegalArgumentException{
-		Pair<TaskType, UserIdentity> type = getTaskType(backendId, taskId);
-		if(type == null){
+		AbstractTaskDetailsImpl details = new AbstractTaskDetailsImpl(null);
+		details.setTaskId(taskId);
+		if(!getTaskHeader(backendId, details)){
 			LOGGER.warn("Failed to resolve task type.");
 			return null;
 		}
+		details.setBackendId(backendId);
 
 		if(backendId == null){
 			LOGGER.debug("No backend id given, will not check data groups.");
@@ -310,13 +557,6 @@ public class TaskDAO extends SQLDAO {
 			dataGroups = backend.getDefaultTaskDataGroups();
 		}
 
-		AbstractTaskDetailsImpl details = new AbstractTaskDetailsImpl(type.getLeft());
-		details.setBackendId(backendId);
-		details.setTaskId(taskId);
-		details.setUserId(type.getRight());
-
-		getTaskMetadata(details);
-
 		if(DataGroups.hasDataGroup(Definitions.DATA_GROUP_BACKEND_STATUS, dataGroups)){
 			getBackendStatusList(details);
 		}
@@ -327,98 +567,208 @@ public class TaskDAO extends SQLDAO {
 	/**
 	 * Update the given status for the given task. If the status does not previously exist for this backend, new database entry is automatically created.
 	 * 
+	 * The status is updated with a single upsert, and the back-end status counts of the task are updated within the same transaction.
+	 * 
 	 * @param status
 	 * @param taskId
 	 */
-	public void updateTaskStatus(final BackendStatus status, final Long taskId){
+	public void updateTaskStatus(BackendStatus status, Long taskId){
+		updateTaskStatus(Collections.singletonList(status), taskId);
+	}
+	
+	/**
+	 * The previous status of each back-end is taken from the upsert, and the status counts of the task are changed by the difference with a single update after all upserts.
+	 * The task row is not read or explicitly locked, and it is the last row written in the transaction, so concurrent updates by different back-ends of the same task only wait for each other's commit.
+	 * 
+	 * @param statuses
+	 * @param taskId
+	 */
+	private void updateTaskStatus(Collection<BackendStatus> statuses, final Long taskId){
+		final List<BackendStatus> sorted = new ArrayList<>(statuses);
+		Collections.sort(sorted, new Comparator<BackendStatus>() { // lock the status rows always in the same order
+			@Override
+			public int compare(BackendStatus o1, BackendStatus o2) {
+				return o1.getBackendId().compareTo(o2.getBackendId());
+			}
+		});
 		getTransactionTemplate().execute(new TransactionCallback<Void>() {
 
 			@Override
 			public Void doInTransaction(TransactionStatus s) {
 				JdbcTemplate t = getJdbcTemplate();
-				Integer backendId = status.getBackendId();
-				if(t.queryForObject(SQL_CHECK_TASK_BACKEND, new Object[]{backendId, taskId}, SQL_CHECK_TASK_BACKEND_TYPES, Long.class) > 0){ // already exists
-					if(t.update(SQL_UPDATE_TASK_STATUS, new Object[]{status.getStatus().toInt(), status.getMessage(), taskId, status.getBackendId()}, SQL_UPDATE_TASK_STATUS_TYPES) != 1){
-						LOGGER.debug("Nothing updated for task, id: "+taskId+", backend, id: "+status.getBackendId());
+				int[] changes = new int[TaskStatus.values().length]; // in the order of the statuses
+				boolean changed = false;
+				for(BackendStatus status : sorted){
+					TaskStatus current = status.getStatus();
+					t.update(SQL_UPSERT_TASK_BACKEND, new Object[]{taskId, status.getBackendId(), current.toInt(), status.getMessage()}, SQL_INSERT_TASK_BACKEND_TYPES);
+					Integer previous = t.queryForObject(SQL_SELECT_PREVIOUS_STATUS, Integer.class);
+					if(previous == null){ // new back-end for the task
+						++changes[current.ordinal()];
+						changed = true;
+					}else if(previous != current.toInt()){
+						--changes[TaskStatus.fromInt(previous).ordinal()];
+						++changes[current.ordinal()];
+						changed = true;
+					}
+				}
+				
+				if(!changed){
+					LOGGER.debug("No back-end status changes for task, id: "+taskId);
+				}else{
+					Object[] values = new Object[changes.length+1];
+					for(int i=0;i<changes.length;++i){
+						values[i] = changes[i];
+					}
+					values[changes.length] = taskId;
+					if(t.update(SQL_UPDATE_TASK_STATUS_COUNTS, values, SQL_UPDATE_TASK_STATUS_COUNTS_TYPES) < 1){
+						LOGGER.warn("Updated back-end status for non-existent task, id: "+taskId);
 					}
-				}else{ // add new status
-					t.update(SQL_INSERT_TASK_BACKEND, new Object[]{backendId, status.getStatus().toInt(), status.getMessage()}, SQL_INSERT_TASK_BACKEND_TYPES);
 				}
 				return null;
 			}
 		});
+		invalidateCachedTask(taskId);
 	} // updateTaskStatus
 	
 	/**
-	 * This will create the basic task and insert metadata and back-ends
+	 * This will create the basic task and insert metadata, back-ends and the task content
 	 * 
 	 * @param details
 	 * @return created row id or null on failure
 	 * @throws IllegalArgumentException
+	 * @throws UnsupportedOperationException if the task content is not supported by this DAO
+	 * @see #insertTasks(Collection)
 	 */
-	public Long insertTask(AbstractTaskDetails details) throws IllegalArgumentException{
-		TaskType type = details.getTaskType();
-		if(type == null){
-			throw new IllegalArgumentException("No task type given.");
-		}
-		SimpleJdbcInsert taskInsert = new SimpleJdbcInsert(getJdbcTemplate());
-		taskInsert.withTableName(TABLE_TASKS);
-		taskInsert.setGeneratedKeyName(COLUMN_TASK_ID);
-		taskInsert.usingColumns(SQL_COLUMNS_INSERT_TASK);
-		taskInsert.withoutTableColumnMetaDataAccess();
-
-		HashMap<String, Object> parameters = new HashMap<>(SQL_COLUMNS_INSERT_TASK.length);
-		parameters.put(COLUMN_TASK_TYPE, type.toInt());
-		parameters.put(COLUMN_ROW_CREATED, null);
-		parameters.put(COLUMN_USER_ID, details.getUserIdValue());
-		Number key = taskInsert.executeAndReturnKey(parameters);
-		if(key == null){
-			LOGGER.error("Failed to add new task.");
-			return null;
+	public Long insertTask(AbstractTaskDetails details) throws IllegalArgumentException, UnsupportedOperationException{
+		List<Long> taskIds = insertTasks(Collections.singletonList(details));
+		return (taskIds == null ? null : taskIds.get(0));
+	}
+	
+	/**
+	 * This will create the basic tasks and insert metadata, back-ends and the task content for all the tasks in a single transaction.
+	 * 
+	 * The generated task ids are set to the given details on success, and cleared on failure.
+	 * 
+	 * @param tasks
+	 * @return created row ids in the iteration order of the given collection or null on failure
+	 * @throws IllegalArgumentException
+	 * @throws UnsupportedOperationException if the task content is not supported by this DAO
+	 * @see #insertTaskContent(AbstractTaskDetails)
+	 */
+	public List<Long> insertTasks(final Collection<? extends AbstractTaskDetails> tasks) throws IllegalArgumentException, UnsupportedOperationException{
+		if(tasks == null || tasks.isEmpty()){
+			throw new IllegalArgumentException("No tasks given.");
 		}
-
-		Long taskId = key.longValue();
-		details.setTaskId(taskId);
-
-		insertTaskMetadata(details);
-		insertTaskParameters(details);
-		insertTaskBackends(details);
-
-		return taskId;
+		for(AbstractTaskDetails details : tasks){
+			if(details.getTaskType() == null){
+				throw new IllegalArgumentException("No task type given.");
+			}
+		}
+		
+		List<Long> taskIds = null;
+		try{
+			taskIds = getTransactionTemplate().execute(new TransactionCallback<List<Long>>() {
+				@Override
+				public List<Long> doInTransaction(TransactionStatus status) {
+					List<Long> taskIds = new ArrayList<>(tasks.size());
+					List<Object[]> metadata = new ArrayList<>();
+					List<Object[]> backends = new ArrayList<>();
+					for(AbstractTaskDetails details : tasks){
+						BackendStatusList statuses = getTaskBackends(details);
+						Long taskId = insertAndReturnKey(SQL_INSERT_TASK, getTaskValues(details, statuses));
+						if(taskId == null){
+							LOGGER.error("Failed to add new task.");
+							status.setRollbackOnly();
+							return null;
+						}
+						taskIds.add(taskId);
+						details.setTaskId(taskId);
+						insertTaskContent(details);
+						
+						addTaskMetadata(details.getMetadata(), taskId, metadata);
+						addTaskParameters(details.getTaskParameters(), taskId, metadata);
+						if(statuses == null){
+							LOGGER.warn("No backends given, the task may not start properly. Task, id: "+taskId);
+						}else{
+							for(BackendStatus s : statuses.getBackendStatuses()){
+								backends.add(new Object[]{taskId, s.getBackendId(), s.getStatus().toInt(), s.getMessage()});
+							}
+						}
+					}
+					
+					JdbcTemplate t = getJdbcTemplate();
+					if(!metadata.isEmpty()){
+						t.batchUpdate(SQL_INSERT_TASK_METADATA, metadata, SQL_INSERT_TASK_METADATA_TYPES);
+					}
+					if(!backends.isEmpty()){
+						t.batchUpdate(SQL_INSERT_TASK_BACKEND, backends, SQL_INSERT_TASK_BACKEND_TYPES);
+					}
+					return taskIds;
+				}
+			});
+		} finally {
+			if(taskIds == null){ // the transaction was rolled back, the ids are no longer valid
+				for(AbstractTaskDetails details : tasks){
+					details.setTaskId(null);
+				}
+			}
+		}
+		return taskIds;
 	}
 	
 	/**
 	 * 
 	 * @param details
+	 * @param statuses the back-ends of the task, may be null
+	 * @return the values for {@link #SQL_INSERT_TASK}
 	 */
-	protected void insertTaskParameters(AbstractTaskDetails details){
-		TaskParameters params = details.getTaskParameters();
+	private Object[] getTaskValues(AbstractTaskDetails details, BackendStatusList statuses){
+		int[] counts = new int[TaskStatus.values().length]; // in the order of the statuses
+		if(statuses != null){
+			for(BackendStatus s : statuses.getBackendStatuses()){
+				++counts[s.getStatus().ordinal()];
+			}
+		}
+		Object[] values = new Object[2+counts.length];
+		values[0] = details.getTaskType().toInt();
+		values[1] = details.getUserIdValue();
+		for(int i=0;i<counts.length;++i){
+			values[2+i] = counts[i];
+		}
+		return values;
+	}
+	
+	/**
+	 * Insert the content of the given task, such as the task GUIDs.
+	 * 
+	 * This is called within the task creation transaction, after the task has been created and the task id has been set to the details.
+	 * The default implementation does nothing as the basic task only consists of metadata and back-ends.
+	 * 
+	 * @param details
+	 * @throws UnsupportedOperationException if the task content is not supported by this DAO
+	 */
+	protected void insertTaskContent(AbstractTaskDetails details) throws UnsupportedOperationException {
+		// nothing needed
+	}
+	
+	/**
+	 * 
+	 * @param params
+	 * @param taskId
+	 * @param rows the metadata rows will be added to this list
+	 */
+	private void addTaskParameters(TaskParameters params, Long taskId, List<Object[]> rows){
 		if(params == null){
 			LOGGER.debug("No task parameters.");
 			return;
 		}
 		
-		Long taskId = details.getTaskId();
 		Map<String, String> metadata = params.toMetadata();
 		if(metadata == null || metadata.isEmpty()){
 			LOGGER.debug("No task parameter metadata for task, id: "+taskId);
 		}else{
 			metadata.put(METADATA_TASK_PARAMETER_CLASS, params.getClass().getName());
-			insertTaskMetadata(metadata, taskId);
-		}
-	}
-
-	/**
-	 * 
-	 * @param details
-	 */
-	protected void insertTaskMetadata(AbstractTaskDetails details){
-		Long taskId = details.getTaskId();
-		Map<String, String> metadata = details.getMetadata();
-		if(metadata == null || metadata.isEmpty()){
-			LOGGER.debug("No metadata for task, id: "+taskId);
-		}else{
-			insertTaskMetadata(metadata, taskId);
+			addTaskMetadata(metadata, taskId, rows);
 		}
 	}
 	
@@ -426,14 +776,15 @@ public class TaskDAO extends SQLDAO {
 	 * 
 	 * @param metadata
 	 * @param taskId
+	 * @param rows the metadata rows will be added to this list
 	 */
-	private void insertTaskMetadata(Map<String, String> metadata, Long taskId) {
-		JdbcTemplate t = getJdbcTemplate();
-		Object[] ob = {taskId, null, null};
+	private void addTaskMetadata(Map<String, String> metadata, Long taskId, List<Object[]> rows) {
+		if(metadata == null || metadata.isEmpty()){
+			LOGGER.debug("No metadata for task, id: "+taskId);
+			return;
+		}
 		for(Entry<String, String> e : metadata.entrySet()){
-			ob[1] = e.getKey();
-			ob[2] = e.getValue();
-			t.update(SQL_INSERT_TASK_METADATA, ob, SQL_INSERT_TASK_METADATA_TYPES);
+			rows.add(new Object[]{taskId, e.getKey(), e.getValue()});
 		}
 	}
 	
@@ -0,0 +1,101 @@
+/**
+ * Copyright 2014 Tampere University of Technology, Pori Department
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package service.tut.pori.contentanalysis.video;
+
+import java.util.Arrays;
+
+import org.apache.commons.codec.binary.Base64;
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * Compact encoding for timecode arrays.
+ * 
+ * The timecodes are given as array of seconds in the form [start1, end1, start2, end2, ...]. 
+ * The values are rounded to milliseconds, each value is stored as the difference to the previous value (zig-zag and variable-length encoded), 
+ * and the resulting bytes are encoded as Base64 string. For ordered timecodes, this takes typically 2-3 bytes per value. 
+ */
+public final class TimecodeCodec {
+	private static final double MILLISECONDS = 1000.0;
+
+	/**
+	 * 
+	 */
+	private TimecodeCodec(){
+		// nothing needed
+	}
+
+	/**
+	 * 
+	 * @param timecodes timecodes in seconds
+	 * @return the encoded timecodes or null if null or empty array was passed
+	 */
+	public static String encode(double[] timecodes){
+		if(timecodes == null || timecodes.length < 1){
+			return null;
+		}
+		byte[] bytes = new byte[timecodes.length*10]; // maximum length of a variable length long
+		int length = 0;
+		long previous = 0;
+		for(double timecode : timecodes){
+			long value = Math.round(timecode*MILLISECONDS);
+			long delta = value-previous;
+			previous = value;
+			for(long zigzag = (delta << 1) ^ (delta >> 63);; zigzag >>>= 7){
+				if((zigzag & ~0x7FL) == 0){
+					bytes[length++] = (byte) zigzag;
+					break;
+				}
+				bytes[length++] = (byte) ((zigzag & 0x7F) | 0x80);
+			}
+		}
+		return Base64.encodeBase64String(Arrays.copyOf(bytes, length));
+	}
+
+	/**
+	 * 
+	 * @param encoded
+	 * @return the decoded timecodes in seconds or null if null or empty string was passed
+	 * @throws IllegalArgumentException on malformed data
+	 */
+	public static double[] decode(String encoded) throws IllegalArgumentException{
+		if(StringUtils.isBlank(encoded)){
+			return null;
+		}
+		if(!Base64.isBase64(encoded)){
+			throw new IllegalArgumentException("Malformed timecode data.");
+		}
+		byte[] bytes = Base64.decodeBase64(encoded);
+		double[] timecodes = new double[bytes.length];
+		int count = 0;
+		long previous = 0;
+		for(int i=0; i<bytes.length;){
+			long zigzag = 0;
+			for(int shift = 0;; shift += 7){
+				if(i == bytes.length || shift > 63){
+					throw new IllegalArgumentException("Malformed timecode data.");
+				}
+				byte b = bytes[i++];
+				zigzag |= (long) (b & 0x7F) << shift;
+				if(b >= 0){
+					break;
+				}
+			}
+			previous += (zigzag >>> 1) ^ -(zigzag & 1);
+			timecodes[count++] = previous/MILLISECONDS;
+		}
+		return Arrays.copyOf(timecodes, count);
+	}
+}
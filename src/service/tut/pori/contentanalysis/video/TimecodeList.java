@@ -106,6 +106,75 @@ public class TimecodeList {
 	}
 	
 	/**
+	 * 
+	 * @param timecodes if null or empty this does nothing
+	 * @return the timecodes as an array of form [start1, end1, start2, end2, ...] or null if null or empty list was given
+	 * @throws IllegalArgumentException on missing values
+	 */
+	public static double[] toArray(TimecodeList timecodes) throws IllegalArgumentException{
+		if(timecodes == null || timecodes.isEmpty()){
+			LOGGER.debug("No timecodes given.");
+			return null;
+		}
+		double[] retval = new double[timecodes.getTimecodes().size()*2];
+		int i = 0;
+		for(Timecode timecode : timecodes.getTimecodes()){
+			if(timecode == null || timecode.getStart() == null){ // start returns end if start is not set, and vice versa
+				throw new IllegalArgumentException("Timecode data was missing.");
+			}
+			retval[i++] = timecode.getStart();
+			retval[i++] = timecode.getEnd();
+		}
+		return retval;
+	}
+
+	/**
+	 * 
+	 * @param timecodes array of form [start1, end1, start2, end2, ...], if null or empty, this does nothing
+	 * @return a populated timecode list or null if null or empty array was given
+	 * @throws IllegalArgumentException on bad data
+	 */
+	public static TimecodeList fromArray(double[] timecodes) throws IllegalArgumentException{
+		if(timecodes == null || timecodes.length < 1){
+			LOGGER.debug("No timecodes given.");
+			return null;
+		}
+		if(timecodes.length % 2 != 0){
+			throw new IllegalArgumentException("Malformed timecode data.");
+		}
+		List<Timecode> list = new ArrayList<>(timecodes.length/2);
+		for(int i=0; i<timecodes.length; i+=2){
+			list.add(new Timecode(timecodes[i], timecodes[i+1]));
+		}
+		TimecodeList timecodeList = new TimecodeList();
+		timecodeList.setTimecodes(list);
+		return timecodeList;
+	}
+
+	/**
+	 * 
+	 * @param timecodes if null or empty this does nothing
+	 * @return the timecodes in compact encoding or null if null or empty list was given
+	 * @throws IllegalArgumentException on missing values
+	 * @see service.tut.pori.contentanalysis.video.TimecodeCodec
+	 */
+	public static String getEncodedTimecodes(TimecodeList timecodes) throws IllegalArgumentException{
+		return TimecodeCodec.encode(toArray(timecodes));
+	}
+
+	/**
+	 * 
+	 * @param encodedTimecodes timecodes in compact encoding, if null or empty, this does nothing
+	 * @return a populated timecode list or null if null or empty string was given
+	 * @throws IllegalArgumentException on bad data
+	 * @see service.tut.pori.contentanalysis.video.TimecodeCodec
+	 */
+	public static TimecodeList populateTimecodes(String encodedTimecodes) throws IllegalArgumentException{
+		return fromArray(TimecodeCodec.decode(encodedTimecodes));
+	}
+
+	/**
+	 * Note: the list format is only used for reading timecodes stored in the older format.
 	 * 
 	 * @param solrTimecodes if null or empty, this does nothing
 	 * @return a populated timecode list
@@ -95,7 +95,7 @@ public class VideoAnalysisService {
 	 */
 	@HTTPServiceMethod(name = service.tut.pori.contentanalysis.Definitions.METHOD_TASK_FINISHED, acceptedMethods={core.tut.pori.http.Definitions.METHOD_POST})
 	public void taskFinished(@HTTPMethodParameter(name = InputStreamParameter.PARAMETER_DEFAULT_NAME, bodyParameter = true) InputStreamParameter xml) {
-		VideoContentCore.taskFinished(_formatter.toObject(xml.getValue(), VideoTaskResponse.class));
+		VideoContentCore.taskFinished(xml.getValue());
 	}
 	
 	/**
@@ -15,6 +15,7 @@
  */
 package service.tut.pori.contentanalysis.video;
 
+import java.io.InputStream;
 import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.List;
@@ -42,6 +43,7 @@ import core.tut.pori.http.RedirectResponse;
 import core.tut.pori.http.parameters.DataGroups;
 import core.tut.pori.http.parameters.Limits;
 import core.tut.pori.users.UserIdentity;
+import core.tut.pori.utils.XMLChunkReader;
 
 /**
  * Video content analysis core methods.
@@ -115,6 +117,34 @@ public final class VideoContentCore {
 		return ServiceInitializer.getDAOHandler().getDAO(VideoTaskDAO.class).getTask(backendId, dataGroups, limits, taskId);
 	}
 
+	/**
+	 * Reads the task response from the given stream. Results for analysis tasks are processed in chunks of {@value service.tut.pori.contentanalysis.CAContentCore#TASK_RESULT_CHUNK_SIZE} videos,
+	 * if the response header precedes the video list, other responses are read completely and passed to {@link #taskFinished(VideoTaskResponse)}.
+	 * 
+	 * @param xml
+	 * @throws IllegalArgumentException
+	 * @see service.tut.pori.contentanalysis.CAContentCore#taskFinished(InputStream)
+	 */
+	public static void taskFinished(InputStream xml) throws IllegalArgumentException{
+		if(xml == null){
+			throw new IllegalArgumentException("Failed to process response.");
+		}
+		try(XMLChunkReader<VideoTaskResponse, Video> reader = new XMLChunkReader<>(xml, VideoTaskResponse.class, Definitions.ELEMENT_VIDEOLIST, Definitions.ELEMENT_VIDEO, Video.class, CAContentCore.TASK_RESULT_CHUNK_SIZE)){
+			VideoTaskResponse response = reader.getHeader();
+			if(response.getTaskType() == TaskType.ANALYSIS && response.getStatus() != null && response.getTaskId() != null && response.getBackendId() != null){
+				LOGGER.debug("TaskId: "+response.getTaskId()+", backendId: "+response.getBackendId()+", streaming results...");
+				VideoAnalysisTask.taskFinished(reader);
+			}else{
+				List<Video> videos = reader.readAll();
+				response = reader.getHeader();
+				if(videos != null){
+					response.setVideoList(VideoList.getVideoList(videos, null));
+				}
+				taskFinished(response);
+			}
+		}
+	}
+
 	/**
 	 * 
 	 * @param response
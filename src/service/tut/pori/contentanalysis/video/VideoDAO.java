@@ -15,10 +15,12 @@
  */
 package service.tut.pori.contentanalysis.video;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Date;
 import java.util.EnumSet;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
@@ -49,6 +51,7 @@ import core.tut.pori.dao.filter.AbstractQueryFilter;
 import core.tut.pori.dao.filter.AndQueryFilter;
 import core.tut.pori.dao.filter.AndSubQueryFilter;
 import core.tut.pori.dao.filter.OrQueryFilter;
+import core.tut.pori.dao.filter.RangeQueryFilter;
 import core.tut.pori.http.parameters.DataGroups;
 import core.tut.pori.http.parameters.Limits;
 import core.tut.pori.http.parameters.SortOptions;
@@ -208,7 +211,7 @@ public class VideoDAO extends SolrDAO {
 	public AccessDetails getAccessDetails(UserIdentity authenticatedUser, String guid) {
 		SolrQueryBuilder solr = new SolrQueryBuilder();
 		solr.addFields(FIELDS_GET_ACCESS_DETAILS);
-		solr.addCustomFilter(new AndQueryFilter(SOLR_FIELD_ID, guid));
+		solr.addCustomFilter(new AndQueryFilter(SOLR_FIELD_ID, guid), false);
 
 		List<Video> videos = getSolrTemplate(BEAN_ID_SOLR_SERVER).queryForList(solr.toSolrQuery(Definitions.ELEMENT_VIDEOLIST), Video.class);
 		if(videos == null){
@@ -230,6 +233,52 @@ public class VideoDAO extends SolrDAO {
 	public VideoList getVideos(DataGroups dataGroups, Collection<String> guids, Limits limits, EnumSet<ServiceType> serviceTypes, long[] userIdFilter){
 		return getVideoList(dataGroups, guids, limits, serviceTypes, userIdFilter);
 	}
+
+	/**
+	 * Retrieve the GUIDs of the videos in the order of GUIDs. This can be used to iterate through large sets of videos without retrieving the video details.
+	 * 
+	 * @param guids optional filter
+	 * @param afterGUID optional, if given only GUIDs following this GUID will be returned
+	 * @param maxItems maximum number of GUIDs to return
+	 * @param serviceTypes optional filter
+	 * @param userIdFilter optional filter
+	 * @return list of GUIDs or null if none
+	 */
+	public List<String> getGUIDs(Collection<String> guids, String afterGUID, int maxItems, EnumSet<ServiceType> serviceTypes, long[] userIdFilter){
+		SolrQueryBuilder solr = new SolrQueryBuilder(null);
+		if(guids != null && !guids.isEmpty()){
+			LOGGER.debug("Adding GUID filter...");
+			solr.addCustomFilter(new AndQueryFilter(SOLR_FIELD_ID, guids), false);
+		}
+		if(afterGUID != null){
+			solr.addCustomFilter(new RangeQueryFilter(SOLR_FIELD_ID, afterGUID, null), false);
+		}
+		if(!ServiceType.isEmpty(serviceTypes)){
+			LOGGER.debug("Adding service type filter...");
+			solr.addCustomFilter(new AndQueryFilter(Definitions.SOLR_FIELD_SERVICE_ID, ServiceType.toIdArray(serviceTypes)));
+		}
+		if(!ArrayUtils.isEmpty(userIdFilter)){
+			LOGGER.debug("Adding user id filter...");
+			solr.addCustomFilter(new AndQueryFilter(Definitions.SOLR_FIELD_USER_ID, userIdFilter));
+		}
+		solr.setLimits(new Limits(0, maxItems)); // request one extra item, the range filter includes the given GUID
+		solr.setSortOptions(DEFAULT_SORT_OPTIONS);
+		solr.addField(SOLR_FIELD_ID);
+
+		List<Video> videos = SimpleSolrTemplate.getList(getSolrTemplate(BEAN_ID_SOLR_SERVER).query(solr.toSolrQuery(Definitions.ELEMENT_VIDEOLIST)), Video.class);
+		if(videos == null){
+			LOGGER.debug("No videos");
+			return null;
+		}
+		List<String> retval = new ArrayList<>(maxItems);
+		for(Video video : videos){
+			String guid = video.getGUID();
+			if(!guid.equals(afterGUID) && retval.size() < maxItems){
+				retval.add(guid);
+			}
+		}
+		return (retval.isEmpty() ? null : retval);
+	}
 	
 	/**
 	 * 
@@ -244,7 +293,7 @@ public class VideoDAO extends SolrDAO {
 		SolrQueryBuilder solr = new SolrQueryBuilder(null);
 		if(guids != null && !guids.isEmpty()){
 			LOGGER.debug("Adding GUID filter...");
-			solr.addCustomFilter(new AndQueryFilter(SOLR_FIELD_ID, guids));
+			solr.addCustomFilter(new AndQueryFilter(SOLR_FIELD_ID, guids), false);
 		}
 		if(!ServiceType.isEmpty(serviceTypes)){
 			LOGGER.debug("Adding service type filter...");
@@ -270,7 +319,7 @@ public class VideoDAO extends SolrDAO {
 		ResultInfo info = null;
 		if(DataGroups.hasDataGroup(service.tut.pori.contentanalysis.Definitions.DATA_GROUP_RESULT_INFO, dataGroups)){
 			LOGGER.debug("Resolving result info for the requested videos.");
-			info = new ResultInfo(limits.getStartItem(Definitions.ELEMENT_VIDEOLIST), limits.getEndItem(Definitions.ELEMENT_VIDEOLIST), response.getResults().getNumFound());
+			info = new ResultInfo(limits, Definitions.ELEMENT_VIDEOLIST, response.getResults().getNumFound());
 		}
 
 		VideoList videoList = VideoList.getVideoList(videos, info);
@@ -278,14 +327,7 @@ public class VideoDAO extends SolrDAO {
 		if(guidVoidMap == null){
 			LOGGER.debug("No objects for the videos.");
 		}else{
-			for(Entry<String, Set<String>> e : guidVoidMap.entrySet()){
-				MediaObjectList objects = _mediaObjectDAO.getMediaObjects(dataGroups, limits, MEDIA_TYPES, null, e.getValue(), null); // do NOT give serviceTypes as filter, we are searching videos with specific serviceTypes, not mediaObjects
-				if(MediaObjectList.isEmpty(objects)){
-					LOGGER.warn("Could not retrieve objects for guid: "+e.getKey());
-				}else{
-					videoList.getVideo(e.getKey()).addMediaObjects(objects);
-				}
-			}
+			setMediaObjects(dataGroups, limits, videoList, guidVoidMap);
 		}
 
 		if(DataGroups.hasDataGroup(service.tut.pori.contentanalysis.Definitions.DATA_GROUP_STATUS, dataGroups)){
@@ -338,10 +380,9 @@ public class VideoDAO extends SolrDAO {
 		solr.setLimits(limits);
 
 		if(guids != null && !guids.isEmpty()){
-			solr.addCustomFilter(new AndQueryFilter(SOLR_FIELD_ID, guids));
+			solr.addCustomFilter(new AndQueryFilter(SOLR_FIELD_ID, guids), false);
 		}
 
-		Map<String, Set<String>> guidVoidMap = null;
 		if(!MediaObjectList.isEmpty(objects)){ // if media objects have been given as a search term, do a media object look-up first
 			List<String> mediaObjectIds = _mediaObjectDAO.getMediaObjectIds(authenticatedUser, dataGroups, null, null, userIdFilter, objects); // do NOT give serviceTypes as filter, we are searching videos with specific serviceTypes, not mediaObjects
 			if(mediaObjectIds == null){
@@ -349,12 +390,12 @@ public class VideoDAO extends SolrDAO {
 				return null;
 			}
 			
-			guidVoidMap = _associationDAO.getAssociationsForMediaObjectIds(mediaObjectIds);
-			if(guidVoidMap == null){
+			List<String> objectGUIDs = _associationDAO.getGUIDsForMediaObjectIds(mediaObjectIds);
+			if(objectGUIDs == null){
 				LOGGER.debug("No videos associated with the media object results.");
 				return null;
 			}
-			solr.addCustomFilter(new AndQueryFilter(SOLR_FIELD_ID, guidVoidMap.keySet()));
+			solr.addCustomFilter(new AndQueryFilter(SOLR_FIELD_ID, objectGUIDs), false);
 		}
 
 		if(!ServiceType.isEmpty(serviceTypes)){
@@ -383,31 +424,17 @@ public class VideoDAO extends SolrDAO {
 		ResultInfo info = null;
 		if(DataGroups.hasDataGroup(service.tut.pori.contentanalysis.Definitions.DATA_GROUP_RESULT_INFO, dataGroups)){
 			LOGGER.debug("Resolving result info for the requested videos.");
-			info = new ResultInfo(limits.getStartItem(Definitions.ELEMENT_VIDEOLIST), limits.getEndItem(Definitions.ELEMENT_VIDEOLIST), response.getResults().getNumFound());
+			info = new ResultInfo(limits, Definitions.ELEMENT_VIDEOLIST, response.getResults().getNumFound());
 		}
 
 		VideoList videoList = VideoList.getVideoList(videos, info);
-		if(guidVoidMap == null){	// resolve media object relations if not resolved already, depending on the data groups given we may not even need the media objects, but let's ignore it for now
-			guidVoidMap = _associationDAO.getAssociationsForGUIDs(videoList.getGUIDs());
-		}
+		Map<String, Set<String>> guidVoidMap = _associationDAO.getAssociationsForGUIDs(videoList.getGUIDs()); // resolve the media object relations only for the returned page, depending on the data groups given we may not even need the media objects, but let's ignore it for now
 		
 		if(guidVoidMap == null){
 			LOGGER.debug("No video-media object associations...");
 		}else{
 			LOGGER.debug("Retrieving media objects for the list of videos, if needed...");
-			for(Entry<String, Set<String>> e : guidVoidMap.entrySet()){
-				MediaObjectList videoObject = _mediaObjectDAO.getMediaObjects(dataGroups, limits, MEDIA_TYPES, null, e.getValue(), null); // do NOT give serviceTypes as filter, we are searching videos with specific serviceTypes, not mediaObjects
-				if(MediaObjectList.isEmpty(videoObject)){
-					LOGGER.debug("Could not retrieve objects for GUID: "+e.getKey());
-				}else{
-					Video video = videoList.getVideo(e.getKey());
-					if(video == null){
-						LOGGER.warn("Could not find video, GUID: "+e.getKey());
-					}else{
-						video.addMediaObjects(videoObject);
-					}
-				}
-			}
+			setMediaObjects(dataGroups, limits, videoList, guidVoidMap);
 		}
 
 		if(DataGroups.hasDataGroup(service.tut.pori.contentanalysis.Definitions.DATA_GROUP_STATUS, dataGroups)){
@@ -417,6 +444,39 @@ public class VideoDAO extends SolrDAO {
 		return videoList;
 	}
 
+	/**
+	 * Retrieves and sets the media objects for the given videos with a single query.
+	 * 
+	 * @param dataGroups
+	 * @param limits media object limits, applied separately for each video
+	 * @param videoList
+	 * @param guidVoidMap GUID-media object id map, GUIDs not present in the video list are ignored
+	 */
+	private void setMediaObjects(DataGroups dataGroups, Limits limits, VideoList videoList, Map<String, Set<String>> guidVoidMap){
+		List<Video> videos = videoList.getVideos();
+		HashMap<String, Set<String>> videoVoidMap = new HashMap<>(videos.size());
+		for(Video video : videos){
+			String guid = video.getGUID();
+			Set<String> voids = guidVoidMap.get(guid);
+			if(voids != null){
+				videoVoidMap.put(guid, voids);
+			}
+		}
+		
+		Map<String, MediaObjectList> objects = _mediaObjectDAO.getMediaObjects(dataGroups, limits, MEDIA_TYPES, videoVoidMap); // do NOT give serviceTypes as filter, we are searching videos with specific serviceTypes, not mediaObjects
+		if(objects == null){
+			LOGGER.debug("Could not retrieve objects for the videos.");
+			return;
+		}
+		
+		for(Video video : videos){
+			MediaObjectList videoObjects = objects.get(video.getGUID());
+			if(videoObjects != null){
+				video.addMediaObjects(videoObjects);
+			}
+		}
+	}
+
 	/**
 	 * Sets the owner details (userId) to the given videos, requires that GUID has been set to the video object
 	 * 
@@ -437,7 +497,7 @@ public class VideoDAO extends SolrDAO {
 
 		SolrQueryBuilder solr = new SolrQueryBuilder();
 		solr.addFields(FIELDS_SET_OWNERS);
-		solr.addCustomFilter(new AndQueryFilter(SOLR_FIELD_ID, guids));
+		solr.addCustomFilter(new AndQueryFilter(SOLR_FIELD_ID, guids), false);
 		VideoList found = VideoList.getVideoList(getSolrTemplate(BEAN_ID_SOLR_SERVER).queryForList(solr.toSolrQuery(Definitions.ELEMENT_VIDEOLIST), Video.class),null);
 		if(VideoList.isEmpty(found)){
 			LOGGER.debug("No videos found.");
@@ -51,6 +51,9 @@ import core.tut.pori.context.ServiceInitializer;
 import core.tut.pori.http.Response;
 import core.tut.pori.http.parameters.DataGroups;
 import core.tut.pori.http.parameters.Limits;
+import core.tut.pori.trace.Span;
+import core.tut.pori.trace.Span.SpanType;
+import core.tut.pori.trace.TraceContext;
 import core.tut.pori.users.UserIdentity;
 import core.tut.pori.utils.XMLFormatter;
 
@@ -311,6 +314,7 @@ public class VideoSearchTask{
 		}
 
 		@Override
+		@SuppressWarnings("try")
 		public VideoList call() throws Exception {
 			StringBuilder uri = new StringBuilder(_backend.getAnalysisUri());
 			uri.append(Definitions.METHOD_SEARCH_SIMILAR_BY_ID+"?"+service.tut.pori.contentanalysis.Definitions.PARAMETER_GUID+"=");
@@ -321,7 +325,7 @@ public class VideoSearchTask{
 			}	
 			String url = uri.toString();
 			LOGGER.debug("Calling URL: "+url);
-			try (CloseableHttpClient client = HttpClients.createDefault(); CloseableHttpResponse response = client.execute(new HttpPost(url))) {
+			try (Span span = TraceContext.startSpan(SpanType.HTTP, url); CloseableHttpClient client = HttpClients.createDefault(); CloseableHttpResponse response = client.execute(new HttpPost(url))) {
 				HttpEntity entity = response.getEntity();
 				try (InputStream content = entity.getContent()) {
 					Response r = FORMATTER.toResponse(content, VideoList.class);
@@ -15,10 +15,13 @@
  */
 package service.tut.pori.contentanalysis.video;
 
+import java.util.ArrayList;
+import java.util.EnumMap;
 import java.util.EnumSet;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
-import org.apache.commons.lang3.tuple.Pair;
 import org.apache.log4j.Logger;
 import org.springframework.beans.factory.annotation.Autowired;
 
@@ -28,7 +31,6 @@ import service.tut.pori.contentanalysis.AsyncTask.TaskType;
 import service.tut.pori.contentanalysis.MediaTaskDAO;
 import core.tut.pori.http.parameters.DataGroups;
 import core.tut.pori.http.parameters.Limits;
-import core.tut.pori.users.UserIdentity;
 import core.tut.pori.utils.MediaUrlValidator.MediaType;
 
 /**
@@ -41,13 +43,41 @@ public class VideoTaskDAO extends MediaTaskDAO {
 	@Autowired
 	private VideoDAO _videoDAO = null;
 	
+	/**
+	 * The task header (type, owner, metadata) is retrieved with a single query, and the GUIDs of the task with another.
+	 * When limits are not given, the assembled details are cached for a short period of time, and the subsequent requests for the same task and data groups will only check
+	 * that the back-end is associated with the task.
+	 * 
+	 * @param backendId
+	 * @param dataGroups optional dataGroups filter, if not given, default backend-specific datagroups will be used
+	 * @param limits optional limits filter
+	 * @param taskId
+	 * @return the task or null if not found
+	 * @throws IllegalArgumentException on bad values
+	 */
 	@Override
 	public VideoTaskDetails getTask(Integer backendId, DataGroups dataGroups, Limits limits, Long taskId) throws IllegalArgumentException {
-		Pair<TaskType, UserIdentity> type = getTaskType(backendId, taskId);
-		if(type == null){
+		if(limits == null && (backendId == null || !DataGroups.isEmpty(dataGroups))){
+			VideoTaskDetails cached = getCachedTask(VideoTaskDetails.class, dataGroups, taskId);
+			if(cached != null){
+				if(backendId != null && !hasBackend(backendId, taskId)){
+					LOGGER.warn("Task, id: "+taskId+" was not found for backend, id: "+backendId);
+					return null;
+				}
+				LOGGER.debug("Using cached details for task, id: "+taskId);
+				VideoTaskDetails details = copyOf(cached);
+				details.setBackendId(backendId);
+				return details;
+			}
+		}
+
+		VideoTaskDetails details = new VideoTaskDetails();
+		details.setTaskId(taskId);
+		if(!getTaskHeader(backendId, details)){
 			LOGGER.warn("Failed to resolve task type.");
 			return null;
 		}
+		details.setBackendId(backendId);
 
 		if(backendId == null){
 			LOGGER.debug("No backend id given, will not check data groups.");
@@ -60,14 +90,8 @@ public class VideoTaskDAO extends MediaTaskDAO {
 			dataGroups = backend.getDefaultTaskDataGroups();
 		}
 
-		VideoTaskDetails details = new VideoTaskDetails(type.getLeft());
-		details.setBackendId(backendId);
-		details.setTaskId(taskId);
-		details.setUserId(type.getRight());
 		getVideos(dataGroups, details, limits);
 
-		getTaskMetadata(details);
-
 		if(DataGroups.hasDataGroup(service.tut.pori.contentanalysis.Definitions.DATA_GROUP_BACKEND_STATUS, dataGroups)){
 			getBackendStatusList(details);
 		}
@@ -76,10 +100,33 @@ public class VideoTaskDAO extends MediaTaskDAO {
 			LOGGER.warn("Task, id: "+taskId+" has no content.");
 			return null;
 		}else{
+			if(limits == null){
+				setCachedTask(dataGroups, copyOf(details));
+			}
 			return details;
 		}
 	}
-	
+
+	/**
+	 * Note: the video lists, back-end status list and task parameters are shared with the original details, the metadata map is copied.
+	 * 
+	 * @param details
+	 * @return shallow copy of the given details
+	 */
+	private static VideoTaskDetails copyOf(VideoTaskDetails details){
+		VideoTaskDetails copy = new VideoTaskDetails(details.getTaskType());
+		copy.setBackendId(details.getBackendId());
+		copy.setTaskId(details.getTaskId());
+		copy.setUserId(details.getUserId());
+		copy.setBackends(details.getBackends());
+		Map<String, String> metadata = details.getMetadata();
+		copy.setMetadata((metadata == null ? null : new HashMap<>(metadata)));
+		copy.setTaskParameters(details.getTaskParameters());
+		copy.setVideoList(details.getVideoList());
+		copy.setDeletedVideoList(details.getDeletedVideoList());
+		return copy;
+	}
+
 	/**
 	 * retrieve and set the videos for the task
 	 * 
@@ -89,8 +136,13 @@ public class VideoTaskDAO extends MediaTaskDAO {
 	 */
 	private void getVideos(DataGroups dataGroups, VideoTaskDetails details, Limits limits){
 		Long taskId = details.getTaskId();
-		
-		List<String> videoGUIDs = getTaskGUIDs(limits, taskId, GUIDType.MEDIA);
+		EnumMap<GUIDType, List<String>> guids = getTaskGUIDs(limits, taskId);
+		if(guids == null){
+			LOGGER.warn("No content...");
+			return;
+		}
+
+		List<String> videoGUIDs = guids.get(GUIDType.MEDIA);
 		if(videoGUIDs != null){
 			LOGGER.debug("Retrieving video list...");
 			TaskType taskType = details.getTaskType();
@@ -111,7 +163,7 @@ public class VideoTaskDAO extends MediaTaskDAO {
 				default:	// should not happen
 					throw new UnsupportedOperationException("Unsupported "+TaskType.class.toString());
 			}
-		}else if((videoGUIDs = getTaskGUIDs(limits, taskId, GUIDType.DELETED_MEDIA)) != null){
+		}else if((videoGUIDs = guids.get(GUIDType.DELETED_MEDIA)) != null){
 			LOGGER.debug("Retrieving deleted video list...");
 			for(String guid : videoGUIDs){
 				details.addDeletedVideo(new Video(guid));
@@ -123,8 +175,16 @@ public class VideoTaskDAO extends MediaTaskDAO {
 
 		if(DataGroups.hasDataGroup(service.tut.pori.contentanalysis.Definitions.DATA_GROUP_STATUS, dataGroups)){
 			LOGGER.debug("Retrieving video status information for task, id: "+taskId);
-			getMediaStatus(details.getVideoList().getVideos());
-			getMediaStatus(details.getDeletedVideoList().getVideos());
+			List<Video> videos = new ArrayList<>();
+			VideoList list = details.getVideoList();
+			if(!VideoList.isEmpty(list)){
+				videos.addAll(list.getVideos());
+			}
+			list = details.getDeletedVideoList();
+			if(!VideoList.isEmpty(list)){
+				videos.addAll(list.getVideos());
+			}
+			getMediaStatus(videos);	// retrieve the statuses of both lists with a single query
 		}
 	}
 
@@ -136,6 +196,23 @@ public class VideoTaskDAO extends MediaTaskDAO {
 	 * @throws IllegalArgumentException
 	 */
 	public Long insertTask(VideoTaskDetails details) throws UnsupportedOperationException, IllegalArgumentException {
+		Long taskId = insertTask((AbstractTaskDetails) details);
+		if(taskId == null){
+			throw new IllegalArgumentException("Failed to add new task.");
+		}
+		return taskId;
+	}
+	
+	/**
+	 * Inserts the video GUIDs and media objects of the task.
+	 * 
+	 * @throws UnsupportedOperationException on unsupported task type or if the details are not {@link VideoTaskDetails}
+	 */
+	@Override
+	protected void insertTaskContent(AbstractTaskDetails details) throws UnsupportedOperationException {
+		if(!(details instanceof VideoTaskDetails)){
+			throw new UnsupportedOperationException("Unsupported task details: "+details.getClass().toString());
+		}
 		TaskType type = details.getTaskType();
 		switch(type){
 			case ANALYSIS:
@@ -145,16 +222,10 @@ public class VideoTaskDAO extends MediaTaskDAO {
 			default:
 				throw new UnsupportedOperationException("TaskType not supported: "+type.name());
 		}
-
-		Long taskId = insertTask((AbstractTaskDetails) details);
-		if(taskId == null){
-			throw new IllegalArgumentException("Failed to add new task.");
-		}
-
-		insertTaskGUIDs(details);
-		insertTaskMediaObjects(details);
-
-		return taskId;
+		
+		VideoTaskDetails videoDetails = (VideoTaskDetails) details;
+		insertTaskGUIDs(videoDetails);
+		insertTaskMediaObjects(videoDetails);
 	}
 	
 	/**
@@ -62,6 +62,7 @@ import service.tut.pori.contentstorage.ContentStorageCore;
 import service.tut.pori.facebookjazz.FacebookExtractor;
 import service.tut.pori.facebookjazz.FacebookProfile;
 import service.tut.pori.fuzzyvisuals.FuzzyAnalyzer;
+import service.tut.pori.fuzzyvisuals.FuzzyProperties;
 import service.tut.pori.twitterjazz.TwitterExtractor;
 import service.tut.pori.twitterjazz.TwitterExtractor.ContentType;
 import service.tut.pori.twitterjazz.TwitterProfile;
@@ -616,8 +617,10 @@ public final class ContentAnalysisTestUtils {
 	 */
 	public static String fuzzyFile(InputStream file) {
 		Set<String> words = null;
-		try(FuzzyAnalyzer fa = new FuzzyAnalyzer()){
-			words = fa.analyze(file);
+		try(CloseableHttpClient client = HttpClients.createDefault()){
+			words = new FuzzyAnalyzer(client, ServiceInitializer.getPropertyHandler().getSystemProperties(FuzzyProperties.class).getKeywordProvider()).analyze(file);
+		} catch (IOException ex) {
+			LOGGER.error(ex, ex);
 		}
 		
 		return StringUtils.join(words, ',');
@@ -630,8 +633,10 @@ public final class ContentAnalysisTestUtils {
 	 */
 	public static String fuzzyUrl(String url) {
 		Set<String> words = null;
-		try(FuzzyAnalyzer fa = new FuzzyAnalyzer()){
-			words = fa.analyze(url);
+		try(CloseableHttpClient client = HttpClients.createDefault()){
+			words = new FuzzyAnalyzer(client, ServiceInitializer.getPropertyHandler().getSystemProperties(FuzzyProperties.class).getKeywordProvider()).analyze(url);
+		} catch (IOException ex) {
+			LOGGER.error(ex, ex);
 		}
 		
 		return StringUtils.join(words, ',');
@@ -19,6 +19,8 @@ import java.util.Collection;
 import java.util.EnumSet;
 import java.util.List;
 
+import org.apache.log4j.Logger;
+
 import service.tut.pori.contentanalysis.AbstractTaskDetails;
 import service.tut.pori.contentanalysis.AccessDetails;
 import service.tut.pori.contentanalysis.AnalysisBackend;
@@ -27,7 +29,12 @@ import service.tut.pori.contentanalysis.AsyncTask.TaskStatus;
 import service.tut.pori.contentanalysis.AsyncTask.TaskType;
 import service.tut.pori.contentanalysis.BackendStatus;
 import service.tut.pori.contentanalysis.BackendStatusList;
+import service.tut.pori.contentanalysis.CAContentCore;
 import service.tut.pori.contentanalysis.CAContentCore.ServiceType;
+import service.tut.pori.contentanalysis.PhotoDAO;
+import service.tut.pori.contentanalysis.PhotoFeedbackTask.FeedbackTaskBuilder;
+import service.tut.pori.contentanalysis.PhotoTaskDetails;
+import core.tut.pori.context.ServiceInitializer;
 import core.tut.pori.users.UserIdentity;
 
 /**
@@ -36,6 +43,9 @@ import core.tut.pori.users.UserIdentity;
  * Note that sub-classing this class does not automatically add the storage handler as an usable handler, changes to the ContentStorageCore are also required.
  */
 public abstract class ContentStorage {
+	/** maximum number of media items removed at once by {@link #removeMetadata(UserIdentity, Collection)} */
+	protected static final int REMOVE_METADATA_PAGE_SIZE = 500;
+	private static final Logger LOGGER = Logger.getLogger(ContentStorage.class);
 	private boolean _autoSchedule = true;
 	private ContentStorageListener _listener = null;
 	private BackendStatusList _backends = null;
@@ -175,11 +185,69 @@ public abstract class ContentStorage {
 	/**
 	 * Remove the synchronized content
 	 * 
+	 * The content is removed in pages of at most {@value #REMOVE_METADATA_PAGE_SIZE} items, and a feedback task is created for each page.
+	 * The removal can be restarted, the items removed on the previous run will not be processed again.
+	 * 
 	 * @param userId this user's metadata will be removed from the front-end
 	 * @param guids optional list of GUIDs, if null, everything is removed
 	 */
 	public abstract void removeMetadata(UserIdentity userId, Collection<String> guids);
 	
+	/**
+	 * Remove the storage specific entries for the given GUIDs.
+	 * 
+	 * @param guids
+	 */
+	protected abstract void removeEntries(List<String> guids);
+	
+	/**
+	 * Helper method for removing the photo metadata of the given user for the service type of this storage.
+	 * 
+	 * The photos are processed in the order of GUIDs, in pages of at most {@value #REMOVE_METADATA_PAGE_SIZE} photos.
+	 * The storage specific entries are removed before the photo metadata, so that an interrupted removal will leave no orphan entries.
+	 * 
+	 * @param userId
+	 * @param guids optional list of GUIDs, if null, all photos of the user are removed
+	 * @return the number of removed photos
+	 * @see #removeEntries(List)
+	 */
+	protected int removePhotoMetadata(UserIdentity userId, Collection<String> guids){
+		PhotoDAO photoDAO = ServiceInitializer.getDAOHandler().getDAO(PhotoDAO.class);
+		EnumSet<ServiceType> serviceTypes = EnumSet.of(getServiceType());
+		long[] userIdFilter = new long[]{userId.getUserId()};
+		int count = 0;
+		for(List<String> remove = photoDAO.getGUIDs(guids, null, REMOVE_METADATA_PAGE_SIZE, serviceTypes, userIdFilter); remove != null; remove = photoDAO.getGUIDs(guids, remove.get(remove.size()-1), REMOVE_METADATA_PAGE_SIZE, serviceTypes, userIdFilter)){
+			removeEntries(remove);
+			photoDAO.remove(remove);
+			count += remove.size();
+			
+			FeedbackTaskBuilder builder = new FeedbackTaskBuilder(TaskType.FEEDBACK); // create builder for deleted photo feedback task
+			builder.setUser(userId);
+			builder.setBackends(getBackends());
+			builder.addDeletedPhotos(remove);
+			PhotoTaskDetails details = builder.build();
+			if(details == null){
+				LOGGER.warn("No content.");
+			}else{
+				if(isAutoSchedule()){
+					LOGGER.debug("Scheduling feedback task.");
+					CAContentCore.scheduleTask(details);
+				}else{
+					LOGGER.debug("Auto-schedule is disabled.");
+				}
+				
+				notifyFeedbackTaskCreated(details);
+			}
+		}
+		
+		if(count < 1){
+			LOGGER.debug("User, id: "+userId.getUserId()+" has no photos.");
+		}else{
+			LOGGER.debug("Removed "+count+" photos for user, id: "+userId.getUserId());
+		}
+		return count;
+	}
+	
 	/**
 	 * 
 	 * @param userId
@@ -17,20 +17,28 @@ package service.tut.pori.contentstorage;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Date;
 import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.Semaphore;
 
 import org.apache.commons.lang3.ArrayUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.log4j.Logger;
+import org.quartz.DisallowConcurrentExecution;
 import org.quartz.Job;
 import org.quartz.JobBuilder;
 import org.quartz.JobDataMap;
 import org.quartz.JobExecutionContext;
 import org.quartz.JobExecutionException;
+import org.quartz.JobKey;
+import org.quartz.SchedulerException;
+import org.quartz.TriggerBuilder;
 import org.springframework.context.ApplicationListener;
+import org.springframework.context.event.ContextRefreshedEvent;
 
 import service.tut.pori.contentanalysis.AbstractTaskDetails;
 import service.tut.pori.contentanalysis.AccessDetails;
@@ -44,6 +52,7 @@ import service.tut.pori.contentanalysis.BackendStatus;
 import service.tut.pori.contentanalysis.BackendStatusList;
 import service.tut.pori.contentanalysis.CAContentCore;
 import service.tut.pori.contentanalysis.CAContentCore.ServiceType;
+import service.tut.pori.contentanalysis.CAProperties;
 import service.tut.pori.contentanalysis.Media;
 import service.tut.pori.contentanalysis.Photo;
 import service.tut.pori.contentanalysis.PhotoDAO;
@@ -69,7 +78,7 @@ import core.tut.pori.utils.MediaUrlValidator.MediaType;
  * The core methods for managing metadata content storage.
  */
 public final class ContentStorageCore {
-	private static final String JOB_KEY_SERVICE_TYPES = "serviceType"; // type is EnumSet<ServiceType>
+	private static final String JOB_GROUP_METADATA_REMOVAL = "metadataRemoval";
 	private static final String JOB_KEY_USER_ID = "userId"; // type is Long
 	private static final Logger LOGGER = Logger.getLogger(ContentStorageCore.class);
 	
@@ -228,9 +237,14 @@ public final class ContentStorageCore {
 	public static MediaList addUrls(UserIdentity authenticatedUser, int[] backendIds, List<String> urls) {
 		List<String> photoUrls = new ArrayList<>();
 		List<String> videoUrls = new ArrayList<>();
-		MediaUrlValidator validator = new MediaUrlValidator();
-		for(String url : urls){
-			switch(validator.validateUrl(url)){
+		Map<String, MediaType> mediaTypes = new MediaUrlValidator().validateUrls(urls);
+		if(mediaTypes == null){
+			LOGGER.warn("No valid URLs.");
+			return null;
+		}
+		for(Entry<String, MediaType> e : mediaTypes.entrySet()){
+			String url = e.getKey();
+			switch(e.getValue()){
 				case PHOTO:
 					LOGGER.debug("Detected photo: "+url);
 					photoUrls.add(url);
@@ -306,28 +320,84 @@ public final class ContentStorageCore {
 		 * @param serviceTypes
 		 */
 		private void createJob(Long userId, EnumSet<ServiceType> serviceTypes){
-			JobBuilder builder = JobBuilder.newJob(MetadataRemovalJob.class);
-			JobDataMap data = new JobDataMap();
-			data.put(JOB_KEY_USER_ID, userId);
-			data.put(JOB_KEY_SERVICE_TYPES, serviceTypes);
-			builder.setJobData(data);
-			CAContentCore.schedule(builder);
+			ServiceInitializer.getDAOHandler().getDAO(MetadataRemovalDAO.class).addRemovals(userId, serviceTypes);
+			scheduleMetadataRemoval(userId);
 		}
 	} // class UserEventListener
 	
 	/**
-	 * Job for removing content for the user designated by data key JOB_KEY_USER_ID for services designated by data key JOB_KEY_SERVICE_TYPES
+	 * Schedule metadata removal job for the given user, if the user does not already have a job pending.
+	 * 
+	 * @param userId
+	 */
+	private static void scheduleMetadataRemoval(Long userId){
+		JobKey key = new JobKey(userId.toString(), JOB_GROUP_METADATA_REMOVAL);
+		try {
+			if(ServiceInitializer.getExecutorHandler().getScheduler().checkExists(key)){
+				LOGGER.debug("Metadata removal job already exists for user, id: "+userId);
+				return;
+			}
+		} catch (SchedulerException ex) {
+			LOGGER.error(ex, ex);
+			return;
+		}
+		JobBuilder builder = JobBuilder.newJob(MetadataRemovalJob.class).withIdentity(key);
+		JobDataMap data = new JobDataMap();
+		data.put(JOB_KEY_USER_ID, userId);
+		builder.setJobData(data);
+		CAContentCore.schedule(builder);
+	}
+	
+	/**
+	 * Listener for context refresh events, used to re-schedule the metadata removals interrupted on the previous run.
 	 *
+	 * Automatically instantiated by Spring as a bean.
 	 */
+	@SuppressWarnings("unused")
+	private static class MetadataRemovalJobInitializer implements ApplicationListener<ContextRefreshedEvent>{
+
+		@Override
+		public void onApplicationEvent(ContextRefreshedEvent event) {
+			List<Long> userIds = ServiceInitializer.getDAOHandler().getDAO(MetadataRemovalDAO.class).getUserIds();
+			if(userIds == null){
+				LOGGER.debug("No pending metadata removals.");
+				return;
+			}
+			for(Long userId : userIds){
+				LOGGER.debug("Resuming metadata removal for user, id: "+userId);
+				scheduleMetadataRemoval(userId);
+			}
+		}
+	} // class MetadataRemovalJobInitializer
+	
+	/**
+	 * Job for removing content for the user designated by data key JOB_KEY_USER_ID for the services with pending removals.
+	 * 
+	 * The removal of each service type is marked completed after all content of the service type has been removed. 
+	 * If the job is interrupted, the removal will continue on the next service start from the first uncompleted service type, 
+	 * the content removed before the interruption will not be processed again.
+	 * 
+	 * @see service.tut.pori.contentstorage.MetadataRemovalDAO
+	 */
+	@DisallowConcurrentExecution
 	public static class MetadataRemovalJob implements Job{
 
-		@SuppressWarnings("unchecked")
 		@Override
 		public void execute(JobExecutionContext context) throws JobExecutionException {
-			JobDataMap data = context.getMergedJobDataMap();
-			Long userId = data.getLong(JOB_KEY_USER_ID);
-			LOGGER.debug("Removing all metadata content for user, id: "+userId);
-			removeMetadata(new UserIdentity(userId), null, (EnumSet<ServiceType>) data.get(JOB_KEY_SERVICE_TYPES));
+			Long userId = context.getMergedJobDataMap().getLong(JOB_KEY_USER_ID);
+			UserIdentity userIdentity = new UserIdentity(userId);
+			MetadataRemovalDAO dao = ServiceInitializer.getDAOHandler().getDAO(MetadataRemovalDAO.class);
+			for(EnumSet<ServiceType> serviceTypes = dao.getServiceTypes(userId); serviceTypes != null; serviceTypes = dao.getServiceTypes(userId)){ // re-check for removals added during execution
+				for(ServiceType type : serviceTypes){
+					LOGGER.debug("Removing all metadata content of service type "+type.name()+" for user, id: "+userId);
+					try{
+						getContentStorage(true, type).removeMetadata(userIdentity, null);
+					}catch(UnsupportedOperationException ex){
+						LOGGER.warn(ex, ex);
+					}
+					dao.removeRemoval(userId, type);
+				}
+			}
 		}
 	} // class MetadataRemovalJob
 	
@@ -414,6 +484,10 @@ public final class ContentStorageCore {
 	 * A schedulable task used for synchronizing metadata
 	 */
 	public static class MetadataSynchronizationJob implements Job{
+		private static final String JOB_KEY_DEFERRALS = "deferrals"; // type is Integer
+		private static final long PENDING_TASK_MAX_AGE = 86400000; // in ms, unfinished tasks not updated within this period are assumed to be abandoned
+		private static final long RETRY_DELAY_MAX = 3600000; // in ms, the upper limit for the doubled retry delay
+		private static volatile Semaphore SYNCHRONIZATION_PERMITS = null;
 
 		@Override
 		public void execute(JobExecutionContext context) throws JobExecutionException {
@@ -431,28 +505,133 @@ public final class ContentStorageCore {
 				return;
 			}
 			
-			AbstractTaskDetails details = taskDAO.getTask(null, null, null, taskId); // no need to retrieve per back-end as the details are the same for each back-end
-			if(details == null){
-				LOGGER.warn("Task not found, id: "+taskId);
+			CAProperties properties = ServiceInitializer.getPropertyHandler().getSystemProperties(CAProperties.class);
+			Semaphore permits = getSynchronizationPermits(properties);
+			if(!permits.tryAcquire()){
+				defer("the maximum of "+properties.getSyncMaxConcurrent()+" synchronizations are running", backends, context, properties, taskDAO, taskId);
 				return;
 			}
-
-			UserIdentity userId = details.getUserId();
-			LOGGER.debug("Execution started for user id: "+userId.getUserId());
+			try{ // the capacity is checked and the analysis tasks are created while holding the permit, so concurrent synchronizations cannot all pass the check before any of them has created its tasks
+				String reason = getOverloadReason(backends, properties, taskDAO);
+				if(reason != null){
+					defer(reason, backends, context, properties, taskDAO, taskId);
+					return;
+				}
+				
+				AbstractTaskDetails details = taskDAO.getTask(null, null, null, taskId); // no need to retrieve per back-end as the details are the same for each back-end
+				if(details == null){
+					LOGGER.warn("Task not found, id: "+taskId);
+					return;
+				}
+	
+				UserIdentity userId = details.getUserId();
+				LOGGER.debug("Execution started for user id: "+userId.getUserId());
+				
+				for(ServiceType type : SynchronizationTaskDetails.getServiceTypes(details)){
+					try{
+						ContentStorage storage = getContentStorage(true, type);
+						storage.setBackends(backends);
+						if(!storage.synchronizeAccount(userId)){
+							LOGGER.warn("Failed to synchronize service of type "+type.name()+" for user, id: "+userId.getUserId());
+						}
+					}catch(Throwable ex){ // catch exceptions to prevent re-scheduling of the task on error
+						LOGGER.warn(ex, ex);
+					}
+				}
+				LOGGER.debug("Synchronization completed.");
+			} finally {
+				permits.release();
+			}
+		}
+		
+		/**
+		 * 
+		 * @param properties
+		 * @return the permits shared by all synchronization jobs
+		 * @see service.tut.pori.contentanalysis.CAProperties#getSyncMaxConcurrent()
+		 */
+		private static Semaphore getSynchronizationPermits(CAProperties properties) {
+			Semaphore permits = SYNCHRONIZATION_PERMITS;
+			if(permits == null){
+				synchronized (MetadataSynchronizationJob.class) {
+					if(SYNCHRONIZATION_PERMITS == null){
+						SYNCHRONIZATION_PERMITS = new Semaphore(properties.getSyncMaxConcurrent());
+					}
+					permits = SYNCHRONIZATION_PERMITS;
+				} // synchronized
+			}
+			return permits;
+		}
+		
+		/**
+		 * Check that the system has capacity for the analysis tasks generated by the synchronization.
+		 * The capacity is considered to be exceeded if the executor queue is congested or if any of the given back-ends has too many unfinished tasks.
+		 * 
+		 * @param backends
+		 * @param properties
+		 * @param taskDAO
+		 * @return the reason why the capacity is exceeded or null if there is enough capacity
+		 */
+		private String getOverloadReason(BackendStatusList backends, CAProperties properties, TaskDAO taskDAO) {
+			int maxQueued = properties.getSyncMaxQueuedTasks();
+			int queued = ServiceInitializer.getExecutorHandler().getQueuedTaskCount();
+			if(maxQueued > 0 && queued >= maxQueued){
+				return "executor queue size "+queued+" >= "+maxQueued;
+			}
 			
-			for(ServiceType type : SynchronizationTaskDetails.getServiceTypes(details)){
-				try{
-					ContentStorage storage = getContentStorage(true, type);
-					storage.setBackends(backends);
-					if(!storage.synchronizeAccount(userId)){
-						LOGGER.warn("Failed to synchronize service of type "+type.name()+" for user, id: "+userId.getUserId());
+			int maxPending = properties.getSyncMaxPendingTasks();
+			if(maxPending > 0){
+				Map<Integer, Long> counts = taskDAO.getPendingTaskCounts(new Date(System.currentTimeMillis()-PENDING_TASK_MAX_AGE));
+				for(BackendStatus status : backends.getBackendStatuses()){
+					Integer backendId = status.getBackendId();
+					Long count = counts.get(backendId);
+					if(count != null && count >= maxPending){
+						return "back-end, id: "+backendId+" has "+count+" unfinished tasks >= "+maxPending;
 					}
-				}catch(Throwable ex){ // catch exceptions to prevent re-scheduling of the task on error
-					LOGGER.warn(ex, ex);
 				}
 			}
-			LOGGER.debug("Synchronization completed.");
-		}	
+			return null;
+		}
+		
+		/**
+		 * Re-schedule the job to be executed later. The retry delay is doubled on each deferral.
+		 * 
+		 * If the job has already been deferred the maximum number of times, or if the job cannot be re-scheduled, the synchronization fails,
+		 * and the given back-ends are set to status {@link service.tut.pori.contentanalysis.AsyncTask.TaskStatus#ERROR}.
+		 * 
+		 * @param reason
+		 * @param backends
+		 * @param context
+		 * @param properties
+		 * @param taskDAO
+		 * @param taskId
+		 * @see service.tut.pori.contentanalysis.CAProperties#getSyncMaxDeferrals()
+		 */
+		private void defer(String reason, BackendStatusList backends, JobExecutionContext context, CAProperties properties, TaskDAO taskDAO, Long taskId) {
+			JobDataMap data = context.getMergedJobDataMap();
+			int deferrals = (data.containsKey(JOB_KEY_DEFERRALS) ? data.getInt(JOB_KEY_DEFERRALS) : 0);
+			String message = null;
+			if(deferrals >= properties.getSyncMaxDeferrals()){
+				message = "Synchronization deferred "+deferrals+" times: "+reason;
+			}else{
+				long delay = Math.min(properties.getSyncRetryDelay() << Math.min(deferrals, 20), RETRY_DELAY_MAX);
+				LOGGER.debug("Deferring synchronization of task, id: "+taskId+" by "+delay+" milliseconds: "+reason);
+				try {
+					context.getScheduler().scheduleJob(TriggerBuilder.newTrigger().forJob(context.getJobDetail()).usingJobData(JOB_KEY_DEFERRALS, Integer.valueOf(deferrals+1)).startAt(new Date(System.currentTimeMillis()+delay)).build());
+					return;
+				} catch (SchedulerException ex) {
+					LOGGER.error(ex, ex);
+					message = "Failed to re-schedule the synchronization: "+reason;
+				}
+			}
+			
+			LOGGER.error(message+", task, id: "+taskId);
+			for(BackendStatus status : backends.getBackendStatuses()){
+				status.setStatus(TaskStatus.ERROR);
+				status.setMessage(message);
+			}
+			taskDAO.updateTaskStatus(backends, taskId);
+		}
 	} // class MetadataSynchronizationJob
 	
 	/**
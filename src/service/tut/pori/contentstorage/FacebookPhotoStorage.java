@@ -29,6 +29,7 @@ import org.apache.log4j.Logger;
 
 import service.tut.pori.contentanalysis.AccessDetails;
 import service.tut.pori.contentanalysis.AnalysisBackend.Capability;
+import service.tut.pori.contentanalysis.BackendStatusList;
 import service.tut.pori.contentanalysis.CAProperties;
 import service.tut.pori.contentanalysis.PhotoParameters;
 import service.tut.pori.contentanalysis.PhotoParameters.AnalysisType;
@@ -38,7 +39,6 @@ import service.tut.pori.contentanalysis.CAContentCore.ServiceType;
 import service.tut.pori.contentanalysis.PhotoFeedbackTask.FeedbackTaskBuilder;
 import service.tut.pori.contentanalysis.Photo;
 import service.tut.pori.contentanalysis.CAContentCore.Visibility;
-import service.tut.pori.contentanalysis.DeletedPhotoList;
 import service.tut.pori.contentanalysis.PhotoDAO;
 import service.tut.pori.contentanalysis.PhotoList;
 import service.tut.pori.contentanalysis.PhotoTaskDetails;
@@ -156,33 +156,12 @@ public final class FacebookPhotoStorage extends ContentStorage {
 	@Override
 	public void removeMetadata(UserIdentity userId, Collection<String> guids){
 		LOGGER.debug("Removing metadata for user, id: "+userId.getUserId());
-		PhotoDAO photoDAO = ServiceInitializer.getDAOHandler().getDAO(PhotoDAO.class);
-		PhotoList photos = photoDAO.getPhotos(null, guids, null, EnumSet.of(SERVICE_TYPE), new long[]{userId.getUserId()});
-		if(PhotoList.isEmpty(photos)){
-			LOGGER.debug("User, id: "+userId.getUserId()+" has no photos.");
-			return;
-		}
-		List<String> remove = photos.getGUIDs();
-		photoDAO.remove(remove);
-		ServiceInitializer.getDAOHandler().getDAO(FacebookDAO.class).removeEntries(remove);
-
-		FeedbackTaskBuilder builder = new FeedbackTaskBuilder(TaskType.FEEDBACK); // create builder for deleted photo feedback task
-		builder.setUser(userId);
-		builder.setBackends(getBackends());
-		builder.addDeletedPhotos(DeletedPhotoList.getPhotoList(photos.getPhotos(), photos.getResultInfo()));
-		PhotoTaskDetails details = builder.build();
-		if(details == null){
-			LOGGER.warn("No content.");
-		}else{
-			if(isAutoSchedule()){
-				LOGGER.debug("Scheduling feedback task.");
-				CAContentCore.scheduleTask(details);
-			}else{
-				LOGGER.debug("Auto-schedule is disabled.");
-			}
+		removePhotoMetadata(userId, guids);
+	}
 
-			notifyFeedbackTaskCreated(details);
-		}
+	@Override
+	protected void removeEntries(List<String> guids){
+		ServiceInitializer.getDAOHandler().getDAO(FacebookDAO.class).removeEntries(guids);
 	}
 
 	/**
@@ -303,35 +282,20 @@ public final class FacebookPhotoStorage extends ContentStorage {
 			LOGGER.debug("Added "+facebookPhotoCount+" photos, removed "+missing+" photos for user: "+userId.getUserId());
 
 			if(facebookPhotoCount > 0){
-				LOGGER.debug("Creating a new analysis task...");
-				PhotoTaskDetails details = new PhotoTaskDetails(TaskType.ANALYSIS);
-				details.setUserId(userId);
-				details.setBackends(getBackends(getBackendCapabilities()));
-				details.setTaskParameters(ANALYSIS_PARAMETERS);
-				
-				if(taskLimit == CAProperties.MAX_TASK_SIZE_DISABLED || facebookPhotoCount <= taskLimit){ // if task limit is disabled or there are less photos than the limit
-					details.setPhotoList(PhotoList.getPhotoList(facebookPhotos.values(), null));
-					notifyAnalysis(details);
-				}else{ // loop to stay below max limit
-					List<Photo> partial = new ArrayList<>(taskLimit);
-					PhotoList partialContainer = new PhotoList();
-					details.setPhotoList(partialContainer);
-					int pCount = 0;
-					for(Photo photo : facebookPhotos.values()){
-						if(pCount == taskLimit){
-							partialContainer.setPhotos(partial);
-							notifyAnalysis(details);
-							pCount = 0;
-							partial.clear();
-						}
-						++pCount;
-						partial.add(photo);
-					} // for
-					if(!partial.isEmpty()){
-						partialContainer.setPhotos(partial);
-						notifyAnalysis(details);
-					}
-				} // else
+				LOGGER.debug("Creating new analysis tasks...");
+				BackendStatusList backends = getBackends(getBackendCapabilities());
+				List<Photo> photos = new ArrayList<>(facebookPhotos.values());
+				int taskSize = (taskLimit == CAProperties.MAX_TASK_SIZE_DISABLED ? facebookPhotoCount : taskLimit); // split to multiple tasks to stay below max limit
+				List<PhotoTaskDetails> tasks = new ArrayList<>(facebookPhotoCount / taskSize + 1);
+				for(int start = 0; start < facebookPhotoCount; start += taskSize){
+					PhotoTaskDetails details = new PhotoTaskDetails(TaskType.ANALYSIS);
+					details.setUserId(userId);
+					details.setBackends(backends);
+					details.setTaskParameters(ANALYSIS_PARAMETERS);
+					details.setPhotoList(PhotoList.getPhotoList(photos.subList(start, Math.min(start+taskSize, facebookPhotoCount)), null));
+					tasks.add(details);
+				}
+				notifyAnalysis(tasks);
 			}else{
 				LOGGER.debug("No new photos, will not create analysis task.");
 			}
@@ -342,20 +306,21 @@ public final class FacebookPhotoStorage extends ContentStorage {
 	}
 	
 	/**
-	 * Helper method for calling notify
+	 * Helper method for calling notify. All tasks are created in a single batch.
 	 * 
-	 * @param details
+	 * @param tasks new tasks without task ids
 	 */
-	private void notifyAnalysis(PhotoTaskDetails details){
-		details.setTaskId(null);	//make sure the task id is not set for a new task
+	private void notifyAnalysis(List<PhotoTaskDetails> tasks){
 		if(isAutoSchedule()){
-			LOGGER.debug("Scheduling analysis task.");
-			CAContentCore.scheduleTask(details);
+			LOGGER.debug("Scheduling analysis tasks.");
+			CAContentCore.scheduleTasks(tasks);
 		}else{
 			LOGGER.debug("Auto-schedule is disabled.");
 		}
 
-		notifyAnalysisTaskCreated(details);
+		for(PhotoTaskDetails details : tasks){
+			notifyAnalysisTaskCreated(details);
+		}
 	}
 	
 	/**
@@ -0,0 +1,106 @@
+/**
+ * Copyright 2014 Tampere University of Technology, Pori Department
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package service.tut.pori.contentstorage;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+
+import org.apache.log4j.Logger;
+
+import service.tut.pori.contentanalysis.CAContentCore.ServiceType;
+import core.tut.pori.dao.SQLDAO;
+import core.tut.pori.dao.clause.SQLClause.SQLType;
+
+/**
+ * DAO for storing the pending metadata removals.
+ * 
+ * A removal is stored for each user and service type, and it is removed when all metadata of the service type has been removed for the user.
+ * This allows restarting interrupted removals.
+ */
+public class MetadataRemovalDAO extends SQLDAO {
+	private static final Logger LOGGER = Logger.getLogger(MetadataRemovalDAO.class);
+	/* tables */
+	private static final String TABLE_METADATA_REMOVALS = DATABASE+".ca_metadata_removals";
+	/* columns */
+	private static final String COLUMN_SERVICE_ID = "service_id";
+	/* sql scripts */
+	private static final String SQL_DELETE_REMOVAL = "DELETE FROM "+TABLE_METADATA_REMOVALS+" WHERE "+COLUMN_USER_ID+"=? AND "+COLUMN_SERVICE_ID+"=?";
+	private static final int[] SQL_DELETE_REMOVAL_SQL_TYPES = {SQLType.LONG.toInt(), SQLType.INTEGER.toInt()};
+	
+	private static final String SQL_GET_SERVICE_IDS = "SELECT "+COLUMN_SERVICE_ID+" FROM "+TABLE_METADATA_REMOVALS+" WHERE "+COLUMN_USER_ID+"=? ORDER BY "+COLUMN_ROW_CREATED;
+	private static final int[] SQL_GET_SERVICE_IDS_SQL_TYPES = {SQLType.LONG.toInt()};
+	
+	private static final String SQL_GET_USER_IDS = "SELECT DISTINCT "+COLUMN_USER_ID+" FROM "+TABLE_METADATA_REMOVALS;
+	
+	private static final String SQL_INSERT_REMOVAL = "INSERT IGNORE INTO "+TABLE_METADATA_REMOVALS+" ("+COLUMN_USER_ID+", "+COLUMN_SERVICE_ID+", "+COLUMN_ROW_CREATED+") VALUES (?,?,NOW())";
+	private static final int[] SQL_INSERT_REMOVAL_SQL_TYPES = {SQLType.LONG.toInt(), SQLType.INTEGER.toInt()};
+	
+	/**
+	 * Add pending removals for the given user. Removals already pending are ignored.
+	 * 
+	 * @param userId
+	 * @param serviceTypes
+	 */
+	public void addRemovals(Long userId, EnumSet<ServiceType> serviceTypes) {
+		if(ServiceType.isEmpty(serviceTypes)){
+			LOGGER.debug("Ignored empty service type list.");
+			return;
+		}
+		List<Object[]> batchArgs = new ArrayList<>(serviceTypes.size());
+		for(ServiceType type : serviceTypes){
+			batchArgs.add(new Object[]{userId, type.getServiceId()});
+		}
+		getJdbcTemplate().batchUpdate(SQL_INSERT_REMOVAL, batchArgs, SQL_INSERT_REMOVAL_SQL_TYPES);
+	}
+	
+	/**
+	 * 
+	 * @param userId
+	 * @return service types of the pending removals for the user or null if none
+	 */
+	public EnumSet<ServiceType> getServiceTypes(Long userId) {
+		List<Integer> serviceIds = getJdbcTemplate().queryForList(SQL_GET_SERVICE_IDS, new Object[]{userId}, SQL_GET_SERVICE_IDS_SQL_TYPES, Integer.class);
+		if(serviceIds.isEmpty()){
+			LOGGER.debug("No pending removals for user, id: "+userId);
+			return null;
+		}
+		EnumSet<ServiceType> types = EnumSet.noneOf(ServiceType.class);
+		for(Integer serviceId : serviceIds){
+			types.add(ServiceType.fromServiceId(serviceId));
+		}
+		return types;
+	}
+	
+	/**
+	 * 
+	 * @return ids of users with pending removals or null if none
+	 */
+	public List<Long> getUserIds() {
+		List<Long> userIds = getJdbcTemplate().queryForList(SQL_GET_USER_IDS, Long.class);
+		return (userIds.isEmpty() ? null : userIds);
+	}
+	
+	/**
+	 * Mark the removal as completed.
+	 * 
+	 * @param userId
+	 * @param serviceType
+	 */
+	public void removeRemoval(Long userId, ServiceType serviceType) {
+		getJdbcTemplate().update(SQL_DELETE_REMOVAL, new Object[]{userId, serviceType.getServiceId()}, SQL_DELETE_REMOVAL_SQL_TYPES);
+	}
+}
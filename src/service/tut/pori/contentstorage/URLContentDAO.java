@@ -132,6 +132,24 @@ public class URLContentDAO extends SQLDAO {
 		getJdbcTemplate().update(SQL_INSERT_URL, new Object[]{entry.getGUID(), entry.getMediaType().toInt(), entry.getUrl(), entry.getUserId().getUserId()}, SQL_INSERT_URL_SQL_TYPES);
 	}
 	
+	/**
+	 * Add the given entries using a single batch update.
+	 * 
+	 * @param entries
+	 */
+	public void addEntries(Collection<URLEntry> entries){
+		if(entries == null || entries.isEmpty()){
+			LOGGER.debug("Ignored empty entry list.");
+			return;
+		}
+		
+		List<Object[]> batchArgs = new ArrayList<>(entries.size());
+		for(URLEntry entry : entries){
+			batchArgs.add(new Object[]{entry.getGUID(), entry.getMediaType().toInt(), entry.getUrl(), entry.getUserId().getUserId()});
+		}
+		getJdbcTemplate().batchUpdate(SQL_INSERT_URL, batchArgs, SQL_INSERT_URL_SQL_TYPES);
+	}
+	
 	/**
 	 * 
 	 * @param guid
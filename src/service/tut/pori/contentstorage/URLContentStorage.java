@@ -17,9 +17,12 @@ package service.tut.pori.contentstorage;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.EnumSet;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 
 import org.apache.log4j.Logger;
 
@@ -32,13 +35,11 @@ import service.tut.pori.contentanalysis.AsyncTask.TaskType;
 import service.tut.pori.contentanalysis.CAContentCore;
 import service.tut.pori.contentanalysis.CAContentCore.ServiceType;
 import service.tut.pori.contentanalysis.CAContentCore.Visibility;
-import service.tut.pori.contentanalysis.DeletedPhotoList;
 import service.tut.pori.contentanalysis.Photo;
 import service.tut.pori.contentanalysis.PhotoDAO;
 import service.tut.pori.contentanalysis.PhotoFeedbackTask.FeedbackTaskBuilder;
 import service.tut.pori.contentanalysis.PhotoList;
 import service.tut.pori.contentanalysis.PhotoTaskDetails;
-import service.tut.pori.contentanalysis.video.DeletedVideoList;
 import service.tut.pori.contentanalysis.video.Video;
 import service.tut.pori.contentanalysis.video.VideoContentCore;
 import service.tut.pori.contentanalysis.video.VideoDAO;
@@ -108,74 +109,52 @@ public final class URLContentStorage extends ContentStorage {
 		removePhotoMetadata(userId, guids);
 		removeVideoMetadata(userId, guids);
 	}
-	
-	/**
-	 * 
-	 * @param userId
-	 * @param guids
-	 */
-	public void removePhotoMetadata(UserIdentity userId, Collection<String> guids) {
-		PhotoDAO photoDAO = ServiceInitializer.getDAOHandler().getDAO(PhotoDAO.class);
-		PhotoList photos = photoDAO.getPhotos(null, guids, null, EnumSet.of(SERVICE_TYPE), new long[]{userId.getUserId()});
-		if(PhotoList.isEmpty(photos)){
-			LOGGER.debug("User, id: "+userId.getUserId()+" has no photos.");
-			return;
-		}
-		List<String> remove = photos.getGUIDs();
-		photoDAO.remove(remove);
-		ServiceInitializer.getDAOHandler().getDAO(URLContentDAO.class).removeEntries(remove);
-
-		FeedbackTaskBuilder builder = new FeedbackTaskBuilder(TaskType.FEEDBACK); // create builder for deleted photo feedback task
-		builder.setUser(userId);
-		builder.addDeletedPhotos(DeletedPhotoList.getPhotoList(photos.getPhotos(), photos.getResultInfo()));
-		builder.setBackends(getBackends());
-		PhotoTaskDetails details = builder.build();
-		if(details == null){
-			LOGGER.warn("No content.");
-		}else{
-			if(isAutoSchedule()){
-				LOGGER.debug("Scheduling feedback task.");
-				CAContentCore.scheduleTask(details);
-			}else{
-				LOGGER.debug("Auto-schedule is disabled.");
-			}
 
-			notifyFeedbackTaskCreated(details);
-		}
+	@Override
+	protected void removeEntries(List<String> guids) {
+		ServiceInitializer.getDAOHandler().getDAO(URLContentDAO.class).removeEntries(guids);
 	}
 
 	/**
+	 * The videos are removed in pages of at most {@value service.tut.pori.contentstorage.ContentStorage#REMOVE_METADATA_PAGE_SIZE} videos, and a feedback task is created for each page.
 	 * 
 	 * @param userId
-	 * @param guids
+	 * @param guids optional list of GUIDs, if null, all videos of the user are removed
+	 * @see #removePhotoMetadata(UserIdentity, Collection)
 	 */
 	public void removeVideoMetadata(UserIdentity userId, Collection<String> guids) {
 		VideoDAO videoDAO = ServiceInitializer.getDAOHandler().getDAO(VideoDAO.class);
-		VideoList videos = videoDAO.getVideos(null, guids, null, EnumSet.of(SERVICE_TYPE), new long[]{userId.getUserId()});
-		if(VideoList.isEmpty(videos)){
-			LOGGER.debug("User, id: "+userId.getUserId()+" has no videos.");
-			return;
-		}
-		List<String> remove = videos.getGUIDs();
-		videoDAO.remove(remove);
-		ServiceInitializer.getDAOHandler().getDAO(URLContentDAO.class).removeEntries(remove);
-
-		service.tut.pori.contentanalysis.video.VideoFeedbackTask.FeedbackTaskBuilder builder = new service.tut.pori.contentanalysis.video.VideoFeedbackTask.FeedbackTaskBuilder(TaskType.FEEDBACK); // create builder for deleted video feedback task
-		builder.setUser(userId);
-		builder.addDeletedVideos(DeletedVideoList.getVideoList(videos.getVideos(), videos.getResultInfo()));
-		builder.setBackends(getBackends());
-		VideoTaskDetails details = builder.build();
-		if(details == null){
-			LOGGER.warn("No content.");
-		}else{
-			if(isAutoSchedule()){
-				LOGGER.debug("Scheduling feedback task.");
-				VideoContentCore.scheduleTask(details);
+		EnumSet<ServiceType> serviceTypes = EnumSet.of(SERVICE_TYPE);
+		long[] userIdFilter = new long[]{userId.getUserId()};
+		int count = 0;
+		for(List<String> remove = videoDAO.getGUIDs(guids, null, REMOVE_METADATA_PAGE_SIZE, serviceTypes, userIdFilter); remove != null; remove = videoDAO.getGUIDs(guids, remove.get(remove.size()-1), REMOVE_METADATA_PAGE_SIZE, serviceTypes, userIdFilter)){
+			removeEntries(remove);
+			videoDAO.remove(remove);
+			count += remove.size();
+
+			service.tut.pori.contentanalysis.video.VideoFeedbackTask.FeedbackTaskBuilder builder = new service.tut.pori.contentanalysis.video.VideoFeedbackTask.FeedbackTaskBuilder(TaskType.FEEDBACK); // create builder for deleted video feedback task
+			builder.setUser(userId);
+			builder.addDeletedVideos(remove);
+			builder.setBackends(getBackends());
+			VideoTaskDetails details = builder.build();
+			if(details == null){
+				LOGGER.warn("No content.");
 			}else{
-				LOGGER.debug("Auto-schedule is disabled.");
+				if(isAutoSchedule()){
+					LOGGER.debug("Scheduling feedback task.");
+					VideoContentCore.scheduleTask(details);
+				}else{
+					LOGGER.debug("Auto-schedule is disabled.");
+				}
+
+				notifyFeedbackTaskCreated(details);
 			}
+		}
 
-			notifyFeedbackTaskCreated(details);
+		if(count < 1){
+			LOGGER.debug("User, id: "+userId.getUserId()+" has no videos.");
+		}else{
+			LOGGER.debug("Removed "+count+" videos for user, id: "+userId.getUserId());
 		}
 	}
 	
@@ -189,11 +168,25 @@ public final class URLContentStorage extends ContentStorage {
 		try{
 			URLContentDAO urlContentDAO = ServiceInitializer.getDAOHandler().getDAO(URLContentDAO.class);
 			List<URLEntry> entries = urlContentDAO.getEntries(null, null, null, userId);
-			MediaUrlValidator validator = new MediaUrlValidator();
+			if(entries == null){
+				LOGGER.debug("No URLs for user, id: "+userId.getUserId());
+				return true;
+			}
+			
+			List<String> urls = new ArrayList<>(entries.size());
+			for(URLEntry e : entries){
+				urls.add(e.getUrl());
+			}
+			Map<String, MediaType> detectedTypes = new MediaUrlValidator().validateUrls(urls);
+			if(detectedTypes == null){
+				LOGGER.warn("Failed to validate URLs for user, id: "+userId.getUserId());
+				return false;
+			}
+			
 			for(Iterator<URLEntry> iter = entries.iterator(); iter.hasNext();){ // loop through the entries, leave invalid uris in the list
 				URLEntry e = iter.next();
 				String url = e.getUrl();
-				MediaType detectedType = validator.validateUrl(url);
+				MediaType detectedType = detectedTypes.get(url);
 				if(detectedType == MediaType.UNKNOWN){
 					LOGGER.debug("Invalid URL detected: "+url);
 				}else if(!detectedType.equals(e.getMediaType())){
@@ -213,7 +206,7 @@ public final class URLContentStorage extends ContentStorage {
 							photoGUIDs.add(e.getGUID());
 							break;
 						case VIDEO:
-							videoGUIDs.remove(e.getGUID());
+							videoGUIDs.add(e.getGUID());
 							break;
 						default:
 							throw new UnsupportedOperationException("Unhandeled media type: "+e.getMediaType().name());
@@ -272,23 +265,26 @@ public final class URLContentStorage extends ContentStorage {
 
 			PhotoDAO photoDAO = ServiceInitializer.getDAOHandler().getDAO(PhotoDAO.class);
 			URLContentDAO urlContentDAO = ServiceInitializer.getDAOHandler().getDAO(URLContentDAO.class);
-			List<URLEntry> entries = urlContentDAO.getEntries(null, EnumSet.of(MediaType.PHOTO), urls, userId);
-			if(entries == null){ // no previously known URLs
-				photoDAO.insert(forAnalysis); // this will generate GUIDs
-				for(Photo p : forAnalysis.getPhotos()){
-					urlContentDAO.addEntry(new URLEntry(p.getGUID(), MediaType.PHOTO, p.getUrl(), userId));
+			Map<String, String> knownGUIDs = getGUIDs(urlContentDAO.getEntries(null, EnumSet.of(MediaType.PHOTO), urls, userId));
+			PhotoList insert = new PhotoList();
+			for(Photo p : forAnalysis.getPhotos()){
+				String guid = knownGUIDs.get(p.getUrl());
+				if(guid == null){ // URL not known previously
+					insert.addPhoto(p);
+				}else{
+					p.setGUID(guid);
 				}
-			}else{ // some or all of the URLs are known
-				for(Photo p : forAnalysis.getPhotos()){
-					String url = p.getUrl();
-					String guid = findGUID(entries, url);
-					if(guid == null){ // URL not known previously
-						photoDAO.insert(p); // this will generate GUID
-						urlContentDAO.addEntry(new URLEntry(p.getGUID(), MediaType.PHOTO, url, userId));
-					}else{
-						p.setGUID(guid);
-					}
-				} // for
+			} // for
+			
+			if(PhotoList.isEmpty(insert)){
+				LOGGER.debug("All URLs were previously known.");
+			}else{
+				photoDAO.insert(insert); // this will generate GUIDs
+				List<URLEntry> entries = new ArrayList<>(insert.getPhotos().size());
+				for(Photo p : insert.getPhotos()){
+					entries.add(new URLEntry(p.getGUID(), MediaType.PHOTO, p.getUrl(), userId));
+				}
+				urlContentDAO.addEntries(entries);
 			}
 		} finally {
 			USER_IDENTITY_LOCK.release(userId);
@@ -312,26 +308,27 @@ public final class URLContentStorage extends ContentStorage {
 	}
 	
 	/**
-	 * helper method for finding GUID matching with the given URL from the given list of entries
+	 * helper method for mapping URLs to GUIDs
 	 * 
-	 * If there are multiple matches, this will return the first match (first depending on the iteration order of the passed collection)
+	 * If there are multiple entries for the same URL, the first entry (first depending on the iteration order of the passed collection) will be used
 	 * 
 	 * @param entries
-	 * @param url
-	 * @return GUID or null if not found
+	 * @return URL-GUID map, which will be empty if null or empty collection was passed
 	 */
-	private String findGUID(Collection<URLEntry> entries, String url){
+	private Map<String, String> getGUIDs(Collection<URLEntry> entries){
 		if(entries == null){
-			LOGGER.warn("Null entries.");
-			return null;
+			LOGGER.debug("No entries.");
+			return Collections.emptyMap();
 		}
 		
+		Map<String, String> guids = new HashMap<>(entries.size());
 		for(URLEntry e : entries){
-			if(url.equals(e.getUrl())){
-				return e.getGUID();
+			String url = e.getUrl();
+			if(!guids.containsKey(url)){
+				guids.put(url, e.getGUID());
 			}
 		}
-		return url;
+		return guids;
 	}
 
 	/**
@@ -354,23 +351,26 @@ public final class URLContentStorage extends ContentStorage {
 
 			VideoDAO videoDAO = ServiceInitializer.getDAOHandler().getDAO(VideoDAO.class);
 			URLContentDAO urlContentDAO = ServiceInitializer.getDAOHandler().getDAO(URLContentDAO.class);
-			List<URLEntry> entries = urlContentDAO.getEntries(null, EnumSet.of(MediaType.VIDEO), urls, userId);
-			if(entries == null){ // no previously known urls
-				videoDAO.insert(forAnalysis); // this will generate guids
-				for(Video v : forAnalysis.getVideos()){
-					urlContentDAO.addEntry(new URLEntry(v.getGUID(), MediaType.VIDEO, v.getUrl(), userId));
+			Map<String, String> knownGUIDs = getGUIDs(urlContentDAO.getEntries(null, EnumSet.of(MediaType.VIDEO), urls, userId));
+			VideoList insert = new VideoList();
+			for(Video v : forAnalysis.getVideos()){
+				String guid = knownGUIDs.get(v.getUrl());
+				if(guid == null){ // url not known previously
+					insert.addVideo(v);
+				}else{
+					v.setGUID(guid);
 				}
-			}else{ // some or all of the urls are known
-				for(Video v : forAnalysis.getVideos()){
-					String url = v.getUrl();
-					String guid = findGUID(entries, url);
-					if(guid == null){ // url not known previously
-						videoDAO.insert(v); // this will generate guid
-						urlContentDAO.addEntry(new URLEntry(v.getGUID(), MediaType.VIDEO, url, userId));
-					}else{
-						v.setGUID(guid);
-					}
-				} // for
+			} // for
+			
+			if(VideoList.isEmpty(insert)){
+				LOGGER.debug("All URLs were previously known.");
+			}else{
+				videoDAO.insert(insert); // this will generate guids
+				List<URLEntry> entries = new ArrayList<>(insert.getVideos().size());
+				for(Video v : insert.getVideos()){
+					entries.add(new URLEntry(v.getGUID(), MediaType.VIDEO, v.getUrl(), userId));
+				}
+				urlContentDAO.addEntries(entries);
 			}
 		} finally {
 			USER_IDENTITY_LOCK.release(userId);
@@ -0,0 +1,62 @@
+/**
+ * Copyright 2014 Tampere University of Technology, Pori Department
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package service.tut.pori.debug;
+
+import org.apache.log4j.Logger;
+
+import core.tut.pori.context.ServiceInitializer;
+import core.tut.pori.http.parameters.Limits;
+import core.tut.pori.users.UserAuthority;
+import core.tut.pori.users.UserIdentity;
+
+/**
+ * Core methods for the debug service.
+ */
+public final class DebugCore {
+	private static final int DEFAULT_TRACE_COUNT = 10;
+	private static final Logger LOGGER = Logger.getLogger(DebugCore.class);
+	
+	/**
+	 * 
+	 */
+	private DebugCore(){
+		// nothing needed
+	}
+	
+	/**
+	 * 
+	 * @param authenticatedUser
+	 * @param serviceName optional service name filter
+	 * @param methodName optional method name filter
+	 * @param limits optional limits, if not given, the default number of traces is returned. Only the maximum item count is used.
+	 * @return the slowest completed request traces or null if none is available
+	 * @throws IllegalArgumentException if the user does not have the required permissions
+	 */
+	public static TraceList getSlowestTraces(UserIdentity authenticatedUser, String serviceName, String methodName, Limits limits) throws IllegalArgumentException {
+		if(!UserIdentity.hasAuthority(UserAuthority.AUTHORITY_ROLE_ADMIN, authenticatedUser)){
+			LOGGER.warn("User, id: "+authenticatedUser.getUserId()+" tried to access request traces, but does not have the required role: "+UserAuthority.AUTHORITY_ROLE_ADMIN.getAuthority());
+			throw new IllegalArgumentException("Permission denied.");
+		}
+		
+		if(!ServiceInitializer.getTraceHandler().isEnabled()){
+			LOGGER.debug("Request tracing is disabled.");
+			return null;
+		}
+		
+		int maxTraces = (limits == null ? DEFAULT_TRACE_COUNT : limits.getMaxItems());
+		return TraceList.getTraceList(ServiceInitializer.getTraceHandler().getSlowestTraces(serviceName, methodName, maxTraces));
+	}
+}
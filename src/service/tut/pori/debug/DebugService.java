@@ -0,0 +1,57 @@
+/**
+ * Copyright 2014 Tampere University of Technology, Pori Department
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package service.tut.pori.debug;
+
+import core.tut.pori.http.Response;
+import core.tut.pori.http.annotations.HTTPAuthenticationParameter;
+import core.tut.pori.http.annotations.HTTPMethodParameter;
+import core.tut.pori.http.annotations.HTTPService;
+import core.tut.pori.http.annotations.HTTPServiceMethod;
+import core.tut.pori.http.parameters.AuthenticationParameter;
+import core.tut.pori.http.parameters.Limits;
+import core.tut.pori.http.parameters.StringParameter;
+
+/**
+ * Debug Service method declarations.
+ * 
+ * This service can be used by administrators to inspect the internal state of the service, such as request traces. 
+ * Request tracing must be enabled in the system properties for traces to be recorded.
+ *
+ */
+@HTTPService(name=Definitions.SERVICE_DEBUG)
+public class DebugService {
+	/**
+	 * This method can be used to retrieve the slowest requests currently available in the trace buffer. Each trace contains the timed SQL, Solr and outbound HTTP calls executed on behalf of the request.
+	 * 
+	 * The method requires administrator permissions.
+	 * 
+	 * @param authenticatedUser
+	 * @param serviceName optional service name filter
+	 * @param methodName optional method name filter
+	 * @param limits paging limits, only the maximum number of items is used
+	 * @return See {@link service.tut.pori.debug.TraceList}
+	 */
+	@HTTPServiceMethod(name=Definitions.METHOD_GET_SLOWEST_TRACES, acceptedMethods={core.tut.pori.http.Definitions.METHOD_GET})
+	public Response getSlowestTraces(
+			@HTTPAuthenticationParameter AuthenticationParameter authenticatedUser,
+			@HTTPMethodParameter(name=Definitions.PARAMETER_SERVICE_NAME, required=false) StringParameter serviceName,
+			@HTTPMethodParameter(name=Definitions.PARAMETER_METHOD_NAME, required=false) StringParameter methodName,
+			@HTTPMethodParameter(name=Limits.PARAMETER_DEFAULT_NAME, required=false, defaultValue="0-9") Limits limits
+			)
+	{
+		return new Response(DebugCore.getSlowestTraces(authenticatedUser.getUserIdentity(), serviceName.getValue(), methodName.getValue(), limits));
+	}
+}
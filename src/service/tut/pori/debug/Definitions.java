@@ -0,0 +1,47 @@
+/**
+ * Copyright 2014 Tampere University of Technology, Pori Department
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package service.tut.pori.debug;
+
+/**
+ * Definitions for debug package.
+ *
+ */
+public final class Definitions {
+	/* elements */
+	/** xml element declaration */
+	public static final String ELEMENT_TRACE_LIST = "traceList";
+	
+	/* local methods */
+	/** local service method declaration */
+	public static final String METHOD_GET_SLOWEST_TRACES = "getSlowestTraces";
+	
+	/* parameters */
+	/** method parameter declaration */
+	public static final String PARAMETER_METHOD_NAME = "method_name";
+	/** method parameter declaration */
+	public static final String PARAMETER_SERVICE_NAME = "service_name";
+	
+	/* services */
+	/** service name declaration */
+	public static final String SERVICE_DEBUG = "debug";
+	
+	/**
+	 * 
+	 */
+	private Definitions(){
+		// nothing needed
+	}
+}
@@ -0,0 +1,81 @@
+/**
+ * Copyright 2014 Tampere University of Technology, Pori Department
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package service.tut.pori.debug;
+
+import java.util.List;
+
+import javax.xml.bind.annotation.XmlAccessType;
+import javax.xml.bind.annotation.XmlAccessorType;
+import javax.xml.bind.annotation.XmlElement;
+import javax.xml.bind.annotation.XmlRootElement;
+
+import core.tut.pori.http.ResponseData;
+import core.tut.pori.trace.Trace;
+
+/**
+ * List of request traces usable with Response.
+ */
+@XmlRootElement(name=Definitions.ELEMENT_TRACE_LIST)
+@XmlAccessorType(XmlAccessType.NONE)
+public class TraceList extends ResponseData {
+	@XmlElement(name=core.tut.pori.trace.Definitions.ELEMENT_TRACE)
+	private List<Trace> _traces = null;
+
+	/**
+	 * @return the traces
+	 */
+	public List<Trace> getTraces() {
+		return _traces;
+	}
+
+	/**
+	 * @param traces the traces to set
+	 */
+	public void setTraces(List<Trace> traces) {
+		_traces = traces;
+	}
+	
+	/**
+	 * for sub-classing, use the static
+	 * @return true if this list is empty
+	 */
+	protected boolean isEmpty(){
+		return (_traces == null ? true : _traces.isEmpty());
+	}
+	
+	/**
+	 * 
+	 * @param list
+	 * @return true if the list is empty or null
+	 */
+	public static boolean isEmpty(TraceList list){
+		return (list == null ? true : list.isEmpty());
+	}
+	
+	/**
+	 * 
+	 * @param traces
+	 * @return new list or null if null or empty traces were given
+	 */
+	public static TraceList getTraceList(List<Trace> traces){
+		if(traces == null || traces.isEmpty()){
+			return null;
+		}
+		TraceList list = new TraceList();
+		list._traces = traces;
+		return list;
+	}
+}
@@ -82,7 +82,7 @@ public final class FBJContentCore {
 	 * @return list of media objects or null if none was found
 	 */
 	public static MediaObjectList retrieveTagsForUser(UserIdentity authenticatedUser, DataGroups dataGroups, Limits limits, SortOptions sortOptions) {
-		return ServiceInitializer.getDAOHandler().getDAO(MediaObjectDAO.class).search(authenticatedUser, dataGroups, limits, MEDIA_TYPES_FBJ, SERVICE_TYPES_FBJ, sortOptions, null, null);
+		return ServiceInitializer.getDAOHandler().getDAO(MediaObjectDAO.class).getUserMediaObjects(authenticatedUser, dataGroups, limits, MEDIA_TYPES_FBJ, SERVICE_TYPES_FBJ, sortOptions);
 	}
 
 	/**
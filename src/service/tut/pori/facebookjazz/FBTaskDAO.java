@@ -62,8 +62,6 @@ public class FBTaskDAO extends MediaTaskDAO {
 		if(taskId == null){
 			throw new IllegalArgumentException("Failed to add new task.");
 		}
-		
-		insertTaskMediaObjects(null, taskId, details.getTags());
 		return taskId;
 	}
 	
@@ -87,6 +85,20 @@ public class FBTaskDAO extends MediaTaskDAO {
 		return taskId;
 	}
 	
+	/**
+	 * Inserts the tags of feedback tasks. Summarization tasks have no content in addition to the basic task details.
+	 * 
+	 * @throws UnsupportedOperationException if the details are not {@link service.tut.pori.facebookjazz.FBFeedbackTaskDetails} or {@link service.tut.pori.facebookjazz.FBSummarizationTaskDetails}
+	 */
+	@Override
+	protected void insertTaskContent(AbstractTaskDetails details) throws UnsupportedOperationException {
+		if(details instanceof FBFeedbackTaskDetails){
+			insertTaskMediaObjects(null, details.getTaskId(), ((FBFeedbackTaskDetails) details).getTags());
+		}else if(!(details instanceof FBSummarizationTaskDetails)){
+			throw new UnsupportedOperationException("Unsupported task details: "+details.getClass().toString());
+		}
+	}
+	
 	@Override
 	public AbstractTaskDetails getTask(Integer backendId, DataGroups dataGroups, Limits limits, Long taskId) throws IllegalArgumentException, UnsupportedOperationException {
 		Pair<TaskType, UserIdentity> type = getTaskType(backendId, taskId);
@@ -15,8 +15,9 @@
  */
 package service.tut.pori.facebookjazz;
 
+import java.sql.ResultSet;
+import java.sql.SQLException;
 import java.util.List;
-import java.util.Map;
 
 import org.apache.log4j.Logger;
 import org.springframework.jdbc.core.JdbcTemplate;
@@ -26,6 +27,7 @@ import service.tut.pori.facebookjazz.WeightModifier.WeightModifierType;
 import core.tut.pori.dao.clause.AndClause;
 import core.tut.pori.dao.clause.SQLClause.SQLType;
 import core.tut.pori.dao.SQLDAO;
+import core.tut.pori.dao.SQLRowMapper;
 import core.tut.pori.dao.SQLSelectBuilder;
 import core.tut.pori.users.UserIdentity;
 
@@ -43,7 +45,7 @@ public class FacebookJazzDAO extends SQLDAO{
 	/* columns */
 	private static final String COLUMN_WEIGHT_MODIFIER_TYPE = "modifier_type";
 	/* sql scripts */
-	private static final String[] SQL_COLUMNS_GET_WEIGHT_MODIFIERS = new String[]{Definitions.COLUMN_VALUE,COLUMN_WEIGHT_MODIFIER_TYPE};	
+	private static final WeightModifierMapper WEIGHT_MODIFIER_MAPPER = new WeightModifierMapper();
 	
 	private static final String SQL_REMOVE_WEIGHT_MODIFIERS = "DELETE FROM "+TABLE_WEIGHT_MODIFIERS+" WHERE "+COLUMN_USER_ID+"=?";
 	private static final int[] SQL_REMOVE_WEIGHT_MODIFIERS_SQL_TYPES = new int[]{SQLType.LONG.toInt()};
@@ -51,6 +53,28 @@ public class FacebookJazzDAO extends SQLDAO{
 	private static final String SQL_SET_WEIGHT_MODIFIERS = "INSERT INTO "+TABLE_WEIGHT_MODIFIERS+" ("+COLUMN_USER_ID+", "+Definitions.COLUMN_VALUE+", "+COLUMN_WEIGHT_MODIFIER_TYPE+", "+COLUMN_ROW_CREATED+") VALUES (?,?,?,NOW()) ON DUPLICATE KEY UPDATE "+Definitions.COLUMN_VALUE+"=?";
 	private static final int[] SQL_SET_WEIGHT_MODIFIERS_SQL_TYPES = new int[]{SQLType.LONG.toInt(), SQLType.INTEGER.toInt(), SQLType.INTEGER.toInt(), SQLType.INTEGER.toInt()};
 	
+	/**
+	 * Maps the rows of the weight modifiers table into weight modifiers.
+	 */
+	private static final class WeightModifierMapper extends SQLRowMapper<WeightModifier> {
+		private final int _typeIndex;
+		private final int _valueIndex;
+		
+		/**
+		 * 
+		 */
+		private WeightModifierMapper(){
+			super(Definitions.COLUMN_VALUE, COLUMN_WEIGHT_MODIFIER_TYPE);
+			_typeIndex = indexOf(COLUMN_WEIGHT_MODIFIER_TYPE);
+			_valueIndex = indexOf(Definitions.COLUMN_VALUE);
+		}
+
+		@Override
+		public WeightModifier mapRow(ResultSet set, int rowNum) throws SQLException {
+			return new WeightModifier(WeightModifierType.fromInt(set.getInt(_typeIndex)), getInteger(set, _valueIndex));
+		}
+	} // class WeightModifierMapper
+	
 	/**
 	 * 
 	 * @param userId use null to retrieve defaults
@@ -58,7 +82,7 @@ public class FacebookJazzDAO extends SQLDAO{
 	 */
 	public WeightModifierList getWeightModifiers(UserIdentity userId){
 		SQLSelectBuilder sql = new SQLSelectBuilder(TABLE_WEIGHT_MODIFIERS);
-		sql.addSelectColumns(SQL_COLUMNS_GET_WEIGHT_MODIFIERS);
+		sql.addSelectColumns(WEIGHT_MODIFIER_MAPPER.getColumns());
 		Long userIdValue = null;
 		if(!UserIdentity.isValid(userId)){
 			LOGGER.debug("Invalid user id, returning default values...");
@@ -67,15 +91,15 @@ public class FacebookJazzDAO extends SQLDAO{
 		}
 		sql.addWhereClause(new AndClause(COLUMN_USER_ID, userIdValue, SQLType.LONG));
 			
-		List<Map<String,Object>> rows = getJdbcTemplate().queryForList(sql.toSQLString(), sql.getValues(), sql.getValueTypes());
-		if(rows.isEmpty()){
+		List<WeightModifier> modifiers = WEIGHT_MODIFIER_MAPPER.query(getJdbcTemplate(), sql.toSQLString(), sql.getValues(), sql.getValueTypes());
+		if(modifiers == null){
 			LOGGER.debug("No modifiers.");
 			return null;
 		}
 		
 		WeightModifierList list = new WeightModifierList();
-		for(Map<String, Object> row : rows){
-			list.setWeightModifier(new WeightModifier(WeightModifierType.fromInt((int) row.get(COLUMN_WEIGHT_MODIFIER_TYPE)), (Integer) row.get(Definitions.COLUMN_VALUE)));
+		for(WeightModifier modifier : modifiers){
+			list.setWeightModifier(modifier);
 		}
 		return list;
 	}
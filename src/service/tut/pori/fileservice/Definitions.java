@@ -36,6 +36,8 @@ public final class Definitions {
 	/** service method declaration */
 	public static final String METHOD_DELETE_FILE = "deleteFile";
 	/** service method declaration */
+	public static final String METHOD_GET_FILE = "getFile";
+	/** service method declaration */
 	public static final String METHOD_LIST_FILES = "listFiles";
 	
 	/* elements */
@@ -55,6 +57,16 @@ public final class Definitions {
 	public static final String PARAMETER_FILE_ID = "file_id";
 	/** method parameter declaration */
 	public static final String PARAMETER_FILE_NAME = "filename";
+	/** method parameter declaration */
+	public static final String PARAMETER_SAVED_NAME = "name";
+	
+	/* headers */
+	/** HTTP header declaration */
+	public static final String HEADER_CONTENT_LENGTH = "Content-Length";
+	/** HTTP header declaration */
+	public static final String HEADER_IF_NONE_MATCH = "If-None-Match";
+	/** HTTP header declaration */
+	public static final String HEADER_RANGE = "Range";
 
 	/** property file for the service */
 	protected static final String PROPERTY_FILE = "fs.properties";
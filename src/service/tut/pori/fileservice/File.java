@@ -46,6 +46,7 @@ public class File {
 	@XmlElement(name = Definitions.ELEMENT_NAME)
 	private String _name = null;
 	private String _savedName = null;
+	private String _sha256 = null;
 	@XmlElement(name = Definitions.ELEMENT_URL)
 	private String _url = null;
 	private UserIdentity _userId = null;
@@ -148,4 +149,18 @@ public class File {
 	public void setSavedName(String savedName) {
 		_savedName = savedName;
 	}
+
+	/**
+	 * @return hex encoded SHA-256 checksum of the file contents or null if not known
+	 */
+	public String getSha256() {
+		return _sha256;
+	}
+
+	/**
+	 * @param sha256 hex encoded SHA-256 checksum of the file contents
+	 */
+	public void setSha256(String sha256) {
+		_sha256 = sha256;
+	}
 }
@@ -15,11 +15,38 @@
  */
 package service.tut.pori.fileservice;
 
+import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.Set;
 
+import org.apache.commons.lang3.StringUtils;
 import org.apache.log4j.Logger;
+import org.quartz.DisallowConcurrentExecution;
+import org.quartz.Job;
+import org.quartz.JobBuilder;
+import org.quartz.JobDataMap;
+import org.quartz.JobExecutionContext;
+import org.quartz.JobExecutionException;
+import org.quartz.JobKey;
+import org.quartz.Scheduler;
+import org.quartz.SchedulerException;
+import org.quartz.SimpleScheduleBuilder;
+import org.quartz.TriggerBuilder;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.event.ContextRefreshedEvent;
 
 import core.tut.pori.context.ServiceInitializer;
+import core.tut.pori.http.Response.Status;
 import core.tut.pori.http.parameters.Limits;
 import core.tut.pori.users.UserIdentity;
 
@@ -28,7 +55,18 @@ import core.tut.pori.users.UserIdentity;
  */
 public final class FileCore {
 	private static final FileHandler FILE_HANDLER = new FileHandler();
+	private static final String JOB_DATA_RECONCILE = "reconcile";
+	private static final JobKey JOB_KEY_FILE_REMOVAL = new JobKey("fileRemoval", Definitions.SERVICE_FS);
 	private static final Logger LOGGER = Logger.getLogger(FileCore.class);
+	private static final long ORPHAN_AGE = 86400000; // in milliseconds
+	private static final char SEPARATOR_PATH = '/';
+	private static final Object[] LOCKS;
+	static{
+		LOCKS = new Object[64];
+		for(int i=0;i<LOCKS.length;++i){
+			LOCKS[i] = new Object();
+		}
+	}
 	
 	/**
 	 * 
@@ -38,54 +76,104 @@ public final class FileCore {
 	}
 
 	/**
+	 * 
+	 * If content addressed storage is enabled, the file is first saved using a temporary name, and then moved to its content addressed location, 
+	 * or discarded if a file with identical content already exists.
 	 * 
 	 * @param authenticatedUser
 	 * @param file
 	 * @param filename optional original filename. The real filename used to store the file on the system will be generated, thus giving filename as a parameter is optional.
+	 * @param contentLength the expected size of the file in bytes or &lt; 1 if not known
 	 * @return details of the added file or null on failure
+	 * @see service.tut.pori.fileservice.FileProperties#isContentAddressed()
 	 */
-	public static File addFile(UserIdentity authenticatedUser, InputStream file, String filename) {
+	public static File addFile(UserIdentity authenticatedUser, InputStream file, String filename, long contentLength) {
 		FileProperties fp = ServiceInitializer.getPropertyHandler().getSystemProperties(FileProperties.class);
 		
-		String savedName = FILE_HANDLER.generateFilename(filename);
-		FileDAO fileDAO = ServiceInitializer.getDAOHandler().getDAO(FileDAO.class);
+		String savedName = FILE_HANDLER.generateFilename(filename); // in content addressed mode this is the temporary name
+		String filePath = fp.getFilePath()+savedName;
+		String sha256 = FILE_HANDLER.save(filePath, file, contentLength, fp.getMaxUploadSize()); // save the file to file system first, the checksum is only known after the content has been received
+		if(sha256 == null){
+			LOGGER.warn("Failed to save file: "+savedName);
+			return null;
+		}
+		
 		File savedFile = new File();
-		savedFile.setSavedName(savedName);
 		savedFile.setName(filename);
+		savedFile.setSha256(sha256);
 		savedFile.setUserId(authenticatedUser);
-		fileDAO.save(savedFile); // save first to reserve the generated savedName in the database table, in theory this may also throw data violation exception if the name is already in use, though in practice that'll never happen
-		
-		if(!FILE_HANDLER.save(fp.getFilePath()+savedName, file)){ // save the file to file system
-			LOGGER.warn("Failed to save file: "+savedName);
-			fileDAO.delete(authenticatedUser, new long[]{savedFile.getFileId()});
-			return null;
+		FileDAO fileDAO = ServiceInitializer.getDAOHandler().getDAO(FileDAO.class);
+		if(fp.isContentAddressed()){
+			String contentName = FILE_HANDLER.generateContentAddressedFilename(sha256, filename);
+			String contentPath = fp.getFilePath()+contentName;
+			savedFile.setSavedName(contentName);
+			synchronized (getLock(contentName)) { // prevent the file from being removed by a simultaneous delete
+				if(FILE_HANDLER.exists(contentPath)){
+					LOGGER.debug("File already exists, discarding the uploaded copy of: "+contentName);
+					FILE_HANDLER.delete(filePath);
+				}else if(!FILE_HANDLER.move(filePath, contentPath)){
+					LOGGER.warn("Failed to move file "+savedName+" to "+contentName);
+					FILE_HANDLER.delete(filePath);
+					return null;
+				}
+				try{
+					fileDAO.save(savedFile);
+				} catch (RuntimeException ex){
+					if(fileDAO.getReferenceCount(contentName) < 1){
+						LOGGER.warn("Failed to save file details, removing file: "+contentName);
+						FILE_HANDLER.delete(contentPath);
+					}
+					throw ex;
+				}
+			}
+		}else{
+			savedFile.setSavedName(savedName);
+			try{
+				fileDAO.save(savedFile); // in theory this may throw data violation exception if the name is already in use, though in practice that'll never happen
+			} catch (RuntimeException ex){
+				LOGGER.warn("Failed to save file details, removing file: "+savedName);
+				FILE_HANDLER.delete(filePath);
+				throw ex;
+			}
 		}
-		savedFile.setUrl(createUrl(fp.getUriPath(),savedName));
+		savedFile.setUrl(createUrl(fp.getUriPath(),savedFile.getSavedName()));
 		
 		return savedFile;
 	}
+	
+	/**
+	 * 
+	 * @param savedName
+	 * @param range optional value of the HTTP Range header
+	 * @param ifNoneMatch optional value of the HTTP If-None-Match header
+	 * @return response for sending the file
+	 */
+	public static FileResponse getFile(String savedName, String range, String ifNoneMatch) {
+		File file = ServiceInitializer.getDAOHandler().getDAO(FileDAO.class).getFile(savedName); // resolve through the database to make sure that only the stored files can be accessed
+		if(file == null){
+			return new FileResponse(Status.NOT_FOUND);
+		}
+		return new FileResponse(file, ServiceInitializer.getPropertyHandler().getSystemProperties(FileProperties.class).getFilePath()+file.getSavedName(), range, ifNoneMatch);
+	}
 
 	/**
 	 * Delete the files given as a list of file ids, if array is empty or null, all user's files will be deleted
 	 * 
+	 * The file details are removed immediately, the actual files are removed asynchronously by {@link service.tut.pori.fileservice.FileCore.FileRemovalJob}.
+	 * 
 	 * @param authenticatedUser
 	 * @param fileIds
 	 */
 	public static void deleteFiles(UserIdentity authenticatedUser, long[] fileIds) {
-		/* process the deletion immediately, this could also be made into a quartz job if it starts to slow down or cause issues */
-		FileList files = ServiceInitializer.getDAOHandler().getDAO(FileDAO.class).delete(authenticatedUser, fileIds); // delete files, this will also check permissions
+		FileList files = ServiceInitializer.getDAOHandler().getDAO(FileDAO.class).delete(authenticatedUser, fileIds); // delete files, this will also check permissions and add the files to the removal queue
 		if(FileList.isEmpty(files)){
 			LOGGER.debug("No files deleted.");
 		}else{
-			StringBuilder directoryPath = new StringBuilder(ServiceInitializer.getPropertyHandler().getSystemProperties(FileProperties.class).getFilePath());
-			int length = directoryPath.length();
-			for(File file : files.getFiles()){
-				directoryPath.setLength(length);
-				directoryPath.append(file.getSavedName());
-				if(!FILE_HANDLER.delete(directoryPath.toString())){
-					LOGGER.warn("Failed to delete file: "+file.getSavedName());
-				}
-			} // for
+			try {
+				ServiceInitializer.getExecutorHandler().getScheduler().triggerJob(JOB_KEY_FILE_REMOVAL);
+			} catch (SchedulerException ex) { // the files will be removed on the next scheduled run
+				LOGGER.warn(ex, ex);
+			}
 		}
 	}
 
@@ -110,6 +198,38 @@ public final class FileCore {
 		} // else
 	}
 	
+	/**
+	 * Removes the given file if it exists and is not referenced by any file details.
+	 * 
+	 * @param fileDAO
+	 * @param directoryPath
+	 * @param savedName
+	 * @return true if the file was removed, did not exist, or is still referenced
+	 */
+	private static boolean removeFile(FileDAO fileDAO, String directoryPath, String savedName){
+		String filePath = directoryPath+savedName;
+		if(FILE_HANDLER.isContentAddressedName(savedName)){
+			synchronized (getLock(savedName)) { // content addressed files are only removed when the last file referencing the content has been deleted
+				if(fileDAO.getReferenceCount(savedName) > 0){
+					LOGGER.debug("File is still referenced, not deleting: "+savedName);
+					return true;
+				}
+				return (!FILE_HANDLER.exists(filePath) || FILE_HANDLER.delete(filePath));
+			}
+		}else{
+			return (!FILE_HANDLER.exists(filePath) || FILE_HANDLER.delete(filePath));
+		}
+	}
+	
+	/**
+	 * 
+	 * @param savedName
+	 * @return lock object for synchronizing the creation and removal of content addressed files
+	 */
+	private static Object getLock(String savedName){
+		return LOCKS[(savedName.hashCode() & Integer.MAX_VALUE) % LOCKS.length];
+	}
+	
 	/**
 	 * 
 	 * @param filePath
@@ -119,4 +239,128 @@ public final class FileCore {
 	private static final String createUrl(String filePath, String savedName){
 		return filePath+savedName;
 	}
+	
+	/**
+	 * Listener for context refresh events, used to register the file removal job on service start.
+	 *
+	 * Automatically instantiated by Spring as a bean.
+	 */
+	@SuppressWarnings("unused")
+	private static class FileRemovalJobInitializer implements ApplicationListener<ContextRefreshedEvent>{
+
+		@Override
+		public void onApplicationEvent(ContextRefreshedEvent event) {
+			FileProperties fp = ServiceInitializer.getPropertyHandler().getSystemProperties(FileProperties.class);
+			Scheduler scheduler = ServiceInitializer.getExecutorHandler().getScheduler();
+			try {
+				scheduler.addJob(JobBuilder.newJob(FileRemovalJob.class).withIdentity(JOB_KEY_FILE_REMOVAL).storeDurably().build(), true);
+				LOGGER.debug("Scheduling file removal job to run every "+fp.getRemovalInterval()+" minutes.");
+				scheduler.scheduleJob(TriggerBuilder.newTrigger()
+						.forJob(JOB_KEY_FILE_REMOVAL)
+						.usingJobData(JOB_DATA_RECONCILE, fp.isReconcileOrphans())
+						.startNow() // process the removals pending from the previous run
+						.withSchedule(SimpleScheduleBuilder.repeatMinutelyForever(fp.getRemovalInterval()))
+						.build());
+			} catch (SchedulerException ex) {
+				LOGGER.error(ex, ex);
+			}
+		}
+	} // class FileRemovalJobInitializer
+	
+	/**
+	 * A job for removing deleted files from the file system.
+	 * 
+	 * The removals are processed in batches from the removal queue. Failed removals will be retried on the next run, until the maximum number of attempts has been reached.
+	 * 
+	 * If reconciliation is enabled in the job data, the file path is first scanned for files that are not referenced by any file details and are not in the removal queue. 
+	 * Such files are added to the removal queue if they have not been modified for a day.
+	 */
+	@DisallowConcurrentExecution
+	public static class FileRemovalJob implements Job{
+
+		@Override
+		public void execute(JobExecutionContext context) throws JobExecutionException {
+			FileProperties fp = ServiceInitializer.getPropertyHandler().getSystemProperties(FileProperties.class);
+			FileDAO fileDAO = ServiceInitializer.getDAOHandler().getDAO(FileDAO.class);
+			JobDataMap data = context.getMergedJobDataMap();
+			if(data.containsKey(JOB_DATA_RECONCILE) && data.getBooleanValue(JOB_DATA_RECONCILE)){
+				reconcile(fp, fileDAO);
+			}
+			
+			String directoryPath = fp.getFilePath();
+			int batchSize = fp.getRemovalBatchSize();
+			int maxAttempts = fp.getRemovalMaxAttempts();
+			long lastRemovalId = 0;
+			List<Long> completed = new ArrayList<>(batchSize);
+			List<Long> failed = new ArrayList<>();
+			for(LinkedHashMap<Long, String> removals = fileDAO.getRemovals(lastRemovalId, maxAttempts, batchSize); removals != null; removals = fileDAO.getRemovals(lastRemovalId, maxAttempts, batchSize)){
+				for(Entry<Long, String> e : removals.entrySet()){
+					lastRemovalId = e.getKey();
+					if(removeFile(fileDAO, directoryPath, e.getValue())){
+						completed.add(lastRemovalId);
+					}else{
+						LOGGER.warn("Failed to delete file: "+e.getValue());
+						failed.add(lastRemovalId);
+					}
+				} // for
+				
+				if(!completed.isEmpty()){
+					fileDAO.removeRemovals(completed);
+					completed.clear();
+				}
+				if(!failed.isEmpty()){
+					fileDAO.markRemovalsFailed(failed);
+					failed.clear();
+				}
+			} // for
+		}
+		
+		/**
+		 * Scans the file path for orphaned files and adds them to the removal queue.
+		 * 
+		 * @param fp
+		 * @param fileDAO
+		 */
+		private void reconcile(FileProperties fp, final FileDAO fileDAO){
+			final Path root = Paths.get(fp.getFilePath());
+			final long modifiedBefore = System.currentTimeMillis() - ORPHAN_AGE; // ignore recent files, these may still be in the process of being uploaded
+			final int batchSize = fp.getRemovalBatchSize();
+			final List<String> savedNames = new ArrayList<>(batchSize);
+			LOGGER.debug("Scanning for orphaned files in "+root.toString());
+			try {
+				Files.walkFileTree(root, new SimpleFileVisitor<Path>(){
+					@Override
+					public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+						if(attrs.isRegularFile() && attrs.lastModifiedTime().toMillis() < modifiedBefore){
+							savedNames.add(StringUtils.join(root.relativize(file).iterator(), SEPARATOR_PATH));
+							if(savedNames.size() >= batchSize){
+								addOrphans(fileDAO, savedNames);
+							}
+						}
+						return FileVisitResult.CONTINUE;
+					}
+				});
+				addOrphans(fileDAO, savedNames);
+			} catch (IOException ex) {
+				LOGGER.error(ex, ex);
+			}
+		}
+		
+		/**
+		 * 
+		 * @param fileDAO
+		 * @param savedNames the list will be cleared
+		 */
+		private void addOrphans(FileDAO fileDAO, List<String> savedNames){
+			if(savedNames.isEmpty()){
+				return;
+			}
+			Set<String> orphans = fileDAO.getUnknownSavedNames(savedNames);
+			if(orphans != null){
+				LOGGER.info("Adding "+orphans.size()+" orphaned files to the removal queue.");
+				fileDAO.addRemovals(orphans);
+			}
+			savedNames.clear();
+		}
+	} // class FileRemovalJob
 }
@@ -17,14 +17,20 @@ package service.tut.pori.fileservice;
 
 
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Set;
 
 import org.apache.commons.lang3.ArrayUtils;
 import org.apache.log4j.Logger;
-import org.springframework.jdbc.core.simple.SimpleJdbcInsert;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCreatorFactory;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionCallback;
 
 import core.tut.pori.dao.clause.AndClause;
 import core.tut.pori.dao.clause.SQLClause.SQLType;
@@ -41,62 +47,163 @@ public class FileDAO extends SQLDAO {
 	private static final Logger LOGGER = Logger.getLogger(FileDAO.class);
 	/* tables */
 	private static final String TABLE_FILES = DATABASE+".fs_files";
+	private static final String TABLE_FILE_REMOVALS = DATABASE+".fs_file_removals";
 	/* columns */
+	private static final String COLUMN_ATTEMPTS = "attempts";
 	private static final String COLUMN_FILE_ID = "file_id";
 	private static final String COLUMN_ORIGINAL_NAME = "original_name";
+	private static final String COLUMN_REMOVAL_ID = "removal_id";
 	private static final String COLUMN_SAVED_NAME = "saved_name";
+	private static final String COLUMN_SHA256 = "sha256";
 	/* sql scripts */
-	private static final String[] COLUMNS_GET_FILES = {COLUMN_FILE_ID, COLUMN_ORIGINAL_NAME, COLUMN_SAVED_NAME, COLUMN_USER_ID};
-	private static final String[] COLUMNS_SAVE_FILE = {COLUMN_ORIGINAL_NAME, COLUMN_SAVED_NAME, COLUMN_USER_ID};
+	private static final String[] COLUMNS_GET_FILES = {COLUMN_FILE_ID, COLUMN_ORIGINAL_NAME, COLUMN_SAVED_NAME, COLUMN_SHA256, COLUMN_USER_ID};
 
+	private static final PreparedStatementCreatorFactory SQL_INSERT_FILE = createInsertFactory("INSERT INTO "+TABLE_FILES+" ("+COLUMN_ORIGINAL_NAME+", "+COLUMN_SAVED_NAME+", "+COLUMN_SHA256+", "+COLUMN_USER_ID+", "+COLUMN_ROW_CREATED+") VALUES (?,?,?,?,NOW())", new int[]{SQLType.STRING.toInt(), SQLType.STRING.toInt(), SQLType.STRING.toInt(), SQLType.LONG.toInt()});
+
+	private static final String SQL_COUNT_FILES_BY_SAVED_NAME = "SELECT COUNT(*) FROM "+TABLE_FILES+" WHERE "+COLUMN_SAVED_NAME+"=?";
+	private static final int[] SQL_COUNT_FILES_BY_SAVED_NAME_SQL_TYPES = {SQLType.STRING.toInt()};
+	
 	private static final String SQL_DELETE_FILES_FOR_USER = "DELETE FROM "+TABLE_FILES+" WHERE "+COLUMN_USER_ID+"=?";
 	private static final int[] SQL_DELETE_FILES_FOR_USER_SQL_TYPES = {SQLType.LONG.toInt()};
 	
+	private static final String SQL_GET_REMOVALS = "SELECT "+COLUMN_REMOVAL_ID+", "+COLUMN_SAVED_NAME+" FROM "+TABLE_FILE_REMOVALS+" WHERE "+COLUMN_REMOVAL_ID+">? AND "+COLUMN_ATTEMPTS+"<? ORDER BY "+COLUMN_REMOVAL_ID+" LIMIT ?";
+	private static final int[] SQL_GET_REMOVALS_SQL_TYPES = {SQLType.LONG.toInt(), SQLType.INTEGER.toInt(), SQLType.INTEGER.toInt()};
+	
+	private static final String SQL_INCREMENT_REMOVAL_ATTEMPTS = "UPDATE "+TABLE_FILE_REMOVALS+" SET "+COLUMN_ATTEMPTS+"="+COLUMN_ATTEMPTS+"+1 WHERE "+COLUMN_REMOVAL_ID+"=?";
+	private static final int[] SQL_INCREMENT_REMOVAL_ATTEMPTS_SQL_TYPES = {SQLType.LONG.toInt()};
+	
+	private static final String SQL_INSERT_REMOVAL = "INSERT INTO "+TABLE_FILE_REMOVALS+" ("+COLUMN_SAVED_NAME+", "+COLUMN_ROW_CREATED+") VALUES (?,NOW())";
+	private static final int[] SQL_INSERT_REMOVAL_SQL_TYPES = {SQLType.STRING.toInt()};
+	
 	/**
 	 * 
 	 * @param file
 	 */
 	public void save(File file) {
-		SimpleJdbcInsert insert = new SimpleJdbcInsert(getJdbcTemplate());
-		insert.withTableName(TABLE_FILES);
-		insert.withoutTableColumnMetaDataAccess();
-		insert.usingColumns(COLUMNS_SAVE_FILE);
-		insert.setGeneratedKeyName(COLUMN_FILE_ID);
-		
-		Map<String, Object> values = new HashMap<>(COLUMNS_SAVE_FILE.length);
-		values.put(COLUMN_ORIGINAL_NAME, file.getName());
-		values.put(COLUMN_SAVED_NAME, file.getSavedName());
-		values.put(COLUMN_USER_ID, file.getUserId().getUserId());
-		file.setFileId((Long) insert.executeAndReturnKey(values));
+		file.setFileId(insertAndReturnKey(SQL_INSERT_FILE, file.getName(), file.getSavedName(), file.getSha256(), file.getUserId().getUserId()));
 	}
 
 	/**
+	 * 
+	 * @param savedName
+	 * @return number of files referencing the given saved name
+	 */
+	public long getReferenceCount(String savedName) {
+		return getJdbcTemplate().queryForObject(SQL_COUNT_FILES_BY_SAVED_NAME, new Object[]{savedName}, SQL_COUNT_FILES_BY_SAVED_NAME_SQL_TYPES, Long.class);
+	}
+
+	/**
+	 * Deletes the file details, and adds the saved files into the removal queue.
 	 * 
 	 * @param authenticatedUser
 	 * @param fileIds if null or empty, all files for the given user will be deleted
 	 * @return list of deleted files or null if nothing was deleted
+	 * @see #getRemovals(long, int, int)
 	 */
-	public FileList delete(UserIdentity authenticatedUser, long[] fileIds) {
-		FileList files = getFiles(authenticatedUser, fileIds, null);
-		if(FileList.isEmpty(files)){
-			LOGGER.debug("No files found.");
+	public FileList delete(final UserIdentity authenticatedUser, final long[] fileIds) {
+		return getTransactionTemplate().execute(new TransactionCallback<FileList>() {
+			@Override
+			public FileList doInTransaction(TransactionStatus status) {
+				FileList files = getFiles(authenticatedUser, fileIds, null);
+				if(FileList.isEmpty(files)){
+					LOGGER.debug("No files found.");
+					return null;
+				}
+				
+				List<File> fileList = files.getFiles();
+				JdbcTemplate t = getJdbcTemplate();
+				if(ArrayUtils.isEmpty(fileIds)){
+					Object[] ob = new Object[]{authenticatedUser.getUserId()};
+					LOGGER.debug("Removed "+t.update(SQL_DELETE_FILES_FOR_USER, ob, SQL_DELETE_FILES_FOR_USER_SQL_TYPES)+" files for user, id: "+ob[0]);
+				}else{
+					List<Long> fileIdList = new ArrayList<>(fileList.size());
+					for(File file : fileList){
+						fileIdList.add(file.getFileId());
+					}
+					SQLDeleteBuilder sql = new SQLDeleteBuilder(TABLE_FILES);
+					sql.addWhereClause(new AndClause(COLUMN_FILE_ID, fileIdList, SQLType.LONG));
+					LOGGER.debug("Removed "+sql.execute(t)+" files for user, id: "+authenticatedUser.getUserId());
+				}
+				
+				Set<String> savedNames = new HashSet<>(fileList.size());
+				for(File file : fileList){
+					savedNames.add(file.getSavedName());
+				}
+				addRemovals(savedNames);
+				return files;
+			}
+		});
+	}
+	
+	/**
+	 * 
+	 * @param savedNames names of the saved files to be added to the removal queue
+	 */
+	public void addRemovals(Collection<String> savedNames) {
+		List<Object[]> batchArgs = new ArrayList<>(savedNames.size());
+		for(String savedName : savedNames){
+			batchArgs.add(new Object[]{savedName});
+		}
+		getJdbcTemplate().batchUpdate(SQL_INSERT_REMOVAL, batchArgs, SQL_INSERT_REMOVAL_SQL_TYPES);
+	}
+	
+	/**
+	 * 
+	 * @param afterRemovalId only removals with id greater than this will be returned
+	 * @param maxAttempts only removals with less attempts than this will be returned
+	 * @param maxItems
+	 * @return removal id - saved name map of queued removals in the order of removal id or null if none found
+	 */
+	public LinkedHashMap<Long, String> getRemovals(long afterRemovalId, int maxAttempts, int maxItems) {
+		List<Map<String, Object>> rows = getJdbcTemplate().queryForList(SQL_GET_REMOVALS, new Object[]{afterRemovalId, maxAttempts, maxItems}, SQL_GET_REMOVALS_SQL_TYPES);
+		if(rows.isEmpty()){
+			LOGGER.debug("No removals found.");
 			return null;
 		}
-		
-		if(ArrayUtils.isEmpty(fileIds)){
-			Object[] ob = new Object[]{authenticatedUser.getUserId()};
-			LOGGER.debug("Removed "+getJdbcTemplate().update(SQL_DELETE_FILES_FOR_USER, ob, SQL_DELETE_FILES_FOR_USER_SQL_TYPES)+" files for user, id: "+ob[0]);
-		}else{
-			List<File> fileList = files.getFiles();
-			List<Long> fileIdList = new ArrayList<>(fileList.size());
-			for(File file : fileList){
-				fileIdList.add(file.getFileId());
-			}
-			SQLDeleteBuilder sql = new SQLDeleteBuilder(TABLE_FILES);
-			sql.addWhereClause(new AndClause(COLUMN_FILE_ID, fileIdList, SQLType.LONG));
-			LOGGER.debug("Removed "+sql.execute(getJdbcTemplate())+" files for user, id: "+authenticatedUser.getUserId());
+		LinkedHashMap<Long, String> removals = new LinkedHashMap<>(rows.size());
+		for(Map<String, Object> row : rows){
+			removals.put((Long) row.get(COLUMN_REMOVAL_ID), (String) row.get(COLUMN_SAVED_NAME));
 		}
-		return files;
+		return removals;
+	}
+	
+	/**
+	 * 
+	 * @param removalIds completed removals to be removed from the removal queue
+	 */
+	public void removeRemovals(Collection<Long> removalIds) {
+		SQLDeleteBuilder sql = new SQLDeleteBuilder(TABLE_FILE_REMOVALS);
+		sql.addWhereClause(new AndClause(COLUMN_REMOVAL_ID, removalIds, SQLType.LONG));
+		LOGGER.debug("Removed "+sql.execute(getJdbcTemplate())+" completed removals.");
+	}
+	
+	/**
+	 * 
+	 * @param removalIds failed removals, the attempt count of which will be increased
+	 */
+	public void markRemovalsFailed(Collection<Long> removalIds) {
+		List<Object[]> batchArgs = new ArrayList<>(removalIds.size());
+		for(Long removalId : removalIds){
+			batchArgs.add(new Object[]{removalId});
+		}
+		getJdbcTemplate().batchUpdate(SQL_INCREMENT_REMOVAL_ATTEMPTS, batchArgs, SQL_INCREMENT_REMOVAL_ATTEMPTS_SQL_TYPES);
+	}
+	
+	/**
+	 * 
+	 * @param savedNames
+	 * @return the names from the given collection, which are not referenced by any file and which are not in the removal queue, or null if all names are known
+	 */
+	public Set<String> getUnknownSavedNames(Collection<String> savedNames) {
+		Set<String> unknown = new HashSet<>(savedNames);
+		JdbcTemplate t = getJdbcTemplate();
+		for(String table : new String[]{TABLE_FILES, TABLE_FILE_REMOVALS}){
+			SQLSelectBuilder sql = new SQLSelectBuilder(table);
+			sql.addSelectColumn(COLUMN_SAVED_NAME);
+			sql.addWhereClause(new AndClause(COLUMN_SAVED_NAME, savedNames, SQLType.STRING));
+			unknown.removeAll(t.queryForList(sql.toSQLString(), sql.getValues(), sql.getValueTypes(), String.class));
+		}
+		return (unknown.isEmpty() ? null : unknown);
 	}
 
 	/**
@@ -129,6 +236,23 @@ public class FileDAO extends SQLDAO {
 		return FileList.getFileList(files);
 	}
 	
+	/**
+	 * 
+	 * @param savedName
+	 * @return the file or null if not found. If multiple files share the same (content addressed) name, any one of them may be returned.
+	 */
+	public File getFile(String savedName) {
+		SQLSelectBuilder sql = new SQLSelectBuilder(TABLE_FILES);
+		sql.addSelectColumns(COLUMNS_GET_FILES);
+		sql.addWhereClause(new AndClause(COLUMN_SAVED_NAME, savedName, SQLType.STRING));
+		List<Map<String, Object>> rows = getJdbcTemplate().queryForList(sql.toSQLString(), sql.getValues(), sql.getValueTypes());
+		if(rows.isEmpty()){
+			LOGGER.debug("File not found, saved name: "+savedName);
+			return null;
+		}
+		return extractFile(rows.get(0));
+	}
+	
 	/**
 	 * 
 	 * @param row
@@ -147,6 +271,9 @@ public class FileDAO extends SQLDAO {
 				case COLUMN_SAVED_NAME:
 					file.setSavedName((String) e.getValue());
 					break;
+				case COLUMN_SHA256:
+					file.setSha256((String) e.getValue());
+					break;
 				case COLUMN_USER_ID:
 					file.setUserId(new UserIdentity((Long) e.getValue()));
 					break;
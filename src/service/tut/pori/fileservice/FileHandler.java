@@ -16,22 +16,37 @@
 package service.tut.pori.fileservice;
 
 import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.UUID;
 
+import org.apache.commons.codec.binary.Hex;
 import org.apache.commons.io.FileUtils;
-import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.ArrayUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.log4j.Logger;
 
 /**
- * A simple helper class for saving and deleting a file, as well generating a random filename.
+ * A simple helper class for saving and deleting a file, as well generating a random or a content addressed filename.
  */
 public class FileHandler {
+	private static final String ALGORITHM_SHA256 = "SHA-256";
 	private static final char SEPARATOR_FILE_EXTENSION = '.';
+	private static final char SEPARATOR_SHARD = '/';
+	private static final int SHARD_LENGTH = 2; // in hex characters
+	private static final int SHARD_LEVELS = 2;
+	private static final long TRANSFER_CHUNK_SIZE = 1048576; // in bytes
 	private static final Logger LOGGER = Logger.getLogger(FileHandler.class);
 	
 	/**
@@ -40,15 +55,72 @@ public class FileHandler {
 	 * @param filePath absolute file path of the file to be created
 	 * @param file the inputstream containing the file, the stream will NOT be closed
 	 * @return true on success
+	 * @see #save(String, InputStream, long, long)
 	 */
 	public boolean save(String filePath, InputStream file){
-		try (FileOutputStream out = new FileOutputStream(filePath)) {
-			LOGGER.debug("Saved new file "+filePath+", size: "+IOUtils.copy(file, out));
-			return true;
+		return (save(filePath, file, -1, -1) != null);
+	}
+	
+	/**
+	 * Saves the content of the input stream to the given path using the given filename.
+	 * 
+	 * The content is transferred directly to the file channel, and the SHA-256 checksum of the content is calculated while the content is being copied.
+	 * If the expected size is given, the file is pre-allocated to the given size before the transfer starts. If less content than expected is received, the file is truncated to the actual size.
+	 * The expected size is not trusted: if it exceeds the maximum size or the usable space of the target partition, the file is not created at all, and the transfer is aborted
+	 * if more than the maximum size is received regardless of the expected size.
+	 * 
+	 * On failure, the partially written file is removed.
+	 * 
+	 * @param filePath absolute file path of the file to be created
+	 * @param file the inputstream containing the file, the stream will NOT be closed
+	 * @param expectedSize the expected size of the content in bytes (e.g. the value of Content-Length header), or &lt; 1 if not known
+	 * @param maxSize the maximum accepted size of the content in bytes, or &lt; 1 for no limit
+	 * @return the hex encoded SHA-256 checksum of the saved content or null on failure
+	 */
+	public String save(String filePath, InputStream file, long expectedSize, long maxSize){
+		if(maxSize > 0 && expectedSize > maxSize){
+			LOGGER.warn("Expected size "+expectedSize+" exceeds the maximum size "+maxSize+", will not save file "+filePath);
+			return null;
+		}
+		if(expectedSize > 0){
+			long usableSpace = new File(filePath).getAbsoluteFile().getParentFile().getUsableSpace();
+			if(expectedSize > usableSpace){
+				LOGGER.warn("Expected size "+expectedSize+" exceeds the usable space "+usableSpace+", will not save file "+filePath);
+				return null;
+			}
+		}
+		
+		MessageDigest digest = null;
+		try {
+			digest = MessageDigest.getInstance(ALGORITHM_SHA256);
+		} catch (NoSuchAlgorithmException ex) { // should not happen, all java platforms are required to support SHA-256
+			LOGGER.error(ex, ex);
+			return null;
+		}
+		
+		ReadableByteChannel in = Channels.newChannel(new DigestInputStream(file, digest)); // do not close the channel, it would close the given stream
+		try (RandomAccessFile raf = new RandomAccessFile(filePath, "rw"); FileChannel out = raf.getChannel()) {
+			if(expectedSize > 0){
+				raf.setLength(expectedSize);
+			}
+			long limit = (maxSize > 0 ? maxSize+1 : Long.MAX_VALUE); // read at most one byte past the maximum to detect oversized content
+			long position = 0;
+			for(long count = out.transferFrom(in, position, Math.min(TRANSFER_CHUNK_SIZE, limit));count > 0;count = out.transferFrom(in, position, Math.min(TRANSFER_CHUNK_SIZE, limit-position))){
+				position += count;
+				if(position >= limit){
+					throw new IOException("Content exceeds the maximum size "+maxSize+" for file "+filePath);
+				}
+			}
+			if(raf.length() > position){ // less data than expected was received
+				out.truncate(position);
+			}
+			LOGGER.debug("Saved new file "+filePath+", size: "+position);
+			return Hex.encodeHexString(digest.digest());
 		} catch (IOException ex) {
 			LOGGER.error(ex, ex);
 		}
-		return false;
+		delete(filePath); // remove the partially written file, if any
+		return null;
 	}
 	
 	/**
@@ -61,6 +133,88 @@ public class FileHandler {
 		return FileUtils.deleteQuietly(new File(filePath));
 	}
 	
+	/**
+	 * Moves the given file to the target path, creating the missing parent directories.
+	 * 
+	 * @param sourcePath absolute file path of the file to move
+	 * @param targetPath absolute file path of the target
+	 * @return true on success
+	 */
+	public boolean move(String sourcePath, String targetPath){
+		try {
+			Path target = Paths.get(targetPath);
+			Files.createDirectories(target.getParent());
+			Files.move(Paths.get(sourcePath), target, StandardCopyOption.ATOMIC_MOVE);
+			return true;
+		} catch (IOException ex) {
+			LOGGER.error(ex, ex);
+		}
+		return false;
+	}
+	
+	/**
+	 * 
+	 * @param filePath
+	 * @return true if the file exists
+	 */
+	public boolean exists(String filePath){
+		return new File(filePath).isFile();
+	}
+	
+	/**
+	 * Helper method for generating a content addressed file name based on the given checksum and original filename.
+	 * 
+	 * The name is of format aa/bb/CHECKSUM[.EXTENSION], where aa and bb are the first and second byte of the checksum, so that the files are distributed in a two-level directory structure.
+	 * 
+	 * @param sha256 hex encoded SHA-256 checksum of the file contents
+	 * @param filename optional original filename, used for resolving the file extension
+	 * @return URI-safe relative file name
+	 * @see #isContentAddressedName(String)
+	 */
+	public String generateContentAddressedFilename(String sha256, String filename){
+		String extension = getExtension(filename);
+		StringBuilder sb = new StringBuilder(sha256.length()+(extension == null ? 0 : extension.length()+1)+SHARD_LENGTH*SHARD_LEVELS+SHARD_LEVELS); // initialize with fixed size because the size is known
+		for(int i=0;i<SHARD_LEVELS;++i){
+			sb.append(sha256, i*SHARD_LENGTH, (i+1)*SHARD_LENGTH);
+			sb.append(SEPARATOR_SHARD);
+		}
+		sb.append(sha256);
+		if(extension != null){
+			sb.append(SEPARATOR_FILE_EXTENSION);
+			sb.append(extension);
+		}
+		return sb.toString();
+	}
+	
+	/**
+	 * 
+	 * @param savedName
+	 * @return true if the given name is a content addressed name, i.e. multiple files may share the same name
+	 * @see #generateContentAddressedFilename(String, String)
+	 */
+	public boolean isContentAddressedName(String savedName){
+		return (savedName.indexOf(SEPARATOR_SHARD) >= 0);
+	}
+	
+	/**
+	 * 
+	 * @param filename
+	 * @return the file extension or null if none
+	 */
+	private String getExtension(String filename){
+		String[] parts = StringUtils.split(filename, FileHandler.SEPARATOR_FILE_EXTENSION);
+		if(ArrayUtils.getLength(parts) < 2){
+			LOGGER.debug("No filename or missing file extension.");
+			return null;
+		}
+		String extension = parts[parts.length-1];
+		if(!StringUtils.isAlphanumeric(extension)){
+			LOGGER.debug("Ignored invalid file extension: "+extension);
+			return null;
+		}
+		return extension;
+	}
+	
 	/**
 	 * helper method for generating a new file name based on the given original filename.
 	 * 
@@ -72,11 +226,8 @@ public class FileHandler {
 	public String generateFilename(String filename){
 		String name = UUID.randomUUID().toString();
 		
-		String[] parts = StringUtils.split(filename, FileHandler.SEPARATOR_FILE_EXTENSION);
-		if(ArrayUtils.getLength(parts) < 2){
-			LOGGER.debug("No filename or missing file extension.");
-		}else{
-			String extension = parts[parts.length-1];
+		String extension = getExtension(filename);
+		if(extension != null){
 			StringBuilder sb = new StringBuilder(name.length()+extension.length()+2); // initialize with fixed size because the size is known
 			sb.append(name);
 			sb.append(FileHandler.SEPARATOR_FILE_EXTENSION);
@@ -17,19 +17,45 @@ package service.tut.pori.fileservice;
 
 import java.util.Properties;
 
+import org.apache.commons.lang3.BooleanUtils;
 import org.apache.commons.lang3.StringUtils;
+import org.apache.log4j.Logger;
 
 import core.tut.pori.context.ServiceInitializer;
 import core.tut.pori.properties.SystemProperty;
 
 /**
  * System properties for File Service.
+ * 
+ * If content addressed storage is enabled (property service.tut.pori.fileservice.content_addressed=true), the files are stored using their SHA-256 checksum as the name in a sharded directory structure, 
+ * and uploads of identical content will share the same stored file. By default, each uploaded file is stored separately using a randomly generated name.
+ * 
+ * The removal of deleted files is processed in the background in batches of service.tut.pori.fileservice.removal_batch_size files. 
+ * Failed removals are retried every service.tut.pori.fileservice.removal_interval minutes, up to service.tut.pori.fileservice.removal_max_attempts times. 
+ * If service.tut.pori.fileservice.reconcile_orphans=true, the file path is also periodically scanned for files not known by the service, and such files are removed.
+ * 
+ * If service.tut.pori.fileservice.max_upload_size is set, uploads larger than the given number of bytes are rejected. By default, the upload size is not limited.
  */
 public class FileProperties extends SystemProperty {
+	private static final String DEFAULT_REMOVAL_BATCH_SIZE = "100";
+	private static final String DEFAULT_REMOVAL_INTERVAL = "60";
+	private static final String DEFAULT_REMOVAL_MAX_ATTEMPTS = "10";
 	private static final String PROPERTY_SERVICE_PORI_FILE_SERVICE = PROPERTY_SERVICE_PORI+".fileservice";
+	private static final String PROPERTY_SERVICE_PORI_FILE_SERVICE_CONTENT_ADDRESSED = PROPERTY_SERVICE_PORI_FILE_SERVICE+".content_addressed";
 	private static final String PROPERTY_SERVICE_PORI_FILE_SERVICE_FILE_PATH = PROPERTY_SERVICE_PORI_FILE_SERVICE+".file_path";
+	private static final String PROPERTY_SERVICE_PORI_FILE_SERVICE_MAX_UPLOAD_SIZE = PROPERTY_SERVICE_PORI_FILE_SERVICE+".max_upload_size";
+	private static final String PROPERTY_SERVICE_PORI_FILE_SERVICE_RECONCILE_ORPHANS = PROPERTY_SERVICE_PORI_FILE_SERVICE+".reconcile_orphans";
+	private static final String PROPERTY_SERVICE_PORI_FILE_SERVICE_REMOVAL_BATCH_SIZE = PROPERTY_SERVICE_PORI_FILE_SERVICE+".removal_batch_size";
+	private static final String PROPERTY_SERVICE_PORI_FILE_SERVICE_REMOVAL_INTERVAL = PROPERTY_SERVICE_PORI_FILE_SERVICE+".removal_interval";
+	private static final String PROPERTY_SERVICE_PORI_FILE_SERVICE_REMOVAL_MAX_ATTEMPTS = PROPERTY_SERVICE_PORI_FILE_SERVICE+".removal_max_attempts";
 	private static final String PROPERTY_SERVICE_PORI_FILE_SERVICE_URI_PATH = PROPERTY_SERVICE_PORI_FILE_SERVICE+".uri_path";
+	private boolean _contentAddressed = false;
 	private String _filePath = null;
+	private long _maxUploadSize = -1;
+	private boolean _reconcileOrphans = false;
+	private int _removalBatchSize = -1;
+	private int _removalInterval = -1;
+	private int _removalMaxAttempts = -1;
 	private String _uriPath = null;
 
 	@Override
@@ -39,6 +65,86 @@ public class FileProperties extends SystemProperty {
 		if(StringUtils.isBlank(_filePath) || StringUtils.isBlank(_uriPath)){
 			throw new IllegalArgumentException("Bad "+PROPERTY_SERVICE_PORI_FILE_SERVICE_FILE_PATH+" or "+PROPERTY_SERVICE_PORI_FILE_SERVICE_URI_PATH);
 		}
+		_contentAddressed = BooleanUtils.toBoolean(properties.getProperty(PROPERTY_SERVICE_PORI_FILE_SERVICE_CONTENT_ADDRESSED));
+		_reconcileOrphans = BooleanUtils.toBoolean(properties.getProperty(PROPERTY_SERVICE_PORI_FILE_SERVICE_RECONCILE_ORPHANS));
+		
+		String temp = properties.getProperty(PROPERTY_SERVICE_PORI_FILE_SERVICE_MAX_UPLOAD_SIZE);
+		if(!StringUtils.isBlank(temp)){ // the limit is optional
+			try{
+				_maxUploadSize = Long.parseLong(temp.trim());
+			} catch (NumberFormatException ex){
+				Logger.getLogger(FileProperties.class).warn(ex, ex);
+			}
+			if(_maxUploadSize < 1){
+				throw new IllegalArgumentException("Bad "+PROPERTY_SERVICE_PORI_FILE_SERVICE_MAX_UPLOAD_SIZE);
+			}
+		}
+		
+		_removalBatchSize = getPositiveInt(properties, PROPERTY_SERVICE_PORI_FILE_SERVICE_REMOVAL_BATCH_SIZE, DEFAULT_REMOVAL_BATCH_SIZE);
+		_removalInterval = getPositiveInt(properties, PROPERTY_SERVICE_PORI_FILE_SERVICE_REMOVAL_INTERVAL, DEFAULT_REMOVAL_INTERVAL);
+		_removalMaxAttempts = getPositiveInt(properties, PROPERTY_SERVICE_PORI_FILE_SERVICE_REMOVAL_MAX_ATTEMPTS, DEFAULT_REMOVAL_MAX_ATTEMPTS);
+	}
+	
+	/**
+	 * 
+	 * @param properties
+	 * @param property
+	 * @param defaultValue the value used if the property is not set
+	 * @return the value of the property
+	 * @throws IllegalArgumentException if the property is set, but is not a positive integer
+	 */
+	private static int getPositiveInt(Properties properties, String property, String defaultValue) throws IllegalArgumentException {
+		try{
+			int value = Integer.parseInt(properties.getProperty(property, defaultValue));
+			if(value > 0){
+				return value;
+			}
+		} catch (NumberFormatException ex){
+			Logger.getLogger(FileProperties.class).warn(ex, ex);
+		}
+		throw new IllegalArgumentException("Bad "+property);
+	}
+	
+	/**
+	 * @return true if the file path should be scanned for orphaned files
+	 */
+	public boolean isReconcileOrphans() {
+		return _reconcileOrphans;
+	}
+	
+	/**
+	 * @return the maximum size of an uploaded file in bytes, or -1 if the size is not limited
+	 */
+	public long getMaxUploadSize() {
+		return _maxUploadSize;
+	}
+	
+	/**
+	 * @return the maximum number of file removals processed in a single batch
+	 */
+	public int getRemovalBatchSize() {
+		return _removalBatchSize;
+	}
+	
+	/**
+	 * @return the interval of the periodic removal job in minutes
+	 */
+	public int getRemovalInterval() {
+		return _removalInterval;
+	}
+	
+	/**
+	 * @return the maximum number of attempts for removing a file
+	 */
+	public int getRemovalMaxAttempts() {
+		return _removalMaxAttempts;
+	}
+	
+	/**
+	 * @return true if the files should be stored using content addressed (de-duplicating) names
+	 */
+	public boolean isContentAddressed() {
+		return _contentAddressed;
 	}
 
 	/**
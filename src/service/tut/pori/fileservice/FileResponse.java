@@ -0,0 +1,225 @@
+/**
+ * Copyright 2014 Tampere University of Technology, Pori Department
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package service.tut.pori.fileservice;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.net.URLConnection;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+
+import javax.servlet.http.HttpServletResponse;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.log4j.Logger;
+
+import core.tut.pori.http.Response;
+
+/**
+ * Response for sending the contents of a saved file.
+ * 
+ * The file contents are transferred directly from the file channel to the response output stream. 
+ * If the servlet container provides a channel based output, the transfer may be done using the platform's zero-copy mechanism (e.g. sendfile).
+ * 
+ * Supports a single byte range as defined in <a href="http://tools.ietf.org/html/rfc7233">RFC 7233</a> and conditional requests using ETag and If-None-Match headers (<a href="http://tools.ietf.org/html/rfc7232">RFC 7232</a>). 
+ * The SHA-256 checksum of the file is used as the entity tag, or the saved name of the file if the checksum is not available.
+ * 
+ * Multiple ranges are not supported, and will result in the whole file being sent.
+ */
+public class FileResponse extends Response {
+	private static final String BYTES_UNIT = "bytes";
+	private static final String CONTENT_TYPE_DEFAULT = "application/octet-stream";
+	private static final String HEADER_ACCEPT_RANGES = "Accept-Ranges";
+	private static final String HEADER_CONTENT_LENGTH = "Content-Length";
+	private static final String HEADER_CONTENT_RANGE = "Content-Range";
+	private static final String HEADER_ETAG = "ETag";
+	private static final Logger LOGGER = Logger.getLogger(FileResponse.class);
+	private static final String PREFIX_BYTES_RANGE = BYTES_UNIT+"=";
+	private static final String PREFIX_WEAK_ETAG = "W/";
+	private static final char SEPARATOR_ETAGS = ',';
+	private static final char SEPARATOR_RANGE = '-';
+	private static final char SEPARATOR_RANGE_SET = ',';
+	private static final int STATUS_NOT_MODIFIED = 304;
+	private static final int STATUS_PARTIAL_CONTENT = 206;
+	private static final int STATUS_RANGE_NOT_SATISFIABLE = 416;
+	private static final long TRANSFER_CHUNK_SIZE = 1048576; // in bytes
+	private static final String WILDCARD_ETAG = "*";
+	private String _filePath = null;
+	private File _file = null;
+	private String _ifNoneMatch = null;
+	private String _range = null;
+	
+	/**
+	 * 
+	 * @param status
+	 */
+	public FileResponse(Status status){
+		super(status);
+	}
+	
+	/**
+	 * 
+	 * @param file details of the file
+	 * @param filePath absolute file path of the file
+	 * @param range optional value of the Range header
+	 * @param ifNoneMatch optional value of the If-None-Match header
+	 */
+	public FileResponse(File file, String filePath, String range, String ifNoneMatch){
+		_file = file;
+		_filePath = filePath;
+		_range = range;
+		_ifNoneMatch = ifNoneMatch;
+	}
+
+	@Override
+	public void writeTo(HttpServletResponse response) {
+		if(getStatus() != Status.OK || _file == null){
+			LOGGER.debug("No file content to send.");
+			super.writeTo(response);
+			return;
+		}
+		
+		String eTag = createETag(_file);
+		response.setHeader(HEADER_ETAG, eTag);
+		response.setHeader(HEADER_ACCEPT_RANGES, BYTES_UNIT);
+		if(matches(eTag, _ifNoneMatch)){
+			LOGGER.debug("ETag matches, returning "+STATUS_NOT_MODIFIED+" for file: "+_file.getSavedName());
+			response.setStatus(STATUS_NOT_MODIFIED);
+			return;
+		}
+		
+		try (RandomAccessFile raf = new RandomAccessFile(_filePath, "r"); FileChannel in = raf.getChannel()) {
+			long size = in.size();
+			long start = 0;
+			long end = size - 1;
+			long[] range = parseRange(_range, size);
+			if(range == null){
+				response.setStatus(STATUS_RANGE_NOT_SATISFIABLE);
+				response.setHeader(HEADER_CONTENT_RANGE, BYTES_UNIT+" */"+size);
+				return;
+			}else if(range.length > 0){
+				start = range[0];
+				end = range[1];
+				response.setStatus(STATUS_PARTIAL_CONTENT);
+				response.setHeader(HEADER_CONTENT_RANGE, BYTES_UNIT+" "+start+SEPARATOR_RANGE+end+"/"+size);
+			}
+			
+			String contentType = URLConnection.guessContentTypeFromName(_file.getSavedName());
+			response.setContentType((contentType == null ? CONTENT_TYPE_DEFAULT : contentType));
+			long length = end - start + 1;
+			response.setHeader(HEADER_CONTENT_LENGTH, String.valueOf(length));
+			
+			WritableByteChannel out = Channels.newChannel(response.getOutputStream()); // do not close, the container will close the stream
+			for(long position = start, remaining = length; remaining > 0;){
+				long count = in.transferTo(position, Math.min(remaining, TRANSFER_CHUNK_SIZE), out);
+				if(count < 1){ // the file was truncated while sending
+					LOGGER.warn("Premature end of file: "+_file.getSavedName());
+					break;
+				}
+				position += count;
+				remaining -= count;
+			}
+		} catch (IOException ex) { // the client may have simply closed the connection
+			LOGGER.debug(ex, ex);
+		}
+	}
+	
+	/**
+	 * 
+	 * @param file
+	 * @return quoted entity tag for the given file
+	 */
+	private static String createETag(File file){
+		String sha256 = file.getSha256();
+		return "\""+(StringUtils.isBlank(sha256) ? file.getSavedName() : sha256)+"\"";
+	}
+	
+	/**
+	 * 
+	 * @param eTag
+	 * @param ifNoneMatch
+	 * @return true if the given If-None-Match header value matches the given entity tag
+	 */
+	private static boolean matches(String eTag, String ifNoneMatch){
+		if(StringUtils.isBlank(ifNoneMatch)){
+			return false;
+		}
+		for(String tag : StringUtils.split(ifNoneMatch, SEPARATOR_ETAGS)){
+			tag = tag.trim();
+			if(WILDCARD_ETAG.equals(tag)){
+				return true;
+			}
+			if(tag.startsWith(PREFIX_WEAK_ETAG)){ // weak comparison is used for If-None-Match
+				tag = tag.substring(PREFIX_WEAK_ETAG.length());
+			}
+			if(eTag.equals(tag)){
+				return true;
+			}
+		}
+		return false;
+	}
+	
+	/**
+	 * 
+	 * @param range value of the Range header
+	 * @param size size of the file
+	 * @return empty array if the whole file should be sent, array of {start, end} (inclusive) for a partial response or null if the range cannot be satisfied
+	 */
+	private static long[] parseRange(String range, long size){
+		if(StringUtils.isBlank(range) || !range.startsWith(PREFIX_BYTES_RANGE)){
+			return new long[0];
+		}
+		String spec = range.substring(PREFIX_BYTES_RANGE.length()).trim();
+		if(spec.indexOf(SEPARATOR_RANGE_SET) >= 0){
+			LOGGER.debug("Multiple ranges are not supported, sending the whole file.");
+			return new long[0];
+		}
+		int separator = spec.indexOf(SEPARATOR_RANGE);
+		if(separator < 0){
+			LOGGER.debug("Ignored invalid range: "+range);
+			return new long[0];
+		}
+		
+		try{
+			long start = 0;
+			long end = size - 1;
+			if(separator == 0){ // suffix range, the last n bytes
+				long suffix = Long.parseLong(spec.substring(1));
+				if(suffix < 1 || size < 1){
+					return null;
+				}
+				start = Math.max(0, size - suffix);
+			}else{
+				start = Long.parseLong(spec.substring(0, separator));
+				if(separator < spec.length() - 1){
+					end = Math.min(end, Long.parseLong(spec.substring(separator + 1)));
+				}
+				if(start >= size){
+					return null;
+				}else if(end < start){
+					LOGGER.debug("Ignored invalid range: "+range);
+					return new long[0];
+				}
+			}
+			return new long[]{start, end};
+		} catch (NumberFormatException ex){
+			LOGGER.debug(ex, ex);
+			LOGGER.debug("Ignored invalid range: "+range);
+			return new long[0];
+		}
+	}
+}
@@ -17,12 +17,16 @@ package service.tut.pori.fileservice;
 
 import java.util.Arrays;
 
+import org.apache.log4j.Logger;
+
 import core.tut.pori.http.Response;
 import core.tut.pori.http.Response.Status;
 import core.tut.pori.http.annotations.HTTPAuthenticationParameter;
+import core.tut.pori.http.annotations.HTTPHeaderParameter;
 import core.tut.pori.http.annotations.HTTPMethodParameter;
 import core.tut.pori.http.annotations.HTTPService;
 import core.tut.pori.http.annotations.HTTPServiceMethod;
+import core.tut.pori.http.headers.HTTPHeader;
 import core.tut.pori.http.parameters.AuthenticationParameter;
 import core.tut.pori.http.parameters.InputStreamParameter;
 import core.tut.pori.http.parameters.Limits;
@@ -36,6 +40,7 @@ import core.tut.pori.http.parameters.StringParameter;
  */
 @HTTPService(name=Definitions.SERVICE_FS)
 public class FileService {
+	private static final Logger LOGGER = Logger.getLogger(FileService.class);
 
 	/**
 	 * @see service.tut.pori.fileservice.reference.ClientService#addFile(AuthenticationParameter, InputStreamParameter, StringParameter)
@@ -43,16 +48,26 @@ public class FileService {
 	 * @param authenticatedUser
 	 * @param file
 	 * @param filename
+	 * @param contentLength if present, used to pre-allocate the file
 	 * @return response
 	 */
 	@HTTPServiceMethod(name=Definitions.METHOD_ADD_FILE, acceptedMethods={core.tut.pori.http.Definitions.METHOD_POST})
 	public Response addFile(
 			@HTTPAuthenticationParameter AuthenticationParameter authenticatedUser,
 			@HTTPMethodParameter(name=InputStreamParameter.PARAMETER_DEFAULT_NAME, bodyParameter=true) InputStreamParameter file,
-			@HTTPMethodParameter(name=Definitions.PARAMETER_FILE_NAME, required = false) StringParameter filename
+			@HTTPMethodParameter(name=Definitions.PARAMETER_FILE_NAME, required = false) StringParameter filename,
+			@HTTPHeaderParameter(name=Definitions.HEADER_CONTENT_LENGTH, required = false) HTTPHeader contentLength
 			)
 	{
-		File result = FileCore.addFile(authenticatedUser.getUserIdentity(), file.getValue(), filename.getValue());
+		long length = -1;
+		if(contentLength.hasValue()){
+			try{
+				length = Long.parseLong(contentLength.getValue().trim());
+			} catch (NumberFormatException ex){
+				LOGGER.debug(ex, ex);
+			}
+		}
+		File result = FileCore.addFile(authenticatedUser.getUserIdentity(), file.getValue(), filename.getValue(), length);
 		if(result == null){
 			return new Response(Status.BAD_REQUEST);
 		}else{
@@ -75,6 +90,26 @@ public class FileService {
 		FileCore.deleteFiles(authenticatedUser.getUserIdentity(), fileId.getValues());
 	}
 	
+	/**
+	 * Returns the contents of the file with the given saved name. Supports single byte ranges (Range header) and conditional requests (If-None-Match header).
+	 * 
+	 * The file service uri_path can be configured to point to this method (i.e. rest/fs/getFile?name=) to serve the files directly from the service.
+	 * 
+	 * @param savedName
+	 * @param range
+	 * @param ifNoneMatch
+	 * @return response
+	 */
+	@HTTPServiceMethod(name=Definitions.METHOD_GET_FILE, acceptedMethods={core.tut.pori.http.Definitions.METHOD_GET})
+	public Response getFile(
+			@HTTPMethodParameter(name=Definitions.PARAMETER_SAVED_NAME) StringParameter savedName,
+			@HTTPHeaderParameter(name=Definitions.HEADER_RANGE, required = false) HTTPHeader range,
+			@HTTPHeaderParameter(name=Definitions.HEADER_IF_NONE_MATCH, required = false) HTTPHeader ifNoneMatch
+			)
+	{
+		return FileCore.getFile(savedName.getValue(), range.getValue(), ifNoneMatch.getValue());
+	}
+	
 	/**
 	 * @see service.tut.pori.fileservice.reference.ClientService#listFiles(AuthenticationParameter, LongParameter, Limits)
 	 * 
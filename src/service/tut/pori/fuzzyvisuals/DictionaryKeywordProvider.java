@@ -0,0 +1,54 @@
+/**
+ * Copyright 2015 Tampere University of Technology, Pori Department
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package service.tut.pori.fuzzyvisuals;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.zip.CRC32;
+
+import org.apache.commons.lang3.ArrayUtils;
+import org.apache.http.impl.client.CloseableHttpClient;
+
+/**
+ * Keyword provider, which selects the keywords from a built-in dictionary based on the checksums of the content.
+ * 
+ * The results are deterministic, i.e. the same content will always produce the same keywords, and no remote services are called.
+ */
+public class DictionaryKeywordProvider implements KeywordProvider {
+	private static final int BLOCK_SIZE = 100;
+	private static final String[] DICTIONARY = {
+		"animal", "beach", "bicycle", "bird", "boat", "bridge", "building", "car", "castle", "cat",
+		"child", "city", "cloud", "coast", "dog", "field", "flower", "food", "forest", "garden",
+		"grass", "harbour", "horse", "house", "island", "lake", "leaf", "light", "market", "mountain",
+		"night", "ocean", "park", "people", "river", "road", "rock", "sand", "shadow", "ship",
+		"sign", "sky", "snow", "street", "sunset", "table", "tower", "train", "tree", "water", "window", "winter"
+	};
+
+	@Override
+	public Set<String> getKeywords(byte[] content, CloseableHttpClient client) {
+		if(ArrayUtils.isEmpty(content)){
+			return null;
+		}
+		HashSet<String> words = new HashSet<>();
+		CRC32 crc = new CRC32();
+		for(int offset=0;offset<content.length;offset+=BLOCK_SIZE){ // select one word for each block of content
+			crc.reset();
+			crc.update(content, offset, Math.min(BLOCK_SIZE, content.length-offset));
+			words.add(DICTIONARY[(int) (crc.getValue() % DICTIONARY.length)]);
+		}
+		return words;
+	}
+}
@@ -22,14 +22,25 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Random;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.commons.lang3.StringUtils;
+import org.apache.http.client.config.RequestConfig;
 import org.apache.http.client.methods.HttpPost;
 import org.apache.http.entity.StringEntity;
 import org.apache.http.impl.client.BasicResponseHandler;
 import org.apache.http.impl.client.CloseableHttpClient;
-import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
 import org.apache.log4j.Logger;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.event.ContextClosedEvent;
 
 import service.tut.pori.contentanalysis.AsyncTask.TaskStatus;
 import service.tut.pori.contentanalysis.AsyncTask.TaskType;
@@ -47,10 +58,18 @@ import core.tut.pori.utils.XMLFormatter;
  * 
  * Assumes that the given task is of type {@link service.tut.pori.contentanalysis.AsyncTask.TaskType#ANALYSIS}
  * 
+ * The media are retrieved and analyzed concurrently, and the analysis of each media is limited by the media timeout given in the fuzzy visuals properties.
+ * The media which could not be analyzed in time are omitted from the results.
+ * 
+ * All tasks share a bounded pool of analysis threads and a single HTTP client, which are released when the application context is closed.
+ * 
  */
 public class FuzzyAnalysisTask implements Runnable {
 	private static final Logger LOGGER = Logger.getLogger(FuzzyAnalysisTask.class);
 	private static final int MAX_MEDIA_ITEMS = 10;
+	private static final int MAX_THREADS = MAX_MEDIA_ITEMS*2; // the maximum number of media analyzed at the same time by all tasks
+	private static volatile CloseableHttpClient CLIENT = null;
+	private static volatile ExecutorService EXECUTOR = null;
 	private Integer _backendId = null;
 	private String _callbackUri = null;
 	private List<FuzzyMedia> _media = null;
@@ -105,30 +124,93 @@ public class FuzzyAnalysisTask implements Runnable {
 
 	@Override
 	public void run() {
-		List<FuzzyMedia> results = new ArrayList<>(_media.size());
-		try(FuzzyAnalyzer fa = new FuzzyAnalyzer()){
+		FuzzyProperties fp = ServiceInitializer.getPropertyHandler().getSystemProperties(FuzzyProperties.class);
+		int timeout = fp.getMediaTimeout();
+		int mediaCount = _media.size();
+		try{
+			CloseableHttpClient client = getClient(fp);
+			FuzzyAnalyzer fa = new FuzzyAnalyzer(client, fp.getKeywordProvider());
+			List<Analyzer> analyzers = new ArrayList<>(mediaCount);
 			for(FuzzyMedia m : _media){
-				Set<String> words = fa.analyze(m.getUrl());
-				if(words != null){
-					MediaType mediaType = m.getMediaType();
-					String guid = m.getGUID();
-					List<MediaObject> objects = new ArrayList<>(words.size());
-					for(String word : words){
-						MediaObject mo = new MediaObject(mediaType, MediaObjectType.KEYWORD);
-						mo.setBackendId(_backendId);
-						mo.setConfirmationStatus(ConfirmationStatus.CANDIDATE);
-						mo.setValue(word);
-						mo.setOwnerUserId(m.getOwnerUserId());
-						mo.setObjectId(guid+"_"+word);
-						mo.setConfidence(_random.nextInt(100)/100.0);
-						objects.add(mo);
-					} // for
-					
-					results.add(new FuzzyMedia(guid, objects, mediaType));
-				} // if
+				analyzers.add(new Analyzer(fa, m));
+			}
+			
+			List<FuzzyMedia> results = new ArrayList<>(mediaCount);
+			Iterator<FuzzyMedia> mediaIter = _media.iterator();
+			for(Future<FuzzyMedia> result : getExecutor().invokeAll(analyzers, timeout, TimeUnit.MILLISECONDS)){ // the timeout applies to each media, the media not analyzed within the timeout are cancelled
+				String guid = mediaIter.next().getGUID();
+				if(result.isCancelled()){
+					LOGGER.warn("Analysis timed out for media, "+Definitions.ELEMENT_GUID+" : "+guid+" of task, id : "+_taskId);
+					continue;
+				}
+				try {
+					FuzzyMedia r = result.get();
+					if(r != null){
+						results.add(r);
+					}
+				} catch (ExecutionException ex) {
+					LOGGER.warn("Analysis failed for media, "+Definitions.ELEMENT_GUID+" : "+guid+" of task, id : "+_taskId, ex);
+				}
 			} // for
-		} // try
-		
+			
+			sendResults(client, fp, results);
+		} catch (IOException ex) {
+			LOGGER.error(ex, ex);
+		} catch (InterruptedException ex) {
+			LOGGER.warn("Interrupted while waiting for the analysis results of task, id : "+_taskId, ex);
+			Thread.currentThread().interrupt();
+		} catch (RejectedExecutionException ex) { // the executor has been shut down
+			LOGGER.warn("Failed to execute analysis of task, id : "+_taskId, ex);
+		}
+	}
+	
+	/**
+	 * 
+	 * @param fp
+	 * @return the HTTP client shared by all tasks, the media timeout is used as the default request configuration
+	 */
+	private static CloseableHttpClient getClient(FuzzyProperties fp) {
+		CloseableHttpClient client = CLIENT;
+		if(client == null){
+			synchronized (FuzzyAnalysisTask.class) {
+				if(CLIENT == null){
+					int timeout = fp.getMediaTimeout();
+					PoolingHttpClientConnectionManager cm = new PoolingHttpClientConnectionManager();
+					cm.setMaxTotal(MAX_THREADS+1); // reserve a connection for the result callbacks
+					cm.setDefaultMaxPerRoute(MAX_THREADS); // the media are generally located on the same host
+					CLIENT = HttpClientBuilder.create().setConnectionManager(cm).setDefaultRequestConfig(RequestConfig.custom().setConnectTimeout(timeout).setConnectionRequestTimeout(timeout).setSocketTimeout(timeout).build()).build();
+				}
+				client = CLIENT;
+			} // synchronized
+		}
+		return client;
+	}
+	
+	/**
+	 * 
+	 * @return the executor shared by all tasks
+	 */
+	private static ExecutorService getExecutor() {
+		ExecutorService executor = EXECUTOR;
+		if(executor == null){
+			synchronized (FuzzyAnalysisTask.class) {
+				if(EXECUTOR == null){
+					EXECUTOR = Executors.newFixedThreadPool(MAX_THREADS);
+				}
+				executor = EXECUTOR;
+			} // synchronized
+		}
+		return executor;
+	}
+	
+	/**
+	 * 
+	 * @param client
+	 * @param fp
+	 * @param results
+	 * @throws IOException on failed callback
+	 */
+	private void sendResults(CloseableHttpClient client, FuzzyProperties fp, List<FuzzyMedia> results) throws IOException {
 		TaskResults tr = new TaskResults(_backendId, _taskId, TaskStatus.COMPLETED, TaskType.ANALYSIS);
 		
 		if(results.isEmpty()){
@@ -137,21 +219,89 @@ public class FuzzyAnalysisTask implements Runnable {
 			tr.setMedia(results);
 		}
 		
-		try(CloseableHttpClient client = HttpClients.createDefault()){
-			HttpPost post = new HttpPost(_callbackUri);
-			FuzzyProperties fp = ServiceInitializer.getPropertyHandler().getSystemProperties(FuzzyProperties.class);
-			String username = fp.getAuthUsername();
-			if(username != null){ // checking either password or username is OK
-				LOGGER.debug("Using authentication...");
-				HTTPHeaderUtil.setHTTPBasicAuthHeader(post, username, fp.getAuthPassword());
-			}
-			
-			post.setEntity(new StringEntity(new XMLFormatter().toString(tr)));
-			
-			LOGGER.debug("Calling POST "+_callbackUri);
-			LOGGER.debug("Server responded : "+client.execute(post, new BasicResponseHandler()));
-		} catch (IOException ex) {
-			LOGGER.error(ex, ex);
+		HttpPost post = new HttpPost(_callbackUri);
+		post.setConfig(RequestConfig.DEFAULT); // the media timeouts do not apply to the callback
+		String username = fp.getAuthUsername();
+		if(username != null){ // checking either password or username is OK
+			LOGGER.debug("Using authentication...");
+			HTTPHeaderUtil.setHTTPBasicAuthHeader(post, username, fp.getAuthPassword());
 		}
+		
+		post.setEntity(new StringEntity(new XMLFormatter().toString(tr)));
+		
+		LOGGER.debug("Calling POST "+_callbackUri);
+		LOGGER.debug("Server responded : "+client.execute(post, new BasicResponseHandler()));
 	}
+	
+	/**
+	 * Analyzes a single media.
+	 */
+	private class Analyzer implements Callable<FuzzyMedia> {
+		private FuzzyAnalyzer _analyzer = null;
+		private FuzzyMedia _target = null;
+		
+		/**
+		 * 
+		 * @param analyzer
+		 * @param target
+		 */
+		public Analyzer(FuzzyAnalyzer analyzer, FuzzyMedia target){
+			_analyzer = analyzer;
+			_target = target;
+		}
+
+		/**
+		 * @return the analysis results or null if no keywords were found
+		 */
+		@Override
+		public FuzzyMedia call() throws Exception {
+			Set<String> words = _analyzer.analyze(_target.getUrl());
+			if(words == null){
+				return null;
+			}
+			MediaType mediaType = _target.getMediaType();
+			String guid = _target.getGUID();
+			List<MediaObject> objects = new ArrayList<>(words.size());
+			for(String word : words){
+				MediaObject mo = new MediaObject(mediaType, MediaObjectType.KEYWORD);
+				mo.setBackendId(_backendId);
+				mo.setConfirmationStatus(ConfirmationStatus.CANDIDATE);
+				mo.setValue(word);
+				mo.setOwnerUserId(_target.getOwnerUserId());
+				mo.setObjectId(guid+"_"+word);
+				mo.setConfidence(_random.nextInt(100)/100.0);
+				objects.add(mo);
+			} // for
+			return new FuzzyMedia(guid, objects, mediaType);
+		}
+	} // class Analyzer
+	
+	/**
+	 * Releases the shared executor and HTTP client after context has been closed
+	 *
+	 * Automatically instantiated by Spring as a bean.
+	 */
+	@SuppressWarnings("unused")
+	private static class ContextClosedEventListener implements ApplicationListener<ContextClosedEvent>{
+
+		@Override
+		public void onApplicationEvent(ContextClosedEvent event) {
+			synchronized (FuzzyAnalysisTask.class) {
+				if(EXECUTOR != null){
+					LOGGER.debug("Shutting down analysis executor...");
+					EXECUTOR.shutdownNow();
+					EXECUTOR = null;
+				}
+				if(CLIENT != null){
+					LOGGER.debug("Closing HTTP client...");
+					try {
+						CLIENT.close(); // also shuts down the connection manager
+					} catch (IOException ex) {
+						LOGGER.error(ex, ex);
+					}
+					CLIENT = null;
+				}
+			} // synchronized
+		}
+	} // class ContextClosedEventListener
 }
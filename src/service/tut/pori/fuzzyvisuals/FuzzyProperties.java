@@ -30,12 +30,41 @@ public class FuzzyProperties extends SystemProperty {
 	private static final String PROPERTY_SERVICE_TUT_PORI_FV = PROPERTY_SERVICE_PORI+".fuzzyvisuals";
 	private static final String PROPERTY_SERVICE_TUT_PORI_FV_AUTH_PASSWORD = PROPERTY_SERVICE_TUT_PORI_FV+".auth_username";
 	private static final String PROPERTY_SERVICE_TUT_PORI_FV_AUTH_USERNAME = PROPERTY_SERVICE_TUT_PORI_FV+".auth_password";
+	private static final String PROPERTY_SERVICE_TUT_PORI_FV_KEYWORD_PROVIDER = PROPERTY_SERVICE_TUT_PORI_FV+".keyword_provider";
+	private static final String PROPERTY_SERVICE_TUT_PORI_FV_MEDIA_TIMEOUT = PROPERTY_SERVICE_TUT_PORI_FV+".media_timeout";
 	private String _authPassword = null;
 	private String _authUsername = null;
+	private KeywordProvider _keywordProvider = null;
+	private int _mediaTimeout = 30000;
 
 	@Override
 	public void initialize(Properties properties) throws IllegalArgumentException {
-		String temp = properties.getProperty(PROPERTY_SERVICE_TUT_PORI_FV_AUTH_USERNAME);
+		String temp = properties.getProperty(PROPERTY_SERVICE_TUT_PORI_FV_KEYWORD_PROVIDER);
+		if(StringUtils.isBlank(temp)){
+			_keywordProvider = new DictionaryKeywordProvider();
+		}else{
+			try {
+				_keywordProvider = Class.forName(temp.trim()).asSubclass(KeywordProvider.class).getDeclaredConstructor().newInstance();
+			} catch (ClassCastException | ReflectiveOperationException ex) {
+				Logger.getLogger(getClass()).error(ex, ex);
+				throw new IllegalArgumentException("Bad "+PROPERTY_SERVICE_TUT_PORI_FV_KEYWORD_PROVIDER);
+			}
+		}
+		
+		temp = properties.getProperty(PROPERTY_SERVICE_TUT_PORI_FV_MEDIA_TIMEOUT);
+		if(!StringUtils.isBlank(temp)){
+			try{
+				_mediaTimeout = Integer.parseInt(temp.trim());
+			}catch(NumberFormatException ex){
+				Logger.getLogger(getClass()).error(ex, ex);
+				throw new IllegalArgumentException("Bad "+PROPERTY_SERVICE_TUT_PORI_FV_MEDIA_TIMEOUT);
+			}
+			if(_mediaTimeout < 1){
+				throw new IllegalArgumentException("Bad "+PROPERTY_SERVICE_TUT_PORI_FV_MEDIA_TIMEOUT);
+			}
+		}
+		
+		temp = properties.getProperty(PROPERTY_SERVICE_TUT_PORI_FV_AUTH_USERNAME);
 		if(StringUtils.isBlank(temp)){
 			Logger.getLogger(getClass()).debug("No "+PROPERTY_SERVICE_TUT_PORI_FV_AUTH_USERNAME+" set.");
 			return; // do not bother checking for password if no username is given
@@ -67,4 +96,18 @@ public class FuzzyProperties extends SystemProperty {
 	public String getAuthUsername() {
 		return _authUsername;
 	}
+
+	/**
+	 * @return the keyword provider used for resolving keywords from the media content
+	 */
+	public KeywordProvider getKeywordProvider() {
+		return _keywordProvider;
+	}
+
+	/**
+	 * @return the maximum time in milliseconds for retrieving and analyzing a single media
+	 */
+	public int getMediaTimeout() {
+		return _mediaTimeout;
+	}
 }
@@ -0,0 +1,84 @@
+/**
+ * Copyright 2015 Tampere University of Technology, Pori Department
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package service.tut.pori.fuzzyvisuals;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang3.ArrayUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.http.StatusLine;
+import org.apache.http.client.entity.UrlEncodedFormEntity;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.message.BasicNameValuePair;
+import org.apache.log4j.Logger;
+
+/**
+ * Keyword provider, which converts the content to Chinese characters and translates them into English words.
+ * 
+ * Note that this uses Google's Translation API scraped from the web page (<a href="https://translate.google.com/">Google Translator</a>).
+ * Using the results for ANY official or commercial use is most likely against <a href="http://www.google.com/intl/en/policies/terms/">Google's Terms of Use</a>.
+ * 
+ * The code provided in this class is provided ONLY for testing purposes. See <a href="https://cloud.google.com/translate/docs">Translate API</a> for examples and documentation.
+ */
+public class GoogleTranslateKeywordProvider implements KeywordProvider {
+	private static final String GOOGLE_TRANSLATE_URL = "https://translate.google.com/translate_a/single?client=t&sl=zh-CN&tl=en&hl=en&dt=t&ie=UTF-8&oe=UTF-8"; // for real use one should provide an API key
+	private static final Logger LOGGER = Logger.getLogger(GoogleTranslateKeywordProvider.class);
+	private static final String PARAMETER_Q = "q";
+	private static final Charset UTF16 = Charset.forName("UTF-16");
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+
+	@Override
+	public Set<String> getKeywords(byte[] content, CloseableHttpClient client) throws IOException, IllegalArgumentException {
+		String data = new String(content, UTF16); // convert to UTF-16 to get Chinese characters of the bytes
+		LOGGER.debug("Converted to "+UTF16.name()+" : "+data);
+
+		HttpPost post = new HttpPost(GOOGLE_TRANSLATE_URL);	
+		List<BasicNameValuePair> parameters = new ArrayList<>(1);
+		parameters.add(new BasicNameValuePair(PARAMETER_Q, data));
+		post.setEntity(new UrlEncodedFormEntity(parameters, UTF8));
+		
+		LOGGER.debug("Calling "+GOOGLE_TRANSLATE_URL);
+		try(CloseableHttpResponse r = client.execute(post)){
+			StatusLine l = r.getStatusLine();
+			int status = l.getStatusCode();
+			if(status < 200 || status >= 300){
+				throw new IllegalArgumentException("Translation server error : "+status+" "+l.getReasonPhrase());
+			}
+			
+			String[] words = StringUtils.split(IOUtils.toString(r.getEntity().getContent(), core.tut.pori.http.Definitions.CHARSET_UTF8)); // the response is JSON, but we can simple split everything from whitespace
+			if(ArrayUtils.isEmpty(words)){
+				LOGGER.debug("No results.");
+				return null;
+			}
+			
+			HashSet<String> finalWords = new HashSet<>(words.length);
+			for(int i=0;i<words.length;++i){
+				if(words[i].length() > 3 && StringUtils.isAsciiPrintable(words[i]) && StringUtils.isAllLowerCase(words[i])){ // filter out everything not proper English words
+					finalWords.add(words[i]);
+				}
+			}
+			return finalWords;
+		}
+	}
+}
@@ -0,0 +1,40 @@
+/**
+ * Copyright 2015 Tampere University of Technology, Pori Department
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package service.tut.pori.fuzzyvisuals;
+
+import java.io.IOException;
+import java.util.Set;
+
+import org.apache.http.impl.client.CloseableHttpClient;
+
+/**
+ * Interface for resolving keywords from media content.
+ * 
+ * The implementing class should have a no-args default constructor, and must be thread-safe, as a single instance is shared between all analysis tasks.
+ * 
+ * @see service.tut.pori.fuzzyvisuals.FuzzyProperties#getKeywordProvider()
+ */
+public interface KeywordProvider {
+	/**
+	 * 
+	 * @param content the raw content bytes of the media
+	 * @param client HTTP client, which can be used for calling remote services, the client should not be closed
+	 * @return set of keywords or null if none was resolved
+	 * @throws IOException on failed remote call
+	 * @throws IllegalArgumentException on bad data
+	 */
+	public Set<String> getKeywords(byte[] content, CloseableHttpClient client) throws IOException, IllegalArgumentException;
+}
@@ -102,7 +102,7 @@ public final class TJContentCore {
 	 * @return list of media objects or null if none was found
 	 */
 	public static MediaObjectList retrieveTagsForUser(UserIdentity authenticatedUser, DataGroups dataGroups, Limits limits, SortOptions sortOptions) {
-		return ServiceInitializer.getDAOHandler().getDAO(MediaObjectDAO.class).search(authenticatedUser, dataGroups, limits, MEDIA_TYPES_TJ, SERVICE_TYPES_TJ, sortOptions, null, null);
+		return ServiceInitializer.getDAOHandler().getDAO(MediaObjectDAO.class).getUserMediaObjects(authenticatedUser, dataGroups, limits, MEDIA_TYPES_TJ, SERVICE_TYPES_TJ, sortOptions);
 	}
 	
 	/**
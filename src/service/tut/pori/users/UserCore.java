@@ -25,14 +25,18 @@ import javax.xml.bind.annotation.XmlRootElement;
 import org.apache.commons.lang3.ArrayUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.log4j.Logger;
+import org.springframework.context.ApplicationListener;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 
+import service.tut.pori.users.ip.IPAuthenticationDAO;
+import core.tut.pori.context.DAOHandler;
 import core.tut.pori.context.EventHandler;
 import core.tut.pori.context.ServiceInitializer;
 import core.tut.pori.http.ResponseData;
 import core.tut.pori.users.ExternalAccountConnection;
 import core.tut.pori.users.ExternalAccountConnection.UserServiceType;
 import core.tut.pori.users.UserAuthority;
+import core.tut.pori.users.UserEvent;
 import core.tut.pori.users.UserEvent.EventType;
 import core.tut.pori.users.UserIdentity;
 
@@ -45,6 +49,9 @@ import core.tut.pori.users.UserIdentity;
  *  <li>{@link core.tut.pori.users.UserEvent.EventType#USER_REMOVED} for removed user accounts.</li>
  *  <li>{@link core.tut.pori.users.UserEvent.EventType#USER_AUTHORIZATION_REVOKED} for removed external account connection. The external connection type will can be retrieved from the service type getter ({@link service.tut.pori.users.UserServiceEvent#getUserServiceType()})</li>
  * </ul>
+ * 
+ * The user identities used for authentication are cached for a short period of time. The cached details are invalidated on events of type {@link core.tut.pori.users.UserEvent.EventType#USER_REMOVED} 
+ * and {@link core.tut.pori.users.UserEvent.EventType#USER_MODIFIED}, and thus, a {@link core.tut.pori.users.UserEvent} should be published whenever the user's roles are changed.
  */
 public class UserCore {
 	private static final Logger LOGGER = Logger.getLogger(UserCore.class);
@@ -370,4 +377,36 @@ public class UserCore {
 			_registerPassword = registerPassword;
 		}
 	} // class Registration
+	
+	/**
+	 * Listener for user related events, invalidates the cached details of removed and modified users.
+	 *
+	 * Automatically instantiated by Spring as a bean.
+	 */
+	@SuppressWarnings("unused")
+	private static class UserEventListener implements ApplicationListener<UserEvent>{
+
+		@Override
+		public void onApplicationEvent(UserEvent event) {
+			EventType type = event.getType();
+			if(type != EventType.USER_REMOVED && type != EventType.USER_MODIFIED){
+				return;
+			}
+			UserIdentity userId = event.getUserId();
+			if(!UserIdentity.isValid(userId)){
+				LOGGER.warn("Ignored event of type "+type.name()+" with invalid user identity.");
+				return;
+			}
+			Long userIdValue = userId.getUserId();
+			LOGGER.debug("Detected event of type "+type.name()+", invalidating cached details of user, id: "+userIdValue);
+			DAOHandler daoHandler = ServiceInitializer.getDAOHandler();
+			UserDAO userDAO = daoHandler.getDAO(UserDAO.class);
+			userDAO.invalidateUser(userIdValue);
+			IPAuthenticationDAO ipDAO = daoHandler.getDAO(IPAuthenticationDAO.class);
+			ipDAO.invalidateUser(userIdValue);
+			if(LOGGER.isDebugEnabled()){
+				LOGGER.debug("User cache: "+userDAO.getUserCacheStats().toString()+", IP address cache: "+ipDAO.getIPCacheStats().toString());
+			}
+		}
+	} // class UserEventListener
 }
@@ -15,25 +15,36 @@
  */
 package service.tut.pori.users;
 
+import java.sql.ResultSet;
+import java.sql.SQLException;
 import java.util.Collection;
 import java.util.EnumSet;
-import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
-import java.util.Map;
-import java.util.Map.Entry;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
-import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.ArrayUtils;
 import org.apache.log4j.Logger;
 import org.springframework.jdbc.core.JdbcTemplate;
-import org.springframework.jdbc.core.simple.SimpleJdbcInsert;
+import org.springframework.jdbc.core.PreparedStatementCreatorFactory;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.transaction.TransactionStatus;
 import org.springframework.transaction.support.TransactionCallback;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+
 import core.tut.pori.dao.clause.AndClause;
 import core.tut.pori.dao.clause.SQLClause.SQLType;
 import core.tut.pori.dao.SQLDAO;
+import core.tut.pori.dao.SQLRowMapper;
 import core.tut.pori.dao.SQLSelectBuilder;
+import core.tut.pori.dao.SQLSelectTemplate;
+import core.tut.pori.dao.SQLSelectTemplate.BoundQuery;
+import core.tut.pori.dao.SQLSelectTemplate.Operator;
+import core.tut.pori.dao.SQLSelectTemplate.Parameter;
 import core.tut.pori.users.ExternalAccountConnection;
 import core.tut.pori.users.UserAuthority;
 import core.tut.pori.users.ExternalAccountConnection.UserServiceType;
@@ -45,6 +56,8 @@ import core.tut.pori.users.UserIdentity;
  */
 public class UserDAO extends SQLDAO{
 	private static final Logger LOGGER = Logger.getLogger(UserDAO.class);
+	private static final long USER_CACHE_EXPIRE_TIME = 60; // in seconds
+	private static final long USER_CACHE_MAX_SIZE = 1000;
 	/* tables */
 	private static final String TABLE_USERS = DATABASE+".users";
 	private static final String TABLE_USERS_EXTERNAL_IDS = DATABASE+".users_external_ids";
@@ -62,7 +75,7 @@ public class UserDAO extends SQLDAO{
 	private static final String SQL_DELETE_EXTERNAL_ACCOUNT_CONNECTION = "DELETE FROM "+TABLE_USERS_EXTERNAL_IDS+" WHERE "+COLUMN_USER_ID+"=? AND "+COLUMN_USER_SERVICE_ID+"=?";
 	private static final int[] SQL_DELETE_EXTERNAL_ACCOUNT_CONNECTION_TYPES = {SQLType.LONG.toInt(), SQLType.INTEGER.toInt()};
 	
-	private static final String[] SQL_GET_EXTERNAL_ACCOUNT_CONNECTIONS_COLUMNS = {COLUMN_EXTERNAL_ID, COLUMN_USER_SERVICE_ID};
+	private static final ExternalAccountConnectionMapper EXTERNAL_ACCOUNT_CONNECTION_MAPPER = new ExternalAccountConnectionMapper();
 	
 	private static final String SQL_GET_EXTERNAL_ID = "SELECT "+COLUMN_EXTERNAL_ID+" FROM "+TABLE_USERS_EXTERNAL_IDS+" WHERE "+COLUMN_USER_ID+"=? AND "+COLUMN_USER_SERVICE_ID+"=? LIMIT 1";
 	private static final int[] SQL_GET_EXTERNAL_ID_SQL_TYPES = {SQLType.LONG.toInt(), SQLType.INTEGER.toInt()};
@@ -81,62 +94,206 @@ public class UserDAO extends SQLDAO{
 	private static final String SQL_REMOVE_USER_ROLES = "DELETE FROM "+TABLE_USERS_ROLES+" WHERE "+COLUMN_USER_ID+"=?";
 	private static final int[] SQL_REMOVE_USER_SQL_TYPES = {SQLType.LONG.toInt()};
 	
-	private static final String[] SQL_SELECT_COLUMNS_GET_USERS = {COLUMN_USER_ID, COLUMN_USERNAME, COLUMN_PASSWORD_HASH};
+	private static final UserIdentityMapper USER_IDENTITY_MAPPER = new UserIdentityMapper();
 
-	private static final String SQL_SELECT_BY_USERNAME = "SELECT "+COLUMN_COUNT+","+StringUtils.join(SQL_SELECT_COLUMNS_GET_USERS, ',')+" FROM "+TABLE_USERS+" WHERE "+COLUMN_USERNAME+"=? LIMIT 1";
+	private static final String SQL_SELECT_BY_USERNAME = "SELECT "+USER_IDENTITY_MAPPER.getSelectList()+" FROM "+TABLE_USERS+" WHERE "+COLUMN_USERNAME+"=? LIMIT 1";
 	private static final int[] SQL_SELECT_BY_USER_NAME_SQL_TYPES = {SQLType.STRING.toInt()};
 	
-	private static final String SQL_SELECT_BY_USER_ID = "SELECT "+COLUMN_COUNT+", "+StringUtils.join(SQL_SELECT_COLUMNS_GET_USERS, ',')+" FROM "+TABLE_USERS+" WHERE "+COLUMN_USER_ID+"=? LIMIT 1";
+	private static final String SQL_SELECT_BY_USER_ID = "SELECT "+USER_IDENTITY_MAPPER.getSelectList()+" FROM "+TABLE_USERS+" WHERE "+COLUMN_USER_ID+"=? LIMIT 1";
 	private static final int[] SQL_SELECT_BY_USER_ID_SQL_TYPES = {SQLType.LONG.toInt()};
 	
-	private static final String[] SQL_COLUMNS_ADD_USER = {COLUMN_USERNAME, COLUMN_PASSWORD_HASH, COLUMN_ROW_CREATED};
+	private static final SQLSelectTemplate SQL_SELECT_BY_USER_IDS = new SQLSelectTemplate(TABLE_USERS, USER_IDENTITY_MAPPER.getColumns(), new Parameter[]{new Parameter(COLUMN_USER_ID, SQLType.LONG, Operator.IN)}, null);
+	
+	private static final PreparedStatementCreatorFactory SQL_INSERT_USER = createInsertFactory("INSERT INTO "+TABLE_USERS+" ("+COLUMN_USERNAME+", "+COLUMN_PASSWORD_HASH+", "+COLUMN_ROW_CREATED+") VALUES (?,?,NOW())", new int[]{SQLType.STRING.toInt(), SQLType.STRING.toInt()});
+	/* member variables */
+	private final AtomicLong _cacheGeneration = new AtomicLong(); // incremented on each invalidation, loads started before the invalidation are not cached
+	/** userId - user identity with roles */
+	private final Cache<Long, UserIdentity> _userIdCache = CacheBuilder.newBuilder().expireAfterWrite(USER_CACHE_EXPIRE_TIME, TimeUnit.SECONDS).maximumSize(USER_CACHE_MAX_SIZE).recordStats().build();
+	/** username - user identity with roles */
+	private final Cache<String, UserIdentity> _usernameCache = CacheBuilder.newBuilder().expireAfterWrite(USER_CACHE_EXPIRE_TIME, TimeUnit.SECONDS).maximumSize(USER_CACHE_MAX_SIZE).recordStats().build();
 	
 	/**
+	 * Maps the rows of the users table into user identities. The roles are not set by the mapper.
+	 */
+	private static final class UserIdentityMapper extends SQLRowMapper<UserIdentity> {
+		private final int _passwordHashIndex;
+		private final int _userIdIndex;
+		private final int _usernameIndex;
+		
+		/**
+		 * 
+		 */
+		private UserIdentityMapper(){
+			super(COLUMN_USER_ID, COLUMN_USERNAME, COLUMN_PASSWORD_HASH);
+			_passwordHashIndex = indexOf(COLUMN_PASSWORD_HASH);
+			_userIdIndex = indexOf(COLUMN_USER_ID);
+			_usernameIndex = indexOf(COLUMN_USERNAME);
+		}
+
+		@Override
+		public UserIdentity mapRow(ResultSet set, int rowNum) throws SQLException {
+			UserIdentity userId = new UserIdentity();
+			userId.setUserId(getLong(set, _userIdIndex));
+			userId.setUsername(set.getString(_usernameIndex));
+			userId.setPassword(set.getString(_passwordHashIndex));
+			return userId;
+		}
+	} // class UserIdentityMapper
+	
+	/**
+	 * Maps the rows of the external ids table into external account connections.
+	 */
+	private static final class ExternalAccountConnectionMapper extends SQLRowMapper<ExternalAccountConnection> {
+		private final int _externalIdIndex;
+		private final int _userServiceIdIndex;
+		
+		/**
+		 * 
+		 */
+		private ExternalAccountConnectionMapper(){
+			super(COLUMN_EXTERNAL_ID, COLUMN_USER_SERVICE_ID);
+			_externalIdIndex = indexOf(COLUMN_EXTERNAL_ID);
+			_userServiceIdIndex = indexOf(COLUMN_USER_SERVICE_ID);
+		}
+
+		@Override
+		public ExternalAccountConnection mapRow(ResultSet set, int rowNum) throws SQLException {
+			return new ExternalAccountConnection(set.getString(_externalIdIndex), UserServiceType.fromInt(set.getInt(_userServiceIdIndex)));
+		}
+	} // class ExternalAccountConnectionMapper
+	
+	/**
+	 * The user details are cached for a short period of time.
 	 * 
 	 * @param username
 	 * @return the user or null if not found
+	 * @see #invalidateUser(Long)
 	 */
 	public UserIdentity getUser(String username) {
+		UserIdentity cached = _usernameCache.getIfPresent(username);
+		if(cached != null){
+			return copyOf(cached);
+		}
 		LOGGER.debug("Searching user by username...");
-		UserIdentity userIdentity = extractUserIdentity(getJdbcTemplate().queryForMap(SQL_SELECT_BY_USERNAME, new Object[]{username}, SQL_SELECT_BY_USER_NAME_SQL_TYPES));
+		long generation = _cacheGeneration.get();
+		UserIdentity userIdentity = getUser(SQL_SELECT_BY_USERNAME, new Object[]{username}, SQL_SELECT_BY_USER_NAME_SQL_TYPES);
 		resolveRoles(userIdentity);
+		setCachedUser(generation, userIdentity);
 		return userIdentity;
 	}
 	
 	/**
+	 * The user details are cached for a short period of time.
 	 * 
 	 * @param userId
 	 * @return the user or null if not found
+	 * @see #invalidateUser(Long)
 	 */
 	public UserIdentity getUser(Long userId) {
+		UserIdentity cached = _userIdCache.getIfPresent(userId);
+		if(cached != null){
+			return copyOf(cached);
+		}
 		LOGGER.debug("Searching user by user id...");
-		UserIdentity userIdentity = extractUserIdentity(getJdbcTemplate().queryForMap(SQL_SELECT_BY_USER_ID, new Object[]{userId}, SQL_SELECT_BY_USER_ID_SQL_TYPES));
+		long generation = _cacheGeneration.get();
+		UserIdentity userIdentity = getUser(SQL_SELECT_BY_USER_ID, new Object[]{userId}, SQL_SELECT_BY_USER_ID_SQL_TYPES);
 		resolveRoles(userIdentity);
+		setCachedUser(generation, userIdentity);
 		return userIdentity;
 	}
 	
+	/**
+	 * 
+	 * @param generation the cache generation at the time the user details were retrieved
+	 * @param userIdentity
+	 */
+	private void setCachedUser(long generation, UserIdentity userIdentity){
+		if(!UserIdentity.isValid(userIdentity)){
+			return;
+		}
+		UserIdentity copy = copyOf(userIdentity);
+		_userIdCache.put(copy.getUserId(), copy);
+		String username = copy.getUsername();
+		if(username != null){
+			_usernameCache.put(username, copy);
+		}
+		if(_cacheGeneration.get() != generation){ // the cache was invalidated while the user details were being retrieved
+			invalidateUser(copy.getUserId());
+		}
+	}
+	
+	/**
+	 * Remove the cached details of the given user. This should be called when the user is removed or modified.
+	 * 
+	 * @param userId
+	 */
+	public void invalidateUser(Long userId){
+		_cacheGeneration.incrementAndGet();
+		_userIdCache.invalidate(userId);
+		for(Iterator<UserIdentity> iter = _usernameCache.asMap().values().iterator(); iter.hasNext();){
+			if(UserIdentity.equals(iter.next(), userId)){
+				iter.remove();
+			}
+		}
+	}
+	
+	/**
+	 * 
+	 * @return the combined statistics of the user caches
+	 */
+	public CacheStats getUserCacheStats(){
+		return _userIdCache.stats().plus(_usernameCache.stats());
+	}
+	
+	/**
+	 * 
+	 * @param userIdentity
+	 * @return copy of the given user identity
+	 */
+	private static UserIdentity copyOf(UserIdentity userIdentity){
+		UserIdentity copy = new UserIdentity(userIdentity.getPassword(), userIdentity.getUserId(), userIdentity.getUsername());
+		for(GrantedAuthority authority : userIdentity.getAuthorities()){
+			copy.addAuthority(authority);
+		}
+		copy.setAccountNonExpired(userIdentity.isAccountNonExpired());
+		copy.setAccountNonLocked(userIdentity.isAccountNonLocked());
+		copy.setCredentialsNonExpired(userIdentity.isCredentialsNonExpired());
+		copy.setEnabled(userIdentity.isEnabled());
+		return copy;
+	}
+	
+	/**
+	 * 
+	 * @param sql
+	 * @param values
+	 * @param valueTypes
+	 * @return the first user returned by the given query or null if none
+	 */
+	private UserIdentity getUser(String sql, Object[] values, int[] valueTypes){
+		List<UserIdentity> users = USER_IDENTITY_MAPPER.query(getJdbcTemplate(), sql, values, valueTypes);
+		return (users == null ? null : users.get(0));
+	}
+	
 	/**
 	 * Note: this will NOT resolve user roles
 	 * 
 	 * @param userIds
-	 * @return list of matching user identities or null if none
+	 * @return list of matching user identities or null if none or if userIds was null or empty
 	 */
 	public UserIdentityList getUsers(long[] userIds){
-		SQLSelectBuilder sql = new SQLSelectBuilder(TABLE_USERS);
-		sql.addSelectColumns(SQL_SELECT_COLUMNS_GET_USERS);
-		sql.addWhereClause(new AndClause(COLUMN_USER_ID, userIds));
-		List<Map<String, Object>> rows = getJdbcTemplate().queryForList(sql.toSQLString(), sql.getValues(), sql.getValueTypes());
-		if(rows.isEmpty()){
+		if(ArrayUtils.isEmpty(userIds)){
+			LOGGER.debug("No user ids.");
 			return null;
 		}
-		UserIdentityList list = new UserIdentityList();
-		for(Map<String,Object> row : rows){
-			list.addUserId(extractUserIdentity(row));
-		}
-		if(UserIdentityList.isEmpty(list)){
-			LOGGER.warn("Row count was !=0, but failed to extract any results.");
+		BoundQuery query = SQL_SELECT_BY_USER_IDS.bind(userIds);
+		List<UserIdentity> users = USER_IDENTITY_MAPPER.query(getJdbcTemplate(), query.toSQLString(), query.getValues(), query.getValueTypes());
+		if(users == null){
 			return null;
 		}
+		UserIdentityList list = new UserIdentityList();
+		for(UserIdentity user : users){
+			list.addUserId(user);
+		}
 		return list;
 	}
 	
@@ -243,23 +400,13 @@ public class UserDAO extends SQLDAO{
 					return false;
 				}
 				
-				SimpleJdbcInsert userInsert = new SimpleJdbcInsert(getJdbcTemplate());
-				userInsert.withTableName(TABLE_USERS);
-				userInsert.setGeneratedKeyName(COLUMN_USER_ID);
-				userInsert.usingColumns(SQL_COLUMNS_ADD_USER);
-				userInsert.withoutTableColumnMetaDataAccess();
-				
-				HashMap<String, Object> parameters = new HashMap<>(SQL_COLUMNS_ADD_USER.length);
-				parameters.put(COLUMN_USERNAME, userId.getUsername());
-				parameters.put(COLUMN_PASSWORD_HASH, userId.getPassword());
-				parameters.put(COLUMN_ROW_CREATED, null);
-				Number key = userInsert.executeAndReturnKey(parameters);
+				Long key = insertAndReturnKey(SQL_INSERT_USER, username, userId.getPassword());
 				if(key == null){
 					LOGGER.error("Failed to add new user.");
 					return false;
 				}
 				
-				userId.setUserId(key.longValue());
+				userId.setUserId(key);
 				for(GrantedAuthority authority : authorities){
 					addUserRole(userId, authority);
 				}
@@ -281,41 +428,6 @@ public class UserDAO extends SQLDAO{
 		getJdbcTemplate().update(SQL_ADD_USER_ROLE, new Object[]{userId.getUserId(), authority.getAuthority()}, SQL_ADD_USER_ROLE_SQL_TYPES);
 	}
 
-	/**
-	 * extracts the contents of the given row
-	 * 
-	 * @param row
-	 * @return the user or null if null or empty map was passed
-	 */
-	private UserIdentity extractUserIdentity(Map<String,Object> row){
-		if(row.isEmpty()){
-			LOGGER.debug("Row contains no columns.");
-			return null;
-		}
-		
-		UserIdentity userId = new UserIdentity();
-		for(Entry<String,Object> entry : row.entrySet()){
-			switch(entry.getKey()){
-				case COLUMN_USER_ID:
-					userId.setUserId((Long) entry.getValue());
-					break;
-				case COLUMN_USERNAME:
-					userId.setUsername((String) entry.getValue());
-					break;
-				case COLUMN_PASSWORD_HASH:
-					userId.setPassword((String) entry.getValue());
-					break;
-				default:				
-					if(checkCountColumn(entry.getKey(), entry.getValue()) < 1){	// this should be count(*)
-						LOGGER.debug("Unknown column name, or no results.");
-						return null;
-					}
-					break;
-			}
-		}
-		return userId;
-	}
-	
 	/**
 	 * 
 	 * @param serviceTypes optional service type filter
@@ -324,27 +436,21 @@ public class UserDAO extends SQLDAO{
 	 */
 	public ExternalAccountConnectionList getExternalAccountConnections(EnumSet<UserServiceType> serviceTypes, UserIdentity userId) {
 		SQLSelectBuilder sql = new SQLSelectBuilder(TABLE_USERS_EXTERNAL_IDS);
-		sql.addSelectColumns(SQL_GET_EXTERNAL_ACCOUNT_CONNECTIONS_COLUMNS);
+		sql.addSelectColumns(EXTERNAL_ACCOUNT_CONNECTION_MAPPER.getColumns());
 		sql.addWhereClause(new AndClause(COLUMN_USER_ID, userId.getUserId(), SQLType.LONG));
 		if(serviceTypes != null && !serviceTypes.isEmpty()){
 			sql.addWhereClause(new AndClause(COLUMN_USER_SERVICE_ID, UserServiceType.toInt(serviceTypes)));
 		}
 		
-		List<Map<String, Object>> rows = getJdbcTemplate().queryForList(sql.toSQLString(), sql.getValues(), sql.getValueTypes());
-		if(rows.isEmpty()){
+		List<ExternalAccountConnection> connections = EXTERNAL_ACCOUNT_CONNECTION_MAPPER.query(getJdbcTemplate(), sql.toSQLString(), sql.getValues(), sql.getValueTypes());
+		if(connections == null){
 			return null;
 		}
 		ExternalAccountConnectionList list = new ExternalAccountConnectionList();
-		for(Map<String, Object> row : rows){
-			list.addConnection(extractExternalAccountConnection(row));
-		}
-		
-		if(ExternalAccountConnectionList.isEmpty(list)){
-			LOGGER.warn("Row count was !=0, but failed to extract any results.");
-			return null;
-		}else{
-			return list;
+		for(ExternalAccountConnection connection : connections){
+			list.addConnection(connection);
 		}
+		return list;
 	}
 	
 	/**
@@ -362,37 +468,6 @@ public class UserDAO extends SQLDAO{
 		return new ExternalAccountConnection(externalIds.get(0), serviceType);
 	}
 	
-	/**
-	 * 
-	 * @param row
-	 * @return the connection or null if extraction was not possible
-	 */
-	private ExternalAccountConnection extractExternalAccountConnection(Map<String, Object> row){
-		if(row.isEmpty()){
-			LOGGER.debug("Row contains no columns.");
-			return null;
-		}
-		
-		ExternalAccountConnection connection = new ExternalAccountConnection();
-		for(Entry<String, Object> e : row.entrySet()){
-			switch(e.getKey()){
-				case COLUMN_EXTERNAL_ID:
-					connection.setExternalId((String) e.getValue());
-					break;
-				case COLUMN_USER_SERVICE_ID:
-					connection.setServiceType(UserServiceType.fromInt((Integer)e.getValue()));
-					break;
-				default:
-					if(checkCountColumn(e.getKey(), e.getValue()) < 1){	// this should be count(*)
-						LOGGER.debug("Unknown column name, or no results.");
-						return null;
-					}
-					break;	
-			} // switch
-		} // for
-		return connection;
-	}
-
 	/**
 	 * 
 	 * @param userServiceType
@@ -15,6 +15,16 @@
  */
 package service.tut.pori.users.ip;
 
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.google.common.base.Optional;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+
 import service.tut.pori.users.UserCore;
 import core.tut.pori.dao.clause.SQLClause.SQLType;
 import core.tut.pori.dao.SQLDAO;
@@ -22,15 +32,23 @@ import core.tut.pori.users.UserIdentity;
 
 /**
  * DAO for retrieving user details for an IP address.
+ * 
+ * The IP address - user id relations are cached for a short period of time, and thus, changes made directly to the database may not be visible immediately.
  */
 public class IPAuthenticationDAO extends SQLDAO {
+	private static final long IP_CACHE_EXPIRE_TIME = 60; // in seconds
+	private static final long IP_CACHE_MAX_SIZE = 1000;
 	/* tables */
 	private static final String TABLE_USERS_IP = DATABASE+".users_ip";
 	/* columns */
 	private static final String COLUMN_IP_ADDRESS = "ip_address";
 	/* sql scripts */
-	private static final String SQL_RESOLVE_USER_ID = "SELECT "+COLUMN_COUNT+", "+COLUMN_USER_ID+" FROM "+TABLE_USERS_IP+" WHERE "+COLUMN_IP_ADDRESS+"=?";
+	private static final String SQL_RESOLVE_USER_ID = "SELECT "+COLUMN_USER_ID+" FROM "+TABLE_USERS_IP+" WHERE "+COLUMN_IP_ADDRESS+"=? LIMIT 1";
 	private static final int[] SQL_RESOLVE_USER_ID_SQL_TYPES = {SQLType.STRING.toInt()};
+	/* member variables */
+	private final AtomicLong _cacheGeneration = new AtomicLong(); // incremented on each invalidation, loads started before the invalidation are not cached
+	/** ip address - user id, absent for addresses without user */
+	private final Cache<String, Optional<Long>> _ipCache = CacheBuilder.newBuilder().expireAfterWrite(IP_CACHE_EXPIRE_TIME, TimeUnit.SECONDS).maximumSize(IP_CACHE_MAX_SIZE).recordStats().build();
 	
 	/**
 	 * Makes a table lookup to determine if the given ip address have an associated user identity.
@@ -40,7 +58,39 @@ public class IPAuthenticationDAO extends SQLDAO {
 	 * @return the user identity associated with the given ip address, or null if none
 	 */
 	public UserIdentity resolveUserIdentity(String ipAddress){
-		Long userId = (Long) getJdbcTemplate().queryForMap(SQL_RESOLVE_USER_ID, new Object[]{ipAddress}, SQL_RESOLVE_USER_ID_SQL_TYPES).get(COLUMN_USER_ID);
-		return (userId == null ? null : UserCore.getUserIdentity(userId));
+		Optional<Long> userId = _ipCache.getIfPresent(ipAddress);
+		if(userId == null){
+			long generation = _cacheGeneration.get();
+			List<Long> userIds = getJdbcTemplate().queryForList(SQL_RESOLVE_USER_ID, new Object[]{ipAddress}, SQL_RESOLVE_USER_ID_SQL_TYPES, Long.class);
+			userId = (userIds.isEmpty() ? Optional.<Long>absent() : Optional.fromNullable(userIds.get(0)));
+			_ipCache.put(ipAddress, userId);
+			if(_cacheGeneration.get() != generation){ // the cache was invalidated while the user id was being retrieved
+				_ipCache.invalidate(ipAddress);
+			}
+		}
+		return (userId.isPresent() ? UserCore.getUserIdentity(userId.get()) : null);
+	}
+	
+	/**
+	 * Remove all cached IP addresses of the given user. This should be called when the user is removed or modified.
+	 * 
+	 * @param userId
+	 */
+	public void invalidateUser(Long userId){
+		_cacheGeneration.incrementAndGet();
+		for(Iterator<Optional<Long>> iter = _ipCache.asMap().values().iterator(); iter.hasNext();){
+			Optional<Long> cached = iter.next();
+			if(cached.isPresent() && cached.get().equals(userId)){
+				iter.remove();
+			}
+		}
+	}
+	
+	/**
+	 * 
+	 * @return the statistics of the IP address cache
+	 */
+	public CacheStats getIPCacheStats(){
+		return _ipCache.stats();
 	}
 }
@@ -301,7 +301,7 @@ public final class TwitterUserCore {
 			HttpGet get = new HttpGet(requestUri+core.tut.pori.http.Definitions.SEPARATOR_URI_METHOD_PARAMS+Definitions.PARAMETER_TWITTER_INCLUDE_ENTITIES+core.tut.pori.http.Definitions.SEPARATOR_URI_QUERY_PARAM_VALUE_SEPARATOR+PARAMETER_VALUE_FALSE+core.tut.pori.http.Definitions.SEPARATOR_URI_QUERY_PARAMS+Definitions.PARAMETER_TWITTER_SKIP_STATUS+core.tut.pori.http.Definitions.SEPARATOR_URI_QUERY_PARAM_VALUE_SEPARATOR+PARAMETER_VALUE_TRUE);
 			get.setHeader(Definitions.HEADER_OAUTH_AUTHORIZATION, createOAuthHeader(encodedParameters));	
 
-			credential = JSONFormatter.createGsonSerializer().fromJson(client.execute(get, new BasicResponseHandler()), TwitterCredential.class);
+			credential = JSONFormatter.getGsonSerializer().fromJson(client.execute(get, new BasicResponseHandler()), TwitterCredential.class);
 		} catch (IOException | EncoderException | InvalidKeyException | NoSuchAlgorithmException ex) {
 			LOGGER.error(ex, ex);
 		}